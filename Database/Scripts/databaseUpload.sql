@@ -62,14 +62,135 @@ SET employeeName = EXCLUDED.employeeName,
     employeePosition = EXCLUDED.employeePosition,
     employeePasscode = EXCLUDED.employeePasscode;
 
+CREATE TABLE IF NOT EXISTS locationTable (
+    locationID INT PRIMARY KEY,
+    locationName VARCHAR,
+    locationAddress VARCHAR,
+    locationPhoneNum VARCHAR
+);
+
+DROP TABLE IF EXISTS staging_location;
+
+CREATE TEMP TABLE staging_location (
+    locationID INT,
+    locationName VARCHAR,
+    locationAddress VARCHAR,
+    locationPhoneNum VARCHAR
+);
+
+\copy staging_location FROM 'Database/DatabaseSeed/location.csv' CSV HEADER
+
+INSERT INTO locationTable (locationID, locationName, locationAddress, locationPhoneNum)
+SELECT locationID, locationName, locationAddress, locationPhoneNum FROM staging_location
+ON CONFLICT (locationID) DO UPDATE
+SET locationName = EXCLUDED.locationName,
+    locationAddress = EXCLUDED.locationAddress,
+    locationPhoneNum = EXCLUDED.locationPhoneNum;
+
+-- Orders, order items and modifications are range-partitioned by month on orderDate.
+-- orderItem and modification carry their order's orderDate so all three tables are
+-- co-partitioned: a report filtering on orderDate only touches the matching months,
+-- and joins on (orderID, orderDate) are done partition by partition.
+-- Partitions are named <table>_yYYYYmMM and created by create_order_partitions();
+-- maintain_order_partitions() is run by the app to add future months and detach old ones.
+-- An existing unpartitioned database must be dropped with kill.sql and reloaded.
+-- A partitioned table's keys must include orderDate, so they cannot keep two orders
+-- from sharing an orderID; new IDs are therefore taken from sequences, which never
+-- hand out the same value twice even to concurrent registers.
+CREATE SEQUENCE IF NOT EXISTS ordertest_orderid_seq AS INT;
+CREATE SEQUENCE IF NOT EXISTS orderitem_orderitemid_seq AS INT;
+
 CREATE TABLE IF NOT EXISTS ordertest (
-    orderID INT PRIMARY KEY,
+    orderID INT NOT NULL DEFAULT nextval('ordertest_orderid_seq'),
     employeeID INT,
     FOREIGN KEY (employeeID) REFERENCES employee(employeeID),
-    orderLocation VARCHAR,
-    orderDate TIMESTAMP,
-    orderTotal DECIMAL
-);
+    locationID INT NOT NULL,
+    FOREIGN KEY (locationID) REFERENCES locationTable(locationID),
+    orderDate TIMESTAMP NOT NULL,
+    orderTotal DECIMAL,
+    -- Set by the register for every order it submits, so a retried submission is not
+    -- inserted twice; seeded orders have none
+    submissionID UUID,
+    PRIMARY KEY (orderID, orderDate),
+    UNIQUE (submissionID, orderDate)
+) PARTITION BY RANGE (orderDate);
+
+CREATE INDEX IF NOT EXISTS ordertest_orderdate_idx ON ordertest (orderDate);
+
+-- Every report filters on one store and a date range; orderTotal is included so sales
+-- totals can be read from the index alone
+CREATE INDEX IF NOT EXISTS ordertest_location_date_idx ON ordertest (locationID, orderDate) INCLUDE (orderTotal);
+
+CREATE TABLE IF NOT EXISTS orderItem (
+    orderItemID INT NOT NULL DEFAULT nextval('orderitem_orderitemid_seq'),
+    menuID INT,
+    FOREIGN KEY (menuID) REFERENCES menu(menuID),
+    priceAtPurchase DECIMAL,
+    quantityPurchased DECIMAL,
+    orderID INT NOT NULL,
+    orderDate TIMESTAMP NOT NULL,
+    FOREIGN KEY (orderID, orderDate) REFERENCES ordertest(orderID, orderDate),
+    orderSize INT,
+    PRIMARY KEY (orderItemID, orderDate)
+) PARTITION BY RANGE (orderDate);
+
+CREATE INDEX IF NOT EXISTS orderitem_orderid_idx ON orderItem (orderID, orderDate);
+
+-- Partitions of every month from fromMonth to toMonth (inclusive) for all three tables
+CREATE OR REPLACE FUNCTION create_order_partitions(fromMonth DATE, toMonth DATE) RETURNS VOID AS $$
+DECLARE
+    monthStart DATE := DATE_TRUNC('month', fromMonth);
+    suffix VARCHAR;
+    parentTable VARCHAR;
+BEGIN
+    WHILE monthStart <= DATE_TRUNC('month', toMonth) LOOP
+        suffix := TO_CHAR(monthStart, '"_y"YYYY"m"MM');
+        FOREACH parentTable IN ARRAY ARRAY['ordertest', 'orderitem', 'modification'] LOOP
+            IF to_regclass(parentTable) IS NOT NULL THEN
+                EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                               parentTable || suffix, parentTable, monthStart, monthStart + INTERVAL '1 month');
+            END IF;
+        END LOOP;
+        monthStart := monthStart + INTERVAL '1 month';
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Creates the next monthsAhead months and detaches months older than retainMonths.
+-- Detached partitions are kept as plain archive tables. Children are detached before
+-- their parents, and each detached child drops its foreign key so the referenced
+-- partition can be detached after it.
+CREATE OR REPLACE FUNCTION maintain_order_partitions(monthsAhead INT, retainMonths INT) RETURNS INT AS $$
+DECLARE
+    cutoff DATE := DATE_TRUNC('month', NOW()) - make_interval(months => retainMonths);
+    part RECORD;
+    fk RECORD;
+    detached INT := 0;
+BEGIN
+    PERFORM create_order_partitions(NOW()::DATE, (NOW() + make_interval(months => monthsAhead))::DATE);
+
+    FOR part IN
+        SELECT c.relname AS partName, p.relname AS parentName
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname IN ('modification', 'orderitem', 'ordertest')
+          AND c.relname ~ '_y[0-9]{4}m[0-9]{2}$'
+          AND TO_DATE(RIGHT(c.relname, 8), '"y"YYYY"m"MM') < cutoff
+        ORDER BY CASE p.relname WHEN 'modification' THEN 0 WHEN 'orderitem' THEN 1 ELSE 2 END
+    LOOP
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', part.parentName, part.partName);
+        FOR fk IN
+            SELECT conname FROM pg_constraint
+            WHERE conrelid = format('%I', part.partName)::regclass AND contype = 'f'
+        LOOP
+            EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', part.partName, fk.conname);
+        END LOOP;
+        detached := detached + 1;
+    END LOOP;
+    RETURN detached;
+END;
+$$ LANGUAGE plpgsql;
 
 DROP TABLE IF EXISTS staging_order;
 
@@ -83,25 +204,21 @@ CREATE TEMP TABLE staging_order (
 
 \copy staging_order FROM 'Database/DatabaseSeed/order.csv' CSV HEADER
 
-INSERT INTO ordertest (orderID, employeeID, orderLocation, orderDate, orderTotal)
-SELECT orderID, employeeID, orderLocation, orderDate, orderTotal FROM staging_order
-ON CONFLICT (orderID) DO UPDATE
+-- Partitions for every month of the seed data and the three months after today
+SELECT create_order_partitions(MIN(orderDate)::DATE, MAX(orderDate)::DATE) FROM staging_order;
+SELECT create_order_partitions(NOW()::DATE, (NOW() + INTERVAL '3 months')::DATE);
+
+-- The seed data names the store; orders store its location ID
+INSERT INTO ordertest (orderID, employeeID, locationID, orderDate, orderTotal)
+SELECT so.orderID, so.employeeID, l.locationID, so.orderDate, so.orderTotal
+FROM staging_order so
+JOIN locationTable l ON l.locationName = so.orderLocation
+ON CONFLICT (orderID, orderDate) DO UPDATE
 SET employeeID = EXCLUDED.employeeID,
-    orderLocation = EXCLUDED.orderLocation,
-    orderDate = EXCLUDED.orderDate,
+    locationID = EXCLUDED.locationID,
     orderTotal = EXCLUDED.orderTotal;
 
 --OrderItemID,MenuID,Price,QuantityPurchased,OrderID,Size
-CREATE TABLE IF NOT EXISTS orderItem (
-    orderItemID INT PRIMARY KEY, 
-    menuID INT,
-    FOREIGN KEY (menuID) REFERENCES menu(menuID),
-    priceAtPurchase DECIMAL,
-    quantityPurchased DECIMAL,
-    orderID INT,
-    FOREIGN KEY (orderID) REFERENCES ordertest(orderID),
-    orderSize INT
-);
 
 DROP TABLE IF EXISTS staging_item;
 
@@ -116,15 +233,22 @@ CREATE TEMP TABLE staging_item(
 
 \copy staging_item FROM 'Database/DatabaseSeed/orderItem.csv' CSV HEADER
 
-INSERT INTO orderItem (orderItemID, menuID, priceAtPurchase, quantityPurchased, orderID, orderSize)
-SELECT orderItemID, menuID, priceAtPurchase, quantityPurchased, orderID, orderSize FROM staging_item
-ON CONFLICT (orderItemID) DO UPDATE
+-- Each item takes its order's orderDate so it lands in the same month partition
+INSERT INTO orderItem (orderItemID, menuID, priceAtPurchase, quantityPurchased, orderID, orderDate, orderSize)
+SELECT si.orderItemID, si.menuID, si.priceAtPurchase, si.quantityPurchased, si.orderID, o.orderDate, si.orderSize
+FROM staging_item si
+JOIN ordertest o ON o.orderID = si.orderID
+ON CONFLICT (orderItemID, orderDate) DO UPDATE
 SET menuID = EXCLUDED.menuID,
     priceAtPurchase = EXCLUDED.priceAtPurchase,
     quantityPurchased = EXCLUDED.quantityPurchased,
     orderID = EXCLUDED.orderID,
     orderSize = EXCLUDED.orderSize;
 
+-- New orders and items continue after the seeded IDs
+SELECT setval('ordertest_orderid_seq', COALESCE((SELECT MAX(orderID) FROM ordertest), 0) + 1, false);
+SELECT setval('orderitem_orderitemid_seq', COALESCE((SELECT MAX(orderItemID) FROM orderItem), 0) + 1, false);
+
 CREATE TABLE IF NOT EXISTS inventory (
     inventoryID INT PRIMARY KEY,
     inventoryName VARCHAR,
@@ -165,40 +289,21 @@ SET inventoryName = EXCLUDED.inventoryName,
     allergy = EXCLUDED.allergy,
     restockMin = EXCLUDED.restockMin;
 
-CREATE TABLE IF NOT EXISTS locationTable (
-    locationID INT PRIMARY KEY,
-    locationName VARCHAR,
-    locationAddress VARCHAR,
-    locationPhoneNum VARCHAR
-);
-
-DROP TABLE IF EXISTS staging_location;
-
-CREATE TEMP TABLE staging_location (
-    locationID INT,
-    locationName VARCHAR,
-    locationAddress VARCHAR,
-    locationPhoneNum VARCHAR
-);
-
-\copy staging_location FROM 'Database/DatabaseSeed/location.csv' CSV HEADER
-
-INSERT INTO locationTable (locationID, locationName, locationAddress, locationPhoneNum)
-SELECT locationID, locationName, locationAddress, locationPhoneNum FROM staging_location
-ON CONFLICT (locationID) DO UPDATE
-SET locationName = EXCLUDED.locationName,
-    locationAddress = EXCLUDED.locationAddress,
-    locationPhoneNum = EXCLUDED.locationPhoneNum;
-
 CREATE TABLE IF NOT EXISTS modification (
-    modificationID INT PRIMARY KEY,
+    modificationID INT NOT NULL,
     inventoryID INT,
     FOREIGN KEY (inventoryID) REFERENCES inventory(inventoryID),
-    orderItemID INT,
-    FOREIGN KEY (orderItemID) REFERENCES orderItem(orderItemID),
+    orderItemID INT NOT NULL,
+    orderDate TIMESTAMP NOT NULL,
+    FOREIGN KEY (orderItemID, orderDate) REFERENCES orderItem(orderItemID, orderDate),
     modificationQuantity DECIMAL,
-    cost DECIMAL
-);
+    cost DECIMAL,
+    PRIMARY KEY (modificationID, orderDate)
+) PARTITION BY RANGE (orderDate);
+
+-- modification did not exist when the order partitions were first created
+SELECT create_order_partitions(MIN(orderDate)::DATE, MAX(orderDate)::DATE) FROM ordertest;
+SELECT create_order_partitions(NOW()::DATE, (NOW() + INTERVAL '3 months')::DATE);
 
 DROP TABLE IF EXISTS staging_modification;
 
@@ -212,9 +317,11 @@ CREATE TEMP TABLE staging_modification (
 
 \copy staging_modification FROM 'Database/DatabaseSeed/modifications.csv' CSV HEADER
 
-INSERT INTO modification (modificationID, inventoryID, orderItemID, modificationQuantity, cost)
-SELECT modificationID, inventoryID, orderItemID, modificationQuantity, cost FROM staging_modification
-ON CONFLICT (modificationID) DO UPDATE
+INSERT INTO modification (modificationID, inventoryID, orderItemID, orderDate, modificationQuantity, cost)
+SELECT sm.modificationID, sm.inventoryID, sm.orderItemID, oi.orderDate, sm.modificationQuantity, sm.cost
+FROM staging_modification sm
+JOIN orderItem oi ON oi.orderItemID = sm.orderItemID
+ON CONFLICT (modificationID, orderDate) DO UPDATE
 SET inventoryID = EXCLUDED.inventoryID,
     orderItemID = EXCLUDED.orderItemID,
     modificationQuantity = EXCLUDED.modificationQuantity,
@@ -254,4 +361,267 @@ DROP TABLE IF EXISTS staging_item;
 DROP TABLE IF EXISTS staging_inventory;
 DROP TABLE IF EXISTS staging_location;
 DROP TABLE IF EXISTS staging_modification;
-DROP TABLE IF EXISTS staging_employee;
\ No newline at end of file
+DROP TABLE IF EXISTS staging_employee;
+
+-- Change log for per-terminal caches: every insert/update/delete on menu, employee and
+-- inventory gets a row with a global version number and a NOTIFY on 'entity_changed'
+-- carrying '<entity>:<key>:<version>'. Terminals reload only the changed key and replay
+-- change_log rows they have not applied after reconnecting. Versions are taken before the
+-- change commits, so terminals replay from a low-water mark below any version that may
+-- still be committing. Rows older than a week are pruned by the app's daily maintenance.
+CREATE TABLE IF NOT EXISTS change_log (
+    version BIGSERIAL PRIMARY KEY,
+    entity VARCHAR NOT NULL,
+    entityKey VARCHAR NOT NULL,
+    changedAt TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS change_log_entity_idx ON change_log (entity, version);
+CREATE INDEX IF NOT EXISTS change_log_changedat_idx ON change_log (changedAt);
+
+CREATE OR REPLACE FUNCTION log_entity_change() RETURNS TRIGGER AS $$
+DECLARE
+    changedKey VARCHAR;
+    newVersion BIGINT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changedKey := (to_jsonb(OLD) ->> TG_ARGV[0]);
+    ELSE
+        changedKey := (to_jsonb(NEW) ->> TG_ARGV[0]);
+    END IF;
+
+    INSERT INTO change_log (entity, entityKey) VALUES (TG_TABLE_NAME, changedKey)
+    RETURNING version INTO newVersion;
+
+    PERFORM pg_notify('entity_changed', TG_TABLE_NAME || ':' || changedKey || ':' || newVersion);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS menu_change_log ON menu;
+CREATE TRIGGER menu_change_log AFTER INSERT OR UPDATE OR DELETE ON menu
+    FOR EACH ROW EXECUTE FUNCTION log_entity_change('menuid');
+
+DROP TRIGGER IF EXISTS employee_change_log ON employee;
+CREATE TRIGGER employee_change_log AFTER INSERT OR UPDATE OR DELETE ON employee
+    FOR EACH ROW EXECUTE FUNCTION log_entity_change('employeeid');
+
+DROP TRIGGER IF EXISTS inventory_change_log ON inventory;
+CREATE TRIGGER inventory_change_log AFTER INSERT OR UPDATE OR DELETE ON inventory
+    FOR EACH ROW EXECUTE FUNCTION log_entity_change('inventoryid');
+
+-- Inventory consumption journal: each order appends one row per ingredient it uses in the
+-- same transaction as the order, instead of updating the hot inventory rows directly.
+-- Terminals periodically drain the journal into inventory with one batched update.
+CREATE TABLE IF NOT EXISTS inventory_journal (
+    journalID BIGSERIAL PRIMARY KEY,
+    inventoryID INT NOT NULL,
+    FOREIGN KEY (inventoryID) REFERENCES inventory(inventoryID),
+    delta DECIMAL NOT NULL,
+    loggedAt TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Cross-store rollup: orders and sales per store for a time window [fromTime, toTime).
+-- Written as a function rather than a view so the window stays a sargable range on
+-- orderDate and only the matching month partitions are scanned.
+CREATE OR REPLACE FUNCTION store_sales_rollup(fromTime TIMESTAMP, toTime TIMESTAMP)
+RETURNS TABLE (locationID INT, locationName VARCHAR, orderCount BIGINT, totalSales DECIMAL) AS $$
+    SELECT l.locationID, l.locationName, COUNT(o.orderID), COALESCE(SUM(o.orderTotal), 0)
+    FROM locationTable l
+    LEFT JOIN ordertest o
+        ON o.locationID = l.locationID
+       AND o.orderDate >= fromTime AND o.orderDate < toTime
+    GROUP BY l.locationID, l.locationName
+    ORDER BY l.locationID;
+$$ LANGUAGE sql STABLE;
+
+-- Best-seller counters: quantity and revenue per store, day and menu item, kept current by
+-- a statement trigger on orderItem so every committed order line is counted in the same
+-- transaction. Top-K for any date range merges these daily rows instead of joining the
+-- order tables. The final INSERT recomputes every counter from orderItem so re-running
+-- this script (including the seed upserts above) leaves them exact.
+CREATE TABLE IF NOT EXISTS daily_item_sales (
+    locationID INT NOT NULL,
+    FOREIGN KEY (locationID) REFERENCES locationTable(locationID),
+    saleDay DATE NOT NULL,
+    menuID INT NOT NULL,
+    FOREIGN KEY (menuID) REFERENCES menu(menuID),
+    quantity DECIMAL NOT NULL DEFAULT 0,
+    revenue DECIMAL NOT NULL DEFAULT 0,
+    PRIMARY KEY (locationID, saleDay, menuID)
+);
+
+CREATE OR REPLACE FUNCTION count_daily_item_sales() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO daily_item_sales (locationID, saleDay, menuID, quantity, revenue)
+    SELECT o.locationID, n.orderDate::date, n.menuID,
+           SUM(n.quantityPurchased), SUM(n.quantityPurchased * n.priceAtPurchase)
+    FROM new_items n
+    JOIN ordertest o ON o.orderID = n.orderID AND o.orderDate = n.orderDate
+    WHERE n.menuID IS NOT NULL
+    GROUP BY o.locationID, n.orderDate::date, n.menuID
+    ON CONFLICT (locationID, saleDay, menuID) DO UPDATE
+    SET quantity = daily_item_sales.quantity + EXCLUDED.quantity,
+        revenue = daily_item_sales.revenue + EXCLUDED.revenue;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS orderitem_daily_sales ON orderItem;
+CREATE TRIGGER orderitem_daily_sales AFTER INSERT ON orderItem
+    REFERENCING NEW TABLE AS new_items
+    FOR EACH STATEMENT EXECUTE FUNCTION count_daily_item_sales();
+
+INSERT INTO daily_item_sales (locationID, saleDay, menuID, quantity, revenue)
+SELECT o.locationID, oi.orderDate::date, oi.menuID,
+       SUM(oi.quantityPurchased), SUM(oi.quantityPurchased * oi.priceAtPurchase)
+FROM orderItem oi
+JOIN ordertest o ON o.orderID = oi.orderID AND o.orderDate = oi.orderDate
+WHERE oi.menuID IS NOT NULL
+GROUP BY o.locationID, oi.orderDate::date, oi.menuID
+ON CONFLICT (locationID, saleDay, menuID) DO UPDATE
+SET quantity = EXCLUDED.quantity,
+    revenue = EXCLUDED.revenue;
+
+-- Approximate analytics: one row of mergeable sketches (HyperLogLog, Count-Min, t-digest)
+-- per store and closed day, built on demand by the manager dashboard. daily_sketch_days
+-- records which days have been built, including days on which a store had no orders.
+CREATE TABLE IF NOT EXISTS daily_sketches (
+    locationID INT NOT NULL,
+    FOREIGN KEY (locationID) REFERENCES locationTable(locationID),
+    saleDay DATE NOT NULL,
+    orderCount BIGINT NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (saleDay, locationID)
+);
+
+CREATE TABLE IF NOT EXISTS daily_sketch_days (
+    saleDay DATE PRIMARY KEY,
+    builtAt TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Z-report: every figure of one store's business day, including the adjustment lines.
+--   grossSales          sum of positive order totals
+--   returnTotal/Count   refunds, recorded as orders with a negative total
+--   voidCount/Value     orders rung up and voided (total 0), and the list value of their lines
+--   discounts           list value of lines plus modification charges above what was charged
+--   modificationCharges charges for drink modifications on paid orders
+--   netSales            sum of all order totals (gross sales minus returns)
+CREATE OR REPLACE FUNCTION z_report_totals(loc INT, fromTime TIMESTAMP, toTime TIMESTAMP)
+RETURNS TABLE (totalOrders BIGINT, grossSales DECIMAL, returnTotal DECIMAL, returnCount BIGINT,
+               voidCount BIGINT, voidValue DECIMAL, discounts DECIMAL, modificationCharges DECIMAL,
+               netSales DECIMAL, firstOrder TIMESTAMP, lastOrder TIMESTAMP) AS $$
+    WITH day_orders AS (
+        SELECT o.orderTotal, o.orderDate,
+               COALESCE((SELECT SUM(oi.quantityPurchased * oi.priceAtPurchase)
+                         FROM orderItem oi
+                         WHERE oi.orderID = o.orderID AND oi.orderDate = o.orderDate), 0) AS lineValue,
+               COALESCE((SELECT SUM(m.cost)
+                         FROM modification m
+                         JOIN orderItem oi ON oi.orderItemID = m.orderItemID AND oi.orderDate = m.orderDate
+                         WHERE oi.orderID = o.orderID AND oi.orderDate = o.orderDate), 0) AS modCharges
+        FROM ordertest o
+        WHERE o.locationID = loc AND o.orderDate >= fromTime AND o.orderDate < toTime
+    )
+    SELECT COUNT(*),
+           COALESCE(SUM(orderTotal) FILTER (WHERE orderTotal > 0), 0),
+           COALESCE(-SUM(orderTotal) FILTER (WHERE orderTotal < 0), 0),
+           COUNT(*) FILTER (WHERE orderTotal < 0),
+           COUNT(*) FILTER (WHERE orderTotal = 0),
+           COALESCE(SUM(lineValue) FILTER (WHERE orderTotal = 0), 0),
+           COALESCE(SUM(GREATEST(lineValue + modCharges - orderTotal, 0)) FILTER (WHERE orderTotal > 0 AND lineValue > 0), 0),
+           COALESCE(SUM(modCharges) FILTER (WHERE orderTotal > 0), 0),
+           COALESCE(SUM(orderTotal), 0),
+           MIN(orderDate),
+           MAX(orderDate)
+    FROM day_orders;
+$$ LANGUAGE sql STABLE;
+
+-- Closed business days: one immutable Z-report row per store and day, written once by
+-- close_business_day(). Looking up a closed day is a primary-key read and never rescans
+-- the order tables; updates, deletes and truncation are rejected.
+CREATE TABLE IF NOT EXISTS z_report_snapshots (
+    locationID INT NOT NULL,
+    FOREIGN KEY (locationID) REFERENCES locationTable(locationID),
+    businessDay DATE NOT NULL,
+    totalOrders BIGINT NOT NULL,
+    grossSales DECIMAL NOT NULL,
+    returnTotal DECIMAL NOT NULL,
+    returnCount BIGINT NOT NULL,
+    voidCount BIGINT NOT NULL,
+    voidValue DECIMAL NOT NULL,
+    discounts DECIMAL NOT NULL,
+    modificationCharges DECIMAL NOT NULL,
+    netSales DECIMAL NOT NULL,
+    firstOrder TIMESTAMP,
+    lastOrder TIMESTAMP,
+    closedAt TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (locationID, businessDay)
+);
+
+CREATE OR REPLACE FUNCTION reject_z_snapshot_change() RETURNS TRIGGER AS $$
+BEGIN
+    RAISE EXCEPTION 'Z-report snapshots are immutable';
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS z_report_snapshots_immutable ON z_report_snapshots;
+CREATE TRIGGER z_report_snapshots_immutable BEFORE UPDATE OR DELETE ON z_report_snapshots
+    FOR EACH ROW EXECUTE FUNCTION reject_z_snapshot_change();
+
+DROP TRIGGER IF EXISTS z_report_snapshots_no_truncate ON z_report_snapshots;
+CREATE TRIGGER z_report_snapshots_no_truncate BEFORE TRUNCATE ON z_report_snapshots
+    FOR EACH STATEMENT EXECUTE FUNCTION reject_z_snapshot_change();
+
+-- Closes a store's business day: computes its Z-report once and stores it. Closing an
+-- already closed day changes nothing and returns the original snapshot. The exclusive
+-- lock on (store, day) waits for order inserts of that day still in flight, so the
+-- snapshot counts every order that will ever be stored for it.
+CREATE OR REPLACE FUNCTION close_business_day(loc INT, day DATE) RETURNS SETOF z_report_snapshots AS $$
+    SELECT pg_advisory_xact_lock(loc, day - DATE '2000-01-01');
+
+    INSERT INTO z_report_snapshots (locationID, businessDay, totalOrders, grossSales, returnTotal, returnCount,
+                                    voidCount, voidValue, discounts, modificationCharges, netSales,
+                                    firstOrder, lastOrder)
+    SELECT loc, day, t.totalOrders, t.grossSales, t.returnTotal, t.returnCount,
+           t.voidCount, t.voidValue, t.discounts, t.modificationCharges, t.netSales,
+           t.firstOrder, t.lastOrder
+    FROM z_report_totals(loc, day::timestamp, (day + 1)::timestamp) t
+    ON CONFLICT (locationID, businessDay) DO NOTHING;
+
+    SELECT * FROM z_report_snapshots WHERE locationID = loc AND businessDay = day;
+$$ LANGUAGE sql;
+
+-- Orders can no longer be added to a closed day, whose stored Z-report would otherwise
+-- stop matching its orders. Each insert holds a shared lock on its (store, day) until it
+-- commits, which close_business_day() waits for.
+CREATE OR REPLACE FUNCTION reject_order_on_closed_day() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock_shared(NEW.locationID, NEW.orderDate::date - DATE '2000-01-01');
+    IF EXISTS (SELECT 1 FROM z_report_snapshots
+               WHERE locationID = NEW.locationID AND businessDay = NEW.orderDate::date) THEN
+        RAISE EXCEPTION 'Business day % is closed for store %', NEW.orderDate::date, NEW.locationID;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS ordertest_closed_day ON ordertest;
+CREATE TRIGGER ordertest_closed_day BEFORE INSERT ON ordertest
+    FOR EACH ROW EXECUTE FUNCTION reject_order_on_closed_day();
+
+-- Precomputed manager reports: results of the heavy report set computed in the background
+-- by the dashboard, keyed like its report cache. A row's presence also records that the
+-- job ran, so a restarted dashboard, or one at another store, only runs the jobs still
+-- missing. Rows are deleted a week after they were computed.
+CREATE TABLE IF NOT EXISTS precomputed_reports (
+    reportType VARCHAR NOT NULL,
+    locationID INT NOT NULL,
+    periodStart TIMESTAMP NOT NULL,
+    periodEnd TIMESTAMP NOT NULL,
+    computedAt TIMESTAMP NOT NULL DEFAULT NOW(),
+    payload BYTEA NOT NULL,
+    PRIMARY KEY (reportType, locationID, periodStart, periodEnd)
+);
+
+CREATE INDEX IF NOT EXISTS precomputed_reports_end_idx ON precomputed_reports (periodEnd);
@@ -1,8 +1,23 @@
+DROP TABLE precomputed_reports;
+DROP TABLE inventory_journal;
+DROP TABLE change_log;
 DROP TABLE modification;
 DROP TABLE menuInfo;
 DROP TABLE orderItem;
-DROP TABLE locationTable;
+DROP FUNCTION count_daily_item_sales();
+DROP FUNCTION store_sales_rollup(TIMESTAMP, TIMESTAMP);
+DROP TABLE daily_item_sales;
 DROP TABLE menu;
 DROP TABLE orderTest;
+DROP FUNCTION reject_order_on_closed_day();
+DROP FUNCTION close_business_day(INT, DATE);
+DROP TABLE z_report_snapshots;
+DROP FUNCTION reject_z_snapshot_change();
+DROP FUNCTION z_report_totals(INT, TIMESTAMP, TIMESTAMP);
+DROP SEQUENCE orderitem_orderitemid_seq;
+DROP SEQUENCE ordertest_orderid_seq;
+DROP TABLE daily_sketches;
+DROP TABLE daily_sketch_days;
+DROP TABLE locationTable;
 DROP TABLE employee;
 DROP TABLE inventory;
\ No newline at end of file
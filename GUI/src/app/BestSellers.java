@@ -0,0 +1,226 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Top-K best sellers from incrementally maintained per-day counters.
+ * <p>
+ * Every order line committed to {@code orderItem} is added by trigger to
+ * {@code daily_item_sales}, one row of quantity and revenue per store, day and menu
+ * item. A range's top items are found by reading those few pre-aggregated rows,
+ * summing them into an array indexed by menu ID, and keeping the best {@code k} in a
+ * bounded min-heap, so the cost grows with days times menu size rather than with the
+ * number of orders. Windows that do not start and end at midnight fall back to
+ * aggregating the order lines of the window.
+ * </p>
+ * <p>
+ * Each JVM also keeps today's counters per store in memory. They are read from the
+ * database the first time a store's day is asked for and then advanced from the drinks
+ * and purchase prices carried by {@link OrderFeed} events, so {@link #today} answers
+ * without a query. Events are followed before the counters are read: those arriving
+ * during the load are held, and once the counters are in place every event whose order
+ * the loaded snapshot already counted is skipped, so no order is lost or counted twice.
+ * </p>
+ */
+public class BestSellers {
+
+    /**
+     * One item's sales.
+     *
+     * @param menuID   the menu item
+     * @param quantity units sold
+     * @param revenue  sum of quantity times price at purchase
+     */
+    public record ItemTotal(int menuID, double quantity, double revenue) { }
+
+    /** Running per-item totals indexed by menu ID, grown to the highest ID seen. */
+    private static final class Counters {
+        double[] quantity = new double[64];
+        double[] revenue = new double[64];
+
+        /** The orders of the day the counters were loaded with, sorted. */
+        int[] loadedOrderIDs = new int[0];
+
+        /** @return whether the loaded counters already include the given order */
+        boolean covers(int orderID) {
+            return Arrays.binarySearch(loadedOrderIDs, orderID) >= 0;
+        }
+
+        void add(int menuID, double qty, double rev) {
+            if (menuID < 0) return;
+            if (menuID >= quantity.length) {
+                int size = Math.max(menuID + 1, quantity.length * 2);
+                quantity = Arrays.copyOf(quantity, size);
+                revenue = Arrays.copyOf(revenue, size);
+            }
+            quantity[menuID] += qty;
+            revenue[menuID] += rev;
+        }
+
+        /** @return the {@code k} items with the highest revenue, highest first */
+        List<ItemTotal> top(int k) {
+            PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble((Integer m) -> revenue[m]));
+            for (int m = 0; m < quantity.length; m++) {
+                if (quantity[m] == 0 && revenue[m] == 0) continue;
+                if (heap.size() < k) {
+                    heap.add(m);
+                } else if (revenue[m] > revenue[heap.peek()]) {
+                    heap.poll();
+                    heap.add(m);
+                }
+            }
+            List<ItemTotal> top = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                int m = heap.poll();
+                top.add(new ItemTotal(m, quantity[m], revenue[m]));
+            }
+            Collections.reverse(top);
+            return top;
+        }
+    }
+
+    /** Today's counters per store; guarded by the class lock. */
+    private static final Map<Integer, Counters> live = new HashMap<>();
+
+    /** Events received for stores whose counters are being loaded; guarded by the class lock. */
+    private static final Map<Integer, List<OrderFeed.OrderEvent>> loading = new HashMap<>();
+    private static LocalDate liveDay = null;
+    private static boolean subscribed = false;
+
+    // === RANGE ===
+
+    /**
+     * Returns the top-grossing items of one store in a window.
+     *
+     * @param conn       an open database connection
+     * @param monitor    prepares statements
+     * @param locationID the store to report on
+     * @param start      the start of the window (inclusive)
+     * @param end        the end of the window (exclusive)
+     * @param k          how many items to return
+     * @return up to {@code k} items, highest revenue first
+     * @throws SQLException if the counters cannot be read
+     */
+    public static List<ItemTotal> top(Connection conn, QueryMonitor monitor, int locationID,
+                                      LocalDateTime start, LocalDateTime end, int k) throws SQLException {
+        Counters counters = new Counters();
+        boolean wholeDays = start.toLocalTime().equals(LocalTime.MIDNIGHT) && end.toLocalTime().equals(LocalTime.MIDNIGHT);
+        if (wholeDays) {
+            try (PreparedStatement ps = monitor.prepare(conn, Queries.DAILY_ITEM_SALES)) {
+                ps.setInt(1, locationID);
+                ps.setDate(2, Date.valueOf(start.toLocalDate()));
+                ps.setDate(3, Date.valueOf(end.toLocalDate()));
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) counters.add(rs.getInt("menuID"), rs.getDouble("quantity"), rs.getDouble("revenue"));
+            }
+        } else {
+            try (PreparedStatement ps = monitor.prepare(conn, Queries.WINDOW_ITEM_SALES)) {
+                ps.setTimestamp(1, Timestamp.valueOf(start));
+                ps.setTimestamp(2, Timestamp.valueOf(end));
+                ps.setInt(3, locationID);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) counters.add(rs.getInt("menuID"), rs.getDouble("quantity"), rs.getDouble("revenue"));
+            }
+        }
+        return counters.top(k);
+    }
+
+    // === LIVE ===
+
+    /**
+     * Returns today's top-grossing items of one store from this JVM's in-memory counters.
+     * Only the first call for a store and day queries the database.
+     * <p>
+     * The day's counters and the IDs of the orders they include are read in one
+     * repeatable-read transaction on the primary, so the events of orders committed
+     * after that snapshot are exactly the ones added on top of it.
+     * </p>
+     *
+     * @param locationID the store
+     * @param day        the business day (the dashboard's current date)
+     * @param k          how many items to return
+     * @return up to {@code k} items, highest revenue first
+     * @throws SQLException if the day's counters have to be loaded and cannot be
+     */
+    public static List<ItemTotal> today(int locationID, LocalDate day, int k) throws SQLException {
+        subscribe();
+        synchronized (BestSellers.class) {
+            if (!day.equals(liveDay)) {
+                live.clear();
+                loading.clear();
+                liveDay = day;
+            }
+            if (live.containsKey(locationID)) return live.get(locationID).top(k);
+            loading.putIfAbsent(locationID, new ArrayList<>());
+        }
+
+        Counters loaded = new Counters();
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT)) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (PreparedStatement ps = Queries.DAILY_ITEM_SALES.prepare(conn)) {
+                ps.setInt(1, locationID);
+                ps.setDate(2, Date.valueOf(day));
+                ps.setDate(3, Date.valueOf(day.plusDays(1)));
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) loaded.add(rs.getInt("menuID"), rs.getDouble("quantity"), rs.getDouble("revenue"));
+            }
+            try (PreparedStatement ps = Queries.X_ORDER_IDS.prepare(conn)) {
+                ps.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+                ps.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+                ps.setInt(3, locationID);
+                ResultSet rs = ps.executeQuery();
+                List<Integer> ids = new ArrayList<>();
+                while (rs.next()) ids.add(rs.getInt("orderID"));
+                loaded.loadedOrderIDs = ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            synchronized (BestSellers.class) {
+                if (day.equals(liveDay) && !live.containsKey(locationID)) loading.remove(locationID);
+            }
+            throw e;
+        }
+
+        synchronized (BestSellers.class) {
+            if (!day.equals(liveDay)) return loaded.top(k);
+            if (live.containsKey(locationID)) return live.get(locationID).top(k);
+            for (OrderFeed.OrderEvent held : loading.getOrDefault(locationID, List.of())) apply(loaded, held);
+            loading.remove(locationID);
+            live.put(locationID, loaded);
+            return loaded.top(k);
+        }
+    }
+
+    private static synchronized void subscribe() {
+        if (subscribed) return;
+        subscribed = true;
+        OrderFeed.subscribe(event -> {
+            synchronized (BestSellers.class) {
+                if (!event.orderDate().toLocalDate().equals(liveDay)) return;
+                Counters counters = live.get(event.locationID());
+                if (counters != null) {
+                    apply(counters, event);
+                } else if (loading.containsKey(event.locationID())) {
+                    loading.get(event.locationID()).add(event);
+                }
+            }
+        });
+    }
+
+    /** Adds an order to the counters, at each drink's purchase price, unless their snapshot already included it. Must hold the class lock. */
+    private static void apply(Counters counters, OrderFeed.OrderEvent event) {
+        if (counters.covers(event.orderID())) return;
+        List<Integer> menuIDs = event.menuIDs();
+        for (int i = 0; i < menuIDs.size(); i++) counters.add(menuIDs.get(i), 1, event.prices().get(i));
+    }
+}
@@ -1,5 +1,6 @@
 package app;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -43,9 +44,63 @@ public class CashierController {
     /** Back button used to return to the login screen. */
     @FXML Button btnBack;
 
+    /** Label showing whether the database is reachable. */
+    @FXML Label dbStatusLabel;
+
+    /** Strip showing pending, committed and failed order submissions. */
+    @FXML HBox submitStatusBar;
+
+    /** Cancels the database health subscription of the most recently opened register view. */
+    private static Runnable healthFeed;
+
+    /** Cancels the submission status subscription of the most recently opened register view. */
+    private static Runnable submitFeed;
+
+    /** Menu IDs of the drinks in {@link #orderListView}, in the same order. */
+    private final List<Integer> orderMenuIDs = new ArrayList<>();
+
     private double total = 0.0;
     private static LocalDateTime currDateTime = LocalDateTime.now();
 
+    // ========================= STATUS =========================
+
+    /** Keeps the database status label and the submission strip current while the register is open. */
+    @FXML
+    void initialize() {
+        showHealth(DatabaseConnector.health());
+        if (healthFeed != null) healthFeed.run();
+        healthFeed = DatabaseConnector.subscribeHealth(state -> Platform.runLater(() -> showHealth(state)));
+
+        showSubmissions();
+        if (submitFeed != null) submitFeed.run();
+        submitFeed = OrderCommitter.subscribe(submission -> Platform.runLater(this::showSubmissions));
+        OrderCommitter.resumeSpooled();
+    }
+
+    /** Updates the database status label for a circuit breaker state. */
+    private void showHealth(CircuitBreaker.State state) {
+        dbStatusLabel.setText(state.describe());
+        dbStatusLabel.setStyle(state == CircuitBreaker.State.CLOSED ? "-fx-text-fill: darkgreen;" : "-fx-text-fill: darkred; -fx-font-weight: bold;");
+    }
+
+    /**
+     * Rebuilds the submission strip: pending and committed counts, and one retry button
+     * per failed order.
+     */
+    private void showSubmissions() {
+        OrderCommitter.Summary summary = OrderCommitter.summary();
+        Label counts = new Label(String.format("Orders — pending: %d   committed: %d   failed: %d",
+                summary.pending(), summary.committed(), summary.failed().size()));
+        counts.setStyle(summary.failed().isEmpty() ? "" : "-fx-text-fill: darkred; -fx-font-weight: bold;");
+        submitStatusBar.getChildren().setAll(counts);
+        for (OrderCommitter.Submission failed : summary.failed()) {
+            Button retryBtn = new Button(String.format("Retry #%d ($%.2f)", failed.ticket(), failed.total()));
+            retryBtn.setTooltip(new Tooltip(failed.error() != null ? failed.error() : "Order was not saved."));
+            retryBtn.setOnAction(e -> OrderCommitter.retry(failed.ticket()));
+            submitStatusBar.getChildren().add(retryBtn);
+        }
+    }
+
     // ========================= CATEGORY BUTTON HANDLERS =========================
 
     /** Loads Ice-Blended drinks into the view. */
@@ -124,65 +179,25 @@ public class CashierController {
      */
     private void loadDrinks(String category) {
         drinkPane.getChildren().clear();
-        try (Connection conn = DatabaseConnector.getConnection()) {
-            if (conn == null) return;
-
-            String query = """
-                SELECT menuName, price, menuImage, SeasonalStart, SeasonalEnd
-                FROM menu WHERE category = ?
-            """;
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, category);
-                ResultSet rs = stmt.executeQuery();
-                boolean found = false;
-
-                while (rs.next()) {
-                    Timestamp startTs = rs.getTimestamp("SeasonalStart");
-                    Timestamp endTs = rs.getTimestamp("SeasonalEnd");
-
-                    boolean showItem = false;
-                    if(startTs == null || endTs == null)
-                    {
-                        showItem = true;
-                    }
-                    else{
-                        LocalDateTime start = startTs.toLocalDateTime();
-                        LocalDateTime end = endTs.toLocalDateTime();
-
-                        int startMonth = start.getMonthValue();
-                        int startDay = start.getDayOfMonth();
-                        int endMonth = end.getMonthValue();
-                        int endDay = end.getDayOfMonth();
-
-                        int currMonth = currDateTime.getMonthValue();
-                        int currDay = currDateTime.getDayOfMonth();
-
-                        // Compare by month/day only
-                        boolean afterStart = (currMonth > startMonth) || (currMonth == startMonth && currDay >= startDay);
-                        boolean beforeEnd = (currMonth < endMonth) || (currMonth == endMonth && currDay <= endDay);
-
-                        // Handle wrap-around seasons (e.g., starts in Nov, ends in Feb)
-                        if (endMonth < startMonth) {
-                            showItem = afterStart || beforeEnd;
-                        } else {
-                            showItem = afterStart && beforeEnd;
-                        }
-                    }
-                    if(showItem)
-                    {
-                        found = true;
-                        String name = rs.getString("menuName");
-                        double price = rs.getDouble("price");
-                        int imageID = rs.getInt("menuImage");
-                        drinkPane.getChildren().add(createDrinkCard(name, price, imageID));
-                    }
-                }
-                if (!found) {
-                    Label noItems = new Label("No items found for: " + category);
-                    noItems.setStyle("-fx-text-fill: gray;");
-                    drinkPane.getChildren().add(noItems);
+        try {
+            // Served from the terminal's menu cache, which manager edits keep current
+            List<TerminalCaches.MenuRow> items = TerminalCaches.MENU.values().stream()
+                .filter(item -> category.equals(item.category()))
+                .sorted(Comparator.comparingInt(TerminalCaches.MenuRow::menuID))
+                .toList();
+
+            boolean found = false;
+            for (TerminalCaches.MenuRow item : items) {
+                if (isItemInSeason(item.seasonalStart(), item.seasonalEnd())) {
+                    found = true;
+                    drinkPane.getChildren().add(createDrinkCard(item.menuID(), item.menuName(), item.price(), item.menuImage()));
                 }
             }
+            if (!found) {
+                Label noItems = new Label("No items found for: " + category);
+                noItems.setStyle("-fx-text-fill: gray;");
+                drinkPane.getChildren().add(noItems);
+            }
         } catch (SQLException e) { e.printStackTrace(); }
     }
 
@@ -205,7 +220,7 @@ public class CashierController {
     // ========================= DRINK CARD CREATION =========================
 
     /** Creates a visual card for a menu item. */
-    private VBox createDrinkCard(String name, double basePrice, int imageID) {
+    private VBox createDrinkCard(int menuID, String name, double basePrice, int imageID) {
         VBox card = new VBox(10);
         card.setPrefWidth(160);
         card.setAlignment(Pos.CENTER);
@@ -229,7 +244,7 @@ public class CashierController {
 
         Button selectButton = new Button("Select");
         selectButton.setStyle("-fx-background-color: #a6b1b7; -fx-text-fill: white;");
-        selectButton.setOnAction(e -> showDrinkOptions(name, basePrice));
+        selectButton.setOnAction(e -> showDrinkOptions(menuID, name, basePrice));
 
         card.getChildren().addAll(imageView, nameLabel, priceLabel, selectButton);
         return card;
@@ -238,7 +253,7 @@ public class CashierController {
     // ========================= DRINK CUSTOMIZATION =========================
 
     /** Opens a dialog to customize the selected drink. */
-    private void showDrinkOptions(String drinkName, double basePrice) {
+    private void showDrinkOptions(int menuID, String drinkName, double basePrice) {
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Customize " + drinkName);
         dialog.setHeaderText("Select ingredients / options");
@@ -281,7 +296,7 @@ public class CashierController {
                 for (CheckBox cb : extraChecks)
                     if (cb.isSelected()) { desc.append("+").append(cb.getText()).append(" "); itemPrice += 0.50; }
                 desc.append("]");
-                addToOrder(desc.toString().trim(), itemPrice);
+                addToOrder(menuID, desc.toString().trim(), itemPrice);
             }
         });
     }
@@ -289,8 +304,9 @@ public class CashierController {
     // ========================= ORDER HANDLING =========================
 
     /** Adds a drink to the current order list. */
-    private void addToOrder(String itemName, double price) {
+    private void addToOrder(int menuID, String itemName, double price) {
         orderListView.getItems().add(String.format("%s - $%.2f", itemName, price));
+        orderMenuIDs.add(menuID);
         total += price;
         totalLabel.setText(String.format("Total: $%.2f", total));
     }
@@ -298,6 +314,7 @@ public class CashierController {
     /** Removes the selected drink from the order list. */
     @FXML
     void handleRemoveItemClick(ActionEvent event) {
+        int selectedIndex = orderListView.getSelectionModel().getSelectedIndex();
         String selectedItem = orderListView.getSelectionModel().getSelectedItem();
         if (selectedItem == null) {
             new Alert(Alert.AlertType.WARNING, "Please select an item to remove.").showAndWait();
@@ -309,67 +326,35 @@ public class CashierController {
             total -= price;
             totalLabel.setText(String.format("Total: $%.2f", total));
         } catch (NumberFormatException e) { System.err.println("Error parsing price: " + e.getMessage()); }
-        orderListView.getItems().remove(selectedItem);
+        orderListView.getItems().remove(selectedIndex);
+        orderMenuIDs.remove(selectedIndex);
     }
 
-    /** Submits the current order to the database. */
+    /**
+     * Hands the current order to {@link OrderCommitter} and clears the register for the
+     * next customer right away; the commit's outcome shows in the status strip.
+     */
     @FXML
     void handleSubmitOrderClick(ActionEvent event) {
         if (orderListView.getItems().isEmpty()) {
             new Alert(Alert.AlertType.WARNING, "Cannot submit an empty order!").showAndWait();
             return;
         }
-        boolean success = saveOrderToDatabase();
-        Alert.AlertType type = success ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR;
-        String msg = success ? "Your order has been submitted successfully!"
-                             : "There was a problem saving your order to the database.";
-        new Alert(type, msg).showAndWait();
-
-        if (success) {
-            orderListView.getItems().clear();
-            total = 0.0;
-            totalLabel.setText("Total: $0.00");
+        int locationID;
+        try {
+            locationID = StoreSession.getLocationID();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            new Alert(Alert.AlertType.ERROR, "Store location unavailable: " + e.getMessage()).showAndWait();
+            return;
         }
-    }
+        randomizeTime();
+        OrderCommitter.submit(currDateTime, locationID, total, orderMenuIDs);
 
-    /** Saves the current order to the database. */
-    private boolean saveOrderToDatabase() {
-        try (Connection conn = DatabaseConnector.getConnection()) {
-            if (conn == null) return false;
-
-            String insertOrder = """
-                INSERT INTO ordertest (orderID, employeeID, orderLocation, orderDate, orderTotal)
-                VALUES ((SELECT COALESCE(MAX(orderID), 0) + 1 FROM ordertest), ?, ?, ?, ?)
-            """;
-            try (PreparedStatement stmt = conn.prepareStatement(insertOrder)) {
-                int employeeID = 2; // default fallback
-
-                String lookup = """
-                    SELECT employeeID FROM employee
-                    WHERE employeePosition = 'Cashier' AND employeeID IN (2, 3)
-                    ORDER BY employeeID
-                    LIMIT 1 OFFSET (
-                        (SELECT COUNT(*) FROM ordertest)
-                        % (SELECT COUNT(*) FROM employee WHERE employeePosition = 'Cashier' AND employeeID IN (2, 3))
-                    )
-                """;
-
-                try (Statement empStmt = conn.createStatement();
-                     ResultSet rs = empStmt.executeQuery(lookup)) {
-                    if (rs.next()) {
-                        employeeID = rs.getInt("employeeID");
-                    }
-                }
-
-                stmt.setInt(1, employeeID);
-
-                stmt.setString(2, "College Station");
-                randomizeTime();
-                stmt.setTimestamp(3, Timestamp.valueOf(currDateTime));
-                stmt.setDouble(4, total);
-                return stmt.executeUpdate() > 0;
-            }
-        } catch (SQLException e) { e.printStackTrace(); return false; }
+        orderListView.getItems().clear();
+        orderMenuIDs.clear();
+        total = 0.0;
+        totalLabel.setText("Total: $0.00");
     }
 
     // ========================= NAVIGATION =========================
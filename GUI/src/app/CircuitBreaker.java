@@ -0,0 +1,219 @@
+package app;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the health of one database server and fails fast while it is known to be down.
+ * <p>
+ * The breaker starts {@link State#CLOSED}. After {@value #FAILURE_THRESHOLD} consecutive
+ * connection failures (a connect error, a socket timeout, or any other error with
+ * SQLState class {@code 08}) it opens: {@link #beforeCall()} then throws at once instead
+ * of letting callers sit through the driver's connect timeout. Once the open interval has
+ * passed, a background probe runs while the breaker is {@link State#HALF_OPEN}. If the
+ * probe succeeds the breaker closes again; if it fails the breaker reopens with twice the
+ * interval, up to {@value #MAX_OPEN_MILLIS} ms. A caller arriving after the interval but
+ * before the probe runs is let through as the probe itself.
+ * </p>
+ * <p>
+ * State changes are delivered to subscribers on the thread that caused them, so UI
+ * subscribers must hop back to the JavaFX thread themselves.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    /** Health of the guarded server. */
+    public enum State {
+        /** Healthy; every call goes through. */
+        CLOSED,
+        /** Known to be down; calls fail immediately. */
+        OPEN,
+        /** Being probed; other calls fail immediately until the probe finishes. */
+        HALF_OPEN;
+
+        /** @return a short status line for the UI */
+        public String describe() {
+            return switch (this) {
+                case CLOSED -> "Database: online";
+                case OPEN -> "Database: offline, retrying";
+                case HALF_OPEN -> "Database: reconnecting...";
+            };
+        }
+    }
+
+    /** A check that the server is reachable again. */
+    @FunctionalInterface
+    public interface Probe {
+        void run() throws SQLException;
+    }
+
+    /** Consecutive connection failures that open the breaker. */
+    private static final int FAILURE_THRESHOLD = 3;
+
+    /** First open interval after the breaker trips. */
+    private static final long BASE_OPEN_MILLIS = 2_000;
+
+    /** Longest open interval between probes. */
+    private static final long MAX_OPEN_MILLIS = 30_000;
+
+    /** A probe that has not reported back within this time is assumed lost, and another is let through. */
+    private static final long PROBE_TIMEOUT_MILLIS = 15_000;
+
+    private static final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "db-health-probe");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final Probe probe;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openMillis = BASE_OPEN_MILLIS;
+    private long openUntil = 0;
+    private long halfOpenSince = 0;
+    private String lastError = null;
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param name  label of the guarded server, used in messages
+     * @param probe the reachability check run while half-open
+     */
+    public CircuitBreaker(String name, Probe probe) {
+        this.name = name;
+        this.probe = probe;
+    }
+
+    /**
+     * Checks whether a call may go ahead.
+     * <p>
+     * While the breaker is open this returns in well under a microsecond by throwing; once
+     * the open interval has passed, the first caller becomes the half-open probe.
+     * </p>
+     *
+     * @throws SQLException with SQLState {@code 08001} if the server is known to be down
+     */
+    public void beforeCall() throws SQLException {
+        State changed;
+        synchronized (this) {
+            if (state == State.CLOSED) return;
+            long now = System.currentTimeMillis();
+            boolean probing = state == State.HALF_OPEN && now - halfOpenSince < PROBE_TIMEOUT_MILLIS;
+            if (probing || (state == State.OPEN && now < openUntil)) {
+                throw new SQLException("The " + name + " database is unavailable"
+                        + (lastError == null ? "." : ": " + lastError), "08001");
+            }
+            state = changed = State.HALF_OPEN;
+            halfOpenSince = now;
+        }
+        notifyListeners(changed);
+    }
+
+    /** Records a call that reached the server. */
+    public void onSuccess() {
+        State changed;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.CLOSED) return;
+            state = changed = State.CLOSED;
+            openMillis = BASE_OPEN_MILLIS;
+            lastError = null;
+        }
+        System.out.println(" The " + name + " database is reachable again");
+        notifyListeners(changed);
+    }
+
+    /**
+     * Records a failed call. Only connection failures count toward opening the breaker;
+     * errors such as constraint violations say nothing about the server's health.
+     *
+     * @param e the error the call failed with
+     */
+    public void onFailure(SQLException e) {
+        if (!isConnectionFailure(e)) {
+            // The server answered, so it is up
+            onSuccess();
+            return;
+        }
+        State changed;
+        synchronized (this) {
+            lastError = e.getMessage();
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN) {
+                openMillis = Math.min(openMillis * 2, MAX_OPEN_MILLIS);
+            } else if (state == State.OPEN || consecutiveFailures < FAILURE_THRESHOLD) {
+                return;
+            }
+            state = changed = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+            prober.schedule(this::probe, openMillis, TimeUnit.MILLISECONDS);
+        }
+        System.err.println(" The " + name + " database is unavailable, failing fast for "
+                + openMillis / 1000 + "s: " + e.getMessage());
+        notifyListeners(changed);
+    }
+
+    /** @return the current state */
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Subscribes to state changes.
+     *
+     * @param listener receives the new state after every change
+     * @return a handle that cancels the subscription when run
+     */
+    public Runnable subscribe(Consumer<State> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Returns whether an error means the server could not be reached, as opposed to the
+     * server rejecting the statement.
+     *
+     * @param e the error to classify
+     * @return {@code true} for connection errors, socket timeouts and server shutdowns
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        if (state == null) return e.getCause() instanceof java.io.IOException;
+        // 08 = connection exception, 57P01-57P03 = server shutting down or not yet accepting connections
+        return state.startsWith("08") || state.startsWith("57P0");
+    }
+
+    /** Runs the background probe once the open interval has passed. */
+    private void probe() {
+        try {
+            beforeCall();
+        } catch (SQLException stillOpen) {
+            // A caller is already probing, or the breaker was reopened with a longer interval
+            return;
+        }
+        if (state() != State.HALF_OPEN) return;
+        try {
+            probe.run();
+            onSuccess();
+        } catch (SQLException e) {
+            onFailure(e);
+        }
+    }
+
+    private void notifyListeners(State newState) {
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(newState);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,624 @@
+package app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.IsoFields;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An embedded, memory-mapped column store of the order history for ad-hoc analysis.
+ * <p>
+ * {@code ordertest}, {@code orderItem} and {@code modification} are copied into one file
+ * per column under {@code ~/.pos-columnar} (or {@code -Dpos.columnar.dir}). Each file is
+ * memory-mapped, so the operating system pages the data in and a restart reopens the
+ * store instantly. Columns are encoded to stay small and scan fast:
+ * </p>
+ * <ul>
+ *     <li>order timestamps are stored as the signed difference in seconds from the
+ *         previous order, decoded with one addition per row;</li>
+ *     <li>money is stored as whole cents and quantities as thousandths in {@code int}s;</li>
+ *     <li>menu and inventory IDs are dictionary-encoded into 2-byte codes.</li>
+ * </ul>
+ * <p>
+ * Order rows are kept in the order they were synced, and item and modification rows
+ * point to the row of their order and item, so scans walk the columns together with
+ * plain loops over primitives and never join. New orders are appended incrementally,
+ * shortly after each order notification from {@link OrderFeed}. Order IDs are taken when
+ * an order is inserted but become visible when it commits, so a sync re-reads every
+ * order above a {@link SyncWatermark} low-water mark and appends only those not stored
+ * yet; an order that commits after a higher one has been synced is still picked up.
+ * The first build settles the mark at the highest order it read, so later syncs do not
+ * re-read the history while its gaps time out.
+ * Row counts and the mark are only advanced in {@code meta.properties} after the columns
+ * are flushed, so a crash mid-append leaves the previous snapshot intact.
+ * </p>
+ */
+public class ColumnarStore {
+
+    /** Where the column files live. */
+    private static final Path DIR = Path.of(System.getProperty("pos.columnar.dir",
+            Path.of(System.getProperty("user.home"), ".pos-columnar").toString()));
+
+    /** Bumped whenever the file layout changes; a store with another version is rebuilt. */
+    private static final int FORMAT_VERSION = 2;
+
+    /** Money columns hold cents. */
+    private static final int MONEY_SCALE = 100;
+
+    /** Quantity columns hold thousandths. */
+    private static final int QTY_SCALE = 1000;
+
+    /** Dictionary code stored for a missing menu or inventory ID. */
+    private static final int NO_CODE = 0xFFFF;
+
+    /** How long after an order notification the incremental sync runs, to batch bursts. */
+    private static final long SYNC_DELAY_MILLIS = 2_000;
+
+    /** Rows fetched per round trip while syncing. */
+    private static final int FETCH_SIZE = 10_000;
+
+    // === RESULT TYPES ===
+
+    /**
+     * Sales of one day.
+     *
+     * @param day    the day
+     * @param orders number of orders
+     * @param sales  sum of order totals
+     */
+    public record DaySales(LocalDate day, long orders, double sales) implements java.io.Serializable { }
+
+    /**
+     * The history analyses answered from the column store.
+     *
+     * @param orders          order rows scanned
+     * @param items           item rows scanned
+     * @param hourlyOrders    orders per hour of day (24 entries)
+     * @param hourlySales     sales per hour of day (24 entries)
+     * @param weeklyOrders    orders per ISO week number, across all years
+     * @param peakDays        the ten days with the highest sales, highest first
+     * @param worstDay        the lowest-selling day of the requested week, or {@code null} if it had no orders
+     * @param worstDaySales   sales on {@code worstDay}
+     * @param worstDayTopMenu menu ID of the item sold most often on {@code worstDay}, or -1
+     * @param worstDayTopQty  quantity sold of that item
+     * @param scanMicros      time the scan took, in microseconds
+     */
+    public record Insights(int orders, int items, long[] hourlyOrders, double[] hourlySales,
+                           SortedMap<Integer, Long> weeklyOrders, List<DaySales> peakDays,
+                           LocalDate worstDay, double worstDaySales, int worstDayTopMenu, double worstDayTopQty,
+                           long scanMicros) { }
+
+    // === STORAGE ===
+
+    /** One fixed-width column file, memory-mapped and grown by remapping. */
+    private static final class Column {
+        private final FileChannel channel;
+        private final int width;
+        private MappedByteBuffer buf;
+        private int length;
+
+        Column(String fileName, int width, int length) throws IOException {
+            this.channel = FileChannel.open(DIR.resolve(fileName),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.width = width;
+            this.length = length;
+            map(Math.max(channel.size(), Math.max(64 * 1024, (long) length * width)));
+        }
+
+        private void map(long bytes) throws IOException {
+            if (bytes > Integer.MAX_VALUE) throw new IOException("Column file exceeds 2 GiB.");
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+
+        private void ensure(int rows) throws IOException {
+            long need = (long) rows * width;
+            if (need > buf.capacity()) map(Math.max(need, Math.min((long) buf.capacity() * 2, Integer.MAX_VALUE)));
+        }
+
+        void addInt(int value) throws IOException {
+            ensure(length + 1);
+            buf.putInt(length++ * 4, value);
+        }
+
+        void addCode(int code) throws IOException {
+            ensure(length + 1);
+            buf.putShort(length++ * 2, (short) code);
+        }
+
+        int getInt(int row) {
+            return buf.getInt(row * 4);
+        }
+
+        int getCode(int row) {
+            return buf.getShort(row * 2) & 0xFFFF;
+        }
+
+        void force() {
+            buf.force();
+        }
+    }
+
+    /** A growable {@code int} array, used to stage a sync batch. */
+    private static final class Ints {
+        int[] a = new int[1024];
+        int n = 0;
+
+        void add(int v) {
+            if (n == a.length) a = Arrays.copyOf(a, n * 2);
+            a[n++] = v;
+        }
+    }
+
+    /** A growable {@code long} array, used to stage a sync batch. */
+    private static final class Longs {
+        long[] a = new long[1024];
+        int n = 0;
+
+        void add(long v) {
+            if (n == a.length) a = Arrays.copyOf(a, n * 2);
+            a[n++] = v;
+        }
+    }
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final Object syncLock = new Object();
+
+    private static boolean opened = false;
+    private static Column orderIDs, orderTimes, orderTotals, orderLocations;
+    private static Column itemOrderRows, itemMenus, itemQtys, itemPrices;
+    private static Column modItemRows, modInventories, modQtys;
+    private static Column menuDict, inventoryDict;
+    private static final Map<Integer, Integer> menuCodes = new HashMap<>();
+    private static final Map<Integer, Integer> inventoryCodes = new HashMap<>();
+    private static long firstSecond, lastSecond, minSecond, maxSecond;
+    /** Which order IDs are stored; every ID at or below its mark is stored or was never committed. */
+    private static SyncWatermark synced;
+
+    private static ScheduledExecutorService syncer = null;
+    private static ScheduledFuture<?> pendingSync = null;
+
+    // === LIFECYCLE ===
+
+    /**
+     * Opens the store and keeps it current in the background: an initial sync runs now,
+     * and another runs shortly after every committed order.
+     */
+    public static synchronized void start() {
+        if (syncer != null) return;
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "columnar-sync");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduleSync(0);
+        OrderFeed.subscribe(event -> scheduleSync(SYNC_DELAY_MILLIS));
+    }
+
+    private static synchronized void scheduleSync(long delayMillis) {
+        if (pendingSync != null && !pendingSync.isDone()) return;
+        pendingSync = syncer.schedule(() -> {
+            try {
+                int added = sync();
+                if (added > 0) System.out.println("Columnar store appended " + added + " orders");
+            } catch (SQLException | IOException e) {
+                System.err.println("Columnar store sync failed, will retry: " + e.getMessage());
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return whether the store has been opened and holds at least one order */
+    public static boolean hasData() {
+        lock.readLock().lock();
+        try {
+            return opened && orderIDs.length > 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void openIfNeeded() throws IOException {
+        if (opened) return;
+        Files.createDirectories(DIR);
+        Properties meta = new Properties();
+        Path metaFile = DIR.resolve("meta.properties");
+        if (Files.exists(metaFile)) {
+            try (InputStream in = Files.newInputStream(metaFile)) {
+                meta.load(in);
+            }
+        }
+        if (Integer.parseInt(meta.getProperty("version", "0")) != FORMAT_VERSION) meta.clear();
+
+        int orders = Integer.parseInt(meta.getProperty("orders", "0"));
+        int items = Integer.parseInt(meta.getProperty("items", "0"));
+        int mods = Integer.parseInt(meta.getProperty("modifications", "0"));
+        orderIDs = new Column("order_id.i32", 4, orders);
+        orderTimes = new Column("order_time.delta32", 4, orders);
+        orderTotals = new Column("order_total.cents32", 4, orders);
+        orderLocations = new Column("order_location.i32", 4, orders);
+        itemOrderRows = new Column("item_order_row.i32", 4, items);
+        itemMenus = new Column("item_menu.code16", 2, items);
+        itemQtys = new Column("item_qty.milli32", 4, items);
+        itemPrices = new Column("item_price.cents32", 4, items);
+        modItemRows = new Column("mod_item_row.i32", 4, mods);
+        modInventories = new Column("mod_inventory.code16", 2, mods);
+        modQtys = new Column("mod_qty.milli32", 4, mods);
+        menuDict = new Column("menu.dict32", 4, Integer.parseInt(meta.getProperty("menuCodes", "0")));
+        inventoryDict = new Column("inventory.dict32", 4, Integer.parseInt(meta.getProperty("inventoryCodes", "0")));
+        for (int code = 0; code < menuDict.length; code++) menuCodes.put(menuDict.getInt(code), code);
+        for (int code = 0; code < inventoryDict.length; code++) inventoryCodes.put(inventoryDict.getInt(code), code);
+
+        firstSecond = Long.parseLong(meta.getProperty("firstSecond", "0"));
+        lastSecond = Long.parseLong(meta.getProperty("lastSecond", "0"));
+        minSecond = Long.parseLong(meta.getProperty("minSecond", String.valueOf(Long.MAX_VALUE)));
+        maxSecond = Long.parseLong(meta.getProperty("maxSecond", String.valueOf(Long.MIN_VALUE)));
+        synced = new SyncWatermark(Long.parseLong(meta.getProperty("syncedOrderID", String.valueOf(Integer.MIN_VALUE))));
+        for (int row = 0; row < orders; row++) synced.offer(orderIDs.getInt(row));
+        opened = true;
+    }
+
+    /** Flushes every column, then records the new row counts. Must hold the write lock. */
+    private static void commit() throws IOException {
+        for (Column c : List.of(orderIDs, orderTimes, orderTotals, orderLocations, itemOrderRows, itemMenus,
+                itemQtys, itemPrices, modItemRows, modInventories, modQtys, menuDict, inventoryDict)) {
+            c.force();
+        }
+        Properties meta = new Properties();
+        meta.setProperty("version", String.valueOf(FORMAT_VERSION));
+        meta.setProperty("orders", String.valueOf(orderIDs.length));
+        meta.setProperty("items", String.valueOf(itemOrderRows.length));
+        meta.setProperty("modifications", String.valueOf(modItemRows.length));
+        meta.setProperty("menuCodes", String.valueOf(menuDict.length));
+        meta.setProperty("inventoryCodes", String.valueOf(inventoryDict.length));
+        meta.setProperty("firstSecond", String.valueOf(firstSecond));
+        meta.setProperty("lastSecond", String.valueOf(lastSecond));
+        meta.setProperty("minSecond", String.valueOf(minSecond));
+        meta.setProperty("maxSecond", String.valueOf(maxSecond));
+        meta.setProperty("syncedOrderID", String.valueOf(synced.low()));
+        Path tmp = DIR.resolve("meta.properties.tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            meta.store(out, "Columnar order store");
+        }
+        Files.move(tmp, DIR.resolve("meta.properties"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // === SYNC ===
+
+    /**
+     * Appends every committed order not stored yet, with its items and modifications.
+     * <p>
+     * Every order above the low-water mark is read in one repeatable-read transaction,
+     * staged in primitive arrays, and only then appended under the write lock, so scans
+     * are never blocked by the database round trips. Orders above the mark that are
+     * already stored are dropped before the append.
+     * </p>
+     *
+     * @return the number of orders appended
+     * @throws SQLException if reading the new rows fails
+     * @throws IOException  if the column files cannot be written
+     */
+    public static int sync() throws SQLException, IOException {
+        synchronized (syncLock) {
+            long watermark;
+            lock.writeLock().lock();
+            try {
+                openIfNeeded();
+                watermark = synced.low();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Ints oIDs = new Ints(), oTotals = new Ints(), oLocs = new Ints();
+            Longs oSecs = new Longs();
+            Ints iOrderIDs = new Ints(), iItemIDs = new Ints(), iMenus = new Ints(), iQtys = new Ints(), iPrices = new Ints();
+            Longs iSecs = new Longs();
+            Ints mOrderIDs = new Ints(), mItemIDs = new Ints(), mInventories = new Ints(), mQtys = new Ints();
+            Longs mSecs = new Longs();
+
+            try (Connection conn = DatabaseConnector.getReportingConnection()) {
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                String orders = """
+                    SELECT orderID, orderDate, orderTotal, locationID
+                    FROM ordertest
+                    WHERE orderID > ?
+                    ORDER BY orderID, orderDate
+                """;
+                try (PreparedStatement ps = conn.prepareStatement(orders)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, watermark);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        oIDs.add(rs.getInt("orderID"));
+                        oSecs.add(seconds(rs.getTimestamp("orderDate")));
+                        oTotals.add(fixed(rs.getDouble("orderTotal"), MONEY_SCALE));
+                        oLocs.add(rs.getInt("locationID"));
+                    }
+                }
+                if (oIDs.n == 0) return advance();
+                int upTo = oIDs.a[oIDs.n - 1];
+
+                String items = """
+                    SELECT orderID, orderDate, orderItemID, menuID, quantityPurchased, priceAtPurchase
+                    FROM orderItem
+                    WHERE orderID > ? AND orderID <= ?
+                    ORDER BY orderID, orderDate, orderItemID
+                """;
+                try (PreparedStatement ps = conn.prepareStatement(items)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, watermark);
+                    ps.setInt(2, upTo);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        iOrderIDs.add(rs.getInt("orderID"));
+                        iSecs.add(seconds(rs.getTimestamp("orderDate")));
+                        iItemIDs.add(rs.getInt("orderItemID"));
+                        int menuID = rs.getInt("menuID");
+                        iMenus.add(rs.wasNull() ? Integer.MIN_VALUE : menuID);
+                        iQtys.add(fixed(rs.getDouble("quantityPurchased"), QTY_SCALE));
+                        iPrices.add(fixed(rs.getDouble("priceAtPurchase"), MONEY_SCALE));
+                    }
+                }
+
+                String modifications = """
+                    SELECT oi.orderID, m.orderDate, m.orderItemID, m.inventoryID, m.modificationQuantity
+                    FROM modification m
+                    JOIN orderItem oi ON oi.orderItemID = m.orderItemID AND oi.orderDate = m.orderDate
+                    WHERE oi.orderID > ? AND oi.orderID <= ?
+                    ORDER BY oi.orderID, m.orderDate, m.orderItemID
+                """;
+                try (PreparedStatement ps = conn.prepareStatement(modifications)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, watermark);
+                    ps.setInt(2, upTo);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        mOrderIDs.add(rs.getInt("orderID"));
+                        mSecs.add(seconds(rs.getTimestamp("orderDate")));
+                        mItemIDs.add(rs.getInt("orderItemID"));
+                        int inventoryID = rs.getInt("inventoryID");
+                        mInventories.add(rs.wasNull() ? Integer.MIN_VALUE : inventoryID);
+                        mQtys.add(fixed(rs.getDouble("modificationQuantity"), QTY_SCALE));
+                    }
+                }
+                conn.commit();
+            }
+
+            lock.writeLock().lock();
+            try {
+                // Keep only orders not stored yet; their items and modifications drop out of the merge-join
+                boolean firstBuild = orderIDs.length == 0;
+                Ints newIDs = new Ints(), newTotals = new Ints(), newLocs = new Ints();
+                Longs newSecs = new Longs();
+                for (int i = 0; i < oIDs.n; i++) {
+                    // Orders sharing an ID on different dates are both new
+                    if (synced.isRead(oIDs.a[i])) continue;
+                    newIDs.add(oIDs.a[i]);
+                    newSecs.add(oSecs.a[i]);
+                    newTotals.add(oTotals.a[i]);
+                    newLocs.add(oLocs.a[i]);
+                }
+                for (int i = 0; i < newIDs.n; i++) synced.offer(newIDs.a[i]);
+                // The gaps of the history read by the first build are long settled
+                if (firstBuild) synced.settle();
+                else synced.advance();
+                append(newIDs, newSecs, newTotals, newLocs, iOrderIDs, iSecs, iItemIDs, iMenus, iQtys, iPrices,
+                        mOrderIDs, mSecs, mItemIDs, mInventories, mQtys);
+                commit();
+                return newIDs.n;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Moves the mark past gaps that have timed out when no new orders were read, recording it if it moved. */
+    private static int advance() throws IOException {
+        lock.writeLock().lock();
+        try {
+            long before = synced.low();
+            synced.advance();
+            if (synced.low() != before) commit();
+            return 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Appends a staged batch. All three inputs are sorted by (order ID, order date[, item ID]). Must hold the write lock. */
+    private static void append(Ints oIDs, Longs oSecs, Ints oTotals, Ints oLocs,
+                               Ints iOrderIDs, Longs iSecs, Ints iItemIDs, Ints iMenus, Ints iQtys, Ints iPrices,
+                               Ints mOrderIDs, Longs mSecs, Ints mItemIDs, Ints mInventories, Ints mQtys) throws IOException {
+        int firstOrderRow = orderIDs.length;
+
+        for (int i = 0; i < oIDs.n; i++) {
+            long second = oSecs.a[i];
+            if (orderIDs.length == 0) firstSecond = lastSecond = second;
+            long delta = second - lastSecond;
+            if (delta < Integer.MIN_VALUE || delta > Integer.MAX_VALUE) {
+                throw new IOException("Order " + oIDs.a[i] + " is too far from the previous order to delta-encode.");
+            }
+            orderIDs.addInt(oIDs.a[i]);
+            orderTimes.addInt((int) delta);
+            orderTotals.addInt(oTotals.a[i]);
+            orderLocations.addInt(oLocs.a[i]);
+            lastSecond = second;
+            minSecond = Math.min(minSecond, second);
+            maxSecond = Math.max(maxSecond, second);
+        }
+
+        // Merge-join items to their orders on (orderID, orderDate); both sides are sorted
+        int[] stagedItemRow = new int[iOrderIDs.n];
+        int o = 0;
+        for (int i = 0; i < iOrderIDs.n; i++) {
+            stagedItemRow[i] = -1;
+            while (o < oIDs.n && compare(oIDs.a[o], oSecs.a[o], iOrderIDs.a[i], iSecs.a[i]) < 0) o++;
+            if (o == oIDs.n || compare(oIDs.a[o], oSecs.a[o], iOrderIDs.a[i], iSecs.a[i]) != 0) continue;
+            stagedItemRow[i] = itemOrderRows.length;
+            itemOrderRows.addInt(firstOrderRow + o);
+            itemMenus.addCode(code(iMenus.a[i], menuCodes, menuDict));
+            itemQtys.addInt(iQtys.a[i]);
+            itemPrices.addInt(iPrices.a[i]);
+        }
+
+        // Merge-join modifications to their items on (orderID, orderDate, orderItemID)
+        int it = 0;
+        for (int m = 0; m < mOrderIDs.n; m++) {
+            while (it < iOrderIDs.n && (compare(iOrderIDs.a[it], iSecs.a[it], mOrderIDs.a[m], mSecs.a[m]) < 0
+                    || compare(iOrderIDs.a[it], iSecs.a[it], mOrderIDs.a[m], mSecs.a[m]) == 0
+                    && iItemIDs.a[it] < mItemIDs.a[m])) it++;
+            if (it == iOrderIDs.n || compare(iOrderIDs.a[it], iSecs.a[it], mOrderIDs.a[m], mSecs.a[m]) != 0
+                    || iItemIDs.a[it] != mItemIDs.a[m] || stagedItemRow[it] < 0) continue;
+            modItemRows.addInt(stagedItemRow[it]);
+            modInventories.addCode(code(mInventories.a[m], inventoryCodes, inventoryDict));
+            modQtys.addInt(mQtys.a[m]);
+        }
+    }
+
+    private static int compare(int idA, long secA, int idB, long secB) {
+        int c = Integer.compare(idA, idB);
+        return c != 0 ? c : Long.compare(secA, secB);
+    }
+
+    private static int code(int id, Map<Integer, Integer> codes, Column dict) throws IOException {
+        if (id == Integer.MIN_VALUE) return NO_CODE;
+        Integer existing = codes.get(id);
+        if (existing != null) return existing;
+        if (dict.length >= NO_CODE) throw new IOException("Dictionary is full.");
+        int code = dict.length;
+        dict.addInt(id);
+        codes.put(id, code);
+        return code;
+    }
+
+    private static long seconds(Timestamp ts) {
+        return ts.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int fixed(double value, int scale) {
+        return (int) Math.round(value * scale);
+    }
+
+    // === SCANS ===
+
+    /**
+     * Answers the history analyses of {@code queries.sql} from the column store: orders
+     * and sales per hour of day, orders per week, the ten best days, and the
+     * best-selling item on the worst day of a week.
+     *
+     * @param locationID the store to analyze, or {@link StoreSession#ALL_LOCATIONS}
+     * @param isoWeek    the ISO week number whose worst day is examined
+     * @return the analyses and how long the scan took
+     * @throws IOException if the store cannot be opened
+     */
+    public static Insights insights(int locationID, int isoWeek) throws IOException {
+        lock.writeLock().lock();
+        try {
+            openIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        lock.readLock().lock();
+        try {
+            long started = System.nanoTime();
+            int orders = orderIDs.length;
+            int items = itemOrderRows.length;
+            boolean all = locationID == StoreSession.ALL_LOCATIONS;
+
+            long[] hourlyOrders = new long[24];
+            long[] hourlyCents = new long[24];
+            long minDay = orders == 0 ? 0 : Math.floorDiv(minSecond, 86_400);
+            int days = orders == 0 ? 0 : (int) (Math.floorDiv(maxSecond, 86_400) - minDay + 1);
+            long[] dayOrders = new long[days];
+            long[] dayCents = new long[days];
+
+            // Pass 1: orders only; one addition decodes each timestamp
+            long t = firstSecond;
+            for (int row = 0; row < orders; row++) {
+                t += row == 0 ? 0 : orderTimes.getInt(row);
+                if (!all && orderLocations.getInt(row) != locationID) continue;
+                int cents = orderTotals.getInt(row);
+                int hour = Math.floorMod(t, 86_400) / 3600;
+                int day = (int) (Math.floorDiv(t, 86_400) - minDay);
+                hourlyOrders[hour]++;
+                hourlyCents[hour] += cents;
+                dayOrders[day]++;
+                dayCents[day] += cents;
+            }
+
+            SortedMap<Integer, Long> weekly = new TreeMap<>();
+            PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingLong(d -> dayCents[d]));
+            int worst = -1;
+            for (int d = 0; d < days; d++) {
+                if (dayOrders[d] == 0) continue;
+                LocalDate date = LocalDate.ofEpochDay(minDay + d);
+                int week = date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+                weekly.merge(week, dayOrders[d], Long::sum);
+                best.add(d);
+                if (best.size() > 10) best.poll();
+                if (week == isoWeek && (worst < 0 || dayCents[d] < dayCents[worst])) worst = d;
+            }
+            List<DaySales> peakDays = new ArrayList<>();
+            while (!best.isEmpty()) {
+                int d = best.poll();
+                peakDays.add(new DaySales(LocalDate.ofEpochDay(minDay + d), dayOrders[d], dayCents[d] / (double) MONEY_SCALE));
+            }
+            Collections.reverse(peakDays);
+
+            // Pass 2: items of orders on the worst day; items are stored in order-row order
+            int topMenu = -1;
+            long topQty = 0;
+            if (worst >= 0) {
+                long[] qtyByCode = new long[menuDict.length];
+                long worstDay = minDay + worst;
+                t = firstSecond;
+                int item = 0;
+                for (int row = 0; row < orders && item < items; row++) {
+                    t += row == 0 ? 0 : orderTimes.getInt(row);
+                    while (item < items && itemOrderRows.getInt(item) < row) item++;
+                    if (Math.floorDiv(t, 86_400) != worstDay) continue;
+                    if (!all && orderLocations.getInt(row) != locationID) continue;
+                    for (; item < items && itemOrderRows.getInt(item) == row; item++) {
+                        int code = itemMenus.getCode(item);
+                        if (code != NO_CODE) qtyByCode[code] += itemQtys.getInt(item);
+                    }
+                }
+                for (int code = 0; code < qtyByCode.length; code++) {
+                    if (qtyByCode[code] > topQty) {
+                        topQty = qtyByCode[code];
+                        topMenu = menuDict.getInt(code);
+                    }
+                }
+            }
+
+            double[] hourlySales = new double[24];
+            for (int h = 0; h < 24; h++) hourlySales[h] = hourlyCents[h] / (double) MONEY_SCALE;
+            long micros = (System.nanoTime() - started) / 1000;
+            return new Insights(orders, items, hourlyOrders, hourlySales, Collections.unmodifiableSortedMap(weekly),
+                    List.copyOf(peakDays), worst < 0 ? null : LocalDate.ofEpochDay(minDay + worst),
+                    worst < 0 ? 0 : dayCents[worst] / (double) MONEY_SCALE, topMenu, topQty / (double) QTY_SCALE, micros);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
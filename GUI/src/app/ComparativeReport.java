@@ -0,0 +1,223 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Compares any number of date windows side by side from a single scan of the order lines.
+ * <p>
+ * The windows are merged into disjoint ranges, and one query streams every order of the
+ * store falling in any of them with its lines. Each row is bucketed into every window that
+ * contains it, so overlapping windows (this week and month-to-date) are fed by the same
+ * read. Per window the report keeps revenue, order count, the top items by revenue and
+ * sales per hour of the day; later windows carry their change against the first one,
+ * which is the baseline.
+ * </p>
+ */
+public class ComparativeReport {
+
+    /** Rows fetched per round trip while scanning. */
+    private static final int FETCH_SIZE = 5_000;
+
+    /** Number of top items kept per window. */
+    private static final int TOP_N = 5;
+
+    /**
+     * One period to compare.
+     *
+     * @param label name shown in the report
+     * @param start start of the window (inclusive)
+     * @param end   end of the window (exclusive)
+     */
+    public record Window(String label, LocalDateTime start, LocalDateTime end) {
+
+        /** Builds a window over whole days, from {@code first} to {@code last} inclusive. */
+        public static Window ofDays(String label, LocalDate first, LocalDate last) {
+            return new Window(label, first.atStartOfDay(), last.plusDays(1).atStartOfDay());
+        }
+
+        boolean contains(LocalDateTime time) {
+            return !time.isBefore(start) && time.isBefore(end);
+        }
+    }
+
+    /**
+     * The figures of one window.
+     *
+     * @param window      the window
+     * @param revenue     sum of order totals
+     * @param orders      number of orders
+     * @param topItems    the best items by revenue, highest first
+     * @param hourlySales sales per hour of the day (index 0-23)
+     */
+    public record WindowResult(Window window, double revenue, int orders, List<SalesPackEngine.ItemSales> topItems,
+                               double[] hourlySales) {
+
+        /** @return the average order total, or 0 without orders */
+        public double averageTicket() {
+            return orders == 0 ? 0 : revenue / orders;
+        }
+    }
+
+    /**
+     * The comparison.
+     *
+     * @param windows one result per window, in the order requested; the first is the baseline
+     * @param rows    order lines scanned
+     * @param millis  wall time of the scan
+     */
+    public record Comparison(List<WindowResult> windows, long rows, long millis) { }
+
+    // === PRESETS ===
+
+    /**
+     * The usual comparisons as of a business day, baseline first.
+     *
+     * @param today the dashboard's current date
+     * @return preset name to windows, in menu order
+     */
+    public static Map<String, List<Window>> presets(LocalDate today) {
+        Map<String, List<Window>> presets = new LinkedHashMap<>();
+        presets.put("Today vs same day last week", List.of(
+                Window.ofDays("Same day last week", today.minusWeeks(1), today.minusWeeks(1)),
+                Window.ofDays("Today", today, today)));
+        LocalDate monday = today.with(DayOfWeek.MONDAY);
+        presets.put("This week vs last week (to date)", List.of(
+                Window.ofDays("Last week", monday.minusWeeks(1), today.minusWeeks(1)),
+                Window.ofDays("This week", monday, today)));
+        LocalDate firstOfMonth = today.withDayOfMonth(1);
+        presets.put("Month to date vs last year", List.of(
+                Window.ofDays("Same period last year", firstOfMonth.minusYears(1), today.minusYears(1)),
+                Window.ofDays("Month to date", firstOfMonth, today)));
+        return presets;
+    }
+
+    // === SCAN ===
+
+    /**
+     * Computes every window's figures in one scan.
+     *
+     * @param conn       an open database connection
+     * @param monitor    prepares statements and receives progress updates
+     * @param locationID the store to report on
+     * @param windows    the windows to compare, baseline first
+     * @return one result per window
+     * @throws SQLException if the scan fails
+     */
+    public static Comparison compare(Connection conn, QueryMonitor monitor, int locationID, List<Window> windows) throws SQLException {
+        long started = System.nanoTime();
+        int n = windows.size();
+        long[] revenueCents = new long[n];
+        int[] orders = new int[n];
+        long[][] hourlyCents = new long[n][24];
+        List<Map<Integer, double[]>> items = new ArrayList<>();
+        for (int w = 0; w < n; w++) items.add(new HashMap<>());
+
+        // Disjoint ranges covering every window, so each order is read once
+        List<Window> sorted = new ArrayList<>(windows);
+        sorted.sort(Comparator.comparing(Window::start));
+        List<Timestamp> rangeStarts = new ArrayList<>();
+        List<Timestamp> rangeEnds = new ArrayList<>();
+        LocalDateTime openStart = null, openEnd = null;
+        for (Window window : sorted) {
+            if (openEnd != null && !window.start().isAfter(openEnd)) {
+                if (window.end().isAfter(openEnd)) openEnd = window.end();
+                continue;
+            }
+            if (openEnd != null) {
+                rangeStarts.add(Timestamp.valueOf(openStart));
+                rangeEnds.add(Timestamp.valueOf(openEnd));
+            }
+            openStart = window.start();
+            openEnd = window.end();
+        }
+        if (openEnd != null) {
+            rangeStarts.add(Timestamp.valueOf(openStart));
+            rangeEnds.add(Timestamp.valueOf(openEnd));
+        }
+
+        long rows = 0;
+        boolean[] inWindow = new boolean[n];
+        int lastOrderID = 0;
+        long lastSecond = Long.MIN_VALUE;
+        int hour = 0;
+
+        monitor.step(0, 1, "Scanning " + rangeStarts.size() + (rangeStarts.size() == 1 ? " range" : " ranges"));
+        boolean autoCommit = conn.getAutoCommit();
+        // Streaming with a fetch size needs a transaction in pgjdbc
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.COMPARE_LINES)) {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setArray(1, conn.createArrayOf("timestamp", rangeStarts.toArray()));
+            ps.setArray(2, conn.createArrayOf("timestamp", rangeEnds.toArray()));
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rows++;
+                int orderID = rs.getInt(1);
+                LocalDateTime orderDate = rs.getTimestamp(2).toLocalDateTime();
+                long second = orderDate.toEpochSecond(ZoneOffset.UTC);
+                if (orderID != lastOrderID || second != lastSecond) {
+                    lastOrderID = orderID;
+                    lastSecond = second;
+                    hour = orderDate.getHour();
+                    long totalCents = Math.round(rs.getDouble(3) * 100);
+                    for (int w = 0; w < n; w++) {
+                        inWindow[w] = windows.get(w).contains(orderDate);
+                        if (!inWindow[w]) continue;
+                        orders[w]++;
+                        revenueCents[w] += totalCents;
+                        hourlyCents[w][hour] += totalCents;
+                    }
+                }
+                int menuID = rs.getInt(4);
+                if (rs.wasNull()) continue;
+                double quantity = rs.getDouble(5);
+                double lineRevenue = quantity * rs.getDouble(6);
+                for (int w = 0; w < n; w++) {
+                    if (!inWindow[w]) continue;
+                    double[] totals = items.get(w).computeIfAbsent(menuID, k -> new double[2]);
+                    totals[0] += quantity;
+                    totals[1] += lineRevenue;
+                }
+            }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        List<WindowResult> results = new ArrayList<>();
+        for (int w = 0; w < n; w++) {
+            List<SalesPackEngine.ItemSales> top = new ArrayList<>();
+            items.get(w).forEach((menuID, totals) ->
+                    top.add(new SalesPackEngine.ItemSales(SalesReports.menuName(menuID), totals[0], totals[1])));
+            top.sort(Comparator.comparingDouble(SalesPackEngine.ItemSales::revenue).reversed());
+            double[] hourly = new double[24];
+            for (int h = 0; h < 24; h++) hourly[h] = hourlyCents[w][h] / 100.0;
+            results.add(new WindowResult(windows.get(w), revenueCents[w] / 100.0, orders[w],
+                    List.copyOf(top.subList(0, Math.min(TOP_N, top.size()))), hourly));
+        }
+        monitor.step(1, 1, "Done");
+        return new Comparison(List.copyOf(results), rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Formats the change of a figure against the baseline.
+     *
+     * @param value    the window's figure
+     * @param baseline the baseline window's figure
+     * @return e.g. "+12.5%", "-3.0%", "new" without a baseline, or "—" if both are zero
+     */
+    public static String delta(double value, double baseline) {
+        if (baseline == 0) return value == 0 ? "—" : "new";
+        return String.format("%+.1f%%", (value - baseline) / baseline * 100);
+    }
+}
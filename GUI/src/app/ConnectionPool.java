@@ -0,0 +1,333 @@
+package app;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A small fixed-size pool of physical connections to one Postgres server.
+ * <p>
+ * Callers receive a proxy {@link Connection}; closing it closes the statements opened
+ * through it, rolls back any unfinished transaction, restores auto-commit and the pool's
+ * read-only setting, and returns the physical connection to the pool. {@code unwrap}
+ * is passed through, so driver-specific features such as {@code PGConnection} keep
+ * working. A connection that has been idle for a while is validated before it is handed
+ * out again, and connections that failed with a connection error (SQLState class
+ * {@code 08}) or that the driver reports as closed are discarded.
+ * </p>
+ * <p>
+ * Physical connections are opened with the given connect and socket timeouts, and every
+ * connect and every statement execution reports its outcome to the pool's
+ * {@link CircuitBreaker}, so once the server is known to be down, borrowing fails
+ * immediately. Statements are handed out as proxies too, so an {@code execute} that
+ * fails with a connection error trips the breaker and keeps its connection out of the
+ * pool. Reading a result set is not watched; a connection that breaks mid-read fails
+ * its next statement or validation instead.
+ * </p>
+ * <p>
+ * Because physical connections outlive the proxies, pgjdbc's per-connection statement
+ * cache pays off: statements closed through a proxy stay prepared on the server, and the
+ * next prepare of the same SQL text (see {@link Queries}) reuses the cached plan.
+ * </p>
+ */
+class ConnectionPool {
+
+    /** Idle connections unused for longer than this are validated before reuse. */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+
+    /** Seconds allowed for a validation round trip. */
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Executions of one SQL text after which pgjdbc switches it to a named server-side
+     * prepared statement. 1 prepares on first use, since every hot query comes from
+     * {@link Queries} and runs many times over a pooled connection's life.
+     */
+    private static final int PREPARE_THRESHOLD = 1;
+
+    /** SQL texts whose server-side statements each connection keeps. */
+    private static final int STATEMENT_CACHE_QUERIES = 256;
+
+    /** Memory cap of each connection's statement cache, in MiB. */
+    private static final int STATEMENT_CACHE_MIB = 5;
+
+    private record Idle(Connection physical, long idleSince) { }
+
+    private final String name;
+    private final String url;
+    private final Properties props = new Properties();
+    private final CircuitBreaker breaker;
+    private final int maxSize;
+    private final boolean readOnly;
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private int open = 0;
+    private boolean shutDown = false;
+
+    /**
+     * Creates an empty pool; connections are opened on demand.
+     *
+     * @param name     label used in log messages
+     * @param url      the JDBC URL
+     * @param user     the database user
+     * @param password the database password
+     * @param maxSize  the most physical connections kept open at once
+     * @param readOnly whether handed-out connections are read-only
+     * @param connectTimeoutSeconds how long opening a connection may take
+     * @param socketTimeoutSeconds  how long any single read from the server may block
+     */
+    ConnectionPool(String name, String url, String user, String password, int maxSize, boolean readOnly,
+                   int connectTimeoutSeconds, int socketTimeoutSeconds) {
+        this.name = name;
+        this.url = url;
+        this.maxSize = maxSize;
+        this.readOnly = readOnly;
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        props.setProperty("connectTimeout", String.valueOf(connectTimeoutSeconds));
+        props.setProperty("loginTimeout", String.valueOf(connectTimeoutSeconds));
+        props.setProperty("socketTimeout", String.valueOf(socketTimeoutSeconds));
+        props.setProperty("prepareThreshold", String.valueOf(PREPARE_THRESHOLD));
+        props.setProperty("preparedStatementCacheQueries", String.valueOf(STATEMENT_CACHE_QUERIES));
+        props.setProperty("preparedStatementCacheSizeMiB", String.valueOf(STATEMENT_CACHE_MIB));
+        this.breaker = new CircuitBreaker(name, () -> {
+            try (Connection probe = DriverManager.getConnection(this.url, props)) {
+                if (!probe.isValid(VALIDATE_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Health check failed.", "08006");
+                }
+            }
+        });
+    }
+
+    /** @return the breaker tracking this pool's server */
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle and the pool is not full.
+     *
+     * @param timeoutMillis how long to wait for a connection to be returned when the pool is full
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if no connection becomes available in time or connecting fails
+     */
+    Connection acquire(long timeoutMillis) throws SQLException {
+        return acquire(timeoutMillis, () -> { });
+    }
+
+    /**
+     * Borrows a connection and runs {@code onClose} once it has been returned.
+     *
+     * @param timeoutMillis how long to wait for a connection to be returned when the pool is full
+     * @param onClose       run exactly once when the connection is closed, after it is back in the pool
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if no connection becomes available in time or connecting fails
+     */
+    Connection acquire(long timeoutMillis, Runnable onClose) throws SQLException {
+        breaker.beforeCall();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            Idle candidate = null;
+            synchronized (this) {
+                while (idle.isEmpty() && open >= maxSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a " + name + " connection (" + maxSize + " in use).");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted waiting for a " + name + " connection.", e);
+                    }
+                }
+                if (shutDown) throw new SQLException("The " + name + " pool has been shut down.");
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst();
+                } else {
+                    open++;
+                }
+            }
+
+            if (candidate == null) {
+                try {
+                    Connection physical = DriverManager.getConnection(url, props);
+                    physical.setReadOnly(readOnly);
+                    breaker.onSuccess();
+                    System.out.println(" Opened " + name + " connection (" + open + "/" + maxSize + ")");
+                    return wrap(physical, onClose);
+                } catch (SQLException e) {
+                    discarded();
+                    breaker.onFailure(e);
+                    throw e;
+                } catch (RuntimeException e) {
+                    discarded();
+                    throw e;
+                }
+            }
+
+            // While the server's health is in doubt, every reused connection doubles as a probe
+            boolean verify = breaker.state() != CircuitBreaker.State.CLOSED;
+            if (isUsable(candidate, verify)) {
+                if (verify) breaker.onSuccess();
+                return wrap(candidate.physical(), onClose);
+            }
+            closeQuietly(candidate.physical());
+            discarded();
+        }
+    }
+
+    /** Closes every idle connection; connections in use are closed when they are returned. */
+    synchronized void shutdown() {
+        shutDown = true;
+        for (Idle entry : idle) {
+            closeQuietly(entry.physical());
+            open--;
+        }
+        idle.clear();
+        notifyAll();
+    }
+
+    private boolean isUsable(Idle candidate, boolean verify) {
+        try {
+            if (candidate.physical().isClosed()) return false;
+            if (!verify && System.currentTimeMillis() - candidate.idleSince() < VALIDATE_AFTER_IDLE_MILLIS) return true;
+            return candidate.physical().isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private synchronized void discarded() {
+        open--;
+        notifyAll();
+    }
+
+    /** Resets a returned connection and puts it back, or discards it if it cannot be reset. */
+    private void release(Connection physical, List<Statement> statements, boolean broken) {
+        for (Statement stmt : statements) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+                // The connection is reset or discarded below either way
+            }
+        }
+        try {
+            if (!broken && !physical.isClosed()) {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly() != readOnly) physical.setReadOnly(readOnly);
+                synchronized (this) {
+                    if (!shutDown) {
+                        idle.addFirst(new Idle(physical, System.currentTimeMillis()));
+                        notifyAll();
+                        return;
+                    }
+                }
+            }
+        } catch (SQLException ignored) {
+            // Could not be reset; discarded below
+        }
+        closeQuietly(physical);
+        discarded();
+    }
+
+    private Connection wrap(Connection physical, Runnable onClose) {
+        InvocationHandler handler = new InvocationHandler() {
+            private final List<Statement> statements = new ArrayList<>();
+            private boolean closed = false;
+            private boolean broken = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            try {
+                                release(physical, statements, broken);
+                            } finally {
+                                onClose.run();
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled " + name + " connection " + physical;
+                    default:
+                        break;
+                }
+                if (closed) throw new SQLException("Connection is closed.");
+                try {
+                    Object result = method.invoke(physical, args);
+                    if (result instanceof Statement stmt) {
+                        statements.add(stmt);
+                        return wrapStatement(stmt, method.getReturnType(), proxy);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw failed(e.getCause());
+                }
+            }
+
+            /** Passes statement calls through, reporting how each execution went. */
+            private Object wrapStatement(Statement stmt, Class<?> type, Object connection) {
+                InvocationHandler statementHandler = (statementProxy, call, callArgs) -> {
+                    switch (call.getName()) {
+                        case "getConnection":
+                            return connection;
+                        case "equals":
+                            return statementProxy == callArgs[0];
+                        case "hashCode":
+                            return System.identityHashCode(statementProxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        Object value = call.invoke(stmt, callArgs);
+                        if (call.getName().startsWith("execute")) breaker.onSuccess();
+                        return value;
+                    } catch (InvocationTargetException e) {
+                        throw failed(e.getCause());
+                    }
+                };
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {type}, statementHandler);
+            }
+
+            /** A connection-level failure means this connection must not be reused. */
+            private Throwable failed(Throwable cause) {
+                if (cause instanceof SQLException sql && CircuitBreaker.isConnectionFailure(sql)) {
+                    broken = true;
+                    breaker.onFailure(sql);
+                }
+                return cause;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, handler);
+    }
+
+    private static void closeQuietly(Connection physical) {
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+            // Already broken
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-ingredient consumption rates used to forecast stock-outs.
+ * <p>
+ * Each ingredient keeps one exponentially weighted moving average per hour of the week
+ * (7 days &times; 24 hours = {@value #SLOTS} slots), so a Saturday-afternoon rush and a
+ * quiet Monday morning get their own rate. Consumption is summed for the current hour;
+ * when the hour ends, that hour's slot moves {@link #ALPHA} of the way toward the
+ * observed total. Hours with no orders count as zero consumption.
+ * </p>
+ * <p>
+ * The rates are backfilled once from {@code ordertest} &times; {@code orderItem} &times;
+ * {@code menuInfo} in the background, then kept current from the orders committed on any
+ * terminal ({@link OrderFeed}), whose drinks are turned into ingredient usage with the
+ * recipes. Usage is counted at the order's own time, not when the inventory journal is
+ * flushed, and restocks or stock corrections are never mistaken for consumption.
+ * Forecasts are computed purely in memory by walking the hourly rates forward from now,
+ * which takes microseconds per ingredient.
+ * </p>
+ * <p>
+ * A backfill that fails (the database is down, the scheduler sheds it at peak, a query
+ * times out) is retried with a doubling delay from {@link #RETRY_MIN_MILLIS} up to
+ * {@link #RETRY_MAX_MILLIS}.
+ * </p>
+ */
+public class ConsumptionForecast {
+
+    /** Hour-of-week slots per ingredient. */
+    private static final int SLOTS = 7 * 24;
+
+    /** Weight of the newest observation in each slot's moving average. */
+    private static final double ALPHA = 0.2;
+
+    /** How far ahead a stock-out is searched for, in hours (four weeks). */
+    private static final int HORIZON_HOURS = 4 * SLOTS;
+
+    /** Days of projected consumption a suggested order should cover. */
+    private static final int COVER_DAYS = 7;
+
+    /** Longest gap of unobserved hours filled with zeros; longer gaps mean the app was not running. */
+    private static final int MAX_ZERO_FILL_HOURS = SLOTS;
+
+    /** Delay before the first retry of a failed backfill; each further failure doubles it. */
+    private static final long RETRY_MIN_MILLIS = 30_000;
+
+    /** Longest delay between backfill attempts. */
+    private static final long RETRY_MAX_MILLIS = 15 * 60_000;
+
+    /**
+     * The forecast for one ingredient.
+     *
+     * @param hoursToStockout projected hours until the quantity reaches zero,
+     *                        or {@link Double#POSITIVE_INFINITY} if not within four weeks
+     * @param suggestedOrder  quantity to order so that {@value #COVER_DAYS} days of projected
+     *                        consumption still leave the ingredient at its restock minimum
+     */
+    public record Forecast(double hoursToStockout, double suggestedOrder) {
+
+        /** @return the time to stock-out formatted for a table cell */
+        public String describeStockout() {
+            if (Double.isInfinite(hoursToStockout)) return "> 4 weeks";
+            if (hoursToStockout < 48) return String.format("%.1f h", hoursToStockout);
+            return String.format("%.1f days", hoursToStockout / 24);
+        }
+    }
+
+    /** Moving-average rates per hour-of-week slot, keyed by inventory ID. */
+    private static final Map<Integer, double[]> rates = new HashMap<>();
+
+    /** Consumption observed so far in {@link #currentHour}, keyed by inventory ID. */
+    private static final Map<Integer, Double> currentUsage = new HashMap<>();
+
+    /** The hour being accumulated, in hours since the epoch (local time). */
+    private static long currentHour = epochHour(LocalDateTime.now());
+
+    private static CompletableFuture<Void> backfill = null;
+
+    /** Ingredient usage of one of each drink: menu ID to inventory ID to quantity. */
+    private static Map<Integer, Map<Integer, Double>> recipes = Map.of();
+
+    /** Orders received while the backfill runs, applied once its rates are in place; {@code null} after that. */
+    private static List<OrderFeed.OrderEvent> held = new ArrayList<>();
+
+    // === LIFECYCLE ===
+
+    /**
+     * Starts the one-time historical backfill in the background, if it has not run yet.
+     *
+     * @return a future that completes once the backfilled rates are in place, retrying until they are
+     */
+    public static synchronized CompletableFuture<Void> ready() {
+        if (backfill == null) {
+            backfill = new CompletableFuture<>();
+            attempt(0);
+        }
+        return backfill;
+    }
+
+    /** Runs one backfill attempt after a delay, and schedules the next one if it fails. */
+    private static void attempt(long delayMillis) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                backfill();
+                backfill.complete(null);
+            } catch (SQLException | RuntimeException e) {
+                long next = Math.min(Math.max(delayMillis * 2, RETRY_MIN_MILLIS), RETRY_MAX_MILLIS);
+                System.err.println("Failed to backfill consumption rates, retrying in " + next / 1000 + " s: " + e.getMessage());
+                attempt(next);
+            }
+        }, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /** @return whether the historical backfill has completed */
+    public static synchronized boolean isReady() {
+        return backfill != null && backfill.isDone();
+    }
+
+    // === UPDATES ===
+
+    /**
+     * Adds observed consumption to the current hour. Consumption of an hour that is
+     * already closed, such as a retried order, is counted in the current hour.
+     *
+     * @param inventoryID the ingredient ID
+     * @param amount      the quantity consumed
+     * @param time        when it was consumed
+     */
+    public static synchronized void record(int inventoryID, double amount, LocalDateTime time) {
+        roll(epochHour(time));
+        currentUsage.merge(inventoryID, amount, Double::sum);
+    }
+
+    /** Adds the recipe ingredients of a committed order at the order's time. */
+    private static synchronized void recordOrder(OrderFeed.OrderEvent event) {
+        if (held != null) {
+            held.add(event);
+            return;
+        }
+        for (int menuID : event.menuIDs()) {
+            recipes.getOrDefault(menuID, Map.of()).forEach((inventoryID, quantity) ->
+                    record(inventoryID, quantity, event.orderDate()));
+        }
+    }
+
+    /** Closes every hour before {@code hour}, folding its usage into the moving averages. */
+    private static void roll(long hour) {
+        if (hour <= currentHour) return;
+        long from = Math.max(currentHour, hour - MAX_ZERO_FILL_HOURS);
+        for (long h = from; h < hour; h++) {
+            int slot = slot(h);
+            for (Map.Entry<Integer, double[]> entry : rates.entrySet()) {
+                double observed = h == currentHour ? currentUsage.getOrDefault(entry.getKey(), 0.0) : 0.0;
+                entry.getValue()[slot] += ALPHA * (observed - entry.getValue()[slot]);
+            }
+            if (h == currentHour) {
+                // Ingredients first seen this hour start their average from this observation
+                for (Map.Entry<Integer, Double> usage : currentUsage.entrySet()) {
+                    rates.computeIfAbsent(usage.getKey(), id -> {
+                        double[] r = new double[SLOTS];
+                        r[slot] = usage.getValue();
+                        return r;
+                    });
+                }
+            }
+        }
+        currentUsage.clear();
+        currentHour = hour;
+    }
+
+    /**
+     * Replays historical consumption hour by hour into fresh moving averages.
+     * <p>
+     * Only the span covered by the order history is replayed. The gap between the last
+     * historical order and now is not treated as closed hours, so seeded history from
+     * another year still yields realistic rates. Live orders are followed from just before
+     * the history is read and held until the replayed rates are in place. Orders are
+     * stamped when rung up but commit later (or are resubmitted from the spool with their
+     * original time), so a held order is matched by (order ID, order date) against the
+     * same repeatable-read snapshot the history came from; only those not in it are
+     * added on top. The snapshot stays open until every held order has been checked.
+     * </p>
+     */
+    private static void backfill() throws SQLException {
+        String query = """
+            SELECT DATE_TRUNC('hour', o.orderDate) AS hour, mi.inventoryID,
+                   SUM(mi.menuInfoQuantity * COALESCE(oi.quantityPurchased, 1)) AS used
+            FROM ordertest o
+            JOIN orderItem oi ON oi.orderID = o.orderID AND oi.orderDate = o.orderDate
+            JOIN menuInfo mi ON mi.menuID = oi.menuID
+            WHERE o.orderDate < ?
+            GROUP BY 1, 2
+            ORDER BY 1
+        """;
+        Map<Integer, Map<Integer, Double>> loadedRecipes = new HashMap<>();
+        Map<Long, Map<Integer, Double>> history = new HashMap<>();
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        String inSnapshot = """
+            SELECT o.orderID, o.orderDate
+            FROM unnest(?::integer[], ?::timestamp[]) AS r(orderID, orderDate)
+            JOIN ordertest o ON o.orderID = r.orderID AND o.orderDate = r.orderDate
+            WHERE o.orderDate < ?
+        """;
+        Runnable subscription = OrderFeed.subscribe(ConsumptionForecast::recordOrder);
+        LocalDateTime cutoff = LocalDateTime.now();
+        long cutoffHour = epochHour(cutoff);
+        Map<Integer, double[]> replayed = new HashMap<>();
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT)) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (PreparedStatement stmt = Queries.RECIPES.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loadedRecipes.computeIfAbsent(rs.getInt("menuID"), id -> new HashMap<>())
+                                 .merge(rs.getInt("inventoryID"), rs.getDouble("menuInfoQuantity"), Double::sum);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    long hour = epochHour(rs.getTimestamp("hour").toLocalDateTime());
+                    history.computeIfAbsent(hour, h -> new HashMap<>())
+                           .put(rs.getInt("inventoryID"), rs.getDouble("used"));
+                    first = Math.min(first, hour);
+                    last = Math.max(last, hour);
+                }
+            }
+
+            for (Map<Integer, Double> usage : history.values()) {
+                for (Integer id : usage.keySet()) replayed.computeIfAbsent(id, k -> new double[SLOTS]);
+            }
+            // The cutoff's own hour is still open; its usage so far becomes the current hour's
+            for (long h = first; h <= last && h < cutoffHour && first != Long.MAX_VALUE; h++) {
+                int slot = slot(h);
+                Map<Integer, Double> usage = history.getOrDefault(h, Map.of());
+                for (Map.Entry<Integer, double[]> entry : replayed.entrySet()) {
+                    double observed = usage.getOrDefault(entry.getKey(), 0.0);
+                    entry.getValue()[slot] += ALPHA * (observed - entry.getValue()[slot]);
+                }
+            }
+
+            List<OrderFeed.OrderEvent> missing = new ArrayList<>();
+            while (true) {
+                List<OrderFeed.OrderEvent> received;
+                synchronized (ConsumptionForecast.class) {
+                    if (held.isEmpty()) {
+                        // Nothing left to check: install, so later orders are recorded directly
+                        recipes = loadedRecipes;
+                        rates.clear();
+                        rates.putAll(replayed);
+                        currentUsage.clear();
+                        currentUsage.putAll(history.getOrDefault(cutoffHour, Map.of()));
+                        currentHour = cutoffHour;
+                        held = null;
+                        for (OrderFeed.OrderEvent event : missing) recordOrder(event);
+                        break;
+                    }
+                    received = held;
+                    held = new ArrayList<>();
+                }
+                Set<Map.Entry<Integer, LocalDateTime>> covered = new HashSet<>();
+                try (PreparedStatement stmt = conn.prepareStatement(inSnapshot)) {
+                    stmt.setArray(1, conn.createArrayOf("integer",
+                            received.stream().map(OrderFeed.OrderEvent::orderID).toArray()));
+                    stmt.setArray(2, conn.createArrayOf("timestamp",
+                            received.stream().map(event -> Timestamp.valueOf(event.orderDate())).toArray()));
+                    stmt.setTimestamp(3, Timestamp.valueOf(cutoff));
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) covered.add(Map.entry(rs.getInt("orderID"), rs.getTimestamp("orderDate").toLocalDateTime()));
+                }
+                for (OrderFeed.OrderEvent event : received) {
+                    if (!covered.contains(Map.entry(event.orderID(), event.orderDate()))) missing.add(event);
+                }
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            subscription.run();
+            synchronized (ConsumptionForecast.class) {
+                held = new ArrayList<>();
+            }
+            throw e;
+        }
+        System.out.println("Backfilled consumption rates for " + replayed.size() + " ingredients");
+    }
+
+    // === FORECASTS ===
+
+    /**
+     * Forecasts one ingredient from its current stock.
+     *
+     * @param inventoryID the ingredient ID
+     * @param quantity    the quantity on hand
+     * @param restockMin  the restock threshold
+     * @return the forecast; an ingredient with no recorded consumption never runs out
+     */
+    public static synchronized Forecast forecast(int inventoryID, double quantity, int restockMin) {
+        LocalDateTime now = LocalDateTime.now();
+        roll(epochHour(now));
+        double[] r = rates.get(inventoryID);
+        if (r == null) return new Forecast(Double.POSITIVE_INFINITY, Math.max(0, Math.ceil(restockMin - quantity)));
+
+        // The current hour is partly over: use the unobserved remainder of its rate
+        double remainingFraction = 1 - now.getMinute() / 60.0;
+        double stock = quantity;
+        double hoursToStockout = Double.POSITIVE_INFINITY;
+        double elapsed = 0;
+        double coverUsage = 0;
+        for (int i = 0; i < HORIZON_HOURS; i++) {
+            double fraction = i == 0 ? remainingFraction : 1;
+            double usage = r[slot(currentHour + i)] * fraction;
+            if (elapsed < COVER_DAYS * 24) coverUsage += usage;
+            if (Double.isInfinite(hoursToStockout) && usage > 0 && stock - usage <= 0) {
+                hoursToStockout = elapsed + fraction * stock / usage;
+            }
+            stock -= usage;
+            elapsed += fraction;
+        }
+
+        double suggested = Math.max(0, Math.ceil(coverUsage + restockMin - quantity));
+        return new Forecast(hoursToStockout, suggested);
+    }
+
+    // === HELPERS ===
+
+    private static long epochHour(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    /** @return the hour-of-week slot of an epoch hour, with Monday 00:00 as slot 0 */
+    private static int slot(long epochHour) {
+        // 1970-01-01 was a Thursday, three days after Monday
+        return Math.floorMod(epochHour + 3 * 24, SLOTS);
+    }
+}
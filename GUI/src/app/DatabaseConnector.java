@@ -1,16 +1,40 @@
 package app;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.Consumer;
 
 /**
  * Utility class for managing database connections to the remote TAMU PostgreSQL server.
  * <p>
  * This class handles setting and retrieving database credentials
- * and provides a static method for obtaining a {@link Connection} object
+ * and provides static methods for obtaining a {@link Connection} object
  * for executing SQL queries throughout the POS system.
- * 
+ * </p>
+ * <p>
+ * Connections come from two pools. {@link #getConnection()} borrows from the primary
+ * pool and is used for everything that writes or must see its own writes.
+ * {@link #getReportingConnection()} borrows a read-only connection from the reporting
+ * pool, which points at a streaming replica when a replica URL is configured, so long
+ * manager reports do not compete with order inserts on the primary. A replica lagging
+ * more than {@value #MAX_STALENESS_SECONDS} seconds behind, or one that cannot be
+ * reached, is skipped and the read goes to the primary instead. Closing a pooled
+ * connection returns it to its pool. Register and report work borrow through
+ * {@link WorkloadScheduler}, which decides whose turn it is when connections are scarce.
+ * Order submits borrow from a small pool of their own on the primary, so a register can
+ * always commit its orders however many connections notifications, cache loads and
+ * manager screens are holding.
+ * </p>
+ * <p>
+ * Connections are opened with a connect timeout (3 seconds by default) and a socket
+ * timeout (60 seconds by default), configurable with the {@code pos.db.connectTimeout}
+ * and {@code pos.db.socketTimeout} system properties. Each
+ * pool has a {@link CircuitBreaker}: while the primary is known to be down, borrowing a
+ * connection fails immediately instead of waiting out the connect timeout, and the
+ * breaker's background probe closes it again once the server is back.
+ * {@link #subscribeHealth(Consumer)} lets the UI show the primary's state.
  * </p>
  * @author Ryan, Sam, Brenden 
  */
@@ -18,20 +42,53 @@ public class DatabaseConnector {
 
     // Remote TAMU Postgres database
 
-    // TODO: Use scanner input to populate these instance variables. Boilerplate code in LineReader.java.
     private static String DB_URL = "";
     private static String DB_USER = "";
     private static String DB_PASSWORD = ""; // <— fill this in
+    private static String REPLICA_URL = "";
+
+    /** Most physical connections per pool; {@link WorkloadScheduler} keeps some free for unscheduled work. */
+    private static final int POOL_SIZE = 10;
 
-    private static Connection connection = null;
+    /** Physical connections of the pool that only order submits use. */
+    static final int ORDER_POOL_SIZE = 2;
+
+    /** How long a caller waits for a busy pool before giving up. */
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10_000;
+
+    /** Seconds allowed to open a connection, overridable with {@code -Dpos.db.connectTimeout}. */
+    private static final int CONNECT_TIMEOUT_SECONDS = Integer.getInteger("pos.db.connectTimeout", 3);
+
+    /**
+     * Seconds any single read from the server may block, overridable with {@code -Dpos.db.socketTimeout}.
+     * Must stay above {@link ReportTask#QUERY_TIMEOUT_SECONDS} so long reports time out cleanly first.
+     */
+    private static final int SOCKET_TIMEOUT_SECONDS = Integer.getInteger("pos.db.socketTimeout", 60);
+
+    /** Replica lag beyond which reports are served by the primary instead. */
+    private static final int MAX_STALENESS_SECONDS = 10;
+
+    /** How often the replica's lag is re-measured. */
+    private static final long LAG_CHECK_INTERVAL_MILLIS = 5_000;
+
+    /** How long an unreachable replica is skipped before it is tried again. */
+    private static final long REPLICA_RETRY_MILLIS = 30_000;
+
+    private static ConnectionPool primary = null;
+    private static ConnectionPool orders = null;
+    private static ConnectionPool replica = null;
+    private static long lagCheckedAt = 0;
+    private static boolean replicaFresh = false;
+    private static long replicaDownUntil = 0;
 
     /**
      * Sets the database URL for the PostgreSQL connection.
      *
      * @param url the JDBC URL string for the database
      */
-    public static void setDbUrl(String url) {
+    public static synchronized void setDbUrl(String url) {
         DB_URL = url;
+        resetPools();
     }
 
     /**
@@ -39,8 +96,9 @@ public class DatabaseConnector {
      *
      * @param user the username for the database account
      */
-    public static void setDbUser(String user) {
+    public static synchronized void setDbUser(String user) {
         DB_USER = user;
+        resetPools();
     }
 
     /**
@@ -48,16 +106,28 @@ public class DatabaseConnector {
      *
      * @param password the password for the database account
      */
-    public static void setDbPassword(String password) {
+    public static synchronized void setDbPassword(String password) {
         DB_PASSWORD = password;
+        resetPools();
+    }
+
+    /**
+     * Sets the JDBC URL of the read-only replica used for reports.
+     * The replica is reached with the same username and password as the primary.
+     *
+     * @param url the replica's JDBC URL, or an empty string to run reports on the primary
+     */
+    public static synchronized void setReplicaUrl(String url) {
+        REPLICA_URL = url;
+        resetPools();
     }
 
     /**
-     * Establishes and returns a connection to the database.
+     * Borrows a connection to the primary database.
      * <p>
-     * Loads the PostgreSQL JDBC driver and attempts to connect using
-     * the stored URL, username, and password. If the connection fails,
-     * the method returns {@code null} and prints an error message.
+     * Loads the PostgreSQL JDBC driver and takes a connection from the primary pool,
+     * opening a new one if needed. If the connection fails, the method returns
+     * {@code null} and prints an error message.
      * </p>
      *
      * @return a {@link Connection} object if successful, or {@code null} if connection fails
@@ -66,9 +136,7 @@ public class DatabaseConnector {
         try {
             // Load PostgreSQL JDBC driver explicitly
             Class.forName("org.postgresql.Driver");
-            Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            System.out.println(" Connected to TAMU Postgres database successfully!");
-            return conn;
+            return primaryPool().acquire(ACQUIRE_TIMEOUT_MILLIS);
 
         } catch (ClassNotFoundException e) {
             System.err.println(" PostgreSQL JDBC driver not found.");
@@ -80,5 +148,175 @@ public class DatabaseConnector {
             return null;
         }
     }
-}
 
+    /**
+     * Borrows a connection to the primary database once {@link WorkloadScheduler} admits
+     * work of the given class. The scheduler slot is freed when the connection is closed.
+     * Order submits get a connection from the order pool, everything else from the
+     * primary pool.
+     *
+     * @param workClass the priority class of the work the connection is for
+     * @return an open {@link Connection}
+     * @throws SQLException if the work is not admitted or no connection could be established
+     */
+    public static Connection getConnection(WorkloadScheduler.WorkClass workClass) throws SQLException {
+        WorkloadScheduler.Permit permit = WorkloadScheduler.admit(workClass);
+        try {
+            ConnectionPool pool = workClass == WorkloadScheduler.WorkClass.ORDER_SUBMIT ? orderPool() : primaryPool();
+            return pool.acquire(ACQUIRE_TIMEOUT_MILLIS, permit::close);
+        } catch (SQLException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a read-only connection for reports, once {@link WorkloadScheduler} admits
+     * report work.
+     * <p>
+     * Uses the replica when one is configured, reachable, and no more than
+     * {@value #MAX_STALENESS_SECONDS} seconds behind the primary; otherwise falls back to
+     * a read-only connection from the primary pool.
+     * </p>
+     *
+     * @return a read-only {@link Connection}
+     * @throws SQLException if the report is not admitted or neither database can be reached
+     */
+    public static Connection getReportingConnection() throws SQLException {
+        WorkloadScheduler.Permit permit = WorkloadScheduler.admit(WorkloadScheduler.WorkClass.REPORT);
+        try {
+            ConnectionPool pool = replicaPool();
+            if (pool != null && replicaUsable(pool)) {
+                try {
+                    return pool.acquire(ACQUIRE_TIMEOUT_MILLIS, permit::close);
+                } catch (SQLException e) {
+                    markReplicaDown(e);
+                }
+            }
+
+            Connection conn = primaryPool().acquire(ACQUIRE_TIMEOUT_MILLIS, permit::close);
+            try {
+                conn.setReadOnly(true);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            return conn;
+        } catch (SQLException | RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    /** @return whether reports are currently being served by the replica */
+    public static synchronized boolean isUsingReplica() {
+        return replica != null && replicaFresh && System.currentTimeMillis() >= replicaDownUntil;
+    }
+
+    // === HEALTH ===
+
+    /** @return the state of the primary database's circuit breaker */
+    public static CircuitBreaker.State health() {
+        return primaryPool().breaker().state();
+    }
+
+    /**
+     * Subscribes to changes of the primary database's health.
+     *
+     * @param listener receives each new breaker state, on the thread that caused the change
+     * @return a handle that cancels the subscription when run
+     */
+    public static Runnable subscribeHealth(Consumer<CircuitBreaker.State> listener) {
+        return primaryPool().breaker().subscribe(listener);
+    }
+
+    // === POOLS ===
+
+    private static synchronized ConnectionPool primaryPool() {
+        if (primary == null) {
+            primary = new ConnectionPool("primary", DB_URL, DB_USER, DB_PASSWORD, POOL_SIZE, false,
+                    CONNECT_TIMEOUT_SECONDS, SOCKET_TIMEOUT_SECONDS);
+        }
+        return primary;
+    }
+
+    private static synchronized ConnectionPool orderPool() {
+        if (orders == null) {
+            orders = new ConnectionPool("orders", DB_URL, DB_USER, DB_PASSWORD, ORDER_POOL_SIZE, false,
+                    CONNECT_TIMEOUT_SECONDS, SOCKET_TIMEOUT_SECONDS);
+        }
+        return orders;
+    }
+
+    private static synchronized ConnectionPool replicaPool() {
+        if (REPLICA_URL.isEmpty()) return null;
+        if (replica == null) {
+            replica = new ConnectionPool("reporting", REPLICA_URL, DB_USER, DB_PASSWORD, POOL_SIZE, true,
+                    CONNECT_TIMEOUT_SECONDS, SOCKET_TIMEOUT_SECONDS);
+        }
+        return replica;
+    }
+
+    private static void resetPools() {
+        if (primary != null) primary.shutdown();
+        if (orders != null) orders.shutdown();
+        if (replica != null) replica.shutdown();
+        primary = null;
+        orders = null;
+        replica = null;
+        lagCheckedAt = 0;
+        replicaFresh = false;
+        replicaDownUntil = 0;
+    }
+
+    /**
+     * Returns whether the replica is reachable and fresh enough, re-measuring its lag at
+     * most every {@value #LAG_CHECK_INTERVAL_MILLIS} ms.
+     * <p>
+     * A replica that has replayed everything it received counts as fresh however long ago
+     * the last write was; otherwise the lag is the age of the last replayed transaction.
+     * A server that is not in recovery (such as a second standalone instance used for
+     * testing) is treated as fresh.
+     * </p>
+     */
+    private static boolean replicaUsable(ConnectionPool pool) {
+        long now = System.currentTimeMillis();
+        synchronized (DatabaseConnector.class) {
+            if (now < replicaDownUntil) return false;
+            if (now - lagCheckedAt < LAG_CHECK_INTERVAL_MILLIS) return replicaFresh;
+            lagCheckedAt = now;
+        }
+
+        String lagQuery = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM NOW() - pg_last_xact_replay_timestamp()), 'Infinity')
+            END AS lagSeconds
+        """;
+        try (Connection conn = pool.acquire(ACQUIRE_TIMEOUT_MILLIS);
+             PreparedStatement stmt = conn.prepareStatement(lagQuery);
+             ResultSet rs = stmt.executeQuery()) {
+            double lag = rs.next() ? rs.getDouble("lagSeconds") : Double.POSITIVE_INFINITY;
+            boolean fresh = lag <= MAX_STALENESS_SECONDS;
+            synchronized (DatabaseConnector.class) {
+                if (fresh != replicaFresh) {
+                    System.out.println(fresh
+                        ? " Reporting replica caught up -- reports use the replica"
+                        : String.format(" Reporting replica is %.0fs behind -- reports use the primary", lag));
+                }
+                replicaFresh = fresh;
+            }
+            return fresh;
+        } catch (SQLException e) {
+            markReplicaDown(e);
+            return false;
+        }
+    }
+
+    private static synchronized void markReplicaDown(SQLException e) {
+        System.err.println(" Reporting replica unavailable, using the primary: " + e.getMessage());
+        replicaFresh = false;
+        replicaDownUntil = System.currentTimeMillis() + REPLICA_RETRY_MILLIS;
+    }
+}
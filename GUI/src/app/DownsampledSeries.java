@@ -0,0 +1,232 @@
+package app;
+
+import javafx.collections.ObservableList;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.input.MouseButton;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A line chart series that only plots as many points as the chart is wide.
+ * <p>
+ * The full-resolution data is kept in primitive arrays. Whenever the data, the chart
+ * width or the visible x-range changes, the visible slice is reduced with the
+ * Largest-Triangle-Three-Buckets (LTTB) algorithm to roughly one point per pixel,
+ * which keeps the visual shape (peaks and dips) of long series while handing JavaFX
+ * a few hundred nodes instead of thousands.
+ * </p>
+ * <p>
+ * Scrolling over the chart zooms the x-axis around the mouse and re-samples the
+ * zoomed window at full pixel density; double-clicking resets the zoom. Existing
+ * {@link XYChart.Data} objects are updated in place rather than recreated, so a
+ * refresh does not rebuild the chart's node graph.
+ * </p>
+ */
+public final class DownsampledSeries {
+
+    /** Scroll zoom factor applied per mouse-wheel notch. */
+    private static final double ZOOM_STEP = 1.25;
+
+    private final LineChart<Number, Number> chart;
+    private final NumberAxis xAxis;
+    private final XYChart.Series<Number, Number> series = new XYChart.Series<>();
+
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private boolean refreshing = false;
+
+    /**
+     * Attaches a downsampled series to a line chart.
+     * <p>
+     * Turns off chart animation and point symbols, since both scale with the number
+     * of plotted points and defeat the purpose of downsampling.
+     * </p>
+     *
+     * @param chart the chart to plot into
+     * @param xAxis the chart's numeric x-axis
+     */
+    public DownsampledSeries(LineChart<Number, Number> chart, NumberAxis xAxis) {
+        this.chart = chart;
+        this.xAxis = xAxis;
+
+        chart.setAnimated(false);
+        chart.setCreateSymbols(false);
+        chart.getData().add(series);
+
+        chart.widthProperty().addListener((obs, oldW, newW) -> refresh());
+        xAxis.lowerBoundProperty().addListener((obs, oldV, newV) -> refresh());
+        xAxis.upperBoundProperty().addListener((obs, oldV, newV) -> refresh());
+
+        chart.setOnScroll(e -> {
+            if (xs.length < 2 || e.getDeltaY() == 0) return;
+            double factor = e.getDeltaY() > 0 ? 1 / ZOOM_STEP : ZOOM_STEP;
+            double mouseX = xAxis.getValueForDisplay(xAxis.sceneToLocal(e.getSceneX(), e.getSceneY()).getX()).doubleValue();
+            zoom(mouseX, factor);
+        });
+        chart.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) resetZoom();
+        });
+    }
+
+    /**
+     * Replaces the full-resolution data and redraws the chart.
+     *
+     * @param xs x-values in ascending order
+     * @param ys y-values, one per x-value
+     */
+    public void setData(double[] xs, double[] ys) {
+        if (xs.length != ys.length) throw new IllegalArgumentException("xs and ys must have the same length");
+        this.xs = xs;
+        this.ys = ys;
+        resetZoom();
+    }
+
+    /** Shows the whole series again after zooming. */
+    public void resetZoom() {
+        if (xs.length == 0) {
+            xAxis.setAutoRanging(true);
+            refresh();
+            return;
+        }
+        xAxis.setAutoRanging(false);
+        setBounds(xs[0], xs[xs.length - 1]);
+    }
+
+    private void zoom(double center, double factor) {
+        double full = xs[xs.length - 1] - xs[0];
+        double lower = xAxis.getLowerBound();
+        double upper = xAxis.getUpperBound();
+        double width = Math.min(full, Math.max((upper - lower) * factor, 1));
+        double newLower = center - (center - lower) * width / (upper - lower);
+        newLower = Math.max(xs[0], Math.min(newLower, xs[xs.length - 1] - width));
+        xAxis.setAutoRanging(false);
+        setBounds(newLower, newLower + width);
+    }
+
+    private void setBounds(double lower, double upper) {
+        // Avoid re-sampling twice while both bounds change
+        refreshing = true;
+        xAxis.setLowerBound(lower);
+        xAxis.setUpperBound(upper == lower ? lower + 1 : upper);
+        xAxis.setTickUnit(Math.max((upper - lower) / 10, 1));
+        refreshing = false;
+        refresh();
+    }
+
+    /** Re-samples the visible window to the chart's current pixel width. */
+    private void refresh() {
+        if (refreshing) return;
+
+        int from = 0;
+        int to = xs.length;
+        if (!xAxis.isAutoRanging() && xs.length > 0) {
+            // Include one point beyond each edge so the line runs off the plot area
+            from = Math.max(0, lowerIndex(xAxis.getLowerBound()) - 1);
+            to = Math.min(xs.length, lowerIndex(xAxis.getUpperBound()) + 1);
+        }
+
+        int threshold = Math.max(3, (int) chart.getWidth());
+        int[] keep = lttb(xs, ys, from, to, threshold);
+        apply(keep);
+    }
+
+    /** Copies the selected points into the series, reusing existing data nodes. */
+    private void apply(int[] keep) {
+        ObservableList<XYChart.Data<Number, Number>> data = series.getData();
+        List<XYChart.Data<Number, Number>> added = new ArrayList<>();
+        for (int i = 0; i < keep.length; i++) {
+            int idx = keep[i];
+            if (i < data.size()) {
+                XYChart.Data<Number, Number> point = data.get(i);
+                point.setXValue(xs[idx]);
+                point.setYValue(ys[idx]);
+            } else {
+                added.add(new XYChart.Data<>(xs[idx], ys[idx]));
+            }
+        }
+        if (!added.isEmpty()) data.addAll(added);
+        if (data.size() > keep.length) data.remove(keep.length, data.size());
+    }
+
+    /** @return the index of the first x-value that is {@code >= x} */
+    private int lowerIndex(double x) {
+        int lo = 0;
+        int hi = xs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (xs[mid] < x) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Selects at most {@code threshold} points from {@code xs[from..to)} using
+     * Largest-Triangle-Three-Buckets.
+     * <p>
+     * The first and last points are always kept. The points in between are split into
+     * {@code threshold - 2} buckets, and from each bucket the point forming the largest
+     * triangle with the previously selected point and the average of the next bucket is kept.
+     * </p>
+     *
+     * @param xs        x-values in ascending order
+     * @param ys        y-values
+     * @param from      first index to consider (inclusive)
+     * @param to        last index to consider (exclusive)
+     * @param threshold maximum number of points to return
+     * @return the selected indices, in ascending order
+     */
+    public static int[] lttb(double[] xs, double[] ys, int from, int to, int threshold) {
+        int n = to - from;
+        if (n <= 0) return new int[0];
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = from + i;
+            return all;
+        }
+
+        int[] sampled = new int[threshold];
+        int count = 0;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = from;
+        sampled[count++] = a;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average of the next bucket, used as the third triangle corner
+            int avgStart = from + (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) Math.floor((i + 2) * every) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += xs[j];
+                avgY += ys[j];
+            }
+            int avgLen = Math.max(avgEnd - avgStart, 1);
+            avgX /= avgLen;
+            avgY /= avgLen;
+
+            // Point in the current bucket with the largest triangle area
+            int rangeStart = from + (int) Math.floor(i * every) + 1;
+            int rangeEnd = from + (int) Math.floor((i + 1) * every) + 1;
+            double ax = xs[a];
+            double ay = ys[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((ax - avgX) * (ys[j] - ay) - (ax - xs[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            sampled[count++] = next;
+            a = next;
+        }
+
+        sampled[count++] = to - 1;
+        return sampled;
+    }
+}
@@ -0,0 +1,225 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records ingredient consumption without making orders update the {@code inventory} rows.
+ * <p>
+ * Every order touches the same handful of ingredients (milk, sugar, tapioca), so
+ * updating {@code inventory.quantityAvailable} inside each order transaction makes all
+ * registers queue up on those rows' locks. Instead, an order appends its consumption to
+ * {@code inventory_journal} in the order transaction; inserts never contend with each
+ * other, and the journal row commits or rolls back together with the order, so a crash
+ * can never lose consumption.
+ * </p>
+ * <p>
+ * Once the order commits, its consumption is added to per-ingredient {@link LongAdder}
+ * counters, which any number of threads can update without locking; {@link InventoryState}
+ * subtracts them from the stock it shows, so displayed levels do not wait for the flush.
+ * A background thread
+ * flushes the journal every {@value #FLUSH_INTERVAL_SECONDS} seconds with a single
+ * statement that deletes the drained journal rows and applies their per-ingredient
+ * sums to {@code inventory}, so each journal row is applied exactly once even when
+ * several terminals flush at the same time. The flush also picks up rows older than
+ * {@value #ORPHAN_AGE_SECONDS} seconds from any terminal, so consumption journaled by a
+ * terminal that crashed before flushing still reaches the inventory.
+ * </p>
+ */
+public class InventoryReservations {
+
+    /** Seconds between journal flushes. */
+    private static final int FLUSH_INTERVAL_SECONDS = 5;
+
+    /** Journal rows older than this are flushed by whichever terminal gets to them first. */
+    private static final int ORPHAN_AGE_SECONDS = 60;
+
+    /** Counters hold thousandths of a unit, since {@link LongAdder} only sums whole numbers. */
+    private static final double SCALE = 1000.0;
+
+    /**
+     * One journaled ingredient usage of a committed or committing order.
+     *
+     * @param journalID   the {@code inventory_journal} row ID
+     * @param inventoryID the ingredient ID
+     * @param delta       the change in quantity (negative for consumption)
+     */
+    public record Entry(long journalID, int inventoryID, double delta) { }
+
+    private static final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    private static final Queue<Entry> unflushed = new ConcurrentLinkedQueue<>();
+    private static final Object flushLock = new Object();
+    private static ScheduledExecutorService flusher = null;
+    private static long lastOrphanSweep = 0;
+
+    // === ORDER PATH ===
+
+    /**
+     * Journals the recipe ingredients of the given drinks.
+     * <p>
+     * Must be called inside the order transaction. The drinks' menu IDs are sent as one
+     * array, joined to {@code menuInfo} and summed per ingredient on the server, and one
+     * journal row is inserted per ingredient.
+     * </p>
+     *
+     * @param conn    the connection running the order transaction
+     * @param menuIDs the menu ID of every drink in the order
+     * @return the journaled usages, to pass to {@link #record(List)} once the order commits
+     * @throws SQLException if the journal insert fails
+     */
+    public static List<Entry> reserve(Connection conn, List<Integer> menuIDs) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        try (PreparedStatement stmt = Queries.JOURNAL_RESERVE.prepare(conn)) {
+            stmt.setArray(1, conn.createArrayOf("integer", menuIDs.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                entries.add(new Entry(rs.getLong("journalID"), rs.getInt("inventoryID"), rs.getDouble("delta")));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Adds the usages of a committed order to the in-memory counters and queues them for
+     * the next flush. Lock-free; safe to call from any thread.
+     *
+     * @param entries the usages returned by {@link #reserve(Connection, List)}
+     */
+    public static void record(List<Entry> entries) {
+        start();
+        Set<Integer> consumed = new HashSet<>();
+        for (Entry entry : entries) {
+            pending.computeIfAbsent(entry.inventoryID(), id -> new LongAdder())
+                   .add(Math.round(entry.delta() * SCALE));
+            unflushed.add(entry);
+            consumed.add(entry.inventoryID());
+        }
+        InventoryState.refresh(consumed);
+    }
+
+    /**
+     * Returns this terminal's consumption of one ingredient that has not been flushed yet.
+     *
+     * @param inventoryID the ingredient ID
+     * @return the pending change in quantity (negative for consumption)
+     */
+    public static double pending(int inventoryID) {
+        LongAdder adder = pending.get(inventoryID);
+        return adder == null ? 0 : adder.sum() / SCALE;
+    }
+
+    // === FLUSHING ===
+
+    /**
+     * Starts the background flusher if it is not running yet. Terminals that never take
+     * orders call this too, so orphaned journal rows are still applied.
+     */
+    public static synchronized void start() {
+        if (flusher != null) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(InventoryReservations::flushQuietly,
+                FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(InventoryReservations::flushQuietly, "inventory-final-flush"));
+    }
+
+    private static void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Inventory flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies this terminal's queued journal rows, and any orphaned rows, to {@code inventory}.
+     * <p>
+     * The drained amounts are published to {@link InventoryState} in the same transaction,
+     * and the batch leaves the pending counters in the same step as the new quantities are
+     * applied locally. Orphaned rows are swept at most every {@value #ORPHAN_AGE_SECONDS} seconds.
+     * If the flush fails, the queued rows are kept for the next attempt.
+     * </p>
+     *
+     * @throws SQLException if the flush fails
+     */
+    public static void flush() throws SQLException {
+        synchronized (flushLock) {
+            boolean sweep = System.currentTimeMillis() - lastOrphanSweep >= ORPHAN_AGE_SECONDS * 1000L;
+            List<Entry> batch = new ArrayList<>();
+            for (Entry entry; (entry = unflushed.poll()) != null; ) batch.add(entry);
+            if (batch.isEmpty() && !sweep) return;
+
+            try {
+                applyJournal(batch, sweep);
+            } catch (SQLException e) {
+                unflushed.addAll(batch);
+                throw e;
+            }
+            if (sweep) lastOrphanSweep = System.currentTimeMillis();
+        }
+    }
+
+    /** Removes a flushed batch from the pending counters; its rows are in inventory now, whoever deleted them from the journal. */
+    private static void unpend(List<Entry> batch) {
+        for (Entry entry : batch) {
+            pending.get(entry.inventoryID()).add(-Math.round(entry.delta() * SCALE));
+        }
+    }
+
+    private static void applyJournal(List<Entry> batch, boolean sweep) throws SQLException {
+        // Orphans are swept at most once per ORPHAN_AGE_SECONDS; other flushes only drain this terminal's rows
+        String orphans = sweep ? " OR loggedAt < NOW() - make_interval(secs => ?)" : "";
+        String drain = """
+            WITH drained AS (
+                DELETE FROM inventory_journal
+                WHERE journalID = ANY(?)%s
+                RETURNING inventoryID, delta
+            ), totals AS (
+                SELECT inventoryID, SUM(delta) AS delta
+                FROM drained
+                GROUP BY inventoryID
+            )
+            UPDATE inventory i
+            SET quantityAvailable = i.quantityAvailable + t.delta
+            FROM totals t
+            WHERE i.inventoryID = t.inventoryID
+            RETURNING i.inventoryID, t.delta, i.quantityAvailable
+        """.formatted(orphans);
+        Long[] ids = batch.stream().map(Entry::journalID).toArray(Long[]::new);
+
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            if (conn == null) throw new SQLException("Database connection failed.");
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(drain)) {
+                stmt.setArray(1, conn.createArrayOf("bigint", ids));
+                if (sweep) stmt.setInt(2, ORPHAN_AGE_SECONDS);
+                List<InventoryState.Delta> deltas = new ArrayList<>();
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    deltas.add(new InventoryState.Delta(rs.getInt("inventoryID"),
+                            rs.getDouble("delta"), rs.getDouble("quantityAvailable")));
+                }
+                InventoryState.publish(conn, deltas);
+                InventoryState.commitDrain(conn, deltas, () -> unpend(batch));
+                if (!deltas.isEmpty()) {
+                    System.out.println("Flushed inventory journal into " + deltas.size() + " ingredients");
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
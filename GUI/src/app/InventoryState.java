@@ -0,0 +1,320 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory copy of every ingredient's stock level that tracks restock thresholds.
+ * <p>
+ * Every transaction that changes stock (an order consuming ingredients, or a manager
+ * restock) publishes its per-ingredient changes on the {@value #CHANNEL} notification
+ * channel inside the same transaction, as {@code <inventoryID>:<delta>:<newQuantity>}
+ * entries separated by {@code ;}. Applying one entry is a single hash lookup and a
+ * comparison against {@code restockMin}, so a threshold crossing is detected the moment
+ * it is committed, without scanning the {@code inventory} table.
+ * </p>
+ * <p>
+ * Each entry carries the ingredient's new absolute quantity as returned by the update,
+ * so applying a change is idempotent and a change that raced with the initial load is
+ * never counted twice. The levels are reloaded from {@link TerminalCaches#INVENTORY}
+ * whenever the {@code LISTEN} connection is re-established, since changes may have
+ * been missed while it was down.
+ * </p>
+ * <p>
+ * Consumption by this terminal's orders only reaches {@code inventory} at the next
+ * journal flush (see {@link InventoryReservations}), so every level shown here is the
+ * quantity on hand less this terminal's unflushed consumption, and an order refreshes
+ * the levels of its ingredients as soon as it commits.
+ * </p>
+ */
+public class InventoryState {
+
+    /** The notification channel carrying stock changes. */
+    public static final String CHANNEL = "inventory_delta";
+
+    /** Number of alerts kept for the restock view's alert log. */
+    private static final int ALERT_LOG_SIZE = 50;
+
+    /**
+     * One ingredient's stock change as carried in a notification.
+     *
+     * @param inventoryID the ingredient ID
+     * @param delta       the amount added (positive) or consumed (negative)
+     * @param quantity    the quantity on hand after the change
+     */
+    public record Delta(int inventoryID, double delta, double quantity) { }
+
+    /**
+     * The state of one ingredient after a change was applied.
+     *
+     * @param inventoryID the ingredient ID
+     * @param name        the ingredient name
+     * @param quantity    the quantity on hand, less this terminal's consumption not flushed yet
+     * @param restockMin  the restock threshold
+     * @param delta       the change that was just applied, or 0 after a reload or a local order
+     * @param low         whether the ingredient is at or below its restock threshold
+     * @param crossed     whether this change moved the ingredient across the threshold
+     */
+    public record Level(int inventoryID, String name, double quantity, int restockMin,
+                        double delta, boolean low, boolean crossed) {
+
+        /** @return a one-line description of a threshold crossing, for alerts and the log */
+        public String describe() {
+            return low
+                ? String.format("LOW STOCK: %s is at %.2f (restock min %d)", name, quantity, restockMin)
+                : String.format("Restocked: %s is back to %.2f (restock min %d)", name, quantity, restockMin);
+        }
+    }
+
+    /** Mutable per-ingredient state, only touched while holding the class lock. */
+    private static final class Entry {
+        final int inventoryID;
+        final String name;
+        final int restockMin;
+        double quantity;
+        boolean low;
+
+        Entry(TerminalCaches.InventoryRow row) {
+            this.inventoryID = row.inventoryID();
+            this.name = row.inventoryName();
+            this.restockMin = row.restockMin();
+            this.quantity = row.quantityAvailable();
+            this.low = available() <= restockMin;
+        }
+
+        /** @return the quantity on hand less this terminal's unflushed consumption */
+        double available() {
+            return quantity + InventoryReservations.pending(inventoryID);
+        }
+
+        Level toLevel(double delta, boolean crossed) {
+            return new Level(inventoryID, name, available(), restockMin, delta, low, crossed);
+        }
+    }
+
+    private static final Map<Integer, Entry> entries = new HashMap<>();
+    private static final Deque<String> alertLog = new ArrayDeque<>();
+    private static final List<Consumer<Level>> listeners = new CopyOnWriteArrayList<>();
+    private static boolean loaded = false;
+
+    static {
+        NotificationHub.subscribe(CHANNEL, InventoryState::applyPayload);
+        NotificationHub.onReconnect(InventoryState::reloadQuietly);
+    }
+
+    // === READS ===
+
+    /**
+     * Loads the stock levels if they are not loaded yet, so changes start being tracked.
+     *
+     * @throws SQLException if the load fails
+     */
+    public static synchronized void load() throws SQLException {
+        ensureLoaded();
+    }
+
+    /**
+     * Returns the current level of every ingredient, loading them on first use.
+     *
+     * @return the levels, ordered by inventory ID
+     * @throws SQLException if the levels have to be loaded and the load fails
+     */
+    public static synchronized List<Level> levels() throws SQLException {
+        ensureLoaded();
+        List<Level> result = new ArrayList<>();
+        for (Entry entry : entries.values()) result.add(entry.toLevel(0, false));
+        result.sort(Comparator.comparingInt(Level::inventoryID));
+        return result;
+    }
+
+    /** @return the most recent threshold alerts, newest first */
+    public static synchronized List<String> recentAlerts() {
+        return List.copyOf(alertLog);
+    }
+
+    /**
+     * Subscribes to every applied change, including reloads.
+     * <p>
+     * Listeners run on the notification listener thread, so UI listeners must hop back
+     * to the JavaFX thread themselves. Threshold alerts are the changes whose
+     * {@link Level#crossed()} flag is set.
+     * </p>
+     *
+     * @param listener receives each ingredient's state after a change
+     * @return a handle that cancels the subscription when run
+     */
+    public static Runnable subscribe(Consumer<Level> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    // === PUBLISHING ===
+
+    /**
+     * Queues stock changes on the given connection.
+     * <p>
+     * Must be called inside the transaction that updates {@code inventory}; Postgres
+     * delivers the notification when that transaction commits and drops it on rollback.
+     * </p>
+     *
+     * @param conn   the connection running the inventory transaction
+     * @param deltas the changes made by the transaction
+     * @throws SQLException if the notification cannot be queued
+     */
+    public static void publish(Connection conn, Collection<Delta> deltas) throws SQLException {
+        if (deltas.isEmpty()) return;
+        StringJoiner payload = new StringJoiner(";");
+        for (Delta d : deltas) payload.add(d.inventoryID() + ":" + d.delta() + ":" + d.quantity());
+        try (PreparedStatement stmt = Queries.NOTIFY.prepare(conn)) {
+            stmt.setString(1, CHANNEL);
+            stmt.setString(2, payload.toString());
+            stmt.execute();
+        }
+    }
+
+    // === APPLYING CHANGES ===
+
+    private static void applyPayload(String payload) {
+        List<Level> changed = new ArrayList<>();
+        synchronized (InventoryState.class) {
+            if (!loaded) return;
+            for (String part : payload.split(";")) {
+                String[] fields = part.split(":");
+                try {
+                    if (fields.length != 3) throw new NumberFormatException(part);
+                    Level level = apply(new Delta(Integer.parseInt(fields[0]),
+                            Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+                    if (level != null) changed.add(level);
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring malformed inventory change: " + part);
+                }
+            }
+        }
+        for (Level level : changed) notifyListeners(level);
+    }
+
+    /** Applies one change in O(1) and records an alert if it crossed the threshold. */
+    private static Level apply(Delta delta) {
+        Entry entry = entries.get(delta.inventoryID());
+        if (entry == null) return null;
+        entry.quantity = delta.quantity();
+        return reevaluate(entry, delta.delta());
+    }
+
+    /**
+     * Re-evaluates the levels of ingredients this terminal just consumed, whose unflushed
+     * consumption changed without a stock change being published.
+     *
+     * @param inventoryIDs the ingredients whose pending consumption changed
+     */
+    static void refresh(Collection<Integer> inventoryIDs) {
+        List<Level> changed = new ArrayList<>();
+        synchronized (InventoryState.class) {
+            if (!loaded) return;
+            for (int id : inventoryIDs) {
+                Entry entry = entries.get(id);
+                if (entry != null) changed.add(reevaluate(entry, 0));
+            }
+        }
+        for (Level level : changed) notifyListeners(level);
+    }
+
+    /**
+     * Commits a journal flush and moves its drained consumption from the pending counters
+     * into the quantities on hand in one step.
+     * <p>
+     * The flush's own notification updates the same quantities once it arrives, but until
+     * the pending counters are reduced that would subtract the drained consumption twice
+     * and could report a false low-stock crossing. Holding the lock across the commit
+     * keeps the notification waiting until both sides have moved; applying it afterwards
+     * changes nothing, since it carries the same absolute quantities.
+     * </p>
+     *
+     * @param conn    the connection running the flush transaction
+     * @param deltas  the drained changes with the resulting quantities
+     * @param drained removes the drained consumption from the pending counters
+     * @throws SQLException if the commit fails; nothing is changed here then
+     */
+    static void commitDrain(Connection conn, List<Delta> deltas, Runnable drained) throws SQLException {
+        List<Level> changed = new ArrayList<>();
+        synchronized (InventoryState.class) {
+            conn.commit();
+            drained.run();
+            if (loaded) {
+                for (Delta delta : deltas) {
+                    Entry entry = entries.get(delta.inventoryID());
+                    if (entry == null) continue;
+                    entry.quantity = delta.quantity();
+                    changed.add(reevaluate(entry, 0));
+                }
+            }
+        }
+        for (Level level : changed) notifyListeners(level);
+    }
+
+    /** Updates an ingredient's threshold state and records an alert if it crossed. */
+    private static Level reevaluate(Entry entry, double delta) {
+        boolean low = entry.available() <= entry.restockMin;
+        boolean crossed = low != entry.low;
+        entry.low = low;
+
+        Level level = entry.toLevel(delta, crossed);
+        if (crossed) log(level.describe());
+        return level;
+    }
+
+    private static void ensureLoaded() throws SQLException {
+        if (loaded) return;
+        entries.clear();
+        for (TerminalCaches.InventoryRow row : TerminalCaches.INVENTORY.values()) {
+            entries.put(row.inventoryID(), new Entry(row));
+        }
+        loaded = true;
+    }
+
+    /** Reloads every level after a reconnect, alerting on thresholds crossed while disconnected. */
+    private static void reloadQuietly() {
+        List<Level> reloaded = new ArrayList<>();
+        synchronized (InventoryState.class) {
+            if (!loaded) return;
+            Map<Integer, Entry> previous = new HashMap<>(entries);
+            loaded = false;
+            try {
+                // The inventory cache may not have caught up yet either, so force a full read
+                TerminalCaches.INVENTORY.invalidate();
+                ensureLoaded();
+            } catch (SQLException e) {
+                System.err.println("Failed to reload inventory levels: " + e.getMessage());
+                return;
+            }
+            for (Entry entry : entries.values()) {
+                Entry old = previous.get(entry.inventoryID);
+                boolean crossed = old != null && old.low != entry.low;
+                Level level = entry.toLevel(old == null ? 0 : entry.quantity - old.quantity, crossed);
+                if (crossed) log(level.describe());
+                reloaded.add(level);
+            }
+        }
+        for (Level level : reloaded) notifyListeners(level);
+    }
+
+    private static void log(String message) {
+        System.out.println(message);
+        alertLog.addFirst(message);
+        if (alertLog.size() > ALERT_LOG_SIZE) alertLog.removeLast();
+    }
+
+    private static void notifyListeners(Level level) {
+        for (Consumer<Level> listener : listeners) {
+            try {
+                listener.accept(level);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -6,10 +6,11 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
 /**
- * Utility class for reading database credentials and session date from user input.
+ * Utility class for reading database credentials, session date and store from user input.
  * <p>
  * This class prompts the user to enter the database URL, username, password,
- * and an optional session date. It validates the date format and returns all
+ * an optional session date, an optional store location ID and an optional
+ * reporting replica URL. It validates the date format and returns all
  * inputs in a structured array.
  * </p>
  *
@@ -19,25 +20,28 @@ import java.time.format.DateTimeParseException;
 public class LineReader {
 
     /**
-     * Prompts the user to enter database credentials and a session date.
+     * Prompts the user to enter database credentials, a session date and a store.
      * <p>
-     * The method reads four values from standard input:
+     * The method reads six values from standard input:
      * <ul>
      *   <li>[0] = Database URL</li>
      *   <li>[1] = Database Username</li>
      *   <li>[2] = Database Password</li>
      *   <li>[3] = Session Date (formatted as YYYY-MM-DD, or empty string if invalid or blank)</li>
+     *   <li>[4] = Store Location ID (digits only, or empty string if invalid or blank)</li>
+     *   <li>[5] = Reporting Replica URL (empty string if blank)</li>
      * </ul>
      * </p>
      *
-     * @returns a {@code String[]} containing the database URL, username, password, and session date.
-     *          If the date is invalid or omitted, the fourth element will be an empty string.
+     * @returns a {@code String[]} containing the database URL, username, password, session date,
+     *          store location ID and replica URL. If the date, location or replica URL is invalid
+     *          or omitted, its element will be an empty string.
      * @throws java.util.InputMismatchException if input reading fails unexpectedly.
      */
 
     public static String[] getCredentials() {
         Scanner scanner = new Scanner(System.in);
-        String[] inputs = new String[4];
+        String[] inputs = new String[6];
 
         System.out.println("=== POS System Setup ===");
         System.out.println("Enter the following values, each on a new line:");
@@ -45,6 +49,8 @@ public class LineReader {
         System.out.println("2. Database Username");
         System.out.println("3. Database Password");
         System.out.println("4. Session Date (YYYY-MM-DD, YYYY/MM/DD, or YYYY MM DD) -- Press Enter to default to current date");
+        System.out.println("5. Store Location ID -- Press Enter to default to the first store");
+        System.out.println("6. Reporting Replica URL -- Press Enter to run reports on the primary database");
 
         // Read credentials
         for (int i = 0; i < 3; i++) {
@@ -85,6 +91,22 @@ public class LineReader {
             }
         }
 
+        // Read and validate store location input
+        String locationInput = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        if (locationInput.matches("\\d+")) {
+            inputs[4] = locationInput;
+            System.out.println("Store location set to: " + inputs[4]);
+        } else {
+            inputs[4] = "";
+            System.out.println("No valid store location entered -- the first store will be used.");
+        }
+
+        // Read the optional replica URL
+        inputs[5] = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        if (!inputs[5].isEmpty()) {
+            System.out.println("Reports will read from replica: " + inputs[5]);
+        }
+
         return inputs;
     }
 }
@@ -0,0 +1,263 @@
+package app;
+
+import javafx.beans.Observable;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * A manager data table that keeps its loaded rows and refreshes only what changed.
+ * <p>
+ * The first {@link #refresh()} loads every row into a {@link TableView} whose first
+ * column is the row's integer key. Later refreshes ask the database only for the
+ * changes since the previous one and apply them to the same row objects: changed rows
+ * are overwritten in place, new rows are inserted and deleted rows are removed. The
+ * view keeps its selection and scroll position, and a refresh costs as much as the
+ * changes rather than the whole table.
+ * </p>
+ * <p>
+ * Tables backed by {@code menu}, {@code employee} and {@code inventory} find their
+ * changes in {@code change_log}: every key logged above a {@link SyncWatermark} of
+ * versions and not applied yet is re-read with one query, and keys that no longer return
+ * a row were deleted. Append-only tables such as the order list instead re-read the rows
+ * above a watermark of their keys, insert those not shown yet and drop the oldest beyond
+ * their row limit. Either way a change whose version or key was handed out before one
+ * already read, but committed after it, is still picked up. An append-only row is
+ * identified by its key and a second identity column (an order by its ID and date).
+ * </p>
+ * <p>
+ * Rows are kept in key order (newest first for append-only tables) behind a
+ * {@link SortedList} bound to the table's comparator, so new rows land in the right
+ * place whichever column the manager has sorted by.
+ * </p>
+ */
+public class LiveTable {
+
+    /**
+     * Opens the connection a refresh runs on.
+     */
+    @FunctionalInterface
+    public interface Source {
+        Connection open() throws SQLException;
+    }
+
+    private final String entity;
+    private final String allRows;
+    private final String changedRows;
+    private final int identityColumn;
+    private final int limit;
+    private final Source source;
+
+    private final TableView<ObservableList<String>> table = new TableView<>();
+    /** The rows in {@link #order}; the table shows them through a sorted view. */
+    private final ObservableList<ObservableList<String>> rows =
+            FXCollections.observableArrayList(row -> new Observable[] { row });
+    private final Comparator<ObservableList<String>> order;
+    private final Map<String, ObservableList<String>> byIdentity = new HashMap<>();
+    /** {@code change_log} versions, or the keys of an append-only table, read so far. */
+    private final SyncWatermark synced = new SyncWatermark(0);
+    private boolean loaded = false;
+
+    private LiveTable(String entity, String allRows, String changedRows, int identityColumn, int limit, Source source) {
+        this.entity = entity;
+        this.allRows = allRows;
+        this.changedRows = changedRows;
+        this.identityColumn = identityColumn;
+        this.limit = limit;
+        this.source = source;
+        Comparator<ObservableList<String>> byKey = Comparator.comparingInt(LiveTable::key);
+        this.order = entity != null ? byKey
+                : byKey.thenComparing(row -> row.get(identityColumn), Comparator.nullsFirst(Comparator.naturalOrder())).reversed();
+        SortedList<ObservableList<String>> sorted = new SortedList<>(rows);
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        table.setItems(sorted);
+    }
+
+    /**
+     * Creates a table refreshed from {@code change_log}.
+     *
+     * @param entity      the table name as written to {@code change_log.entity}
+     * @param allRows     selects every row, the integer key first
+     * @param changedRows the same select restricted to {@code key = ANY(?)} with an integer array parameter
+     * @param source      opens the connection refreshes run on
+     * @return the table, not loaded yet
+     */
+    public static LiveTable changeLogged(String entity, String allRows, String changedRows, Source source) {
+        return new LiveTable(entity, allRows, changedRows, 0, Integer.MAX_VALUE, source);
+    }
+
+    /**
+     * Creates a table of append-only rows, newest first.
+     *
+     * @param latestRows     selects the newest {@code limit} rows, newest first, the increasing integer key first
+     * @param newerRows      the same select restricted to {@code key > ?}, newest first
+     * @param identityColumn the index of the column that, with the key, identifies a row
+     * @param limit          how many rows the table shows
+     * @param source         opens the connection refreshes run on
+     * @return the table, not loaded yet
+     */
+    public static LiveTable appendOnly(String latestRows, String newerRows, int identityColumn, int limit, Source source) {
+        return new LiveTable(null, latestRows, newerRows, identityColumn, limit, source);
+    }
+
+    /** @return the table view, which stays the same across refreshes */
+    public TableView<ObservableList<String>> table() {
+        return table;
+    }
+
+    // === REFRESH ===
+
+    /**
+     * Loads the table the first time, and afterwards applies the changes since the last refresh.
+     *
+     * @return the number of rows inserted, updated or removed (all rows on the first load)
+     * @throws SQLException if the rows or changes cannot be read; the table is left as it was
+     */
+    public int refresh() throws SQLException {
+        try (Connection conn = source.open()) {
+            if (!loaded) return loadAll(conn);
+            return entity != null ? applyChangeLog(conn) : applyAppended(conn);
+        }
+    }
+
+    private int loadAll(Connection conn) throws SQLException {
+        List<Long> visible = new ArrayList<>();
+        long settled = 0;
+        if (entity != null) {
+            // Versions that may still be committing stay above the mark, and the ones
+            // already visible are read before the rows so the load includes them
+            settled = VersionedCache.settledVersion(conn, entity);
+            for (VersionedCache.ChangeEntry change : VersionedCache.changesAbove(conn, entity, settled)) visible.add(change.version());
+        }
+        List<ObservableList<String>> loadedRows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(allRows);
+             ResultSet rs = stmt.executeQuery()) {
+            buildColumns(rs.getMetaData());
+            while (rs.next()) loadedRows.add(readRow(rs));
+        }
+        if (entity == null) {
+            // Only keys at or above the oldest row shown can still change what is shown
+            settled = loadedRows.stream().mapToLong(LiveTable::key).min().orElse(0) - 1;
+            for (ObservableList<String> row : loadedRows) visible.add((long) key(row));
+        }
+        synced.reset(settled);
+        for (long value : visible) synced.offer(value);
+        byIdentity.clear();
+        for (ObservableList<String> row : loadedRows) byIdentity.put(identity(row), row);
+        loadedRows.sort(order);
+        rows.setAll(loadedRows);
+        loaded = true;
+        return loadedRows.size();
+    }
+
+    private int applyChangeLog(Connection conn) throws SQLException {
+        Set<Integer> changed = new LinkedHashSet<>();
+        for (VersionedCache.ChangeEntry change : VersionedCache.changesAbove(conn, entity, synced.low())) {
+            if (synced.offer(change.version())) changed.add(Integer.parseInt(change.entityKey()));
+        }
+        if (changed.isEmpty()) {
+            synced.advance();
+            return 0;
+        }
+
+        Map<Integer, ObservableList<String>> fresh = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(changedRows)) {
+            stmt.setArray(1, conn.createArrayOf("integer", changed.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                ObservableList<String> row = readRow(rs);
+                fresh.put(key(row), row);
+            }
+        }
+
+        boolean updated = false;
+        for (int key : changed) {
+            ObservableList<String> current = byIdentity.get(String.valueOf(key));
+            ObservableList<String> row = fresh.get(key);
+            if (row == null) {
+                if (current != null) rows.remove(current);
+                byIdentity.remove(String.valueOf(key));
+            } else if (current != null) {
+                // Same row object, so the selection stays on it
+                current.setAll(row);
+                updated = true;
+            } else {
+                insert(row);
+            }
+        }
+        if (updated) table.refresh();
+        // Applied only now, so a failed read leaves the changes above the mark for the next refresh
+        synced.advance();
+        return changed.size();
+    }
+
+    private int applyAppended(Connection conn) throws SQLException {
+        List<ObservableList<String>> newer = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(changedRows)) {
+            stmt.setLong(1, synced.low());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next() && newer.size() < limit) newer.add(readRow(rs));
+        }
+
+        int changed = 0;
+        for (ObservableList<String> row : newer) {
+            synced.offer(key(row));
+            if (byIdentity.containsKey(identity(row))) continue;
+            // Older than every row of a full table, such as one dropped by an earlier refresh
+            if (rows.size() >= limit && order.compare(row, rows.get(rows.size() - 1)) > 0) continue;
+            insert(row);
+            changed++;
+        }
+        synced.advance();
+        while (rows.size() > limit) {
+            byIdentity.remove(identity(rows.remove(rows.size() - 1)));
+            changed++;
+        }
+        return changed;
+    }
+
+    /** Adds a row at its place in {@link #order}. */
+    private void insert(ObservableList<String> row) {
+        int at = Collections.binarySearch(rows, row, order);
+        rows.add(at < 0 ? -at - 1 : at, row);
+        byIdentity.put(identity(row), row);
+    }
+
+    // === ROWS ===
+
+    private void buildColumns(ResultSetMetaData meta) throws SQLException {
+        table.getColumns().clear();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            final int colIndex = i - 1;
+            TableColumn<ObservableList<String>, String> col = new TableColumn<>(meta.getColumnLabel(i));
+            col.setCellValueFactory(param ->
+                    new javafx.beans.property.SimpleStringProperty(param.getValue().get(colIndex)));
+            table.getColumns().add(col);
+        }
+    }
+
+    private static ObservableList<String> readRow(ResultSet rs) throws SQLException {
+        int columnCount = rs.getMetaData().getColumnCount();
+        ObservableList<String> row = FXCollections.observableArrayList();
+        for (int i = 1; i <= columnCount; i++) row.add(rs.getString(i));
+        return row;
+    }
+
+    /** @return the row's identity: its key, and for append-only rows also its identity column */
+    private String identity(ObservableList<String> row) {
+        return entity != null ? row.get(0) : row.get(0) + "|" + row.get(identityColumn);
+    }
+
+    private static int key(ObservableList<String> row) {
+        return Integer.parseInt(row.get(0));
+    }
+}
@@ -21,8 +21,6 @@ public class LoginController {
     @FXML private PasswordField cashierPasswordField;
     @FXML private Label statusLabel;
 
-    private final DatabaseConnector db = new DatabaseConnector();
-
     /**
      * Handles the login process for the manager role.
      * Validates the entered password and opens the manager dashboard if successful.
@@ -59,13 +57,10 @@ public class LoginController {
      * @return true if authentication is successful, false otherwise
      */
     private boolean authenticate(String role, String password) {
-        String sql = "SELECT employeePasscode FROM employee WHERE employeePosition = ?;";
-        try (Connection conn = db.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, role);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                if (password.equals(rs.getString("employeePasscode"))) {
+        try {
+            // Credentials come from the terminal cache, which employee changes keep current
+            for (TerminalCaches.EmployeeRow employee : TerminalCaches.EMPLOYEES.values()) {
+                if (role.equals(employee.employeePosition()) && password.equals(employee.employeePasscode())) {
                     return true;
                 }
             }
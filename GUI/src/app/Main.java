@@ -5,6 +5,8 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.time.LocalDate;
+
 /**
  * Main class that serves as the entry point for the POS system.
  * <p>
@@ -38,11 +40,22 @@ public class Main extends Application {
         DatabaseConnector.setDbUser(creds[1]);
         DatabaseConnector.setDbPassword(creds[2]);
 
+        // creds[5] is the optional reporting replica URL
+        DatabaseConnector.setReplicaUrl(creds[5]);
+
         // creds[3] is date
         if (creds[3] != "") {
             CashierController.setCurrDate(creds[3]);
             ManagerController.setCurrDate(creds[3]);
         }
+
+        // creds[4] is the store location ID
+        if (!creds[4].isEmpty()) {
+            StoreSession.setLocationID(Integer.parseInt(creds[4]));
+        }
+
+        // Keeps monthly order partitions ready for today and the working date
+        PartitionMaintenance.start(creds[3].isEmpty() ? LocalDate.now() : LocalDate.parse(creds[3]));
         launch(args);
     }
 }
\ No newline at end of file
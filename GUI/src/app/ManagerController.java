@@ -1,5 +1,6 @@
 package app;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
@@ -11,12 +12,23 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.collections.*;
 import java.sql.*;
 import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.geometry.Pos;
+import javafx.util.StringConverter;
 
 /**
  * Controller class that manages the manager view of the POS system.
@@ -33,9 +45,73 @@ public class ManagerController {
     /** The main display area for loading manager interface content dynamically. */
     @FXML private AnchorPane mainDisplayPane;
 
+    /** Shows whether the database is reachable. */
+    @FXML private Label dbStatusLabel;
+
     /** The current date used across reports and database queries. */
     private static LocalDate currDate = LocalDate.now();
 
+    /** The report currently running in the background, or {@code null}. */
+    private ReportTask<?> activeReport;
+
+    /** Cancels the live subscription of the X-Report or restock view when run, or {@code null}. */
+    private Runnable liveFeed;
+
+    /** Data tables kept between visits and refreshed with only their changes, by view. */
+    private final Map<String, LiveTable> liveTables = new HashMap<>();
+
+    /** Cancels the low-stock alert subscription of the most recently opened manager view. */
+    private static Runnable lowStockAlerts;
+
+    /** The store picked in the report screen's selector, or {@code null} for the terminal's own store. */
+    private static Integer reportLocation;
+
+    /** Cancels the database health subscription of the most recently opened manager view. */
+    private static Runnable healthFeed;
+
+    /**
+     * Called by the FXML loader once the view is built.
+     * Starts listening for orders committed on other terminals so cached reports stay current,
+     * starts the inventory journal flusher, the consumption-rate backfill and the columnar history sync, and pops up a non-blocking alert whenever an ingredient crosses its restock threshold.
+     * Also keeps the sidebar's database status label current.
+     */
+    @FXML
+    private void initialize() {
+        OrderFeed.startCacheInvalidation();
+
+        InventoryReservations.start();
+        ConsumptionForecast.ready();
+        ColumnarStore.start();
+        OrderIndex.start();
+        ReportPrecomputer.start();
+        try {
+            StoreSession.getLocationID();
+            InventoryState.load();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        if (lowStockAlerts != null) lowStockAlerts.run();
+        lowStockAlerts = InventoryState.subscribe(level -> {
+            if (!level.crossed() || !level.low()) return;
+            Platform.runLater(() -> {
+                Alert alert = new Alert(Alert.AlertType.WARNING, level.describe());
+                alert.setTitle("Low Stock");
+                alert.setHeaderText(null);
+                alert.show();
+            });
+        });
+
+        showHealth(DatabaseConnector.health());
+        if (healthFeed != null) healthFeed.run();
+        healthFeed = DatabaseConnector.subscribeHealth(state -> Platform.runLater(() -> showHealth(state)));
+    }
+
+    /** Updates the database status label for a circuit breaker state. */
+    private void showHealth(CircuitBreaker.State state) {
+        dbStatusLabel.setText(state.describe());
+        dbStatusLabel.setStyle(state == CircuitBreaker.State.CLOSED ? "-fx-text-fill: darkgreen;" : "-fx-text-fill: darkred; -fx-font-weight: bold;");
+    }
+
     // ===== SET DATABASE DATE =====
     // Format is YYYY-MM-DD
 
@@ -47,6 +123,7 @@ public class ManagerController {
      */
     public static void setCurrDate(String date){
         currDate = LocalDate.parse(date);
+        ReportCache.setCurrentDay(currDate);
     }
 
     // === BUTTON HANDLERS ===
@@ -55,32 +132,147 @@ public class ManagerController {
      * Loads and displays the current inventory table from the database.
      * <p>
      * Each record shows the ingredient name, available quantity, and its
-     * unit of measurement. The data is dynamically fetched using SQL.
+     * unit of measurement. Later visits re-read only the ingredients changed since.
      * </p>
      */
     @FXML private void handleInventoryButton() {
-        loadTableFromQuery(
-            "SELECT inventoryName AS \"Ingredient\", quantityAvailable AS \"Quantity\", unit AS \"Unit\" FROM inventory",
-            "Inventory"
-        );
+        cancelActiveReport();
+        String columns = "SELECT inventoryID AS \"ID\", inventoryName AS \"Ingredient\", quantityAvailable AS \"Quantity\", unit AS \"Unit\" FROM inventory";
+        showLiveTable("Inventory", "Inventory", () -> LiveTable.changeLogged("inventory",
+            columns + " ORDER BY inventoryID",
+            columns + " WHERE inventoryID = ANY(?)",
+            ManagerController::openReportingConnection));
     }
 
     /**
      * Loads and displays the most recent orders in the system.
      * <p>
-     * The query retrieves up to 40 of the latest orders and presents
+     * The query retrieves up to 40 of the latest orders of the session's store and presents
      * details including order ID, employee ID, order location, date, and total value.
      * </p>
+     * <p>
+     * Above the table, managers can pick drinks and add-ons and filter the store's history
+     * over a date window to the orders containing all (AND) or any (OR) of them. The
+     * filter is answered from {@link OrderIndex} postings in memory; only the matching
+     * orders shown are read from the database. The summary also lists the drinks most
+     * often bought together with the matching orders.
+     * </p>
      */
     @FXML private void handleOrdersButton() {
-        loadTableFromQuery("""
-            SELECT orderID AS "Order ID", employeeID AS "Employee ID",
-                   orderLocation AS "Location", orderDate AS "Date",
-                   orderTotal AS "Total ($)"
-            FROM ordertest
-            ORDER BY orderDate DESC
-            LIMIT 40
-        """, "Order History");
+        cancelActiveReport();
+        mainDisplayPane.getChildren().clear();
+        int location = currLocation();
+
+        Label header = new Label("Order History — " + StoreSession.locationName(location));
+        header.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10;");
+
+        // === Filter controls ===
+        Map<String, Integer> drinkIDs = new LinkedHashMap<>();
+        Map<String, Integer> addOnIDs = new LinkedHashMap<>();
+        try {
+            for (TerminalCaches.MenuRow row : TerminalCaches.MENU.values()) drinkIDs.put(row.menuName(), row.menuID());
+            for (TerminalCaches.InventoryRow row : TerminalCaches.INVENTORY.values()) addOnIDs.put(row.inventoryName(), row.inventoryID());
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        ListView<String> drinkList = new ListView<>(FXCollections.observableArrayList(drinkIDs.keySet()));
+        drinkList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        drinkList.setPrefHeight(110);
+        ListView<String> addOnList = new ListView<>(FXCollections.observableArrayList(addOnIDs.keySet()));
+        addOnList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        addOnList.setPrefHeight(110);
+
+        ChoiceBox<String> matchBox = new ChoiceBox<>(FXCollections.observableArrayList("All selected (AND)", "Any selected (OR)"));
+        matchBox.getSelectionModel().selectFirst();
+        DatePicker fromPicker = new DatePicker(currDate.minusDays(30));
+        DatePicker toPicker = new DatePicker(currDate);
+        Button filterBtn = new Button("Filter");
+        filterBtn.setStyle("-fx-background-color: #2c7; -fx-text-fill: white; -fx-font-weight: bold;");
+
+        VBox optionsBox = new VBox(8, matchBox, new HBox(5, new Label("From:"), fromPicker),
+                new HBox(5, new Label("To:"), toPicker), filterBtn);
+        HBox filterRow = new HBox(10, new VBox(3, new Label("Drinks"), drinkList),
+                new VBox(3, new Label("Add-ons"), addOnList), optionsBox);
+        filterRow.setStyle("-fx-padding: 0 10 0 10;");
+
+        Label summaryLabel = new Label("Latest 40 orders. Select drinks and add-ons (Ctrl-click for several) to filter the history.");
+        summaryLabel.setWrapText(true);
+        summaryLabel.setStyle("-fx-padding: 0 10 0 10;");
+
+        VBox layout = new VBox(10, header, filterRow, summaryLabel);
+        AnchorPane.setTopAnchor(layout, 0.0);
+        AnchorPane.setBottomAnchor(layout, 0.0);
+        AnchorPane.setLeftAnchor(layout, 0.0);
+        AnchorPane.setRightAnchor(layout, 0.0);
+        mainDisplayPane.getChildren().add(layout);
+
+        String columns = """
+            SELECT o.orderID AS "Order ID", o.employeeID AS "Employee ID",
+                   l.locationName AS "Location", o.orderDate AS "Date",
+                   o.orderTotal AS "Total ($)"
+            FROM ordertest o
+            JOIN locationTable l ON l.locationID = o.locationID
+            WHERE o.locationID = %d
+        """.formatted(location);
+        try {
+            // Orders are only ever appended, so a revisit reads just the ones above the shown orders' watermark
+            layout.getChildren().add(refreshLiveTable("Orders:" + location, () -> LiveTable.appendOnly(
+                columns + " ORDER BY o.orderID DESC, o.orderDate DESC LIMIT 40",
+                columns + " AND o.orderID > ? ORDER BY o.orderID DESC, o.orderDate DESC LIMIT 40",
+                3, 40, ManagerController::openReportingConnection)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            layout.getChildren().add(new Label("Error loading data: " + e.getMessage()));
+        }
+
+        // === Filter button logic ===
+        record FilteredOrders(OrderIndex.Result result, TableView<ObservableList<String>> table) { }
+        filterBtn.setOnAction(ev -> {
+            LocalDate from = fromPicker.getValue();
+            LocalDate to = toPicker.getValue();
+            if (from == null || to == null || to.isBefore(from)) {
+                new Alert(Alert.AlertType.WARNING, "Please select a valid date range.").showAndWait();
+                return;
+            }
+            if (!OrderIndex.isReady()) {
+                new Alert(Alert.AlertType.INFORMATION, "The order index is still being built. Please try again in a moment.").showAndWait();
+                return;
+            }
+            List<Integer> menuIDs = drinkList.getSelectionModel().getSelectedItems().stream().map(drinkIDs::get).toList();
+            List<Integer> inventoryIDs = addOnList.getSelectionModel().getSelectedItems().stream().map(addOnIDs::get).toList();
+            boolean matchAll = matchBox.getSelectionModel().getSelectedIndex() == 0;
+
+            runReport(layout, "Order History", monitor -> {
+                OrderIndex.Result result = OrderIndex.query(location, from, to, menuIDs, inventoryIDs, matchAll, 200);
+                try (Connection conn = openReportingConnection();
+                     PreparedStatement ps = monitor.prepare(conn, Queries.ORDERS_BY_ID)) {
+                    ps.setArray(1, conn.createArrayOf("integer",
+                            result.recentOrders().stream().map(OrderIndex.OrderRef::orderID).toArray()));
+                    ps.setArray(2, conn.createArrayOf("timestamp",
+                            result.recentOrders().stream().map(ref -> Timestamp.valueOf(ref.orderDate())).toArray()));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return new FilteredOrders(result, buildTableFromResultSet(rs));
+                    }
+                }
+            }, filtered -> {
+                OrderIndex.Result result = filtered.result();
+                StringBuilder summary = new StringBuilder(String.format("%,d matching orders from %s to %s; showing the latest %d.",
+                        result.matches(), from, to, result.recentOrders().size()));
+                if (!result.coPurchases().isEmpty()) {
+                    List<String> together = new ArrayList<>();
+                    for (OrderIndex.CoPurchase item : result.coPurchases()) {
+                        together.add(String.format("%s (%,d)", SalesReports.menuName(item.menuID()), item.orders()));
+                    }
+                    summary.append(" Often bought with: ").append(String.join(", ", together));
+                }
+                summaryLabel.setText(summary.toString());
+                if (layout.getChildren().size() > 3) {
+                    layout.getChildren().set(3, filtered.table());
+                } else {
+                    layout.getChildren().add(filtered.table());
+                }
+            });
+        });
     }
 
     /**
@@ -93,20 +285,20 @@ public class ManagerController {
      */
     @FXML
     private void handleEmployeeButton() {
+        cancelActiveReport();
         mainDisplayPane.getChildren().clear();
 
         Label header = new Label("Employees");
         header.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10;");
 
         final TableView<ObservableList<String>>[] tableRef = new TableView[1];
-        String query = "SELECT employeeID AS \"ID\", employeeName AS \"Name\", employeePosition AS \"Position\" FROM employee";
-
-        try (Connection conn = DatabaseConnector.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query);
-            ResultSet rs = stmt.executeQuery()) {
-
-            tableRef[0] = buildTableFromResultSet(rs);
+        String columns = "SELECT employeeID AS \"ID\", employeeName AS \"Name\", employeePosition AS \"Position\" FROM employee";
 
+        try {
+            tableRef[0] = refreshLiveTable("Employees", () -> LiveTable.changeLogged("employee",
+                columns + " ORDER BY employeeID",
+                columns + " WHERE employeeID = ANY(?)",
+                ManagerController::openConnection));
         } catch (SQLException e) {
             e.printStackTrace();
             mainDisplayPane.getChildren().add(new Label("Error loading employees."));
@@ -140,30 +332,31 @@ public class ManagerController {
      * </p>
      */
     @FXML private void handleRestockButton() {
+        cancelActiveReport();
         loadRestockTable();
     }
 
     // === UNIVERSAL TABLE LOADER ===
 
     /**
-     * Loads a generic table from a given SQL query and displays it inside the main pane.
+     * Displays a data table inside the main pane, refreshed with only its changes.
      * <p>
      * This universal table loader is reused across multiple dashboard sections
      * (e.g., inventory, orders, employees) to dynamically populate tabular data
-     * without hardcoding the schema.
+     * without hardcoding the schema. The table is loaded on the first visit and kept;
+     * later visits apply only the rows inserted, updated or removed since, so the
+     * selection and scroll position survive (see {@link LiveTable}).
      * </p>
      *
-     * @param query SQL query used to fetch data from the database
-     * @param title The display title shown above the generated table
+     * @param name   identifies the table between visits
+     * @param title  the display title shown above the table
+     * @param create builds the table on the first visit
      */
-    private void loadTableFromQuery(String query, String title) {
+    private void showLiveTable(String name, String title, Supplier<LiveTable> create) {
         mainDisplayPane.getChildren().clear();
 
-        try (Connection conn = DatabaseConnector.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query);
-            ResultSet rs = stmt.executeQuery()) {
-
-            TableView<ObservableList<String>> table = buildTableFromResultSet(rs);
+        try {
+            TableView<ObservableList<String>> table = refreshLiveTable(name, create);
             Label header = new Label(title);
             header.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10;");
 
@@ -182,16 +375,38 @@ public class ManagerController {
         }
     }
 
+    /**
+     * Returns a kept data table after applying the changes since its last refresh.
+     *
+     * @param name   identifies the table between visits
+     * @param create builds the table on the first visit
+     * @return the table view, the same node on every visit
+     * @throws SQLException if the rows or changes cannot be read
+     */
+    private TableView<ObservableList<String>> refreshLiveTable(String name, Supplier<LiveTable> create) throws SQLException {
+        LiveTable live = liveTables.computeIfAbsent(name, k -> create.get());
+        int changed = live.refresh();
+        if (changed > 0) System.out.println(name + " table: " + changed + " rows refreshed");
+        return live.table();
+    }
+
     // === RESTOCK TABLE (INTERACTIVE) ===
 
     /**
      * Loads the interactive restock management table into the main display pane.
      * <p>
      * This method dynamically builds a table of all inventory items, their current quantities,
-     * and restock thresholds. Users can manually add quantities to restock individual items.
+     * and restock thresholds. Users can type an amount to add on any number of rows and
+     * submit them together with the "Submit Restock" button.
      * <br><br>
      * Rows that meet or fall below their restock minimum threshold are visually highlighted
      * with a light yellow background for quick identification.
+     * <br><br>
+     * Rows come from {@link InventoryState} rather than a query, and stay subscribed to it
+     * while the view is open, so orders and restocks from any terminal update quantities
+     * in place and threshold crossings are appended to the alert log below the table.
+     * The projected time to stock-out and a suggested order quantity come from
+     * {@link ConsumptionForecast}.
      * </p>
      */
     private void loadRestockTable() {
@@ -216,66 +431,51 @@ public class ManagerController {
             new javafx.beans.property.SimpleStringProperty(param.getValue().needsRestock() ? "Y" : "N")
         );
 
-        TableColumn<InventoryItem, Integer> addCol = new TableColumn<>("Add (+)");
+        // Forecast columns, computed in memory from the maintained consumption rates
+        TableColumn<InventoryItem, String> stockoutCol = new TableColumn<>("Stock-out In");
+        stockoutCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(
+            ConsumptionForecast.isReady() ? forecastFor(param.getValue()).describeStockout() : "…"));
+
+        TableColumn<InventoryItem, String> suggestCol = new TableColumn<>("Suggested Order");
+        suggestCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(
+            ConsumptionForecast.isReady() ? String.format("%.0f", forecastFor(param.getValue()).suggestedOrder()) : "…"));
+
+        TableColumn<InventoryItem, String> addCol = new TableColumn<>("Add (+)");
+        addCol.setCellValueFactory(param -> param.getValue().pendingAddProperty());
         addCol.setCellFactory(col -> new TableCell<>() {
             private final TextField input = new TextField();
             {
                 input.setPromptText("0");
                 input.setPrefWidth(60);
-            }
-            @Override
-            protected void updateItem(Integer item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty) setGraphic(null);
-                else setGraphic(input);
-            }
-        });
-
-        TableColumn<InventoryItem, Void> saveCol = new TableColumn<>("Save");
-        saveCol.setCellFactory(col -> new TableCell<>() {
-            private final Button btn = new Button("Update");
-            {
-                btn.setOnAction(e -> {
-                    InventoryItem item = getTableView().getItems().get(getIndex());
-                    TableRow<?> row = getTableRow();
-                    if (row != null) {
-                        TextField inputField = (TextField) row.lookup(".text-field");
-                        if (inputField != null && !inputField.getText().isEmpty()) {
-                            try {
-                                int addAmount = Integer.parseInt(inputField.getText());
-                                updateInventory(item.getIngredientName(), addAmount);
-                                item.setQuantity(item.getQuantity() + addAmount);
-                                table.refresh();
-                            } catch (NumberFormatException ex) {
-                                System.err.println("Invalid number input.");
-                            }
-                        }
-                    }
+                // Keep the typed amount on the row item, so it survives cell reuse while scrolling
+                input.textProperty().addListener((obs, oldText, newText) -> {
+                    InventoryItem item = getTableRow() == null ? null : getTableRow().getItem();
+                    if (item != null) item.setPendingAdd(newText);
                 });
             }
             @Override
-            protected void updateItem(Void item, boolean empty) {
+            protected void updateItem(String item, boolean empty) {
                 super.updateItem(item, empty);
-                setGraphic(empty ? null : btn);
+                if (empty) {
+                    setGraphic(null);
+                } else {
+                    input.setText(item);
+                    setGraphic(input);
+                }
             }
         });
 
         // Add all columns to the table
-        table.getColumns().addAll(nameCol, qtyCol, minCol, statusCol, addCol, saveCol);
-
-        try (Connection conn = DatabaseConnector.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(
-                "SELECT inventoryName, quantityAvailable, restockMin FROM inventory");
-            ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                data.add(new InventoryItem(
-                    rs.getString("inventoryName"),
-                    rs.getDouble("quantityAvailable"),
-                    rs.getInt("restockMin")
-                ));
-            }
+        table.getColumns().addAll(nameCol, qtyCol, minCol, statusCol, stockoutCol, suggestCol, addCol);
 
+        // The table is a view over the maintained stock levels; no inventory scan is needed
+        Map<Integer, InventoryItem> byID = new HashMap<>();
+        try {
+            for (InventoryState.Level level : InventoryState.levels()) {
+                InventoryItem item = new InventoryItem(level.inventoryID(), level.name(), level.quantity(), level.restockMin());
+                data.add(item);
+                byID.put(level.inventoryID(), item);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -300,7 +500,25 @@ public class ManagerController {
         Label header = new Label("Restock Inventory");
         header.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10;");
 
-        VBox layout = new VBox(10, header, table);
+        Button submitBtn = new Button("Submit Restock");
+        submitBtn.setOnAction(e -> submitRestock(table));
+
+        ConsumptionForecast.ready().thenRun(() -> Platform.runLater(table::refresh));
+
+        ListView<String> alertList = new ListView<>(FXCollections.observableArrayList(InventoryState.recentAlerts()));
+        alertList.setPrefHeight(100);
+
+        // Follow stock changes from every terminal until the manager leaves this view
+        liveFeed = InventoryState.subscribe(level -> Platform.runLater(() -> {
+            InventoryItem item = byID.get(level.inventoryID());
+            if (item == null) return;
+            item.setQuantity(level.quantity());
+            item.setRestockMin(level.restockMin());
+            if (level.crossed()) alertList.getItems().add(0, level.describe());
+            table.refresh();
+        }));
+
+        VBox layout = new VBox(10, header, table, submitBtn, new Label("Stock alerts"), alertList);
         AnchorPane.setTopAnchor(layout, 0.0);
         AnchorPane.setBottomAnchor(layout, 0.0);
         AnchorPane.setLeftAnchor(layout, 0.0);
@@ -309,43 +527,303 @@ public class ManagerController {
     }
 
 
+    /**
+     * Forecasts one restock table row from its current quantity.
+     *
+     * @param item the inventory row
+     * @return the row's stock-out forecast
+     */
+    private static ConsumptionForecast.Forecast forecastFor(InventoryItem item) {
+        return ConsumptionForecast.forecast(item.getInventoryID(), item.getQuantity(), item.getRestockMin());
+    }
+
     // === RESTOCK UPDATER ===
 
     /**
-     * Updates the quantity of a specific inventory item in the database.
+     * Submits every pending "Add (+)" amount in the restock table as one batch.
      * <p>
-     * This method increases the {@code quantityAvailable} field of the specified ingredient
-     * by the given {@code addAmount}. It also provides visual confirmation to the user through
-     * a JavaFX alert upon successful update.
+     * All amounts are validated before anything is sent; if any row holds a value that
+     * is not a whole number, nothing is submitted and the offending rows are listed.
+     * Otherwise the amounts are applied by {@link #restockInventory(Map)} in a single
+     * transaction, the affected rows are updated from the quantities the database
+     * returned, and one summary alert reports the result for each row.
      * </p>
      *
-     * @param ingredient the name of the ingredient to restock
-     * @param addAmount  the amount to add to the current quantity
+     * @param table the restock table holding the pending amounts
      */
-    private void updateInventory(String ingredient, int addAmount) {
-        try (Connection conn = DatabaseConnector.getConnection()) {
-            String query = "UPDATE inventory SET quantityAvailable = quantityAvailable + ? WHERE inventoryName = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, addAmount);
-                stmt.setString(2, ingredient);
-                int rows = stmt.executeUpdate();
-
-                if (rows > 0) {
-                    System.out.println("Restocked " + ingredient + " by " + addAmount);
-                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                    alert.setTitle("Restock Successful");
-                    alert.setHeaderText(null);
-                    alert.setContentText(ingredient + " restocked by " + addAmount + " units.");
-                    alert.showAndWait();
-                }
+    private void submitRestock(TableView<InventoryItem> table) {
+        Map<Integer, Integer> adds = new LinkedHashMap<>();
+        Map<Integer, InventoryItem> items = new HashMap<>();
+        StringBuilder invalid = new StringBuilder();
+        for (InventoryItem item : table.getItems()) {
+            String text = item.getPendingAdd().trim();
+            if (text.isEmpty()) continue;
+            try {
+                int amount = Integer.parseInt(text);
+                if (amount == 0) continue;
+                adds.put(item.getInventoryID(), amount);
+                items.put(item.getInventoryID(), item);
+            } catch (NumberFormatException ex) {
+                invalid.append(item.getIngredientName()).append(": \"").append(text).append("\"\n");
             }
+        }
+
+        if (invalid.length() > 0) {
+            showAlert(Alert.AlertType.ERROR, "Invalid Amounts",
+                    "Nothing was submitted. Fix these amounts and try again:\n" + invalid);
+            return;
+        }
+        if (adds.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "Restock", "Enter an amount to add on at least one row.");
+            return;
+        }
+
+        Map<Integer, Double> updated;
+        try {
+            updated = restockInventory(adds);
         } catch (SQLException e) {
             e.printStackTrace();
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Database Error");
-            alert.setHeaderText(null);
-            alert.setContentText("Failed to update inventory: " + e.getMessage());
-            alert.showAndWait();
+            showAlert(Alert.AlertType.ERROR, "Database Error",
+                    "Restock failed and no rows were changed: " + e.getMessage());
+            return;
+        }
+
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<Integer, Integer> add : adds.entrySet()) {
+            InventoryItem item = items.get(add.getKey());
+            Double newQuantity = updated.get(add.getKey());
+            summary.append(item.getIngredientName()).append(": ");
+            if (newQuantity == null) {
+                summary.append("not found, skipped\n");
+                continue;
+            }
+            // Shown like every other level: less this terminal's consumption not flushed yet
+            double shown = newQuantity + InventoryReservations.pending(add.getKey());
+            item.setQuantity(shown);
+            item.setPendingAdd("");
+            summary.append(String.format("%+d, now %.2f%n", add.getValue(), shown));
+        }
+        table.refresh();
+
+        showAlert(Alert.AlertType.INFORMATION, "Restock Submitted",
+                "Restocked " + updated.size() + " of " + adds.size() + " items.\n\n" + summary);
+    }
+
+    /**
+     * Adds the given amounts to the inventory in one transaction.
+     * <p>
+     * Every row is queued on a single {@link PreparedStatement} batch keyed by
+     * {@code inventoryID}, so the whole restock costs one round trip and either all
+     * rows change or none do. The statement returns each updated row's new
+     * {@code quantityAvailable}, which lets the caller update its table without
+     * re-querying the inventory, and which is published to {@link InventoryState}
+     * in the same transaction.
+     * </p>
+     *
+     * @param adds the amount to add, keyed by inventory ID
+     * @return the new quantity of each row that was updated, keyed by inventory ID;
+     *         IDs that no longer exist are absent
+     * @throws SQLException if the batch fails; the transaction is rolled back
+     */
+    private static Map<Integer, Double> restockInventory(Map<Integer, Integer> adds) throws SQLException {
+        String query = "UPDATE inventory SET quantityAvailable = quantityAvailable + ? WHERE inventoryID = ?";
+        Map<Integer, Double> updated = new HashMap<>();
+        try (Connection conn = openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query, new String[] {"inventoryid", "quantityavailable"})) {
+                for (Map.Entry<Integer, Integer> add : adds.entrySet()) {
+                    stmt.setInt(1, add.getValue());
+                    stmt.setInt(2, add.getKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                List<InventoryState.Delta> deltas = new ArrayList<>();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        int id = rs.getInt("inventoryid");
+                        double quantity = rs.getDouble("quantityavailable");
+                        updated.put(id, quantity);
+                        deltas.add(new InventoryState.Delta(id, adds.get(id), quantity));
+                    }
+                }
+                InventoryState.publish(conn, deltas);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        System.out.println("Restocked " + updated.size() + " inventory items in one batch");
+        return updated;
+    }
+
+    // === HELPER: Simple alerts ===
+
+    /**
+     * Shows a modal alert with no header.
+     *
+     * @param type    the alert type
+     * @param title   the window title
+     * @param message the alert text
+     */
+    private static void showAlert(Alert.AlertType type, String title, String message) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
+    // === HELPER: Live X-Report updates ===
+
+    /**
+     * Adds an order total to one hour of the X-Report line chart.
+     * <p>
+     * Updates the existing data point for that hour in place, or inserts a new point
+     * so the hours stay in ascending order.
+     * </p>
+     *
+     * @param series the hourly sales series
+     * @param hour   the hour of day of the order
+     * @param amount the order total to add
+     */
+    private static void addToHour(XYChart.Series<String, Number> series, int hour, double amount) {
+        String label = String.format("%02d:00", hour);
+        ObservableList<XYChart.Data<String, Number>> data = series.getData();
+        int insertAt = data.size();
+        for (int i = 0; i < data.size(); i++) {
+            int cmp = data.get(i).getXValue().compareTo(label);
+            if (cmp == 0) {
+                data.get(i).setYValue(data.get(i).getYValue().doubleValue() + amount);
+                return;
+            }
+            if (cmp > 0) {
+                insertAt = i;
+                break;
+            }
+        }
+        data.add(insertAt, new XYChart.Data<>(label, amount));
+    }
+
+    // === HELPER: Session store ===
+
+    /**
+     * Returns the store that reports are generated for.
+     * <p>
+     * This is the store picked in the report screen's selector, which only scopes the
+     * manager's reports; the register keeps recording orders for the terminal's own store
+     * ({@link StoreSession}). Until a store is picked, reports cover the terminal's store.
+     * {@link #initialize()} resolves that store when the view opens, so this only fails
+     * if the store list could not be loaded at all.
+     * </p>
+     *
+     * @return the report location ID
+     * @throws IllegalStateException if the store cannot be determined
+     */
+    private static int currLocation() {
+        if (reportLocation != null) return reportLocation;
+        try {
+            return StoreSession.getLocationID();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Store location unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    // === HELPER: Open a connection for report loaders ===
+
+    /**
+     * Opens a database connection, failing with an exception instead of returning {@code null}.
+     * <p>
+     * Report loaders run inside {@link ReportCache#getOrLoad}, which propagates
+     * {@link SQLException}s to the caller's error alert.
+     * </p>
+     *
+     * @return an open {@link Connection}
+     * @throws SQLException if no connection could be established
+     */
+    private static Connection openConnection() throws SQLException {
+        Connection conn = DatabaseConnector.getConnection();
+        if (conn == null) throw new SQLException("Database connection failed.");
+        return conn;
+    }
+
+    /**
+     * Borrows a read-only reporting connection (see {@link DatabaseConnector#getReportingConnection()}),
+     * which is served by the replica when one is configured and fresh. Reports queue behind
+     * register work and may be shed during peak ordering (see {@link WorkloadScheduler}).
+     *
+     * @return an open read-only {@link Connection}
+     * @throws SQLException if no connection could be established
+     */
+    private static Connection openReportingConnection() throws SQLException {
+        return DatabaseConnector.getReportingConnection();
+    }
+
+    // === BACKGROUND REPORTS ===
+
+    /**
+     * Runs a report on a background thread with a progress bar and a Cancel button.
+     * <p>
+     * A progress row is appended to {@code container} while the report runs and is removed
+     * once it finishes. Only one report runs at a time: starting a new one, or switching to
+     * another dashboard section, cancels the previous report and aborts its running query
+     * (see {@link ReportTask}).
+     * </p>
+     *
+     * @param container  the layout the progress row is added to
+     * @param reportName the report name used in the error alert
+     * @param body       the report work, run off the JavaFX thread
+     * @param onSuccess  renders the result on the JavaFX thread
+     * @param <T>        the report result type
+     */
+    private <T> void runReport(Pane container, String reportName, ReportTask.Body<T> body, Consumer<T> onSuccess) {
+        cancelActiveReport();
+
+        ReportTask<T> task = new ReportTask<>(body);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label progressLabel = new Label();
+        progressLabel.textProperty().bind(task.messageProperty());
+        Button cancelBtn = new Button("Cancel");
+        cancelBtn.setOnAction(e -> task.cancel());
+
+        HBox progressRow = new HBox(10, progressBar, progressLabel, cancelBtn);
+        progressRow.setAlignment(Pos.CENTER_LEFT);
+        progressRow.setStyle("-fx-padding: 10;");
+        container.getChildren().add(progressRow);
+
+        task.setOnSucceeded(e -> {
+            container.getChildren().remove(progressRow);
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            container.getChildren().remove(progressRow);
+            Throwable ex = task.getException();
+            ex.printStackTrace();
+            new Alert(Alert.AlertType.ERROR, "Error generating " + reportName + ": " + ex.getMessage()).showAndWait();
+        });
+        task.setOnCancelled(e -> container.getChildren().remove(progressRow));
+
+        activeReport = task;
+        Thread worker = new Thread(task, "report-" + reportName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Cancels the report that is currently running, if any, and stops live X-Report updates.
+     * Called whenever the manager leaves the current view so abandoned reports
+     * release their database connection immediately.
+     */
+    private void cancelActiveReport() {
+        if (activeReport != null && !activeReport.isDone()) {
+            activeReport.cancel();
+        }
+        activeReport = null;
+        if (liveFeed != null) {
+            liveFeed.run();
+            liveFeed = null;
         }
     }
 
@@ -399,23 +877,31 @@ public class ManagerController {
      * </p>
      */
     public static class InventoryItem {
+        private final int inventoryID;
         private final javafx.beans.property.SimpleStringProperty ingredientName;
         private final javafx.beans.property.SimpleDoubleProperty quantity;
         private final javafx.beans.property.SimpleIntegerProperty restockMin;
+        private final javafx.beans.property.SimpleStringProperty pendingAdd =
+                new javafx.beans.property.SimpleStringProperty("");
 
         /**
          * Constructs a new {@code InventoryItem}.
          *
+         * @param inventoryID    the inventory ID of the item
          * @param ingredientName the name of the inventory item
          * @param quantity       the current available quantity
          * @param restockMin     the minimum quantity before restocking is required
          */
-        public InventoryItem(String ingredientName, double quantity, int restockMin) {
+        public InventoryItem(int inventoryID, String ingredientName, double quantity, int restockMin) {
+            this.inventoryID = inventoryID;
             this.ingredientName = new javafx.beans.property.SimpleStringProperty(ingredientName);
             this.quantity = new javafx.beans.property.SimpleDoubleProperty(quantity);
             this.restockMin = new javafx.beans.property.SimpleIntegerProperty(restockMin);
         }
 
+        /** @return the inventory ID of the ingredient */
+        public int getInventoryID() { return inventoryID; }
+
         /** @return the name of the ingredient */
         public String getIngredientName() { return ingredientName.get(); }
 
@@ -434,6 +920,15 @@ public class ManagerController {
         /** @param value the new restock threshold */
         public void setRestockMin(int value) { restockMin.set(value); }
 
+        /** @return the amount typed into the "Add (+)" column, not yet submitted */
+        public String getPendingAdd() { return pendingAdd.get(); }
+
+        /** @param value the new pending amount text */
+        public void setPendingAdd(String value) { pendingAdd.set(value == null ? "" : value); }
+
+        /** @return the pending amount property, bound to the "Add (+)" column */
+        public javafx.beans.property.StringProperty pendingAddProperty() { return pendingAdd; }
+
         /**
          * Determines whether the item needs restocking.
          *
@@ -598,18 +1093,20 @@ public class ManagerController {
      */
     @FXML
     private void handleMenuButton() {
+        cancelActiveReport();
         mainDisplayPane.getChildren().clear();
 
         Label header = new Label("Menu Items");
         header.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-padding: 10;");
 
         final TableView<ObservableList<String>>[] tableRef = new TableView[1];
-        String query = "SELECT menuID AS \"ID\", menuName AS \"Name\", category AS \"Category\", price AS \"Price ($)\", menuDescription AS \"Description\" FROM menu ORDER BY menuID";
+        String columns = "SELECT menuID AS \"ID\", menuName AS \"Name\", category AS \"Category\", price AS \"Price ($)\", menuDescription AS \"Description\" FROM menu";
 
-        try (Connection conn = DatabaseConnector.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query);
-            ResultSet rs = stmt.executeQuery()) {
-            tableRef[0] = buildTableFromResultSet(rs);
+        try {
+            tableRef[0] = refreshLiveTable("Menu", () -> LiveTable.changeLogged("menu",
+                columns + " ORDER BY menuID",
+                columns + " WHERE menuID = ANY(?)",
+                ManagerController::openConnection));
         } catch (SQLException e) {
             e.printStackTrace();
             mainDisplayPane.getChildren().add(new Label("Error loading menu."));
@@ -908,6 +1405,7 @@ public class ManagerController {
      */
     @FXML
     private void handleBackToLogin() {
+        cancelActiveReport();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/app/LoginView.fxml"));
             Scene scene = new Scene(loader.load(), 800, 600);
@@ -931,13 +1429,19 @@ public class ManagerController {
      *     <li>Z-Report (end-of-day report)</li>
      *     <li>Range Report (custom date range totals)</li>
      *     <li>Product Usage Chart</li>
+     *     <li>All Stores (orders and sales of every store side by side)</li>
+     *     <li>History Insights (all-time analyses answered from {@link ColumnarStore})</li>
+     *     <li>Management Pack (every canned sales analysis for a date range, from one scan)</li>
+     *     <li>Quick Stats (approximate answers for long ranges, from daily sketches)</li>
      * </ul>
+     * All reports except "All Stores" cover the store picked in the store selector.
      * This interface dynamically updates the {@code mainDisplayPane} with labels, totals,
      * and tables populated from the database queries.
      * </p>
      */
     @FXML
     private void handleReportsButton() {
+        cancelActiveReport();
         mainDisplayPane.getChildren().clear();
 
         Label header = new Label("Sales Reports");
@@ -947,10 +1451,41 @@ public class ManagerController {
         Button xReportBtn = new Button("X-Report");
         Button zReportBtn = new Button("Z-Report");
         Button rangeBtn = new Button("Range Report");
+        Button compareBtn = new Button("Compare Periods");
         Button productUsageChartBtn = new Button("Product Usage Chart");
-        buttonRow.getChildren().addAll(xReportBtn, zReportBtn, rangeBtn, productUsageChartBtn);
+        Button rollupBtn = new Button("All Stores");
+        Button insightsBtn = new Button("History Insights");
+        Button packBtn = new Button("Management Pack");
+        Button quickStatsBtn = new Button("Quick Stats (approx.)");
+        buttonRow.getChildren().addAll(xReportBtn, zReportBtn, rangeBtn, compareBtn, productUsageChartBtn, rollupBtn, insightsBtn, packBtn, quickStatsBtn);
         buttonRow.setStyle("-fx-padding: 10;");
 
+        // Store selector: every report except the rollup covers the selected store only
+        ComboBox<Integer> storeBox = new ComboBox<>();
+        storeBox.setConverter(new StringConverter<Integer>() {
+            @Override
+            public String toString(Integer id) { return id == null ? "" : StoreSession.locationName(id); }
+
+            @Override
+            public Integer fromString(String text) { return null; }
+        });
+        try {
+            storeBox.getItems().addAll(StoreSession.locations().keySet());
+            storeBox.setValue(currLocation());
+        } catch (SQLException | IllegalStateException ex) {
+            ex.printStackTrace();
+        }
+        // Scopes the reports only; orders from this terminal still go to its own store
+        storeBox.setOnAction(e -> {
+            if (storeBox.getValue() != null) reportLocation = storeBox.getValue();
+        });
+        // Queue waits per work class, so a slow report can be told apart from a busy register
+        Label workloadLabel = new Label(WorkloadScheduler.describe());
+        workloadLabel.setStyle("-fx-text-fill: gray;");
+        HBox storeRow = new HBox(10, new Label("Store:"), storeBox, workloadLabel);
+        storeRow.setAlignment(Pos.CENTER_LEFT);
+        storeRow.setStyle("-fx-padding: 0 10;");
+
         Label totalRevenueLabel = new Label("$0.00");
         Label totalOrdersLabel = new Label("0");
 
@@ -971,7 +1506,7 @@ public class ManagerController {
         revCol.setPrefWidth(150);
         table.getColumns().addAll(itemCol, revCol);
 
-        VBox layout = new VBox(10, header, buttonRow, totals, topLabel, table);
+        VBox layout = new VBox(10, header, storeRow, buttonRow, totals, topLabel, table);
         AnchorPane.setTopAnchor(layout, 0.0);
         AnchorPane.setBottomAnchor(layout, 0.0);
         AnchorPane.setLeftAnchor(layout, 0.0);
@@ -980,6 +1515,7 @@ public class ManagerController {
 
         // === RANGE REPORT BUTTON HANDLER ===
         rangeBtn.setOnAction(e -> {
+            cancelActiveReport();
             mainDisplayPane.getChildren().clear();
             Label rangeHeader = new Label("Sales Report by Date Range");
             rangeHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
@@ -1002,7 +1538,28 @@ public class ManagerController {
             rangeRevCol.setPrefWidth(150);
             rangeTable.getColumns().addAll(rangeItemCol, rangeRevCol);
 
-            VBox rangeLayout = new VBox(10, rangeHeader, dateInputs, rangeTable);
+            // Hourly sales over the whole range, downsampled to the chart's pixel width
+            NumberAxis hourAxis = new NumberAxis();
+            NumberAxis salesAxis = new NumberAxis();
+            hourAxis.setLabel("Time (scroll to zoom, double-click to reset)");
+            salesAxis.setLabel("Sales ($)");
+            hourAxis.setTickLabelFormatter(new StringConverter<Number>() {
+                @Override
+                public String toString(Number epochHour) {
+                    return LocalDateTime.ofEpochSecond(epochHour.longValue() * 3600, 0, ZoneOffset.UTC)
+                            .format(DateTimeFormatter.ofPattern("MM-dd HH:00"));
+                }
+
+                @Override
+                public Number fromString(String text) { return 0; }
+            });
+            LineChart<Number, Number> hourlyChart = new LineChart<>(hourAxis, salesAxis);
+            hourlyChart.setTitle("Hourly Sales");
+            hourlyChart.setLegendVisible(false);
+            hourlyChart.setPrefHeight(300);
+            DownsampledSeries hourlySeries = new DownsampledSeries(hourlyChart, hourAxis);
+
+            VBox rangeLayout = new VBox(10, rangeHeader, dateInputs, rangeTable, hourlyChart);
             AnchorPane.setTopAnchor(rangeLayout, 0.0);
             AnchorPane.setBottomAnchor(rangeLayout, 0.0);
             AnchorPane.setLeftAnchor(rangeLayout, 0.0);
@@ -1017,52 +1574,532 @@ public class ManagerController {
                     return;
                 }
 
-                try (Connection conn = DatabaseConnector.getConnection()) {
-                    // === TOTALS QUERY ===
-                    String totalsQuery = """
-                        SELECT COALESCE(SUM(orderTotal), 0) AS totalRevenue, COUNT(*) AS totalOrders
-                        FROM ordertest
-                        WHERE orderDate >= ? AND orderDate < ?;
-                    """;
-                    try (PreparedStatement ps = conn.prepareStatement(totalsQuery)) {
-                        ps.setTimestamp(1, Timestamp.valueOf(start.atStartOfDay()));
-                        ps.setTimestamp(2, Timestamp.valueOf(end.plusDays(1).atStartOfDay()));
-                        ResultSet rs = ps.executeQuery();
-                        if (rs.next()) {
-                            totalRev.setText(String.format("$%,.2f", rs.getDouble("totalRevenue")));
-                            totalOrders.setText(String.valueOf(rs.getInt("totalOrders")));
+                LocalDateTime from = start.atStartOfDay();
+                LocalDateTime to = end.plusDays(1).atStartOfDay();
+                ReportCache.Key key = new ReportCache.Key(ReportCache.ReportType.RANGE, from, to, currLocation());
+
+                runReport(rangeLayout, "Range Report", monitor -> ReportCache.getOrLoad(key, () -> {
+                    try (Connection conn = openReportingConnection()) {
+                        return SalesReports.rangeReport(conn, monitor, key.locationID(), from, to);
+                    }
+                }), report -> {
+                    totalRev.setText(String.format("$%,.2f", report.totalRevenue()));
+                    totalOrders.setText(String.valueOf(report.totalOrders()));
+                    rangeTable.setItems(FXCollections.observableArrayList(report.topItems()));
+                    hourlySeries.setData(report.hourlySales().hours(), report.hourlySales().sales());
+                });
+            });
+        });
+
+        /**
+         * Handles the Compare Periods view.
+         * <p>
+         * Managers pick a preset (today vs the same day last week, this week vs last week,
+         * month-to-date vs last year) or build their own list of windows. All windows are
+         * computed by {@link ComparativeReport} from one scan and shown side by side, each
+         * with its change against the first window, plus one hourly sales curve per window.
+         * </p>
+         */
+        compareBtn.setOnAction(e -> {
+            cancelActiveReport();
+            mainDisplayPane.getChildren().clear();
+            Label compareHeader = new Label("Compare Periods");
+            compareHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
+
+            Map<String, List<ComparativeReport.Window>> presets = ComparativeReport.presets(currDate);
+            ChoiceBox<String> presetBox = new ChoiceBox<>(FXCollections.observableArrayList(presets.keySet()));
+            ObservableList<ComparativeReport.Window> windows = FXCollections.observableArrayList();
+            presetBox.setOnAction(ev -> {
+                if (presetBox.getValue() != null) windows.setAll(presets.get(presetBox.getValue()));
+            });
+            presetBox.getSelectionModel().selectFirst();
+            windows.setAll(presets.get(presetBox.getValue()));
+
+            TableView<ComparativeReport.Window> windowTable = new TableView<>(windows);
+            TableColumn<ComparativeReport.Window, String> windowNameCol = new TableColumn<>("Window");
+            windowNameCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(param.getValue().label()));
+            windowNameCol.setPrefWidth(200);
+            TableColumn<ComparativeReport.Window, String> windowDaysCol = new TableColumn<>("Days");
+            windowDaysCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(
+                param.getValue().start().toLocalDate() + " to " + param.getValue().end().minusDays(1).toLocalDate()));
+            windowDaysCol.setPrefWidth(220);
+            windowTable.getColumns().addAll(List.of(windowNameCol, windowDaysCol));
+            windowTable.setPrefHeight(130);
+
+            // === Custom windows ===
+            TextField windowLabel = new TextField();
+            windowLabel.setPromptText("Label");
+            windowLabel.setPrefWidth(140);
+            DatePicker startPicker = new DatePicker(currDate);
+            DatePicker endPicker = new DatePicker(currDate);
+            Button addWindowBtn = new Button("Add Window");
+            Button removeWindowBtn = new Button("Remove Selected");
+            addWindowBtn.setOnAction(ev -> {
+                LocalDate start = startPicker.getValue();
+                LocalDate end = endPicker.getValue();
+                if (start == null || end == null || end.isBefore(start)) {
+                    new Alert(Alert.AlertType.WARNING, "Please select a valid date range.").showAndWait();
+                    return;
+                }
+                String label = windowLabel.getText().isBlank() ? start + " to " + end : windowLabel.getText().trim();
+                windows.add(ComparativeReport.Window.ofDays(label, start, end));
+                windowLabel.clear();
+            });
+            removeWindowBtn.setOnAction(ev -> {
+                ComparativeReport.Window selected = windowTable.getSelectionModel().getSelectedItem();
+                if (selected != null) windows.remove(selected);
+            });
+            Button compareRunBtn = new Button("Compare");
+            compareRunBtn.setStyle("-fx-background-color: #2c7; -fx-text-fill: white; -fx-font-weight: bold;");
+
+            HBox presetRow = new HBox(10, new Label("Preset:"), presetBox, compareRunBtn);
+            presetRow.setAlignment(Pos.CENTER_LEFT);
+            HBox customRow = new HBox(10, windowLabel, new Label("Start:"), startPicker, new Label("End:"), endPicker,
+                    addWindowBtn, removeWindowBtn);
+            customRow.setAlignment(Pos.CENTER_LEFT);
+
+            // === Results ===
+            TableView<ComparativeReport.WindowResult> resultTable = new TableView<>();
+            TableColumn<ComparativeReport.WindowResult, String> resultNameCol = new TableColumn<>("Window");
+            resultNameCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(param.getValue().window().label()));
+            resultNameCol.setPrefWidth(170);
+            TableColumn<ComparativeReport.WindowResult, String> revenueCol = new TableColumn<>("Revenue");
+            revenueCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(String.format("$%,.2f", param.getValue().revenue())));
+            TableColumn<ComparativeReport.WindowResult, String> ordersCol = new TableColumn<>("Orders");
+            ordersCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(String.format("%,d", param.getValue().orders())));
+            TableColumn<ComparativeReport.WindowResult, String> ticketCol = new TableColumn<>("Avg Ticket");
+            ticketCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(String.format("$%,.2f", param.getValue().averageTicket())));
+            TableColumn<ComparativeReport.WindowResult, String> topCol = new TableColumn<>("Top Items");
+            topCol.setCellValueFactory(param -> {
+                List<String> names = new ArrayList<>();
+                for (SalesPackEngine.ItemSales item : param.getValue().topItems()) names.add(item.menuName());
+                return new javafx.beans.property.SimpleStringProperty(String.join(", ", names));
+            });
+            topCol.setPrefWidth(320);
+            TableColumn<ComparativeReport.WindowResult, String> revenueDeltaCol = new TableColumn<>("Δ Revenue");
+            TableColumn<ComparativeReport.WindowResult, String> ordersDeltaCol = new TableColumn<>("Δ Orders");
+            TableColumn<ComparativeReport.WindowResult, String> ticketDeltaCol = new TableColumn<>("Δ Avg Ticket");
+            resultTable.getColumns().addAll(List.of(resultNameCol, revenueCol, revenueDeltaCol, ordersCol, ordersDeltaCol,
+                    ticketCol, ticketDeltaCol, topCol));
+            resultTable.setPrefHeight(180);
+
+            CategoryAxis hourAxis = new CategoryAxis();
+            NumberAxis salesAxis = new NumberAxis();
+            hourAxis.setLabel("Hour of Day");
+            salesAxis.setLabel("Sales ($)");
+            LineChart<String, Number> curveChart = new LineChart<>(hourAxis, salesAxis);
+            curveChart.setTitle("Hourly Sales by Window");
+            curveChart.setPrefHeight(300);
+            Label scanLabel = new Label();
+
+            VBox compareLayout = new VBox(10, compareHeader, presetRow, windowTable, customRow, resultTable, curveChart, scanLabel);
+            compareLayout.setStyle("-fx-padding: 15;");
+            AnchorPane.setTopAnchor(compareLayout, 0.0);
+            AnchorPane.setBottomAnchor(compareLayout, 0.0);
+            AnchorPane.setLeftAnchor(compareLayout, 0.0);
+            AnchorPane.setRightAnchor(compareLayout, 0.0);
+            mainDisplayPane.getChildren().add(compareLayout);
+
+            compareRunBtn.setOnAction(ev -> {
+                if (windows.isEmpty()) {
+                    new Alert(Alert.AlertType.WARNING, "Please add at least one window.").showAndWait();
+                    return;
+                }
+                List<ComparativeReport.Window> selected = List.copyOf(windows);
+                int location = currLocation();
+                runReport(compareLayout, "Comparative Report", monitor -> {
+                    try (Connection conn = openReportingConnection()) {
+                        return ComparativeReport.compare(conn, monitor, location, selected);
+                    }
+                }, comparison -> {
+                    ComparativeReport.WindowResult baseline = comparison.windows().get(0);
+                    revenueDeltaCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(param.getValue() == baseline
+                        ? "baseline" : ComparativeReport.delta(param.getValue().revenue(), baseline.revenue())));
+                    ordersDeltaCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(param.getValue() == baseline
+                        ? "baseline" : ComparativeReport.delta(param.getValue().orders(), baseline.orders())));
+                    ticketDeltaCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(param.getValue() == baseline
+                        ? "baseline" : ComparativeReport.delta(param.getValue().averageTicket(), baseline.averageTicket())));
+                    resultTable.setItems(FXCollections.observableArrayList(comparison.windows()));
+
+                    List<XYChart.Series<String, Number>> curves = new ArrayList<>();
+                    for (ComparativeReport.WindowResult result : comparison.windows()) {
+                        XYChart.Series<String, Number> series = new XYChart.Series<>();
+                        series.setName(result.window().label());
+                        for (int h = 0; h < 24; h++) {
+                            series.getData().add(new XYChart.Data<>(String.format("%02d:00", h), result.hourlySales()[h]));
                         }
+                        curves.add(series);
                     }
+                    curveChart.getData().setAll(curves);
+                    scanLabel.setText(String.format("%d windows from one scan of %,d order lines in %,d ms",
+                            comparison.windows().size(), comparison.rows(), comparison.millis()));
+                });
+            });
+        });
+
+        // === ALL STORES ROLLUP BUTTON HANDLER ===
+        rollupBtn.setOnAction(e -> {
+            cancelActiveReport();
+            mainDisplayPane.getChildren().clear();
+            Label rollupHeader = new Label("Sales by Store");
+            rollupHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
+
+            DatePicker startPicker = new DatePicker(currDate);
+            DatePicker endPicker = new DatePicker(currDate);
+            Button generateBtn = new Button("Generate");
+            HBox dateInputs = new HBox(10, new Label("Start:"), startPicker, new Label("End:"), endPicker, generateBtn);
+            dateInputs.setStyle("-fx-padding: 10;");
+            dateInputs.setAlignment(Pos.CENTER);
+
+            TableView<SalesReports.StoreSales> storeTable = new TableView<>();
+            TableColumn<SalesReports.StoreSales, String> storeCol = new TableColumn<>("Store");
+            storeCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(param.getValue().locationName()));
+            storeCol.setPrefWidth(250);
+            TableColumn<SalesReports.StoreSales, String> ordersCol = new TableColumn<>("Orders");
+            ordersCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.valueOf(param.getValue().orderCount())));
+            TableColumn<SalesReports.StoreSales, String> salesCol = new TableColumn<>("Sales");
+            salesCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.format("$%,.2f", param.getValue().totalSales())));
+            salesCol.setPrefWidth(150);
+            storeTable.getColumns().addAll(List.of(storeCol, ordersCol, salesCol));
+
+            Label chainTotal = new Label("Chain Total: $0.00");
+            chainTotal.setStyle("-fx-font-weight: bold; -fx-padding: 10;");
+
+            VBox rollupLayout = new VBox(10, rollupHeader, dateInputs, storeTable, chainTotal);
+            AnchorPane.setTopAnchor(rollupLayout, 0.0);
+            AnchorPane.setBottomAnchor(rollupLayout, 0.0);
+            AnchorPane.setLeftAnchor(rollupLayout, 0.0);
+            AnchorPane.setRightAnchor(rollupLayout, 0.0);
+            mainDisplayPane.getChildren().add(rollupLayout);
+
+            generateBtn.setOnAction(ev -> {
+                LocalDate start = startPicker.getValue();
+                LocalDate end = endPicker.getValue();
+                if (start == null || end == null || end.isBefore(start)) {
+                    new Alert(Alert.AlertType.WARNING, "Please select a valid date range.").showAndWait();
+                    return;
+                }
+
+                LocalDateTime from = start.atStartOfDay();
+                LocalDateTime to = end.plusDays(1).atStartOfDay();
+                ReportCache.Key key = new ReportCache.Key(ReportCache.ReportType.STORE_ROLLUP, from, to, StoreSession.ALL_LOCATIONS);
+
+                runReport(rollupLayout, "Store Rollup", monitor -> ReportCache.getOrLoad(key, () -> {
+                    try (Connection conn = openReportingConnection()) {
+                        return SalesReports.storeRollup(conn, monitor, from, to);
+                    }
+                }), rows -> {
+                    storeTable.setItems(FXCollections.observableArrayList(rows));
+                    double total = rows.stream().mapToDouble(SalesReports.StoreSales::totalSales).sum();
+                    int orders = rows.stream().mapToInt(SalesReports.StoreSales::orderCount).sum();
+                    chainTotal.setText(String.format("Chain Total: $%,.2f across %d orders", total, orders));
+                });
+            });
+        });
+
+        /**
+         * Handles the History Insights view.
+         * <p>
+         * Answers the all-time analyses of {@code queries.sql} (hourly distribution, orders
+         * per week, peak days, and the best seller on the worst day of a week) by scanning
+         * the local {@link ColumnarStore} instead of the database, so they return in
+         * milliseconds and put no load on the server.
+         * </p>
+         */
+        insightsBtn.setOnAction(e -> {
+            cancelActiveReport();
+            mainDisplayPane.getChildren().clear();
+            Label insightsHeader = new Label("History Insights");
+            insightsHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
+
+            Spinner<Integer> weekSpinner = new Spinner<>(1, 53, currDate.get(java.time.temporal.IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            Button analyzeBtn = new Button("Analyze");
+            HBox weekInput = new HBox(10, new Label("Week for \"best of the worst\":"), weekSpinner, analyzeBtn);
+            weekInput.setStyle("-fx-padding: 10;");
+            weekInput.setAlignment(Pos.CENTER);
+
+            CategoryAxis hourAxis = new CategoryAxis();
+            NumberAxis ordersAxis = new NumberAxis();
+            hourAxis.setLabel("Hour of Day");
+            ordersAxis.setLabel("Orders");
+            BarChart<String, Number> hourlyChart = new BarChart<>(hourAxis, ordersAxis);
+            hourlyChart.setTitle("Orders by Hour (all time)");
+            hourlyChart.setLegendVisible(false);
+            hourlyChart.setPrefHeight(300);
+
+            TableView<ColumnarStore.DaySales> peakTable = new TableView<>();
+            TableColumn<ColumnarStore.DaySales, String> dayCol = new TableColumn<>("Peak Day");
+            dayCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(param.getValue().day().toString()));
+            dayCol.setPrefWidth(150);
+            TableColumn<ColumnarStore.DaySales, String> dayOrdersCol = new TableColumn<>("Orders");
+            dayOrdersCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.valueOf(param.getValue().orders())));
+            TableColumn<ColumnarStore.DaySales, String> daySalesCol = new TableColumn<>("Sales");
+            daySalesCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.format("$%,.2f", param.getValue().sales())));
+            daySalesCol.setPrefWidth(150);
+            peakTable.getColumns().addAll(List.of(dayCol, dayOrdersCol, daySalesCol));
+            peakTable.setPrefHeight(250);
+
+            Label worstLabel = new Label();
+            Label weeklyLabel = new Label();
+            weeklyLabel.setWrapText(true);
+            Label scanLabel = new Label();
+            scanLabel.setStyle("-fx-text-fill: gray;");
+
+            VBox insightsLayout = new VBox(10, insightsHeader, weekInput, hourlyChart, peakTable, worstLabel, weeklyLabel, scanLabel);
+            insightsLayout.setStyle("-fx-padding: 10;");
+            AnchorPane.setTopAnchor(insightsLayout, 0.0);
+            AnchorPane.setBottomAnchor(insightsLayout, 0.0);
+            AnchorPane.setLeftAnchor(insightsLayout, 0.0);
+            AnchorPane.setRightAnchor(insightsLayout, 0.0);
+            mainDisplayPane.getChildren().add(insightsLayout);
+
+            analyzeBtn.setOnAction(ev -> {
+                int location = currLocation();
+                int week = weekSpinner.getValue();
+                runReport(insightsLayout, "History Insights", monitor -> {
+                    try {
+                        return ColumnarStore.insights(location, week);
+                    } catch (java.io.IOException ex) {
+                        throw new SQLException("Columnar store unavailable: " + ex.getMessage(), ex);
+                    }
+                }, insights -> {
+                    XYChart.Series<String, Number> series = new XYChart.Series<>();
+                    for (int h = 0; h < 24; h++) {
+                        if (insights.hourlyOrders()[h] > 0) {
+                            series.getData().add(new XYChart.Data<>(String.format("%02d:00", h), insights.hourlyOrders()[h]));
+                        }
+                    }
+                    hourlyChart.getData().setAll(List.of(series));
+                    peakTable.setItems(FXCollections.observableArrayList(insights.peakDays()));
+
+                    if (insights.worstDay() == null) {
+                        worstLabel.setText("No orders in week " + week + ".");
+                    } else {
+                        String item = "no items recorded";
+                        if (insights.worstDayTopMenu() >= 0) {
+                            TerminalCaches.MenuRow row = null;
+                            try {
+                                row = TerminalCaches.MENU.get(insights.worstDayTopMenu());
+                            } catch (SQLException ex) {
+                                // Fall back to the ID below
+                            }
+                            item = String.format("%s (%.0f sold)", row == null ? "menu #" + insights.worstDayTopMenu() : row.menuName(),
+                                    insights.worstDayTopQty());
+                        }
+                        worstLabel.setText(String.format("Worst day of week %d: %s with $%,.2f — best seller: %s",
+                                week, insights.worstDay(), insights.worstDaySales(), item));
+                    }
+
+                    StringBuilder weekly = new StringBuilder("Orders per week: ");
+                    insights.weeklyOrders().forEach((w, n) -> weekly.append("W").append(w).append("=").append(n).append("  "));
+                    weeklyLabel.setText(weekly.toString().trim());
+                    scanLabel.setText(String.format("Scanned %,d orders and %,d items in %.1f ms", insights.orders(),
+                            insights.items(), insights.scanMicros() / 1000.0));
+                });
+            });
+        });
+
+        /**
+         * Handles the Management Pack view.
+         * <p>
+         * Builds weekly orders, the hourly distribution, peak days, top sellers and
+         * ingredient usage for a date range with {@link SalesPackEngine}, which streams
+         * the range's order lines once (split across cores by date) instead of running
+         * one query per section.
+         * </p>
+         */
+        packBtn.setOnAction(e -> {
+            cancelActiveReport();
+            mainDisplayPane.getChildren().clear();
+            Label packHeader = new Label("Management Pack");
+            packHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
+
+            // Defaults to the window precomputed overnight, so the pack usually opens from cache
+            DatePicker startPicker = new DatePicker(currDate.minusDays(ReportPrecomputer.PACK_DAYS));
+            DatePicker endPicker = new DatePicker(currDate.minusDays(1));
+            Button generateBtn = new Button("Generate");
+            HBox dateInputs = new HBox(10, new Label("Start:"), startPicker, new Label("End:"), endPicker, generateBtn);
+            dateInputs.setStyle("-fx-padding: 10;");
+            dateInputs.setAlignment(Pos.CENTER);
+
+            CategoryAxis hourAxis = new CategoryAxis();
+            NumberAxis salesAxis = new NumberAxis();
+            hourAxis.setLabel("Hour of Day");
+            salesAxis.setLabel("Sales ($)");
+            BarChart<String, Number> hourlyChart = new BarChart<>(hourAxis, salesAxis);
+            hourlyChart.setTitle("Sales by Hour");
+            hourlyChart.setLegendVisible(false);
+            hourlyChart.setPrefHeight(250);
+
+            TableView<ColumnarStore.DaySales> peakTable = new TableView<>();
+            TableColumn<ColumnarStore.DaySales, String> dayCol = new TableColumn<>("Peak Day");
+            dayCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(param.getValue().day().toString()));
+            TableColumn<ColumnarStore.DaySales, String> daySalesCol = new TableColumn<>("Sales");
+            daySalesCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.format("$%,.2f", param.getValue().sales())));
+            peakTable.getColumns().addAll(List.of(dayCol, daySalesCol));
+
+            TableView<SalesPackEngine.ItemSales> sellerTable = new TableView<>();
+            TableColumn<SalesPackEngine.ItemSales, String> sellerCol = new TableColumn<>("Top Seller");
+            sellerCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(param.getValue().menuName()));
+            sellerCol.setPrefWidth(180);
+            TableColumn<SalesPackEngine.ItemSales, String> qtyCol = new TableColumn<>("Sold");
+            qtyCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.format("%,.0f", param.getValue().quantity())));
+            sellerTable.getColumns().addAll(List.of(sellerCol, qtyCol));
+
+            TableView<SalesReports.UsageRow> usageTable = new TableView<>();
+            TableColumn<SalesReports.UsageRow, String> ingredientCol = new TableColumn<>("Ingredient");
+            ingredientCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(param.getValue().label()));
+            ingredientCol.setPrefWidth(200);
+            TableColumn<SalesReports.UsageRow, String> usedCol = new TableColumn<>("Used");
+            usedCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(String.format("%,.2f", param.getValue().used())));
+            usageTable.getColumns().addAll(List.of(ingredientCol, usedCol));
+
+            HBox tables = new HBox(10, peakTable, sellerTable, usageTable);
+            tables.setPrefHeight(260);
+            Label weeklyLabel = new Label();
+            weeklyLabel.setWrapText(true);
+            Label scanLabel = new Label();
+            scanLabel.setStyle("-fx-text-fill: gray;");
+
+            VBox packLayout = new VBox(10, packHeader, dateInputs, hourlyChart, tables, weeklyLabel, scanLabel);
+            packLayout.setStyle("-fx-padding: 10;");
+            AnchorPane.setTopAnchor(packLayout, 0.0);
+            AnchorPane.setBottomAnchor(packLayout, 0.0);
+            AnchorPane.setLeftAnchor(packLayout, 0.0);
+            AnchorPane.setRightAnchor(packLayout, 0.0);
+            mainDisplayPane.getChildren().add(packLayout);
+
+            generateBtn.setOnAction(ev -> {
+                LocalDate start = startPicker.getValue();
+                LocalDate end = endPicker.getValue();
+                if (start == null || end == null || end.isBefore(start)) {
+                    new Alert(Alert.AlertType.WARNING, "Please select a valid date range.").showAndWait();
+                    return;
+                }
 
-                    // === TOP 5 ITEMS QUERY ===
-                    String topQuery = """
-                        SELECT m.menuName AS itemName,
-                               SUM(oi.quantityPurchased * oi.priceAtPurchase) AS totalRevenue
-                        FROM orderItem oi
-                        JOIN menu m ON m.menuID = oi.menuID
-                        JOIN ordertest o ON o.orderID = oi.orderID
-                        WHERE o.orderDate >= ? AND o.orderDate < ?
-                        GROUP BY m.menuName
-                        ORDER BY totalRevenue DESC
-                        LIMIT 5;
-                    """;
-
-                    ObservableList<TopItem> list = FXCollections.observableArrayList();
-                    try (PreparedStatement ps = conn.prepareStatement(topQuery)) {
-                        ps.setTimestamp(1, Timestamp.valueOf(start.atStartOfDay()));
-                        ps.setTimestamp(2, Timestamp.valueOf(end.plusDays(1).atStartOfDay()));
-                        ResultSet rs = ps.executeQuery();
-                        while (rs.next()) {
-                            list.add(new TopItem(rs.getString("itemName"), rs.getDouble("totalRevenue")));
+                int location = currLocation();
+                ReportCache.Key key = new ReportCache.Key(ReportCache.ReportType.MANAGEMENT_PACK,
+                        start.atStartOfDay(), end.plusDays(1).atStartOfDay(), location);
+                runReport(packLayout, "Management Pack", monitor -> ReportCache.getOrLoad(key, () ->
+                    SalesPackEngine.build(monitor, location, start, end)
+                ), pack -> {
+                    XYChart.Series<String, Number> series = new XYChart.Series<>();
+                    for (int h = 0; h < 24; h++) {
+                        if (pack.hourlyOrders()[h] > 0) {
+                            series.getData().add(new XYChart.Data<>(String.format("%02d:00", h), pack.hourlySales()[h]));
                         }
                     }
+                    hourlyChart.getData().setAll(List.of(series));
+                    peakTable.setItems(FXCollections.observableArrayList(pack.peakDays()));
+                    sellerTable.setItems(FXCollections.observableArrayList(pack.topSellers()));
+                    usageTable.setItems(FXCollections.observableArrayList(pack.inventoryUsage()));
+
+                    StringBuilder weekly = new StringBuilder("Orders per week: ");
+                    pack.weeklyOrders().forEach((w, n) -> weekly.append("W").append(w).append("=").append(n).append("  "));
+                    weeklyLabel.setText(weekly.toString().trim());
+                    scanLabel.setText(String.format("One pass over %,d orders and %,d lines in %d slice(s), %,d ms",
+                            pack.orders(), pack.lines(), pack.slices(), pack.millis()));
+                });
+            });
+            if (ReportCache.contains(new ReportCache.Key(ReportCache.ReportType.MANAGEMENT_PACK,
+                    startPicker.getValue().atStartOfDay(), currDate.atStartOfDay(), currLocation()))) {
+                generateBtn.fire();
+            }
+        });
+
+        /**
+         * Handles the Quick Stats view.
+         * <p>
+         * Answers multi-year, optionally chain-wide questions (distinct drink combinations,
+         * best sellers, order total and basket size quantiles) approximately from
+         * {@link SketchStore}'s per-day sketches, showing each figure's error bound. The
+         * first request over a range sketches and stores its missing days; later ones only
+         * merge the stored sketches.
+         * </p>
+         */
+        quickStatsBtn.setOnAction(e -> {
+            cancelActiveReport();
+            mainDisplayPane.getChildren().clear();
+            Label quickHeader = new Label("Quick Stats (approximate)");
+            quickHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
+
+            DatePicker startPicker = new DatePicker(currDate.minusYears(1));
+            DatePicker endPicker = new DatePicker(currDate);
+            CheckBox allStoresBox = new CheckBox("All stores");
+            Button generateBtn = new Button("Generate");
+            HBox dateInputs = new HBox(10, new Label("Start:"), startPicker, new Label("End:"), endPicker, allStoresBox, generateBtn);
+            dateInputs.setStyle("-fx-padding: 10;");
+            dateInputs.setAlignment(Pos.CENTER);
 
-                    rangeTable.setItems(list);
+            Label ordersLabel = new Label();
+            Label combosLabel = new Label();
+            Label totalsLabel = new Label();
+            Label basketsLabel = new Label();
+            VBox figures = new VBox(6, ordersLabel, combosLabel, totalsLabel, basketsLabel);
+            figures.setStyle("-fx-padding: 10; -fx-background-color: #f4f4f4; -fx-background-radius: 8;");
+
+            TableView<SketchStore.ItemEstimate> itemTable = new TableView<>();
+            TableColumn<SketchStore.ItemEstimate, String> estItemCol = new TableColumn<>("Item");
+            estItemCol.setCellValueFactory(param ->
+                new javafx.beans.property.SimpleStringProperty(param.getValue().menuName()));
+            estItemCol.setPrefWidth(200);
+            TableColumn<SketchStore.ItemEstimate, String> estUnitsCol = new TableColumn<>("Units (est.)");
+            estUnitsCol.setCellValueFactory(param -> new javafx.beans.property.SimpleStringProperty(
+                String.format("%,d (−0 / +%,d)", param.getValue().estimate(), param.getValue().errorBound())));
+            estUnitsCol.setPrefWidth(200);
+            itemTable.getColumns().addAll(List.of(estItemCol, estUnitsCol));
+            itemTable.setPrefHeight(280);
+
+            Label sourceLabel = new Label();
+            sourceLabel.setStyle("-fx-text-fill: gray;");
+
+            VBox quickLayout = new VBox(10, quickHeader, dateInputs, figures, itemTable, sourceLabel);
+            quickLayout.setStyle("-fx-padding: 10;");
+            AnchorPane.setTopAnchor(quickLayout, 0.0);
+            AnchorPane.setBottomAnchor(quickLayout, 0.0);
+            AnchorPane.setLeftAnchor(quickLayout, 0.0);
+            AnchorPane.setRightAnchor(quickLayout, 0.0);
+            mainDisplayPane.getChildren().add(quickLayout);
 
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                    new Alert(Alert.AlertType.ERROR, "Error generating Range Report: " + ex.getMessage()).showAndWait();
+            generateBtn.setOnAction(ev -> {
+                LocalDate start = startPicker.getValue();
+                LocalDate end = endPicker.getValue();
+                if (start == null || end == null || end.isBefore(start)) {
+                    new Alert(Alert.AlertType.WARNING, "Please select a valid date range.").showAndWait();
+                    return;
                 }
+
+                int location = allStoresBox.isSelected() ? StoreSession.ALL_LOCATIONS : currLocation();
+                LocalDate openFrom = currDate.isBefore(LocalDate.now()) ? currDate : LocalDate.now();
+                runReport(quickLayout, "Quick Stats", monitor ->
+                    SketchStore.approximate(monitor, location, start, end, openFrom)
+                , stats -> {
+                    double[] q = SketchStore.QUANTILES;
+                    ordersLabel.setText(String.format("Orders: %,d (exact)", stats.orders()));
+                    combosLabel.setText(String.format("Distinct drink combinations: ~%,d (±%.1f%% std. error)",
+                            stats.distinctCombinations(), stats.combinationError() * 100));
+                    totalsLabel.setText(String.format("Order total p%.0f / p%.0f / p%.0f: $%.2f / $%.2f / $%.2f (±%.0f%% rank)",
+                            q[0] * 100, q[1] * 100, q[2] * 100, stats.totalQuantiles()[0], stats.totalQuantiles()[1],
+                            stats.totalQuantiles()[2], stats.quantileRankError() * 100));
+                    basketsLabel.setText(String.format("Drinks per order p%.0f / p%.0f / p%.0f: %.1f / %.1f / %.1f (±%.0f%% rank)",
+                            q[0] * 100, q[1] * 100, q[2] * 100, stats.basketQuantiles()[0], stats.basketQuantiles()[1],
+                            stats.basketQuantiles()[2], stats.quantileRankError() * 100));
+                    itemTable.setItems(FXCollections.observableArrayList(stats.topItems()));
+                    sourceLabel.setText(String.format("%d stored day(s), %d newly sketched, %d open day(s) scanned · %,d ms · item bounds hold with %.0f%% confidence",
+                            stats.storedDays(), stats.builtDays(), stats.liveDays(), stats.millis(), stats.itemConfidence() * 100));
+                });
             });
         });
 
@@ -1082,8 +2119,13 @@ public class ManagerController {
          * Data are aggregated from the {@code ordertest} and {@code inventory} tables,
          * displayed as both numeric totals and an hourly line graph.
          * </p>
+         * <p>
+         * Once loaded, the chart, totals and today's best sellers stay live: orders committed on any terminal
+         * arrive through {@link OrderFeed} and are added to the matching hour in place.
+         * </p>
          */
         xReportBtn.setOnAction(e -> {
+            cancelActiveReport();
             mainDisplayPane.getChildren().clear();
 
             Label xReportHeader = new Label("Hourly Sales Report — (X-Report)");
@@ -1107,106 +2149,96 @@ public class ManagerController {
             chart.setLegendVisible(false);
             chart.setPrefHeight(400);
 
-            VBox xReportlayout = new VBox(10, xReportHeader, chart, totalsBox);
+            Label bestSellersLabel = new Label("Today's Best Sellers: —");
+            bestSellersLabel.setStyle("-fx-padding: 0 10;");
+            bestSellersLabel.setWrapText(true);
+
+            VBox xReportlayout = new VBox(10, xReportHeader, chart, totalsBox, bestSellersLabel);
             AnchorPane.setTopAnchor(xReportlayout, 0.0);
             AnchorPane.setBottomAnchor(xReportlayout, 0.0);
             AnchorPane.setLeftAnchor(xReportlayout, 0.0);
             AnchorPane.setRightAnchor(xReportlayout, 0.0);
             mainDisplayPane.getChildren().add(xReportlayout);
 
-            try (Connection conn = DatabaseConnector.getConnection()) {
-                if (conn == null) {
-                    new Alert(Alert.AlertType.ERROR, "Database connection failed.").showAndWait();
-                    return;
+            // === LIVE UPDATES ===
+            // Subscribe before the snapshot is read and hold events until it arrives, so no order
+            // committed in between is missed; events for orders the snapshot already counted are dropped
+            int locationID = currLocation();
+            LocalDate day = currDate;
+            SalesReports.XReport[] snapshot = { null };
+            List<OrderFeed.OrderEvent> buffered = new ArrayList<>();
+            double[] running = new double[3];
+            XYChart.Series<String, Number> series = new XYChart.Series<>();
+            Consumer<OrderFeed.OrderEvent> apply = event -> {
+                if (snapshot[0].covers(event.orderID())) return;
+                addToHour(series, event.orderDate().getHour(), event.total());
+                running[0] += event.total();
+                if (event.total() < 0) running[1] += Math.abs(event.total());
+                if (event.total() == 0) running[2]++;
+                totalSalesLabel.setText(String.format("Total Sales: $%,.2f", running[0]));
+                totalReturnsLabel.setText(String.format("Returns: $%,.2f", running[1]));
+                totalVoidsLabel.setText("Voids: " + (int) running[2]);
+                showBestSellers(bestSellersLabel, locationID);
+            };
+            liveFeed = OrderFeed.subscribe(event -> Platform.runLater(() -> {
+                if (!event.orderDate().toLocalDate().equals(day)) return;
+                if (event.locationID() != locationID) return;
+                if (snapshot[0] == null) buffered.add(event);
+                else apply.accept(event);
+            }));
+
+            // A cached or replica snapshot could predate the subscription, so the live view reads the primary
+            runReport(xReportlayout, "X-Report", monitor -> {
+                // Loads the store's in-memory best-seller counters for the day, once
+                BestSellers.today(locationID, day, 5);
+                try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT)) {
+                    return SalesReports.xReport(conn, monitor, locationID, day);
                 }
+            }, report -> {
 
                 // === HOURLY SALES ===
-                String hourlySql = """
-                    SELECT EXTRACT(HOUR FROM orderDate) AS hour,
-                        SUM(orderTotal) AS totalSales
-                    FROM ordertest
-                    WHERE DATE(orderDate) = ?
-                    GROUP BY hour
-                    ORDER BY hour;
-                """;
-                PreparedStatement ps = conn.prepareStatement(hourlySql);
-                ps.setDate(1, java.sql.Date.valueOf(currDate));
-                ResultSet rs = ps.executeQuery();
-
-                XYChart.Series<String, Number> series = new XYChart.Series<>();
-                double totalSales = 0;
-
-                while (rs.next()) {
-                    String hour = String.format("%02d:00", rs.getInt("hour"));
-                    double sales = rs.getDouble("totalSales");
-                    totalSales += sales;
-                    series.getData().add(new XYChart.Data<>(hour, sales));
-                }
+                report.hourlySales().forEach((hour, sales) ->
+                    series.getData().add(new XYChart.Data<>(String.format("%02d:00", hour), sales)));
                 chart.getData().add(series);
-                totalSalesLabel.setText(String.format("Total Sales: $%,.2f", totalSales));
-
-                // === RETURNS ===
-                String returnsSql = """
-                    SELECT COALESCE(SUM(orderTotal),0) AS totalReturns
-                    FROM ordertest
-                    WHERE orderTotal < 0 AND DATE(orderDate) = ?;
-                """;
-                PreparedStatement psReturns = conn.prepareStatement(returnsSql);
-                psReturns.setDate(1, java.sql.Date.valueOf(currDate));
-                ResultSet rsReturns = psReturns.executeQuery();
-                if (rsReturns.next()) {
-                    double returns = Math.abs(rsReturns.getDouble("totalReturns"));
-                    totalReturnsLabel.setText(String.format("Returns: $%,.2f", returns));
-                }
-
-                // === VOIDS ===
-                String voidsSql = """
-                    SELECT COUNT(*) AS voidCount
-                    FROM ordertest
-                    WHERE orderTotal = 0 AND DATE(orderDate) = ?;
-                """;
-                PreparedStatement psVoids = conn.prepareStatement(voidsSql);
-                psVoids.setDate(1, java.sql.Date.valueOf(currDate));
-                ResultSet rsVoids = psVoids.executeQuery();
-                if (rsVoids.next()) {
-                    int voidCount = rsVoids.getInt("voidCount");
-                    totalVoidsLabel.setText("Voids: " + voidCount);
-                }
-
-                // === DISCARDS ===
-                String discardsSql = """
-                    SELECT COALESCE(SUM(restockOrdered),0) AS totalDiscards
-                    FROM inventory
-                    WHERE restockOrdered > 0;
-                """;
-                ResultSet rsDiscards = conn.prepareStatement(discardsSql).executeQuery();
-                if (rsDiscards.next()) {
-                    double discards = rsDiscards.getDouble("totalDiscards");
-                    totalDiscardsLabel.setText(String.format("Discards: %.0f items", discards));
-                }
-
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                new Alert(Alert.AlertType.ERROR, "Error generating X-Report: " + ex.getMessage()).showAndWait();
-            }
+                totalSalesLabel.setText(String.format("Total Sales: $%,.2f", report.totalSales()));
+
+                // === RETURNS, VOIDS, DISCARDS ===
+                totalReturnsLabel.setText(String.format("Returns: $%,.2f", report.totalReturns()));
+                totalVoidsLabel.setText("Voids: " + report.voidCount());
+                totalDiscardsLabel.setText(String.format("Discards: %.0f items", report.discards()));
+                showBestSellers(bestSellersLabel, locationID);
+
+                // Fold the held events into the snapshot, then apply later ones as they arrive
+                running[0] = report.totalSales();
+                running[1] = report.totalReturns();
+                running[2] = report.voidCount();
+                snapshot[0] = report;
+                buffered.forEach(apply);
+                buffered.clear();
+            });
         });
 
         /**
          * Handles generation of the Z-Report (End-of-Day Summary).
          * <p>
          * The Z-Report aggregates all daily transactions, showing:
-         * total sales, order count, time of first and last order,
-         * and placeholders for adjustments like discounts or service charges.
+         * net and gross sales, order count, time of first and last order,
+         * and the adjustment lines (discounts, returns, voids, modification charges).
          * </p>
          * <p>
-         * It provides an end-of-day snapshot for managerial review.
+         * Closing the day stores the report as an immutable snapshot; a closed day is
+         * looked up by key and never recomputed (see {@link #showZReport}).
          * </p>
          */
         zReportBtn.setOnAction(e -> {
+            cancelActiveReport();
             mainDisplayPane.getChildren().clear();
             Label zReportHeader = new Label("Z-Report — End-of-Day Summary");
             zReportHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
-            VBox zReportLayout = new VBox(10, zReportHeader);
+            DatePicker dayPicker = new DatePicker(currDate);
+            HBox zHeaderRow = new HBox(10, zReportHeader, new Label("Day:"), dayPicker);
+            zHeaderRow.setAlignment(Pos.CENTER_LEFT);
+            VBox zReportLayout = new VBox(10, zHeaderRow);
             zReportLayout.setStyle("-fx-padding: 15;");
             AnchorPane.setTopAnchor(zReportLayout, 0.0);
             AnchorPane.setBottomAnchor(zReportLayout, 0.0);
@@ -1214,55 +2246,18 @@ public class ManagerController {
             AnchorPane.setRightAnchor(zReportLayout, 0.0);
             mainDisplayPane.getChildren().add(zReportLayout);
 
-            try (Connection conn = DatabaseConnector.getConnection()) {
-                String sql = """
-                    SELECT 
-                        COALESCE(SUM(orderTotal), 0) AS totalSales,
-                        COUNT(orderID) AS totalOrders,
-                        MIN(orderDate) AS firstOrder,
-                        MAX(orderDate) AS lastOrder
-                    FROM ordertest
-                    WHERE DATE(orderDate) = ?;
-                """;
-
-                PreparedStatement ps = conn.prepareStatement(sql);
-                ps.setDate(1, java.sql.Date.valueOf(currDate));
-                ResultSet rs = ps.executeQuery();
-
-                if (rs.next()) {
-                    double totalSales = rs.getDouble("totalSales");
-                    int totalOrders = rs.getInt("totalOrders");
-                    Timestamp firstOrder = rs.getTimestamp("firstOrder");
-                    Timestamp lastOrder = rs.getTimestamp("lastOrder");
-
-                    Label salesLabel = new Label(String.format("Total Sales: $%,.2f", totalSales));
-                    Label orderCountLabel = new Label("Orders Processed: " + totalOrders);
-                    Label startLabel = new Label("First Order: " + (firstOrder != null ? firstOrder.toString() : "None"));
-                    Label endLabel = new Label("Last Order: " + (lastOrder != null ? lastOrder.toString() : "None"));
-
-                    VBox totalsBox = new VBox(5, salesLabel, orderCountLabel, startLabel, endLabel);
-                    totalsBox.setStyle("-fx-padding: 10; -fx-background-color: #f4f4f4; -fx-background-radius: 8;");
-                    zReportLayout.getChildren().add(totalsBox);
-                }
-
-                // === Adjustments Section ===
-                Label adjHeader = new Label("Adjustments and Charges");
-                adjHeader.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-padding: 5;");
-                Label discLabel = new Label("Discounts: $0.00");
-                Label voidLabel = new Label("Voids: $0.00");
-                Label serviceLabel = new Label("Service Charges: $0.00");
-
-                VBox adjBox = new VBox(5, adjHeader, discLabel, voidLabel, serviceLabel);
-                adjBox.setStyle("-fx-padding: 10; -fx-background-color: #f9f9f9; -fx-background-radius: 8;");
-
-                VBox finalizeBox = new VBox(10, adjBox);
-                finalizeBox.setStyle("-fx-padding: 10;");
-                zReportLayout.getChildren().add(finalizeBox);
-
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                new Alert(Alert.AlertType.ERROR, "Error generating Z-Report: " + ex.getMessage()).showAndWait();
-            }
+            // Earlier days, yesterday's precomputed overnight, are one pick away
+            Runnable loadDay = () -> {
+                LocalDate day = dayPicker.getValue() != null ? dayPicker.getValue() : currDate;
+                ReportCache.Key key = ReportCache.Key.forDay(ReportCache.ReportType.Z_REPORT, day, currLocation());
+                runReport(zReportLayout, "Z-Report", monitor -> ReportCache.getOrLoad(key, () -> {
+                    try (Connection conn = openReportingConnection()) {
+                        return SalesReports.zReport(conn, monitor, key.locationID(), day);
+                    }
+                }), report -> showZReport(zReportLayout, key, report));
+            };
+            dayPicker.setOnAction(ev -> loadDay.run());
+            loadDay.run();
         });
 
         /**
@@ -1277,15 +2272,16 @@ public class ManagerController {
          * </p>
          */
         productUsageChartBtn.setOnAction(e -> {
+            cancelActiveReport();
             mainDisplayPane.getChildren().clear();
 
             Label productHeader = new Label("Product Usage Chart — Select Time Window");
             productHeader.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-padding: 10;");
 
             Label startLabel = new Label("Start Date:");
-            DatePicker startDatePicker = new DatePicker(LocalDate.now().minusDays(7));
+            DatePicker startDatePicker = new DatePicker(currDate.minusDays(ReportPrecomputer.USAGE_DAYS));
             Label endLabel = new Label("End Date:");
-            DatePicker endDatePicker = new DatePicker(LocalDate.now());
+            DatePicker endDatePicker = new DatePicker(currDate.minusDays(1));
             Button generateBtn = new Button("Generate Chart");
             generateBtn.setStyle("-fx-background-color: #2c7; -fx-text-fill: white; -fx-font-weight: bold;");
 
@@ -1322,36 +2318,19 @@ public class ManagerController {
 
                 usageChart.getData().clear();
 
-                try (Connection conn = DatabaseConnector.getConnection()) {
-                    if (conn == null) {
-                        new Alert(Alert.AlertType.ERROR, "Database connection failed.").showAndWait();
-                        return;
-                    }
+                LocalDateTime from = start.atStartOfDay();
+                LocalDateTime to = end.plusDays(1).atStartOfDay();
+                ReportCache.Key key = new ReportCache.Key(ReportCache.ReportType.PRODUCT_USAGE, from, to, currLocation());
 
-                    String sql = """
-                        SELECT 
-                            i.inventoryName AS ingredient,
-                            i.unit AS unit,
-                            ROUND(SUM(mi.menuInfoQuantity * oi.quantityPurchased), 2) AS totalUsed
-                        FROM ordertest o
-                        JOIN orderItem oi ON o.orderID = oi.orderID
-                        JOIN menuInfo mi ON oi.menuID = mi.menuID
-                        JOIN inventory i ON mi.inventoryID = i.inventoryID
-                        WHERE o.orderDate BETWEEN ? AND ?
-                        GROUP BY i.inventoryName, i.unit
-                        ORDER BY totalUsed DESC;
-                    """;
-
-                    PreparedStatement ps = conn.prepareStatement(sql);
-                    ps.setTimestamp(1, Timestamp.valueOf(start.atStartOfDay()));
-                    ps.setTimestamp(2, Timestamp.valueOf(end.plusDays(1).atStartOfDay()));
-                    ResultSet rs = ps.executeQuery();
+                runReport(productLayout, "Product Usage Chart", monitor -> ReportCache.getOrLoad(key, () -> {
+                    try (Connection conn = openReportingConnection()) {
+                        return SalesReports.productUsage(conn, monitor, key.locationID(), from, to);
+                    }
+                }), rows -> {
 
                     XYChart.Series<String, Number> series = new XYChart.Series<>();
-                    while (rs.next()) {
-                        String ingredient = rs.getString("ingredient") + " (" + rs.getString("unit") + ")";
-                        double used = rs.getDouble("totalUsed");
-                        series.getData().add(new XYChart.Data<>(ingredient, used));
+                    for (SalesReports.UsageRow row : rows) {
+                        series.getData().add(new XYChart.Data<>(row.label(), row.used()));
                     }
 
                     if (series.getData().isEmpty()) {
@@ -1359,12 +2338,12 @@ public class ManagerController {
                     } else {
                         usageChart.getData().add(series);
                     }
-
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                    new Alert(Alert.AlertType.ERROR, "Error generating Product Usage Chart: " + ex.getMessage()).showAndWait();
-                }
+                });
             });
+            if (ReportCache.contains(new ReportCache.Key(ReportCache.ReportType.PRODUCT_USAGE,
+                    startDatePicker.getValue().atStartOfDay(), currDate.atStartOfDay(), currLocation()))) {
+                generateBtn.fire();
+            }
         });
 
     }   
@@ -1385,6 +2364,7 @@ public class ManagerController {
      */
     @FXML
     private void handleProductUsageChartButton() {
+        cancelActiveReport();
         mainDisplayPane.getChildren().clear();
 
         Label header = new Label("Product Usage Chart");
@@ -1409,6 +2389,94 @@ public class ManagerController {
         mainDisplayPane.getChildren().add(layout);
     }
 
+    /**
+     * Renders a Z-Report into the Z-Report layout, below its header.
+     * <p>
+     * A closed day shows its stored snapshot and when it was closed. An open day shows a
+     * preview; once the day is over (before the business date), it also shows a
+     * "Close Day" button, which stores the snapshot (see {@link SalesReports#closeDay}) and
+     * re-renders the view from it.
+     * </p>
+     *
+     * @param layout the Z-Report layout; everything after its header is replaced
+     * @param key    the cache key of the report, giving its store and day
+     * @param report the snapshot or preview
+     */
+    private void showZReport(VBox layout, ReportCache.Key key, SalesReports.ZReport report) {
+        layout.getChildren().remove(1, layout.getChildren().size());
+        Timestamp firstOrder = report.firstOrder();
+        Timestamp lastOrder = report.lastOrder();
+
+        Label statusLabel = new Label(report.closed()
+                ? "Closed " + report.closedAt().toLocalDateTime().withNano(0) + " — stored snapshot"
+                : "Day not closed — preview, figures may still change");
+        statusLabel.setStyle(report.closed() ? "-fx-text-fill: darkgreen; -fx-font-weight: bold;" : "-fx-text-fill: darkorange; -fx-font-weight: bold;");
+
+        Label salesLabel = new Label(String.format("Net Sales: $%,.2f", report.totalSales()));
+        Label grossLabel = new Label(String.format("Gross Sales: $%,.2f", report.grossSales()));
+        Label orderCountLabel = new Label("Orders Processed: " + report.totalOrders());
+        Label startLabel = new Label("First Order: " + (firstOrder != null ? firstOrder.toString() : "None"));
+        Label endLabel = new Label("Last Order: " + (lastOrder != null ? lastOrder.toString() : "None"));
+
+        VBox totalsBox = new VBox(5, statusLabel, salesLabel, grossLabel, orderCountLabel, startLabel, endLabel);
+        totalsBox.setStyle("-fx-padding: 10; -fx-background-color: #f4f4f4; -fx-background-radius: 8;");
+
+        // === Adjustments Section ===
+        Label adjHeader = new Label("Adjustments and Charges");
+        adjHeader.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-padding: 5;");
+        Label discLabel = new Label(String.format("Discounts: $%,.2f", report.discounts()));
+        Label returnLabel = new Label(String.format("Returns: $%,.2f (%d)", report.returns(), report.returnCount()));
+        Label voidLabel = new Label(String.format("Voids: $%,.2f (%d)", report.voidValue(), report.voidCount()));
+        Label serviceLabel = new Label(String.format("Modification Charges: $%,.2f", report.modificationCharges()));
+
+        VBox adjBox = new VBox(5, adjHeader, discLabel, returnLabel, voidLabel, serviceLabel);
+        adjBox.setStyle("-fx-padding: 10; -fx-background-color: #f9f9f9; -fx-background-radius: 8;");
+
+        VBox finalizeBox = new VBox(10, adjBox);
+        finalizeBox.setStyle("-fx-padding: 10;");
+        if (!report.closed() && key.start().toLocalDate().isBefore(currDate)) {
+            Button closeDayBtn = new Button("Close Day");
+            closeDayBtn.setStyle("-fx-background-color: #c33; -fx-text-fill: white; -fx-font-weight: bold;");
+            closeDayBtn.setOnAction(ev -> {
+                LocalDate day = key.start().toLocalDate();
+                Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                        "Close " + day + " for " + StoreSession.locationName(key.locationID())
+                        + "? The Z-Report will be stored and can no longer change.");
+                confirm.setHeaderText(null);
+                if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+                runReport(layout, "Close Day", monitor -> {
+                    try (Connection conn = openConnection()) {
+                        return SalesReports.closeDay(conn, key.locationID(), day, currDate);
+                    }
+                }, snapshot -> {
+                    ReportCache.invalidate(ReportCache.ReportType.Z_REPORT);
+                    showZReport(layout, key, snapshot);
+                });
+            });
+            finalizeBox.getChildren().add(closeDayBtn);
+        }
+        layout.getChildren().addAll(totalsBox, finalizeBox);
+    }
+
+    /**
+     * Shows the store's best sellers of the current day from {@link BestSellers}'
+     * in-memory counters; no query runs once the day has been loaded.
+     *
+     * @param label      the label to update
+     * @param locationID the store
+     */
+    private void showBestSellers(Label label, int locationID) {
+        try {
+            List<String> names = new ArrayList<>();
+            for (BestSellers.ItemTotal item : BestSellers.today(locationID, currDate, 5)) {
+                names.add(String.format("%s (%.0f, $%,.2f)", SalesReports.menuName(item.menuID()), item.quantity(), item.revenue()));
+            }
+            label.setText("Today's Best Sellers: " + (names.isEmpty() ? "none yet" : String.join(" · ", names)));
+        } catch (SQLException e) {
+            label.setText("Today's Best Sellers: unavailable");
+        }
+    }
+
     /**
      * Generates a sales report within a specified time window.
      * <p>
@@ -1428,53 +2496,23 @@ public class ManagerController {
      *
      * @param start               the start of the reporting period (inclusive)
      * @param end                 the end of the reporting period (exclusive)
+     * @param container           pane that shows the progress bar while the report runs
      * @param totalRevenueLabel   label to update with total revenue
      * @param totalOrdersLabel    label to update with total order count
      * @param table               {@link TableView} to populate with top-selling items
      */
-    private void generateReport(LocalDateTime start, LocalDateTime end,
+    private void generateReport(LocalDateTime start, LocalDateTime end, Pane container,
                                 Label totalRevenueLabel, Label totalOrdersLabel, TableView<TopItem> table) {
-        try (Connection conn = DatabaseConnector.getConnection()) {
-            String totalsQuery = """
-                SELECT COALESCE(SUM(orderTotal), 0) AS totalRevenue, COUNT(*) AS totalOrders
-                FROM ordertest
-                WHERE orderDate >= ? AND orderDate < ?;
-            """;
-            try (PreparedStatement ps = conn.prepareStatement(totalsQuery)) {
-                ps.setTimestamp(1, Timestamp.valueOf(start));
-                ps.setTimestamp(2, Timestamp.valueOf(end));
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalRevenueLabel.setText(String.format("$%,.2f", rs.getDouble("totalRevenue")));
-                    totalOrdersLabel.setText(String.valueOf(rs.getInt("totalOrders")));
-                }
+        ReportCache.Key key = new ReportCache.Key(ReportCache.ReportType.RANGE, start, end, currLocation());
+        runReport(container, "report", monitor -> ReportCache.getOrLoad(key, () -> {
+            try (Connection conn = openReportingConnection()) {
+                return SalesReports.rangeReport(conn, monitor, key.locationID(), start, end);
             }
-
-            String topQuery = """
-                SELECT m.menuName AS itemName,
-                       SUM(oi.quantityPurchased * oi.priceAtPurchase) AS totalRevenue
-                FROM orderItem oi
-                JOIN menu m ON m.menuID = oi.menuID
-                JOIN ordertest o ON o.orderID = oi.orderID
-                WHERE o.orderDate >= ? AND o.orderDate < ?
-                GROUP BY m.menuName
-                ORDER BY totalRevenue DESC
-                LIMIT 5;
-            """;
-            ObservableList<TopItem> list = FXCollections.observableArrayList();
-            try (PreparedStatement ps = conn.prepareStatement(topQuery)) {
-                ps.setTimestamp(1, Timestamp.valueOf(start));
-                ps.setTimestamp(2, Timestamp.valueOf(end));
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    list.add(new TopItem(rs.getString("itemName"), rs.getDouble("totalRevenue")));
-                }
-            }
-            table.setItems(list);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            new Alert(Alert.AlertType.ERROR, "Error generating report: " + e.getMessage()).showAndWait();
-        }
+        }), report -> {
+            totalRevenueLabel.setText(String.format("$%,.2f", report.totalRevenue()));
+            totalOrdersLabel.setText(String.valueOf(report.totalOrders()));
+            table.setItems(FXCollections.observableArrayList(report.topItems()));
+        });
     }
 
     /**
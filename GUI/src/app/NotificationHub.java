@@ -0,0 +1,142 @@
+package app;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Shared Postgres {@code LISTEN} connection for the whole application.
+ * <p>
+ * A single daemon thread holds one dedicated connection, issues {@code LISTEN} for every
+ * channel that has subscribers, and waits for notifications with
+ * {@link PGConnection#getNotifications(int)}. Waiting only blocks on the socket; it does
+ * not send any queries to the server. Each notification payload is handed to the
+ * channel's subscribers on the listener thread, so UI subscribers must hop back to the
+ * JavaFX thread themselves.
+ * </p>
+ * <p>
+ * If the connection drops, the thread reconnects with exponential backoff, re-issues
+ * {@code LISTEN} for every channel and then runs the registered reconnect hooks, which
+ * lets caches catch up on anything they missed while disconnected.
+ * </p>
+ */
+public class NotificationHub {
+
+    /** How long one {@code getNotifications} call waits before checking for new channels. */
+    private static final int WAIT_MILLIS = 2000;
+
+    /** Longest delay between reconnect attempts. */
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private static final List<Runnable> reconnectHooks = new CopyOnWriteArrayList<>();
+
+    private static Thread listenerThread = null;
+    private static volatile boolean listening = false;
+
+    /**
+     * Subscribes to a notification channel, starting the listener thread if needed.
+     *
+     * @param channel  the channel name (lowercase letters and underscores)
+     * @param listener receives each notification payload on the listener thread
+     * @return a handle that removes the subscription when run
+     */
+    public static Runnable subscribe(String channel, Consumer<String> listener) {
+        if (!channel.matches("[a-z_]+")) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+        ensureStarted();
+        return () -> subscribers.getOrDefault(channel, List.of()).remove(listener);
+    }
+
+    /**
+     * Registers a hook that runs on the listener thread every time the {@code LISTEN}
+     * connection is (re-)established, after all channels are listened on.
+     *
+     * @param hook the catch-up action to run
+     */
+    public static void onReconnect(Runnable hook) {
+        reconnectHooks.add(hook);
+        ensureStarted();
+    }
+
+    /**
+     * Returns whether the {@code LISTEN} connection is currently up.
+     * While it is down, notifications are being missed and caches should not trust their contents.
+     *
+     * @return {@code true} if notifications are currently being received
+     */
+    public static boolean isListening() {
+        return listening;
+    }
+
+    private static synchronized void ensureStarted() {
+        if (listenerThread != null) return;
+        listenerThread = new Thread(NotificationHub::listenLoop, "pg-notification-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    private static void listenLoop() {
+        long backoff = 1000;
+        while (true) {
+            try (Connection conn = DatabaseConnector.getConnection()) {
+                if (conn == null) throw new SQLException("Database connection failed.");
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                Set<String> channels = new HashSet<>();
+                listenNewChannels(conn, channels);
+                listening = true;
+                for (Runnable hook : reconnectHooks) runSafely(hook);
+                backoff = 1000;
+
+                while (true) {
+                    listenNewChannels(conn, channels);
+                    PGNotification[] notifications = pg.getNotifications(WAIT_MILLIS);
+                    if (notifications == null) continue;
+                    for (PGNotification n : notifications) {
+                        for (Consumer<String> listener : subscribers.getOrDefault(n.getName(), List.of())) {
+                            runSafely(() -> listener.accept(n.getParameter()));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println(" Notification listener disconnected: " + e.getMessage());
+            } finally {
+                listening = false;
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private static void listenNewChannels(Connection conn, Set<String> channels) throws SQLException {
+        for (String channel : subscribers.keySet()) {
+            if (channels.contains(channel)) continue;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LISTEN " + channel);
+            }
+            channels.add(channel);
+        }
+    }
+
+    private static void runSafely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Commits register orders in the background, so the cashier can ring up the next
+ * customer while the previous order is still on its way to the database.
+ * <p>
+ * {@link #submit} takes a snapshot of the order and returns at once. A single committer
+ * thread writes submissions one at a time, in the order they were rung up, each in its
+ * own transaction with its lines, inventory reservations and {@link OrderFeed} event.
+ * Every submission is {@link Status#PENDING} until that transaction commits
+ * ({@link Status#COMMITTED}) or fails and rolls back ({@link Status#FAILED}). Failed
+ * submissions are kept until they are retried, and listeners hear about every change
+ * so the register can show them.
+ * </p>
+ * <p>
+ * Every submission carries a UUID stored with its order under a unique constraint, and
+ * the order insert does nothing when that UUID is already there. An attempt that
+ * committed but whose acknowledgement was lost therefore comes back as already saved
+ * when it is retried, instead of writing the order twice.
+ * </p>
+ * <p>
+ * Each submission is also spooled to a file in {@link #SPOOL_DIR} until it commits. On
+ * shutdown the JVM waits up to {@link #SHUTDOWN_WAIT_SECONDS} seconds for queued
+ * submissions; whatever is still pending or failed after that stays spooled and is
+ * submitted again by {@link #resumeSpooled()} the next time the register opens.
+ * </p>
+ */
+public class OrderCommitter {
+
+    /** Where a submission is in its life. */
+    public enum Status { PENDING, COMMITTED, FAILED }
+
+    /**
+     * One order handed to the committer.
+     *
+     * @param ticket       this register's running number for the order
+     * @param submissionID the order's identity across attempts and restarts
+     * @param orderTime    the order timestamp
+     * @param locationID the store the order was rung up at
+     * @param total      the order total
+     * @param menuIDs    the menu ID of every drink, one per drink
+     * @param status     where the submission is
+     * @param error      why the last attempt failed, or {@code null}
+     */
+    public record Submission(int ticket, UUID submissionID, LocalDateTime orderTime, int locationID, double total,
+                             List<Integer> menuIDs, Status status, String error) {
+
+        Submission with(Status newStatus, String newError) {
+            return new Submission(ticket, submissionID, orderTime, locationID, total, menuIDs, newStatus, newError);
+        }
+    }
+
+    /**
+     * Counts shown in the register's status strip.
+     *
+     * @param pending   submissions not committed yet
+     * @param committed submissions committed since the register started
+     * @param failed    failed submissions waiting for a retry, oldest first
+     */
+    public record Summary(int pending, int committed, List<Submission> failed) { }
+
+    /** How long shutdown waits for queued submissions to commit. */
+    public static final int SHUTDOWN_WAIT_SECONDS = 10;
+
+    /** Where submissions are kept until they commit, one {@code <submissionID>.order} file each. */
+    private static final Path SPOOL_DIR = Path.of(System.getProperty("pos.orders.dir",
+            Path.of(System.getProperty("user.home"), ".pos-orders").toString()));
+
+    private static final ExecutorService committer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "order-committer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            committer.shutdown();
+            try {
+                if (!committer.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    System.err.println("Order committer stopped with " + summary().pending()
+                            + " orders still pending; they stay spooled in " + SPOOL_DIR);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "order-committer-drain"));
+    }
+
+    private static final List<Consumer<Submission>> listeners = new CopyOnWriteArrayList<>();
+
+    /** Submissions not committed yet, by ticket; guarded by the class lock. */
+    private static final Map<Integer, Submission> open = new LinkedHashMap<>();
+    private static int nextTicket = 1;
+    private static int committed = 0;
+    private static boolean resumed = false;
+
+    // === SUBMISSION ===
+
+    /**
+     * Queues an order for commit and returns at once.
+     *
+     * @param orderTime  the order timestamp
+     * @param locationID the store the order was rung up at
+     * @param total      the order total
+     * @param menuIDs    the menu ID of every drink in the order
+     * @return the pending submission
+     */
+    public static Submission submit(LocalDateTime orderTime, int locationID, double total, List<Integer> menuIDs) {
+        Submission submission;
+        synchronized (OrderCommitter.class) {
+            submission = new Submission(nextTicket++, UUID.randomUUID(), orderTime, locationID, total,
+                    List.copyOf(menuIDs), Status.PENDING, null);
+            open.put(submission.ticket(), submission);
+        }
+        spool(submission);
+        notifyListeners(submission);
+        committer.execute(() -> commit(submission));
+        return submission;
+    }
+
+    /**
+     * Queues every submission left in the spool by an earlier run, once per process.
+     * Submissions that did commit before the register closed are recognized by their
+     * UUID and only removed from the spool.
+     */
+    public static void resumeSpooled() {
+        List<Submission> found = new ArrayList<>();
+        synchronized (OrderCommitter.class) {
+            if (resumed) return;
+            resumed = true;
+            if (!Files.isDirectory(SPOOL_DIR)) return;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(SPOOL_DIR, "*.order")) {
+                for (Path file : files) {
+                    try {
+                        Submission submission = unspool(file, nextTicket);
+                        nextTicket++;
+                        open.put(submission.ticket(), submission);
+                        found.add(submission);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Skipping unreadable spooled order " + file + ": " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to read the order spool: " + e.getMessage());
+            }
+        }
+        found.sort(Comparator.comparing(Submission::orderTime));
+        for (Submission submission : found) {
+            notifyListeners(submission);
+            committer.execute(() -> commit(submission));
+        }
+        if (!found.isEmpty()) System.out.println("Resubmitting " + found.size() + " spooled orders");
+    }
+
+    /**
+     * Queues a failed submission for another attempt. Does nothing if the ticket is not
+     * failed (already retried or committed).
+     *
+     * @param ticket the submission's ticket
+     */
+    public static void retry(int ticket) {
+        Submission submission;
+        synchronized (OrderCommitter.class) {
+            Submission failed = open.get(ticket);
+            if (failed == null || failed.status() != Status.FAILED) return;
+            submission = failed.with(Status.PENDING, null);
+            open.put(ticket, submission);
+        }
+        notifyListeners(submission);
+        committer.execute(() -> commit(submission));
+    }
+
+    /** @return the current pending, committed and failed counts */
+    public static synchronized Summary summary() {
+        int pending = 0;
+        List<Submission> failed = new ArrayList<>();
+        for (Submission submission : open.values()) {
+            if (submission.status() == Status.FAILED) failed.add(submission);
+            else pending++;
+        }
+        return new Summary(pending, committed, List.copyOf(failed));
+    }
+
+    /**
+     * Registers a listener for submission changes. Listeners run on the committer or
+     * calling thread, so UI listeners must hop to the JavaFX thread themselves.
+     *
+     * @param listener receives every submission whose status changed
+     * @return a handle that unregisters the listener
+     */
+    public static Runnable subscribe(Consumer<Submission> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    private static void notifyListeners(Submission submission) {
+        for (Consumer<Submission> listener : listeners) listener.accept(submission);
+    }
+
+    // === COMMIT ===
+
+    private static void commit(Submission submission) {
+        Submission result;
+        try {
+            save(submission);
+            result = submission.with(Status.COMMITTED, null);
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+            result = submission.with(Status.FAILED, e.getMessage());
+        }
+        synchronized (OrderCommitter.class) {
+            if (result.status() == Status.COMMITTED) {
+                open.remove(result.ticket());
+                committed++;
+            } else {
+                open.put(result.ticket(), result);
+            }
+        }
+        if (result.status() == Status.COMMITTED) unspoolDone(result);
+        notifyListeners(result);
+    }
+
+    /** Writes one order with its lines; everything is rolled back if any step fails. */
+    private static void save(Submission order) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.ORDER_SUBMIT)) {
+            int employeeID = 2; // default fallback
+            try (PreparedStatement empStmt = Queries.ORDER_CASHIER.prepare(conn);
+                 ResultSet rs = empStmt.executeQuery()) {
+                if (rs.next()) {
+                    employeeID = rs.getInt("employeeID");
+                }
+            }
+
+            // Insert and notify in one transaction so listeners only hear about committed orders
+            conn.setAutoCommit(false);
+            List<InventoryReservations.Entry> usage;
+            try {
+                int orderID;
+                try (PreparedStatement stmt = Queries.ORDER_INSERT.prepare(conn)) {
+                    stmt.setObject(1, order.submissionID());
+                    stmt.setInt(2, employeeID);
+                    stmt.setInt(3, order.locationID());
+                    stmt.setTimestamp(4, Timestamp.valueOf(order.orderTime()));
+                    stmt.setDouble(5, order.total());
+                    try (ResultSet inserted = stmt.executeQuery()) {
+                        if (!inserted.next()) {
+                            // An earlier attempt committed; its lines, reservations and event went with it
+                            conn.commit();
+                            return;
+                        }
+                        orderID = inserted.getInt("orderID");
+                    }
+                }
+                // One line per distinct drink; the orderItem trigger adds them to the best-seller counters
+                Map<Integer, Double> linePrices = new HashMap<>();
+                try (PreparedStatement items = Queries.ORDER_ITEMS_INSERT.prepare(conn)) {
+                    items.setInt(1, orderID);
+                    items.setTimestamp(2, Timestamp.valueOf(order.orderTime()));
+                    items.setArray(3, conn.createArrayOf("integer", order.menuIDs().toArray()));
+                    try (ResultSet lines = items.executeQuery()) {
+                        while (lines.next()) linePrices.put(lines.getInt("menuID"), lines.getDouble("priceAtPurchase"));
+                    }
+                }
+                List<Double> prices = order.menuIDs().stream().map(id -> linePrices.getOrDefault(id, 0.0)).toList();
+                // Journal ingredient usage instead of updating the shared inventory rows
+                usage = InventoryReservations.reserve(conn, order.menuIDs());
+                OrderFeed.publish(conn, new OrderFeed.OrderEvent(order.orderTime(), order.total(), order.menuIDs().size(),
+                        order.locationID(), order.menuIDs(), orderID, prices));
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            // The order is committed: a failure from here on must not report it as failed
+            try {
+                InventoryReservations.record(usage);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to count the consumption of committed order #" + order.ticket() + ": " + e.getMessage());
+            }
+            try {
+                ReportCache.invalidate(order.orderTime(), order.locationID());
+            } catch (RuntimeException e) {
+                System.err.println("Failed to invalidate reports for committed order #" + order.ticket() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // === SPOOL ===
+
+    /** Writes a submission to the spool; a register that cannot spool still commits from memory. */
+    private static void spool(Submission submission) {
+        Properties order = new Properties();
+        order.setProperty("submissionID", submission.submissionID().toString());
+        order.setProperty("orderTime", submission.orderTime().toString());
+        order.setProperty("locationID", String.valueOf(submission.locationID()));
+        order.setProperty("total", String.valueOf(submission.total()));
+        order.setProperty("menuIDs", submission.menuIDs().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        try {
+            Files.createDirectories(SPOOL_DIR);
+            Path tmp = SPOOL_DIR.resolve(submission.submissionID() + ".order.tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                order.store(out, "Order submission");
+            }
+            Files.move(tmp, spoolFile(submission.submissionID()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to spool order #" + submission.ticket() + ": " + e.getMessage());
+        }
+    }
+
+    /** Reads a spooled submission back as pending under a new ticket. */
+    private static Submission unspool(Path file, int ticket) throws IOException {
+        Properties order = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            order.load(in);
+        }
+        String menus = order.getProperty("menuIDs", "");
+        List<Integer> menuIDs = menus.isEmpty() ? List.of()
+                : Arrays.stream(menus.split(",")).map(Integer::valueOf).toList();
+        return new Submission(ticket, UUID.fromString(order.getProperty("submissionID")),
+                LocalDateTime.parse(order.getProperty("orderTime")), Integer.parseInt(order.getProperty("locationID")),
+                Double.parseDouble(order.getProperty("total")), menuIDs, Status.PENDING, null);
+    }
+
+    private static void unspoolDone(Submission submission) {
+        try {
+            Files.deleteIfExists(spoolFile(submission.submissionID()));
+        } catch (IOException e) {
+            System.err.println("Failed to remove spooled order #" + submission.ticket() + ": " + e.getMessage());
+        }
+    }
+
+    private static Path spoolFile(UUID submissionID) {
+        return SPOOL_DIR.resolve(submissionID + ".order");
+    }
+}
@@ -0,0 +1,122 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+
+/**
+ * Publishes and receives "order committed" events over Postgres {@code NOTIFY}.
+ * <p>
+ * The register publishes one event inside the same transaction as the order insert,
+ * so Postgres only delivers it once the order is actually committed. The payload is
+ * a compact comma-separated string:
+ * {@code <orderDate>,<orderTotal>,<itemCount>,<locationID>,<menuID;menuID;...>,<orderID>,<price;price;...>}.
+ * The order ID lets a subscriber that loaded a snapshot first tell which events the
+ * snapshot already counted, and the prices are each drink's {@code priceAtPurchase}, so
+ * live counters add up to the same revenue as the stored order lines.
+ * Manager dashboards subscribe through {@link NotificationHub} to keep the X-Report
+ * and the {@link ReportCache} current without polling {@code ordertest}.
+ * </p>
+ */
+public class OrderFeed {
+
+    /** The notification channel used for committed orders. */
+    public static final String CHANNEL = "order_committed";
+
+    /**
+     * A committed order as carried in the notification payload.
+     *
+     * @param orderDate  the order timestamp
+     * @param total      the order total
+     * @param itemCount  number of drinks in the order
+     * @param locationID the store the order was placed at
+     * @param menuIDs    the menu ID of every drink in the order
+     * @param orderID    the committed order's ID
+     * @param prices     the price at purchase of every drink, in {@code menuIDs} order
+     */
+    public record OrderEvent(LocalDateTime orderDate, double total, int itemCount, int locationID, List<Integer> menuIDs,
+                             int orderID, List<Double> prices) {
+
+        /** @return the event encoded as a notification payload */
+        public String toPayload() {
+            return orderDate + "," + total + "," + itemCount + "," + locationID + ","
+                    + menuIDs.stream().map(String::valueOf).collect(Collectors.joining(";")) + "," + orderID + ","
+                    + prices.stream().map(String::valueOf).collect(Collectors.joining(";"));
+        }
+
+        /**
+         * Decodes a notification payload.
+         *
+         * @param payload the payload produced by {@link #toPayload()}
+         * @return the decoded event
+         * @throws IllegalArgumentException if the payload is malformed
+         */
+        public static OrderEvent parse(String payload) {
+            String[] parts = payload.split(",", -1);
+            if (parts.length != 7) throw new IllegalArgumentException("Bad order payload: " + payload);
+            try {
+                List<Integer> menuIDs = parts[4].isEmpty() ? List.of()
+                        : Arrays.stream(parts[4].split(";")).map(Integer::valueOf).toList();
+                List<Double> prices = parts[6].isEmpty() ? List.of()
+                        : Arrays.stream(parts[6].split(";")).map(Double::valueOf).toList();
+                if (prices.size() != menuIDs.size()) throw new IllegalArgumentException("Bad order payload: " + payload);
+                return new OrderEvent(LocalDateTime.parse(parts[0]), Double.parseDouble(parts[1]),
+                        Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), menuIDs, Integer.parseInt(parts[5]), prices);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Bad order payload: " + payload, e);
+            }
+        }
+    }
+
+    private static boolean cacheInvalidationStarted = false;
+
+    /**
+     * Queues an order event on the given connection.
+     * <p>
+     * Must be called inside the transaction that inserts the order; Postgres delivers
+     * the notification when that transaction commits and drops it on rollback.
+     * </p>
+     *
+     * @param conn  the connection running the order transaction
+     * @param event the order being committed
+     * @throws SQLException if the notification cannot be queued
+     */
+    public static void publish(Connection conn, OrderEvent event) throws SQLException {
+        try (PreparedStatement stmt = Queries.NOTIFY.prepare(conn)) {
+            stmt.setString(1, CHANNEL);
+            stmt.setString(2, event.toPayload());
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Subscribes to committed orders from every terminal.
+     *
+     * @param listener receives each event on the notification listener thread
+     * @return a handle that cancels the subscription when run
+     */
+    public static Runnable subscribe(Consumer<OrderEvent> listener) {
+        return NotificationHub.subscribe(CHANNEL, payload -> {
+            try {
+                listener.accept(OrderEvent.parse(payload));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring malformed order notification: " + payload);
+            }
+        });
+    }
+
+    /**
+     * Keeps this JVM's {@link ReportCache} in sync with orders committed on any terminal.
+     * Safe to call more than once; only the first call subscribes.
+     */
+    public static synchronized void startCacheInvalidation() {
+        if (cacheInvalidationStarted) return;
+        cacheInvalidationStarted = true;
+        subscribe(event -> ReportCache.invalidate(event.orderDate(), event.locationID()));
+    }
+}
@@ -0,0 +1,604 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory inverted index from menu items and add-ons to the orders that contain them.
+ * <p>
+ * Every order is numbered by the index as it is added, and those numbers, not order IDs,
+ * are what the sets hold: an order is identified by its (order ID, order date) pair, the
+ * key of the partitioned order tables, and the number maps back to that pair. Every menu
+ * ID and every modification inventory ID maps to the sorted set of orders whose lines
+ * contain it, and every store and business day maps to its orders. The sets
+ * are {@link Postings}, compressed roaring-style, so "orders with Mango Green Tea and
+ * extra boba last month" is the intersection of four postings (two terms, the store and
+ * the days of the window) done in memory, without joining {@code orderItem} and
+ * {@code modification} against {@code ordertest}. Co-purchase counts are the sizes of the
+ * intersections of the matching orders with every other item's postings.
+ * </p>
+ * <p>
+ * The index is built from one streamed read of the order history on {@link #start()} and
+ * kept current like {@link ColumnarStore}: a short while after an {@link OrderFeed} event,
+ * every order above a {@link SyncWatermark} low-water mark of order IDs is read with its
+ * lines, and those not indexed yet are added, so an order that commits after a higher
+ * order ID has been indexed is still picked up.
+ * </p>
+ */
+public class OrderIndex {
+
+    /** Rows fetched per round trip while indexing. */
+    private static final int FETCH_SIZE = 10_000;
+
+    /** Delay between a committed order and the sync that indexes it, so bursts share a sync. */
+    private static final long SYNC_DELAY_MILLIS = 2_000;
+
+    /** Number of co-purchased items returned with a query. */
+    private static final int CO_PURCHASE_LIMIT = 10;
+
+    /**
+     * One item bought together with the filtered orders.
+     *
+     * @param menuID the menu item
+     * @param orders how many of the matching orders also contain it
+     */
+    public record CoPurchase(int menuID, int orders) { }
+
+    /**
+     * One order's identity: the key of {@code ordertest}.
+     *
+     * @param orderID   the order ID
+     * @param orderDate the order timestamp
+     */
+    public record OrderRef(int orderID, LocalDateTime orderDate) { }
+
+    /**
+     * The answer to an order filter.
+     *
+     * @param matches      number of matching orders
+     * @param recentOrders the most recent matching orders, newest day first
+     * @param coPurchases  the menu items most often found in the matching orders, besides the filter's own
+     */
+    public record Result(int matches, List<OrderRef> recentOrders, List<CoPurchase> coPurchases) { }
+
+    // === POSTINGS ===
+
+    /**
+     * A sorted set of non-negative order numbers stored roaring-style: numbers are grouped by their
+     * upper 16 bits, and each group keeps its lower 16 bits either as a sorted
+     * {@code char} array (up to {@value #ARRAY_MAX} values, 2 bytes each) or as a 65,536-bit
+     * bitmap (8 KB). Intersections and unions work group by group and stay in the compact
+     * form, so sparse and dense sets both cost little memory and time.
+     */
+    static final class Postings {
+
+        /** Largest group kept as a sorted array; above it a bitmap is smaller. */
+        static final int ARRAY_MAX = 4096;
+
+        private char[] keys = new char[4];
+        private Object[] groups = new Object[4];
+        private int[] counts = new int[4];
+        private int size = 0;
+
+        /** Adds one order ID. */
+        void add(int orderID) {
+            char high = (char) (orderID >>> 16);
+            char low = (char) orderID;
+            int g = find(high);
+            if (g < 0) {
+                g = -g - 1;
+                insertGroup(g, high, new char[4], 0);
+            }
+            Object group = groups[g];
+            if (group instanceof long[] bits) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    bits[low >>> 6] |= mask;
+                    counts[g]++;
+                }
+                return;
+            }
+            char[] values = (char[]) group;
+            int n = counts[g];
+            int at = Arrays.binarySearch(values, 0, n, low);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (n == ARRAY_MAX) {
+                long[] bits = toBitmap(values, n);
+                bits[low >>> 6] |= 1L << low;
+                groups[g] = bits;
+                counts[g] = n + 1;
+                return;
+            }
+            if (n == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, n * 2));
+            System.arraycopy(values, at, values, at + 1, n - at);
+            values[at] = low;
+            groups[g] = values;
+            counts[g] = n + 1;
+        }
+
+        /** @return the number of order IDs in the set */
+        int cardinality() {
+            int total = 0;
+            for (int g = 0; g < size; g++) total += counts[g];
+            return total;
+        }
+
+        /** @return the order IDs in both sets */
+        Postings and(Postings other) {
+            Postings result = new Postings();
+            int i = 0, j = 0;
+            while (i < size && j < other.size) {
+                if (keys[i] < other.keys[j]) {
+                    i++;
+                } else if (keys[i] > other.keys[j]) {
+                    j++;
+                } else {
+                    result.appendGroup(keys[i], andGroups(groups[i], counts[i], other.groups[j], other.counts[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        /** @return the number of order IDs in both sets, without building the intersection */
+        int andCardinality(Postings other) {
+            int total = 0;
+            int i = 0, j = 0;
+            while (i < size && j < other.size) {
+                if (keys[i] < other.keys[j]) {
+                    i++;
+                } else if (keys[i] > other.keys[j]) {
+                    j++;
+                } else {
+                    total += andCount(groups[i], counts[i], other.groups[j], other.counts[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return total;
+        }
+
+        /** @return the order IDs in either set */
+        Postings or(Postings other) {
+            Postings result = new Postings();
+            int i = 0, j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                    result.appendGroup(keys[i], copyGroup(groups[i], counts[i]));
+                    i++;
+                } else if (i == size || keys[i] > other.keys[j]) {
+                    result.appendGroup(other.keys[j], copyGroup(other.groups[j], other.counts[j]));
+                    j++;
+                } else {
+                    result.appendGroup(keys[i], orGroups(groups[i], counts[i], other.groups[j], other.counts[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        /** Calls {@code action} with every order ID, ascending. */
+        void forEach(IntConsumer action) {
+            for (int g = 0; g < size; g++) {
+                int base = keys[g] << 16;
+                if (groups[g] instanceof long[] bits) {
+                    for (int w = 0; w < bits.length; w++) {
+                        long word = bits[w];
+                        while (word != 0) {
+                            action.accept(base | (w << 6) + Long.numberOfTrailingZeros(word));
+                            word &= word - 1;
+                        }
+                    }
+                } else {
+                    char[] values = (char[]) groups[g];
+                    for (int k = 0; k < counts[g]; k++) action.accept(base | values[k]);
+                }
+            }
+        }
+
+        private int find(char high) {
+            return Arrays.binarySearch(keys, 0, size, high);
+        }
+
+        private void insertGroup(int at, char high, Object group, int count) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                groups = Arrays.copyOf(groups, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(keys, at, keys, at + 1, size - at);
+            System.arraycopy(groups, at, groups, at + 1, size - at);
+            System.arraycopy(counts, at, counts, at + 1, size - at);
+            keys[at] = high;
+            groups[at] = group;
+            counts[at] = count;
+            size++;
+        }
+
+        /** Appends a group above every existing key; empty groups are dropped. */
+        private void appendGroup(char high, GroupValue group) {
+            if (group.count() == 0) return;
+            insertGroup(size, high, group.data(), group.count());
+        }
+
+        private record GroupValue(Object data, int count) { }
+
+        private static long[] toBitmap(char[] values, int n) {
+            long[] bits = new long[1024];
+            for (int k = 0; k < n; k++) bits[values[k] >>> 6] |= 1L << values[k];
+            return bits;
+        }
+
+        /** @return a bitmap as a sorted array when it is small enough to be one */
+        private static GroupValue compact(long[] bits) {
+            int count = 0;
+            for (long word : bits) count += Long.bitCount(word);
+            if (count > ARRAY_MAX) return new GroupValue(bits, count);
+            char[] values = new char[Math.max(count, 1)];
+            int k = 0;
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    values[k++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new GroupValue(values, count);
+        }
+
+        private static GroupValue copyGroup(Object group, int count) {
+            return group instanceof long[] bits
+                    ? new GroupValue(bits.clone(), count)
+                    : new GroupValue(Arrays.copyOf((char[]) group, Math.max(count, 1)), count);
+        }
+
+        private static GroupValue andGroups(Object a, int na, Object b, int nb) {
+            if (a instanceof long[] ba && b instanceof long[] bb) {
+                long[] bits = new long[1024];
+                for (int w = 0; w < bits.length; w++) bits[w] = ba[w] & bb[w];
+                return compact(bits);
+            }
+            if (a instanceof long[]) return andGroups(b, nb, a, na);
+            char[] va = (char[]) a;
+            char[] out = new char[Math.max(na, 1)];
+            int k = 0;
+            if (b instanceof long[] bb) {
+                for (int i = 0; i < na; i++) {
+                    if ((bb[va[i] >>> 6] & (1L << va[i])) != 0) out[k++] = va[i];
+                }
+            } else {
+                char[] vb = (char[]) b;
+                int i = 0, j = 0;
+                while (i < na && j < nb) {
+                    if (va[i] < vb[j]) i++;
+                    else if (va[i] > vb[j]) j++;
+                    else {
+                        out[k++] = va[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new GroupValue(out, k);
+        }
+
+        private static int andCount(Object a, int na, Object b, int nb) {
+            if (a instanceof long[] ba && b instanceof long[] bb) {
+                int count = 0;
+                for (int w = 0; w < ba.length; w++) count += Long.bitCount(ba[w] & bb[w]);
+                return count;
+            }
+            if (a instanceof long[]) return andCount(b, nb, a, na);
+            char[] va = (char[]) a;
+            int count = 0;
+            if (b instanceof long[] bb) {
+                for (int i = 0; i < na; i++) {
+                    if ((bb[va[i] >>> 6] & (1L << va[i])) != 0) count++;
+                }
+            } else {
+                char[] vb = (char[]) b;
+                int i = 0, j = 0;
+                while (i < na && j < nb) {
+                    if (va[i] < vb[j]) i++;
+                    else if (va[i] > vb[j]) j++;
+                    else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private static GroupValue orGroups(Object a, int na, Object b, int nb) {
+            if (a instanceof char[] va && b instanceof char[] vb && na + nb <= ARRAY_MAX) {
+                char[] out = new char[Math.max(na + nb, 1)];
+                int i = 0, j = 0, k = 0;
+                while (i < na || j < nb) {
+                    if (j == nb || (i < na && va[i] < vb[j])) out[k++] = va[i++];
+                    else if (i == na || va[i] > vb[j]) out[k++] = vb[j++];
+                    else {
+                        out[k++] = va[i];
+                        i++;
+                        j++;
+                    }
+                }
+                return new GroupValue(out, k);
+            }
+            long[] bits = a instanceof long[] ba ? ba.clone() : toBitmap((char[]) a, na);
+            if (b instanceof long[] bb) {
+                for (int w = 0; w < bits.length; w++) bits[w] |= bb[w];
+            } else {
+                char[] vb = (char[]) b;
+                for (int j = 0; j < nb; j++) bits[vb[j] >>> 6] |= 1L << vb[j];
+            }
+            return compact(bits);
+        }
+    }
+
+    // === STATE ===
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final Object syncLock = new Object();
+
+    private static final Map<Integer, Postings> byMenu = new HashMap<>();
+    private static final Map<Integer, Postings> byInventory = new HashMap<>();
+    private static final Map<Integer, Postings> byLocation = new HashMap<>();
+    private static final TreeMap<LocalDate, Postings> byDay = new TreeMap<>();
+
+    /** The order behind each index number: its ID and its timestamp. */
+    private static int[] numberedIDs = new int[1024];
+    private static LocalDateTime[] numberedDates = new LocalDateTime[1024];
+    private static int numbered = 0;
+
+    /** Which order IDs are indexed; every ID at or below its mark is indexed or was never committed. */
+    private static final SyncWatermark synced = new SyncWatermark(-1);
+    private static boolean ready = false;
+
+    private static ScheduledExecutorService syncer = null;
+    private static ScheduledFuture<?> pendingSync = null;
+
+    // === LIFECYCLE ===
+
+    /**
+     * Builds the index in the background and keeps it current: an initial sync runs now,
+     * and another runs shortly after every committed order.
+     */
+    public static synchronized void start() {
+        if (syncer != null) return;
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-index-sync");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduleSync(0);
+        OrderFeed.subscribe(event -> scheduleSync(SYNC_DELAY_MILLIS));
+    }
+
+    private static synchronized void scheduleSync(long delayMillis) {
+        if (pendingSync != null && !pendingSync.isDone()) return;
+        pendingSync = syncer.schedule(() -> {
+            try {
+                int added = sync();
+                if (added > 0) System.out.println("Order index added " + added + " orders");
+            } catch (SQLException e) {
+                System.err.println("Order index sync failed, will retry: " + e.getMessage());
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return whether the initial build has finished */
+    public static boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // === SYNC ===
+
+    /**
+     * Indexes every committed order not indexed yet, with its items and modifications.
+     * <p>
+     * Every order above the low-water mark is read in one repeatable-read transaction;
+     * those not indexed yet are numbered and their lines joined to them on (order ID,
+     * order date) into fresh postings, which are then merged in under the write lock, so
+     * queries are never blocked by the database. The watermark only records the orders
+     * once they are merged, so a sync that fails part-way reads them again next time.
+     * The first build settles the mark at the highest order read, rather than waiting
+     * out the gaps in the order history.
+     * </p>
+     *
+     * @return the number of orders added
+     * @throws SQLException if reading the new rows fails
+     */
+    public static int sync() throws SQLException {
+        synchronized (syncLock) {
+            // Only the sync thread touches the watermark and the numbering; both are guarded by syncLock
+            long watermark = synced.low();
+            int firstNumber = numbered;
+
+            Map<Integer, Postings> menus = new HashMap<>();
+            Map<Integer, Postings> inventories = new HashMap<>();
+            Map<Integer, Postings> locations = new HashMap<>();
+            Map<LocalDate, Postings> days = new HashMap<>();
+            Map<OrderRef, Integer> added = new HashMap<>();
+            List<OrderRef> refs = new ArrayList<>();
+            int upTo = (int) watermark;
+
+            try (Connection conn = DatabaseConnector.getReportingConnection()) {
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                try (PreparedStatement ps = Queries.INDEX_ORDERS.prepare(conn)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, watermark);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        int orderID = rs.getInt("orderID");
+                        upTo = Math.max(upTo, orderID);
+                        if (synced.isRead(orderID)) continue;
+                        OrderRef ref = new OrderRef(orderID, rs.getTimestamp("orderDate").toLocalDateTime());
+                        int number = firstNumber + refs.size();
+                        refs.add(ref);
+                        added.put(ref, number);
+                        locations.computeIfAbsent(rs.getInt("locationID"), k -> new Postings()).add(number);
+                        days.computeIfAbsent(ref.orderDate().toLocalDate(), k -> new Postings()).add(number);
+                    }
+                }
+                if (refs.isEmpty()) {
+                    conn.commit();
+                    synced.advance();
+                    markReady();
+                    return 0;
+                }
+
+                // Lines of orders indexed by an earlier sync are read again but have no number here
+                try (PreparedStatement ps = Queries.INDEX_ITEMS.prepare(conn)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, watermark);
+                    ps.setInt(2, upTo);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        Integer number = added.get(new OrderRef(rs.getInt("orderID"), rs.getTimestamp("orderDate").toLocalDateTime()));
+                        if (number != null) menus.computeIfAbsent(rs.getInt("menuID"), k -> new Postings()).add(number);
+                    }
+                }
+
+                try (PreparedStatement ps = Queries.INDEX_MODIFICATIONS.prepare(conn)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setLong(1, watermark);
+                    ps.setInt(2, upTo);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        Integer number = added.get(new OrderRef(rs.getInt("orderID"), rs.getTimestamp("orderDate").toLocalDateTime()));
+                        if (number != null) inventories.computeIfAbsent(rs.getInt("inventoryID"), k -> new Postings()).add(number);
+                    }
+                }
+                conn.commit();
+            }
+
+            lock.writeLock().lock();
+            try {
+                merge(byMenu, menus);
+                merge(byInventory, inventories);
+                merge(byLocation, locations);
+                merge(byDay, days);
+                if (numbered + refs.size() > numberedIDs.length) {
+                    int size = Math.max(numbered + refs.size(), numberedIDs.length * 2);
+                    numberedIDs = Arrays.copyOf(numberedIDs, size);
+                    numberedDates = Arrays.copyOf(numberedDates, size);
+                }
+                for (OrderRef ref : refs) {
+                    numberedIDs[numbered] = ref.orderID();
+                    numberedDates[numbered] = ref.orderDate();
+                    numbered++;
+                    synced.offer(ref.orderID());
+                }
+                if (firstNumber == 0) synced.settle();
+                else synced.advance();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return refs.size();
+        }
+    }
+
+    private static <K> void merge(Map<K, Postings> into, Map<K, Postings> batch) {
+        batch.forEach((key, added) -> into.merge(key, added, Postings::or));
+    }
+
+    private static void markReady() {
+        lock.writeLock().lock();
+        try {
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // === QUERIES ===
+
+    /**
+     * Finds the orders of a store and date window that contain the given menu items and add-ons.
+     *
+     * @param locationID   the store, or {@link StoreSession#ALL_LOCATIONS}
+     * @param start        the first day of the window (inclusive)
+     * @param end          the last day of the window (inclusive)
+     * @param menuIDs      menu items to filter on
+     * @param inventoryIDs modification inventory IDs (add-ons) to filter on
+     * @param matchAll     {@code true} to require every item and add-on (AND), {@code false} for any of them (OR)
+     * @param limit        how many of the most recent matching order IDs to return
+     * @return the number of matches, the most recent ones and the items bought with them
+     */
+    public static Result query(int locationID, LocalDate start, LocalDate end, Collection<Integer> menuIDs,
+                               Collection<Integer> inventoryIDs, boolean matchAll, int limit) {
+        lock.readLock().lock();
+        try {
+            // The window first: it is usually the smallest set, and every other term intersects it
+            Postings matching = new Postings();
+            for (Postings day : byDay.subMap(start, true, end, true).values()) matching = matching.or(day);
+            if (locationID != StoreSession.ALL_LOCATIONS) {
+                matching = matching.and(byLocation.getOrDefault(locationID, new Postings()));
+            }
+
+            List<Postings> terms = new ArrayList<>();
+            for (int menuID : menuIDs) terms.add(byMenu.getOrDefault(menuID, new Postings()));
+            for (int inventoryID : inventoryIDs) terms.add(byInventory.getOrDefault(inventoryID, new Postings()));
+            if (!terms.isEmpty()) {
+                if (matchAll) {
+                    terms.sort(Comparator.comparingInt(Postings::cardinality));
+                    for (Postings term : terms) matching = matching.and(term);
+                } else {
+                    Postings any = new Postings();
+                    for (Postings term : terms) any = any.or(term);
+                    matching = matching.and(any);
+                }
+            }
+
+            int wanted = Math.min(limit, matching.cardinality());
+            List<OrderRef> recent = new ArrayList<>(wanted);
+            // Numbers follow sync order, not time, so each day's matches are sorted by timestamp
+            Comparator<OrderRef> newestFirst = Comparator.comparing(OrderRef::orderDate)
+                    .thenComparingInt(OrderRef::orderID).reversed();
+            for (Postings day : byDay.subMap(start, true, end, true).descendingMap().values()) {
+                if (recent.size() == wanted) break;
+                List<OrderRef> sameDay = new ArrayList<>();
+                matching.and(day).forEach(number -> sameDay.add(new OrderRef(numberedIDs[number], numberedDates[number])));
+                sameDay.sort(newestFirst);
+                recent.addAll(sameDay.subList(0, Math.min(sameDay.size(), wanted - recent.size())));
+            }
+
+            List<CoPurchase> coPurchases = new ArrayList<>();
+            for (Map.Entry<Integer, Postings> entry : byMenu.entrySet()) {
+                if (menuIDs.contains(entry.getKey())) continue;
+                int together = matching.andCardinality(entry.getValue());
+                if (together > 0) coPurchases.add(new CoPurchase(entry.getKey(), together));
+            }
+            coPurchases.sort(Comparator.comparingInt(CoPurchase::orders).reversed());
+            if (coPurchases.size() > CO_PURCHASE_LIMIT) coPurchases = new ArrayList<>(coPurchases.subList(0, CO_PURCHASE_LIMIT));
+
+            return new Result(matching.cardinality(), List.copyOf(recent), coPurchases);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
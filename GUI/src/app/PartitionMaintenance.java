@@ -0,0 +1,95 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that keeps the monthly order partitions in shape.
+ * <p>
+ * {@code ordertest}, {@code orderItem} and {@code modification} are range-partitioned by
+ * month on {@code orderDate} (see {@code databaseUpload.sql}), and an order can only be
+ * inserted once its month's partition exists. Once at startup and then daily, this job
+ * calls {@code maintain_order_partitions}, which creates the next
+ * {@value #MONTHS_AHEAD} months and detaches months older than {@value #RETAIN_MONTHS},
+ * keeping the detached months as archive tables. It also makes sure the month of the
+ * terminal's working date exists, since the register can be run against a past or
+ * future date.
+ * </p>
+ * <p>
+ * The same pass prunes {@code change_log} rows older than
+ * {@value VersionedCache#RETAIN_DAYS} days; every menu edit, restock and inventory flush
+ * adds one, and terminals only replay the recent ones.
+ * </p>
+ */
+public class PartitionMaintenance {
+
+    /** Months of future partitions kept ready. */
+    private static final int MONTHS_AHEAD = 3;
+
+    /** Months of history kept attached to the live tables. */
+    private static final int RETAIN_MONTHS = 36;
+
+    private static ScheduledExecutorService scheduler = null;
+
+    /**
+     * Starts the daily maintenance job, running it once immediately.
+     *
+     * @param workingDay the date the terminal records orders against
+     */
+    public static synchronized void start(LocalDate workingDay) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "partition-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> runQuietly(workingDay), 0, 1, TimeUnit.DAYS);
+    }
+
+    private static void runQuietly(LocalDate workingDay) {
+        try {
+            int detached = run(workingDay);
+            if (detached > 0) System.out.println("Detached " + detached + " old order partitions");
+        } catch (SQLException e) {
+            System.err.println("Partition maintenance failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one maintenance pass.
+     *
+     * @param workingDay the date the terminal records orders against
+     * @return the number of partitions detached
+     * @throws SQLException if the maintenance functions fail
+     */
+    public static int run(LocalDate workingDay) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            if (conn == null) throw new SQLException("Database connection failed.");
+
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT create_order_partitions(?, ?)")) {
+                stmt.setDate(1, java.sql.Date.valueOf(workingDay));
+                stmt.setDate(2, java.sql.Date.valueOf(workingDay));
+                stmt.execute();
+            }
+
+            try (PreparedStatement stmt = Queries.CHANGE_LOG_PRUNE.prepare(conn)) {
+                stmt.setInt(1, VersionedCache.RETAIN_DAYS);
+                int pruned = stmt.executeUpdate();
+                if (pruned > 0) System.out.println("Pruned " + pruned + " change log rows");
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT maintain_order_partitions(?, ?)")) {
+                stmt.setInt(1, MONTHS_AHEAD);
+                stmt.setInt(2, RETAIN_MONTHS);
+                ResultSet rs = stmt.executeQuery();
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
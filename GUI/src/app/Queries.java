@@ -0,0 +1,385 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Central registry of the SQL run on hot paths, shared by the cashier and manager screens.
+ * <p>
+ * Pooled connections are opened with pgjdbc's {@code prepareThreshold} and statement
+ * cache settings (see {@link ConnectionPool}), so the driver turns each SQL text into a
+ * server-side prepared statement the first time it runs on a connection and reuses it
+ * from then on; Postgres then skips parsing and planning on every later call. The cache
+ * is keyed by the exact SQL text, which is why every call site of a query prepares it
+ * from the one {@link Query} registered here instead of building its own copy of the
+ * text.
+ * </p>
+ */
+public class Queries {
+
+    /**
+     * A named SQL statement.
+     *
+     * @param name a stable, unique name used in logs
+     * @param sql  the SQL text, identical for every caller
+     */
+    public record Query(String name, String sql) {
+
+        /**
+         * Prepares this query on a connection, reusing the connection's cached
+         * server-side statement if it has run there before.
+         *
+         * @param conn the connection to prepare on
+         * @return the prepared statement
+         * @throws SQLException if preparing fails
+         */
+        public PreparedStatement prepare(Connection conn) throws SQLException {
+            return conn.prepareStatement(sql);
+        }
+    }
+
+    /** Names registered so far, so two queries cannot share one. */
+    private static final Set<String> names = new HashSet<>();
+
+    // === REGISTER ===
+
+    /**
+     * Inserts an order with an ID from {@code ordertest_orderid_seq} and returns the ID.
+     * Returns no row if an order with the same submission ID is already stored.
+     */
+    public static final Query ORDER_INSERT = register("order.insert", """
+        INSERT INTO ordertest (orderID, submissionID, employeeID, locationID, orderDate, orderTotal)
+        VALUES (nextval('ordertest_orderid_seq'), ?, ?, ?, ?, ?)
+        ON CONFLICT (submissionID, orderDate) DO NOTHING
+        RETURNING orderID
+    """);
+
+    /**
+     * Inserts an order's lines, one per distinct drink, priced from the menu; counted into
+     * {@code daily_item_sales} by trigger. Returns each line's menu ID and price at purchase.
+     */
+    public static final Query ORDER_ITEMS_INSERT = register("order.items", """
+        INSERT INTO orderItem (orderItemID, menuID, priceAtPurchase, quantityPurchased, orderID, orderDate)
+        SELECT nextval('orderitem_orderitemid_seq'), o.menuID, m.price, o.quantity, ?, ?
+        FROM (SELECT menuID, COUNT(*) AS quantity FROM unnest(?::int[]) AS d(menuID) GROUP BY menuID) o
+        JOIN menu m ON m.menuID = o.menuID
+        RETURNING menuID, priceAtPurchase
+    """);
+
+    /** Picks the cashier credited with the next order, rotating by order count. */
+    public static final Query ORDER_CASHIER = register("order.cashier", """
+        SELECT employeeID FROM employee
+        WHERE employeePosition = 'Cashier' AND employeeID IN (2, 3)
+        ORDER BY employeeID
+        LIMIT 1 OFFSET (
+            (SELECT COUNT(*) FROM ordertest)
+            % (SELECT COUNT(*) FROM employee WHERE employeePosition = 'Cashier' AND employeeID IN (2, 3))
+        )
+    """);
+
+    /** Journals the recipe ingredients of an order's drinks (see {@link InventoryReservations}). */
+    public static final Query JOURNAL_RESERVE = register("journal.reserve", """
+        INSERT INTO inventory_journal (inventoryID, delta)
+        SELECT mi.inventoryID, -SUM(mi.menuInfoQuantity)
+        FROM unnest(?::int[]) AS o(menuID)
+        JOIN menuInfo mi ON mi.menuID = o.menuID
+        GROUP BY mi.inventoryID
+        RETURNING journalID, inventoryID, delta
+    """);
+
+    /** Queues a notification; delivered when the surrounding transaction commits. */
+    public static final Query NOTIFY = register("notify", "SELECT pg_notify(?, ?)");
+
+    // === TERMINAL CACHES ===
+
+    /** Every menu item, for the cashier's drink cards. */
+    public static final Query MENU_ALL = register("menu.all", """
+        SELECT menuID, menuName, category, price, menuImage, seasonalStart, seasonalEnd
+        FROM menu
+    """);
+
+    /** One menu item. */
+    public static final Query MENU_ONE = register("menu.one", MENU_ALL.sql() + " WHERE menuID = ?");
+
+    /** Every employee's login credentials. */
+    public static final Query EMPLOYEE_ALL = register("employee.all",
+        "SELECT employeeID, employeePosition, employeePasscode FROM employee");
+
+    /** One employee's login credentials. */
+    public static final Query EMPLOYEE_ONE = register("employee.one", EMPLOYEE_ALL.sql() + " WHERE employeeID = ?");
+
+    /** Every ingredient's stock level. */
+    public static final Query INVENTORY_ALL = register("inventory.all", """
+        SELECT inventoryID, inventoryName, quantityAvailable, restockMin, unit
+        FROM inventory
+    """);
+
+    /** One ingredient's stock level. */
+    public static final Query INVENTORY_ONE = register("inventory.one", INVENTORY_ALL.sql() + " WHERE inventoryID = ?");
+
+    /** The newest change-log version of one entity logged more than a number of seconds ago. */
+    public static final Query CHANGE_LOG_SETTLED = register("changeLog.settled", """
+        SELECT COALESCE(MAX(version), 0) FROM change_log
+        WHERE entity = ? AND changedAt < NOW() - make_interval(secs => ?)
+    """);
+
+    /** Deletes change-log rows older than a number of days. */
+    public static final Query CHANGE_LOG_PRUNE = register("changeLog.prune",
+        "DELETE FROM change_log WHERE changedAt < NOW() - make_interval(days => ?)");
+
+    /** Changes to one entity after a version. */
+    public static final Query CHANGE_LOG_SINCE = register("changeLog.since",
+        "SELECT version, entityKey FROM change_log WHERE entity = ? AND version > ? ORDER BY version");
+
+    // === REPORTS ===
+
+    /** X-Report: sales per hour of one day at one store. */
+    public static final Query X_HOURLY_SALES = register("xReport.hourlySales", """
+        SELECT EXTRACT(HOUR FROM orderDate) AS hour,
+            SUM(orderTotal) AS totalSales
+        FROM ordertest
+        WHERE orderDate >= ? AND orderDate < ? AND locationID = ?
+        GROUP BY hour
+        ORDER BY hour;
+    """);
+
+    /** X-Report: returned (negative) order totals. */
+    public static final Query X_RETURNS = register("xReport.returns", """
+        SELECT COALESCE(SUM(orderTotal),0) AS totalReturns
+        FROM ordertest
+        WHERE orderTotal < 0 AND orderDate >= ? AND orderDate < ? AND locationID = ?;
+    """);
+
+    /** X-Report: voided (zero-total) orders. */
+    public static final Query X_VOIDS = register("xReport.voids", """
+        SELECT COUNT(*) AS voidCount
+        FROM ordertest
+        WHERE orderTotal = 0 AND orderDate >= ? AND orderDate < ? AND locationID = ?;
+    """);
+
+    /** X-Report: IDs of the orders counted, ascending. */
+    public static final Query X_ORDER_IDS = register("xReport.orderIDs", """
+        SELECT orderID
+        FROM ordertest
+        WHERE orderDate >= ? AND orderDate < ? AND locationID = ?
+        ORDER BY orderID;
+    """);
+
+    /** X-Report: discarded stock. */
+    public static final Query X_DISCARDS = register("xReport.discards", """
+        SELECT COALESCE(SUM(restockOrdered),0) AS totalDiscards
+        FROM inventory
+        WHERE restockOrdered > 0;
+    """);
+
+    /** Z-Report: the stored snapshot of a closed day, if any. */
+    public static final Query Z_SNAPSHOT = register("zReport.snapshot", """
+        SELECT * FROM z_report_snapshots WHERE locationID = ? AND businessDay = ?
+    """);
+
+    /** Z-Report: a live preview of a day that has not been closed. */
+    public static final Query Z_PREVIEW = register("zReport.preview", """
+        SELECT * FROM z_report_totals(?, ?, ?)
+    """);
+
+    /** Z-Report: closes a day, storing its snapshot, and returns the snapshot. */
+    public static final Query Z_CLOSE = register("zReport.close", """
+        SELECT * FROM close_business_day(?, ?)
+    """);
+
+    /** Range report: revenue and order count. */
+    public static final Query RANGE_TOTALS = register("rangeReport.totals", """
+        SELECT COALESCE(SUM(orderTotal), 0) AS totalRevenue, COUNT(*) AS totalOrders
+        FROM ordertest
+        WHERE orderDate >= ? AND orderDate < ? AND locationID = ?;
+    """);
+
+    /** Best sellers: the daily per-item counters of one store over a day range. */
+    public static final Query DAILY_ITEM_SALES = register("bestSellers.daily", """
+        SELECT saleDay, menuID, quantity, revenue
+        FROM daily_item_sales
+        WHERE locationID = ? AND saleDay >= ? AND saleDay < ?
+    """);
+
+    /** Best sellers: per-item totals of order lines in a window that is not whole days. */
+    public static final Query WINDOW_ITEM_SALES = register("bestSellers.window", """
+        SELECT oi.menuID, SUM(oi.quantityPurchased) AS quantity,
+               SUM(oi.quantityPurchased * oi.priceAtPurchase) AS revenue
+        FROM orderItem oi
+        JOIN ordertest o ON o.orderID = oi.orderID AND o.orderDate = oi.orderDate
+        WHERE o.orderDate >= ? AND o.orderDate < ? AND o.locationID = ? AND oi.menuID IS NOT NULL
+        GROUP BY oi.menuID
+    """);
+
+    /** Range report: sales per hour bucket. */
+    public static final Query RANGE_HOURLY_SALES = register("rangeReport.hourlySales", """
+        SELECT DATE_TRUNC('hour', orderDate) AS bucket, SUM(orderTotal) AS totalSales
+        FROM ordertest
+        WHERE orderDate >= ? AND orderDate < ? AND locationID = ?
+        GROUP BY bucket
+        ORDER BY bucket;
+    """);
+
+    /** Product usage chart: ingredient usage from recipes. */
+    public static final Query PRODUCT_USAGE = register("productUsage", """
+        SELECT
+            i.inventoryName AS ingredient,
+            i.unit AS unit,
+            ROUND(SUM(mi.menuInfoQuantity * oi.quantityPurchased), 2) AS totalUsed
+        FROM ordertest o
+        JOIN orderItem oi ON o.orderID = oi.orderID AND o.orderDate = oi.orderDate
+        JOIN menuInfo mi ON oi.menuID = mi.menuID
+        JOIN inventory i ON mi.inventoryID = i.inventoryID
+        WHERE o.orderDate >= ? AND o.orderDate < ? AND o.locationID = ?
+        GROUP BY i.inventoryName, i.unit
+        ORDER BY totalUsed DESC;
+    """);
+
+    /** All-stores rollup. */
+    public static final Query STORE_ROLLUP = register("storeRollup",
+        "SELECT locationID, locationName, orderCount, totalSales FROM store_sales_rollup(?, ?);");
+
+    /** Management pack: every order of one store in a window with its lines, in order. */
+    public static final Query PACK_LINES = register("pack.lines", """
+        SELECT o.orderID, o.orderDate, o.orderTotal, oi.menuID, oi.quantityPurchased, oi.priceAtPurchase
+        FROM ordertest o
+        LEFT JOIN orderItem oi ON oi.orderID = o.orderID AND oi.orderDate = o.orderDate
+        WHERE o.orderDate >= ? AND o.orderDate < ? AND o.locationID = ?
+        ORDER BY o.orderDate, o.orderID
+    """);
+
+    /** Management pack: every order of every store in a window with its lines, in order. */
+    public static final Query PACK_LINES_ALL = register("pack.linesAll", """
+        SELECT o.orderID, o.orderDate, o.orderTotal, oi.menuID, oi.quantityPurchased, oi.priceAtPurchase
+        FROM ordertest o
+        LEFT JOIN orderItem oi ON oi.orderID = o.orderID AND oi.orderDate = o.orderDate
+        WHERE o.orderDate >= ? AND o.orderDate < ?
+        ORDER BY o.orderDate, o.orderID
+    """);
+
+    /**
+     * Comparative report: every order of one store in any of a set of disjoint ranges
+     * (parallel arrays of starts and ends) with its lines, in order.
+     */
+    public static final Query COMPARE_LINES = register("compare.lines", """
+        SELECT o.orderID, o.orderDate, o.orderTotal, oi.menuID, oi.quantityPurchased, oi.priceAtPurchase
+        FROM unnest(?::timestamp[], ?::timestamp[]) AS r(rangeStart, rangeEnd)
+        JOIN ordertest o ON o.orderDate >= r.rangeStart AND o.orderDate < r.rangeEnd
+        LEFT JOIN orderItem oi ON oi.orderID = o.orderID AND oi.orderDate = o.orderDate
+        WHERE o.locationID = ?
+        ORDER BY o.orderDate, o.orderID
+    """);
+
+    /** Every recipe line with its ingredient. */
+    public static final Query RECIPES = register("recipes", """
+        SELECT mi.menuID, mi.inventoryID, i.inventoryName, i.unit, mi.menuInfoQuantity
+        FROM menuInfo mi
+        JOIN inventory i ON i.inventoryID = mi.inventoryID
+    """);
+
+    /** Approximate analytics: which days in a range already have sketches. */
+    public static final Query SKETCH_DAYS = register("sketch.days",
+        "SELECT saleDay FROM daily_sketch_days WHERE saleDay >= ? AND saleDay < ?");
+
+    /** Approximate analytics: the stored sketches of every store over a day range. */
+    public static final Query SKETCH_LOAD = register("sketch.load",
+        "SELECT locationID, saleDay, sketch FROM daily_sketches WHERE saleDay >= ? AND saleDay < ?");
+
+    /** Approximate analytics: stores one store's sketches of a day. */
+    public static final Query SKETCH_SAVE = register("sketch.save", """
+        INSERT INTO daily_sketches (locationID, saleDay, orderCount, sketch) VALUES (?, ?, ?, ?)
+        ON CONFLICT (saleDay, locationID) DO UPDATE
+        SET orderCount = EXCLUDED.orderCount, sketch = EXCLUDED.sketch
+    """);
+
+    /** Approximate analytics: marks a day as sketched. */
+    public static final Query SKETCH_MARK_DAY = register("sketch.markDay", """
+        INSERT INTO daily_sketch_days (saleDay) VALUES (?)
+        ON CONFLICT (saleDay) DO UPDATE SET builtAt = NOW()
+    """);
+
+    /** Approximate analytics: every order of every store in a window with its lines, in order. */
+    public static final Query SKETCH_LINES = register("sketch.lines", """
+        SELECT o.locationID, o.orderID, o.orderDate, o.orderTotal, oi.menuID, oi.quantityPurchased
+        FROM ordertest o
+        LEFT JOIN orderItem oi ON oi.orderID = o.orderID AND oi.orderDate = o.orderDate
+        WHERE o.orderDate >= ? AND o.orderDate < ?
+        ORDER BY o.orderDate, o.orderID
+    """);
+
+    /** Precomputed reports: every stored result whose period ends on or after a time. */
+    public static final Query PRECOMPUTED_LOAD = register("precomputed.load", """
+        SELECT reportType, locationID, periodStart, periodEnd, payload
+        FROM precomputed_reports
+        WHERE periodEnd >= ?
+    """);
+
+    /** Precomputed reports: the stored result of one report, if any. */
+    public static final Query PRECOMPUTED_ONE = register("precomputed.one", """
+        SELECT payload
+        FROM precomputed_reports
+        WHERE reportType = ? AND locationID = ? AND periodStart = ? AND periodEnd = ?
+    """);
+
+    /** Precomputed reports: deletes results computed more than a number of days ago. */
+    public static final Query PRECOMPUTED_PRUNE = register("precomputed.prune", """
+        DELETE FROM precomputed_reports WHERE computedAt < NOW() - make_interval(days => ?)
+    """);
+
+    /** Precomputed reports: stores one result, replacing an earlier one for the same key. */
+    public static final Query PRECOMPUTED_SAVE = register("precomputed.save", """
+        INSERT INTO precomputed_reports (reportType, locationID, periodStart, periodEnd, payload)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (reportType, locationID, periodStart, periodEnd) DO UPDATE
+        SET payload = EXCLUDED.payload, computedAt = NOW()
+    """);
+
+    /** Order index: orders above a watermark with their timestamp and store. */
+    public static final Query INDEX_ORDERS = register("index.orders", """
+        SELECT orderID, orderDate, locationID
+        FROM ordertest
+        WHERE orderID > ?
+        ORDER BY orderDate, orderID
+    """);
+
+    /** Order index: the menu items of the orders in a range of order IDs. */
+    public static final Query INDEX_ITEMS = register("index.items", """
+        SELECT orderID, orderDate, menuID
+        FROM orderItem
+        WHERE orderID > ? AND orderID <= ? AND menuID IS NOT NULL
+    """);
+
+    /** Order index: the add-on inventory items of the orders in a range of order IDs. */
+    public static final Query INDEX_MODIFICATIONS = register("index.modifications", """
+        SELECT oi.orderID, oi.orderDate, m.inventoryID
+        FROM modification m
+        JOIN orderItem oi ON oi.orderItemID = m.orderItemID AND oi.orderDate = m.orderDate
+        WHERE oi.orderID > ? AND oi.orderID <= ? AND m.inventoryID IS NOT NULL
+    """);
+
+    /** Order history: the orders with the given (order ID, order date) pairs, newest first, with their items. */
+    public static final Query ORDERS_BY_ID = register("orders.by_id", """
+        SELECT o.orderID AS "Order ID", o.employeeID AS "Employee ID",
+               l.locationName AS "Location", o.orderDate AS "Date",
+               o.orderTotal AS "Total ($)",
+               (SELECT string_agg(mn.menuName, ', ' ORDER BY oi.orderItemID)
+                FROM orderItem oi JOIN menu mn ON mn.menuID = oi.menuID
+                WHERE oi.orderID = o.orderID AND oi.orderDate = o.orderDate) AS "Items"
+        FROM unnest(?::integer[], ?::timestamp[]) AS r(orderID, orderDate)
+        JOIN ordertest o ON o.orderID = r.orderID AND o.orderDate = r.orderDate
+        JOIN locationTable l ON l.locationID = o.locationID
+        ORDER BY o.orderDate DESC, o.orderID DESC
+    """);
+
+    // === REGISTRATION ===
+
+    private static Query register(String name, String sql) {
+        if (!names.add(name)) {
+            throw new IllegalStateException("Duplicate query name: " + name);
+        }
+        return new Query(name, sql);
+    }
+}
@@ -0,0 +1,58 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Hook used by long-running report queries to prepare their statements and report progress.
+ * <p>
+ * Implementations can apply a query timeout, remember the running statement so it can
+ * be cancelled from another thread, and surface step-by-step progress to the UI.
+ * {@link ReportTask} is the implementation used by the manager dashboard.
+ * </p>
+ */
+public interface QueryMonitor {
+
+    /** A monitor that prepares statements as-is and ignores progress. */
+    QueryMonitor NONE = new QueryMonitor() {
+        @Override
+        public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+            return conn.prepareStatement(sql);
+        }
+
+        @Override
+        public void step(int done, int total, String message) { }
+    };
+
+    /**
+     * Prepares a statement for the next step of a report.
+     *
+     * @param conn the connection the report is running on
+     * @param sql  the SQL text to prepare
+     * @return the prepared statement
+     * @throws SQLException if preparing fails or the report has been cancelled
+     */
+    PreparedStatement prepare(Connection conn, String sql) throws SQLException;
+
+    /**
+     * Prepares a registered query for the next step of a report.
+     *
+     * @param conn  the connection the report is running on
+     * @param query the query to prepare
+     * @return the prepared statement
+     * @throws SQLException if preparing fails or the report has been cancelled
+     */
+    default PreparedStatement prepare(Connection conn, Queries.Query query) throws SQLException {
+        return prepare(conn, query.sql());
+    }
+
+    /**
+     * Reports that a report is about to run one of its steps.
+     *
+     * @param done    number of steps already finished
+     * @param total   total number of steps in the report
+     * @param message a short description of the step being started
+     */
+    void step(int done, int total, String message);
+}
@@ -0,0 +1,188 @@
+package app;
+
+import java.sql.SQLException;
+import java.time.*;
+import java.util.*;
+
+/**
+ * In-memory cache for manager report results.
+ * <p>
+ * Entries are keyed by report type, time window and store location. A report whose
+ * window ended before the current business day covers a closed period and is kept
+ * until it is evicted; a report whose window reaches into the current day is dropped
+ * as soon as an order inside its window is committed (see {@link #invalidate(LocalDateTime, int)}),
+ * and otherwise expires after {@link #OPEN_ENTRY_TTL_MILLIS} so orders rung up on
+ * other terminals are eventually picked up.
+ * </p>
+ * <p>
+ * The cache holds at most {@link #MAX_ENTRIES} reports and evicts the least recently
+ * used one when full.
+ * </p>
+ */
+public class ReportCache {
+
+    /** The report sections that can be cached. */
+    public enum ReportType { Z_REPORT, RANGE, PRODUCT_USAGE, STORE_ROLLUP, MANAGEMENT_PACK }
+
+    /**
+     * Identifies one cached report.
+     *
+     * @param type     which report produced the value
+     * @param start    start of the report window (inclusive)
+     * @param end      end of the report window (exclusive)
+     * @param locationID the store the report was generated for, or {@link StoreSession#ALL_LOCATIONS}
+     */
+    public record Key(ReportType type, LocalDateTime start, LocalDateTime end, int locationID) {
+
+        /** Builds a key covering one whole day. */
+        public static Key forDay(ReportType type, LocalDate day, int locationID) {
+            return new Key(type, day.atStartOfDay(), day.plusDays(1).atStartOfDay(), locationID);
+        }
+
+        /** @return {@code true} if an order at {@code time} in store {@code orderLocationID} belongs to this report */
+        boolean covers(LocalDateTime time, int orderLocationID) {
+            return !time.isBefore(start) && time.isBefore(end)
+                && (locationID == orderLocationID || locationID == StoreSession.ALL_LOCATIONS);
+        }
+    }
+
+    /**
+     * Loads a report value on a cache miss.
+     *
+     * @param <T> the report result type
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    /** Maximum number of reports held before the least recently used one is evicted. */
+    public static final int MAX_ENTRIES = 64;
+
+    /** How long a report covering the current day may be served without being reloaded. */
+    public static final long OPEN_ENTRY_TTL_MILLIS = 30_000;
+
+    private record Entry(Object value, boolean closed, long loadedAt) { }
+
+    private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /** The business day considered "open"; reports ending on or before its start are closed. */
+    private static LocalDate currentDay = LocalDate.now();
+
+    private static long hits = 0;
+    private static long misses = 0;
+
+    /**
+     * Sets the business day used to decide whether a report window is closed.
+     *
+     * @param day the current session date
+     */
+    public static synchronized void setCurrentDay(LocalDate day) {
+        currentDay = day;
+    }
+
+    /** @return the current business day, the session date shared by every report */
+    public static synchronized LocalDate currentDay() {
+        return currentDay;
+    }
+
+    /**
+     * Returns the cached value for {@code key}, loading and caching it on a miss.
+     * <p>
+     * The loader runs outside the cache lock, so two concurrent misses for the same
+     * key may both query the database; the later result simply replaces the earlier one.
+     * </p>
+     *
+     * @param key    the report to look up
+     * @param loader computes the report if it is not cached
+     * @param <T>    the report result type
+     * @return the cached or freshly loaded report
+     * @throws SQLException if the loader fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getOrLoad(Key key, Loader<T> loader) throws SQLException {
+        synchronized (ReportCache.class) {
+            Entry entry = entries.get(key);
+            if (entry != null && isFresh(entry)) {
+                hits++;
+                return (T) entry.value();
+            }
+            if (entry != null) entries.remove(key);
+            misses++;
+        }
+
+        T value = loader.load();
+        synchronized (ReportCache.class) {
+            entries.put(key, new Entry(value, isClosed(key), System.currentTimeMillis()));
+        }
+        return value;
+    }
+
+    /**
+     * Caches a report computed elsewhere (see {@link ReportPrecomputer}) unless the key
+     * already holds a fresh value.
+     *
+     * @param key   the report the value belongs to
+     * @param value the report result
+     */
+    public static synchronized void preload(Key key, Object value) {
+        Entry entry = entries.get(key);
+        if (entry != null && isFresh(entry)) return;
+        entries.put(key, new Entry(value, isClosed(key), System.currentTimeMillis()));
+    }
+
+    /**
+     * @param key the report to look up
+     * @return whether {@link #getOrLoad} would answer {@code key} without loading
+     */
+    public static synchronized boolean contains(Key key) {
+        Entry entry = entries.get(key);
+        return entry != null && isFresh(entry);
+    }
+
+    /**
+     * Drops every cached report of the order's store, or of all stores, whose window
+     * contains a newly committed order.
+     *
+     * @param orderTime  the timestamp of the committed order
+     * @param locationID the store the order was placed at
+     */
+    public static synchronized void invalidate(LocalDateTime orderTime, int locationID) {
+        entries.keySet().removeIf(key -> key.covers(orderTime, locationID));
+    }
+
+    /**
+     * Drops every cached report of the given type, regardless of its window.
+     * Used when data outside {@code ordertest} (e.g. inventory) feeds into a report.
+     *
+     * @param type the report type to drop
+     */
+    public static synchronized void invalidate(ReportType type) {
+        entries.keySet().removeIf(key -> key.type() == type);
+    }
+
+    /** Removes all cached reports. */
+    public static synchronized void clear() {
+        entries.clear();
+    }
+
+    /** @return a one-line summary of cache size and hit rate, for logging */
+    public static synchronized String stats() {
+        return String.format("ReportCache: %d entries, %d hits, %d misses", entries.size(), hits, misses);
+    }
+
+    /** @return whether {@code key}'s window ended before the current business day */
+    private static boolean isClosed(Key key) {
+        return !key.end().isAfter(currentDay.atStartOfDay())
+                && !key.end().isAfter(LocalDate.now().atStartOfDay());
+    }
+
+    private static boolean isFresh(Entry entry) {
+        return entry.closed() || System.currentTimeMillis() - entry.loadedAt() < OPEN_ENTRY_TTL_MILLIS;
+    }
+}
@@ -0,0 +1,246 @@
+package app;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the reports a manager opens first thing in the morning ahead of time, and
+ * stores them so the dashboard starts with them already cached.
+ * <p>
+ * For every store the precomputed set is the previous day's Z-Report, the Management Pack
+ * of the last four weeks (weekly sales, peak days, top sellers) and the product usage of
+ * the last week, each over whole days ending at the start of the business day, the
+ * session date held by {@link ReportCache#currentDay()} that the dashboard views use too.
+ * Results are serialized into {@code precomputed_reports} under the same window the
+ * dashboard views use by default, and loaded into {@link ReportCache} when the dashboard
+ * starts and whenever a job finishes. Results no dashboard has stored or reused for
+ * {@link #RETAIN_DAYS} days are deleted; dashboards may run on different session dates,
+ * so age rather than one dashboard's business day decides what is stale.
+ * </p>
+ * <p>
+ * The session date does not move while the dashboard runs, so the set is computed once,
+ * shortly after startup after a random delay, so dashboards at different stores do not
+ * all hit the database at once. Jobs run one at a time on a single minimum-priority
+ * thread through the {@code REPORT} work class. A stored row also records that its job
+ * is done: before computing, each job checks {@code precomputed_reports}, and a result
+ * stored by another dashboard is loaded instead. While orders arrive at peak rate the
+ * remaining jobs are put off, and a failed job is retried on a later attempt.
+ * </p>
+ */
+public class ReportPrecomputer {
+
+    /** Largest random delay before the run after startup, in seconds. */
+    private static final int STARTUP_JITTER_SECONDS = 120;
+
+    /** How long the remaining jobs are put off when the store is busy or a job failed. */
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(30);
+
+    /** Days a stored result is kept after it was last computed. */
+    private static final int RETAIN_DAYS = 7;
+
+    /** Days covered by the precomputed Management Pack and product usage. */
+    public static final int PACK_DAYS = 28;
+    public static final int USAGE_DAYS = 7;
+
+    /** Classes a stored payload may contain; anything else is rejected while reading. */
+    private static final ObjectInputFilter PAYLOAD_FILTER = ObjectInputFilter.Config.createFilter("app.*;java.base/*;java.sql/*;!*");
+
+    /** One report to precompute: where it is cached and how it is computed. */
+    private record Job(ReportCache.Key key, ReportCache.Loader<Object> loader) { }
+
+    private static ScheduledExecutorService worker = null;
+
+    /** Keys of results already stored; only touched on the worker thread. */
+    private static final Set<ReportCache.Key> stored = new HashSet<>();
+
+    // === LIFECYCLE ===
+
+    /**
+     * Loads stored results into the report cache and schedules the run of the missing jobs.
+     * Does nothing if already started.
+     */
+    public static synchronized void start() {
+        if (worker != null) return;
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "report-precompute");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        worker.execute(ReportPrecomputer::preload);
+        schedule(Duration.ofSeconds(ThreadLocalRandom.current().nextInt(15, STARTUP_JITTER_SECONDS + 1)));
+    }
+
+    private static void schedule(Duration delay) {
+        worker.schedule(ReportPrecomputer::run, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // === JOBS ===
+
+    /** @return the precomputed reports of one store for the business day {@code today} */
+    private static List<Job> jobs(int locationID, LocalDate today) {
+        LocalDate yesterday = today.minusDays(1);
+        LocalDateTime midnight = today.atStartOfDay();
+        LocalDateTime usageFrom = today.minusDays(USAGE_DAYS).atStartOfDay();
+        return List.of(
+            new Job(ReportCache.Key.forDay(ReportCache.ReportType.Z_REPORT, yesterday, locationID), () -> {
+                try (Connection conn = DatabaseConnector.getReportingConnection()) {
+                    return SalesReports.zReport(conn, QueryMonitor.NONE, locationID, yesterday);
+                }
+            }),
+            new Job(new ReportCache.Key(ReportCache.ReportType.MANAGEMENT_PACK,
+                    today.minusDays(PACK_DAYS).atStartOfDay(), midnight, locationID),
+                () -> SalesPackEngine.build(QueryMonitor.NONE, locationID, today.minusDays(PACK_DAYS), yesterday)),
+            new Job(new ReportCache.Key(ReportCache.ReportType.PRODUCT_USAGE, usageFrom, midnight, locationID), () -> {
+                try (Connection conn = DatabaseConnector.getReportingConnection()) {
+                    return SalesReports.productUsage(conn, QueryMonitor.NONE, locationID, usageFrom, midnight);
+                }
+            })
+        );
+    }
+
+    /**
+     * Runs every job of the business day's set that has no stored result yet, and
+     * schedules a retry unless all jobs are done.
+     */
+    private static void run() {
+        boolean done = false;
+        try {
+            done = runMissing();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Report precompute failed, will retry: " + e.getMessage());
+        }
+        if (!done) schedule(RETRY_DELAY);
+    }
+
+    /** @return whether every job is done; {@code false} if the store got busy part-way */
+    private static boolean runMissing() throws SQLException {
+        LocalDate today = ReportCache.currentDay();
+        prune();
+        int computed = 0;
+        for (int locationID : StoreSession.locations().keySet()) {
+            for (Job job : jobs(locationID, today)) {
+                if (stored.contains(job.key())) continue;
+                Object existing = loadStored(job.key());
+                if (existing != null) {
+                    // Another dashboard computed it since this one started
+                    stored.add(job.key());
+                    ReportCache.preload(job.key(), existing);
+                    continue;
+                }
+                if (WorkloadScheduler.isPeak()) {
+                    System.out.println("Report precompute paused at peak; " + computed + " reports stored so far");
+                    return false;
+                }
+                Object result = job.loader().load();
+                save(job.key(), result);
+                stored.add(job.key());
+                ReportCache.preload(job.key(), result);
+                computed++;
+            }
+        }
+        if (computed > 0) System.out.println("Report precompute stored " + computed + " reports for " + today.minusDays(1));
+        return true;
+    }
+
+    // === STORAGE ===
+
+    /** Deletes stored results not computed for {@link #RETAIN_DAYS} days, whichever dashboard stored them. */
+    private static void prune() throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT);
+             PreparedStatement ps = Queries.PRECOMPUTED_PRUNE.prepare(conn)) {
+            ps.setInt(1, RETAIN_DAYS);
+            int pruned = ps.executeUpdate();
+            if (pruned > 0) System.out.println("Pruned " + pruned + " precomputed reports");
+        }
+    }
+
+    /** @return the stored result of a job, or {@code null} if there is none or it cannot be read */
+    private static Object loadStored(ReportCache.Key key) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT);
+             PreparedStatement ps = Queries.PRECOMPUTED_ONE.prepare(conn)) {
+            ps.setString(1, key.type().name());
+            ps.setInt(2, key.locationID());
+            ps.setTimestamp(3, Timestamp.valueOf(key.start()));
+            ps.setTimestamp(4, Timestamp.valueOf(key.end()));
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? deserialize(rs.getBytes("payload")) : null;
+        }
+    }
+
+    private static void save(ReportCache.Key key, Object result) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT);
+             PreparedStatement ps = Queries.PRECOMPUTED_SAVE.prepare(conn)) {
+            ps.setString(1, key.type().name());
+            ps.setInt(2, key.locationID());
+            ps.setTimestamp(3, Timestamp.valueOf(key.start()));
+            ps.setTimestamp(4, Timestamp.valueOf(key.end()));
+            ps.setBytes(5, serialize(result));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Loads every stored result whose window ends on the business day or later into the
+     * report cache, and remembers its key so the catch-up run skips it.
+     */
+    private static void preload() {
+        LocalDateTime since = ReportCache.currentDay().atStartOfDay();
+        int loaded = 0;
+        try (Connection conn = DatabaseConnector.getReportingConnection();
+             PreparedStatement ps = Queries.PRECOMPUTED_LOAD.prepare(conn)) {
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                ReportCache.ReportType type;
+                try {
+                    type = ReportCache.ReportType.valueOf(rs.getString("reportType"));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                ReportCache.Key key = new ReportCache.Key(type, rs.getTimestamp("periodStart").toLocalDateTime(),
+                        rs.getTimestamp("periodEnd").toLocalDateTime(), rs.getInt("locationID"));
+                Object result = deserialize(rs.getBytes("payload"));
+                if (result == null) continue;
+                stored.add(key);
+                ReportCache.preload(key, result);
+                loaded++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to load precomputed reports: " + e.getMessage());
+        }
+        if (loaded > 0) System.out.println("Loaded " + loaded + " precomputed reports");
+    }
+
+    private static byte[] serialize(Object result) throws SQLException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(result);
+        } catch (IOException e) {
+            throw new SQLException("Report result cannot be stored: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** @return the stored result, or {@code null} if it was written by an incompatible version */
+    private static Object deserialize(byte[] payload) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            in.setObjectInputFilter(PAYLOAD_FILTER);
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
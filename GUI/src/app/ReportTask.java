@@ -0,0 +1,98 @@
+package app;
+
+import javafx.concurrent.Task;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background task that runs one manager report off the JavaFX application thread.
+ * <p>
+ * Every statement prepared through the task gets a per-query timeout of
+ * {@link #QUERY_TIMEOUT_SECONDS}. Cancelling the task (from the Cancel button or
+ * because the manager switched views) calls {@link Statement#cancel()} on every
+ * statement the report has prepared, including those of parallel slices (see
+ * {@link SalesPackEngine}), so the database stops scanning right away and the report
+ * body's try-with-resources releases its connections.
+ * </p>
+ *
+ * @param <T> the report result type
+ */
+public class ReportTask<T> extends Task<T> implements QueryMonitor {
+
+    /** Seconds a single report query may run before the driver cancels it. */
+    public static final int QUERY_TIMEOUT_SECONDS = 30;
+
+    /**
+     * The work performed by a report task.
+     *
+     * @param <T> the report result type
+     */
+    @FunctionalInterface
+    public interface Body<T> {
+        T run(QueryMonitor monitor) throws SQLException;
+    }
+
+    private final Body<T> body;
+    private final Set<Statement> prepared = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a task that runs {@code body} when started.
+     *
+     * @param body the report work, which must prepare its statements through the given monitor
+     */
+    public ReportTask(Body<T> body) {
+        this.body = body;
+    }
+
+    @Override
+    protected T call() throws Exception {
+        try {
+            return body.run(this);
+        } finally {
+            prepared.clear();
+        }
+    }
+
+    @Override
+    public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        if (isCancelled()) throw new SQLException("Report cancelled.");
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+        prepared.add(ps);
+        // cancel() marks the task before it walks the set, so a cancel that raced the
+        // first check either sees this statement or is seen here
+        if (isCancelled()) {
+            prepared.remove(ps);
+            ps.close();
+            throw new SQLException("Report cancelled.");
+        }
+        return ps;
+    }
+
+    @Override
+    public void step(int done, int total, String message) {
+        updateProgress(done, total);
+        updateMessage(message);
+    }
+
+    /**
+     * Cancels the task and aborts every statement it has prepared.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        for (Statement running : prepared) {
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                System.err.println("Failed to cancel report query: " + e.getMessage());
+            }
+        }
+        return cancelled;
+    }
+}
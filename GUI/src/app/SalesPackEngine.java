@@ -0,0 +1,449 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the whole management pack (weekly orders, hourly distribution, peak days, top
+ * sellers and ingredient usage) from a single pass over the order lines.
+ * <p>
+ * Each of those reports in {@code queries.sql} is its own {@code GROUP BY} over
+ * {@code ordertest} or {@code orderItem}, so a full pack used to scan the history five
+ * times. Here one cursor streams every order of the window joined to its lines, and
+ * each row is fed to all aggregators at once. Aggregators keep their running totals in
+ * arrays indexed directly by hour, ISO week, day of the window or menu ID, so the hot
+ * loop does no hashing and no boxing. Ingredient usage is derived afterwards from the
+ * per-item quantities and the recipes, without touching the order tables again.
+ * </p>
+ * <p>
+ * The window is split by date into up to {@value #MAX_SLICES} slices that are scanned in
+ * parallel, each on its own reporting connection, and the partial aggregates are merged
+ * in date order. During peak ordering the {@link WorkloadScheduler} only lets one report
+ * run, so a pack started during peak is scanned as a single slice, and if peak ordering
+ * begins while a pack is running, its remaining slices wait and scan one at a time
+ * rather than being shed.
+ * </p>
+ */
+public class SalesPackEngine {
+
+    /** Most slices scanned at once; matches the reports {@link WorkloadScheduler} runs at once off-peak. */
+    private static final int MAX_SLICES = 3;
+
+    /** Rows fetched per round trip from each slice's cursor. */
+    private static final int FETCH_SIZE = 5_000;
+
+    /** Number of peak days and top sellers in the pack. */
+    private static final int TOP_N = 10;
+
+    /** How often a slice waiting out peak ordering re-checks whether it may scan. */
+    private static final long PEAK_RECHECK_MILLIS = 1_000;
+
+    private static final ExecutorService pool = Executors.newFixedThreadPool(MAX_SLICES, r -> {
+        Thread t = new Thread(r, "sales-pack-slice");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // === RESULT TYPES ===
+
+    /**
+     * Sales of one menu item.
+     *
+     * @param menuName the item name
+     * @param quantity units sold
+     * @param revenue  sum of quantity times price at purchase
+     */
+    public record ItemSales(String menuName, double quantity, double revenue) implements java.io.Serializable { }
+
+    /**
+     * The management pack.
+     *
+     * @param weeklyOrders   orders per ISO week number
+     * @param hourlyOrders   orders per hour of day (24 entries)
+     * @param hourlySales    sales per hour of day (24 entries)
+     * @param peakDays       the best days by sales, highest first
+     * @param topSellers     the best-selling items by quantity, highest first
+     * @param inventoryUsage ingredient usage implied by the items sold, highest first
+     * @param orders         orders scanned
+     * @param lines          order lines scanned
+     * @param slices         date slices scanned in parallel
+     * @param millis         wall time of the scan
+     */
+    public record Pack(SortedMap<Integer, Long> weeklyOrders, long[] hourlyOrders, double[] hourlySales,
+                       List<ColumnarStore.DaySales> peakDays, List<ItemSales> topSellers,
+                       List<SalesReports.UsageRow> inventoryUsage, long orders, long lines, int slices, long millis)
+            implements java.io.Serializable { }
+
+    // === AGGREGATORS ===
+
+    /** The current cursor row, reused for every row so the scan allocates nothing per row. */
+    private static final class Row {
+        boolean newOrder;
+        int dayIndex;
+        int hour;
+        int week;
+        long totalCents;
+        int menuID;
+        double quantity;
+        double priceAtPurchase;
+        boolean hasLine;
+    }
+
+    /** One report fed by the shared cursor. */
+    private abstract static class Aggregator {
+        /** Folds one row into the running totals. */
+        abstract void accept(Row row);
+
+        /** Adds another slice's totals of the same aggregator into this one. */
+        abstract void merge(Aggregator other);
+    }
+
+    /** Orders per ISO week. */
+    private static final class WeeklyOrders extends Aggregator {
+        final long[] orders = new long[54];
+
+        @Override
+        void accept(Row row) {
+            if (row.newOrder) orders[row.week]++;
+        }
+
+        @Override
+        void merge(Aggregator other) {
+            long[] theirs = ((WeeklyOrders) other).orders;
+            for (int i = 0; i < orders.length; i++) orders[i] += theirs[i];
+        }
+    }
+
+    /** Orders and sales per hour of day. */
+    private static final class HourlySales extends Aggregator {
+        final long[] orders = new long[24];
+        final long[] cents = new long[24];
+
+        @Override
+        void accept(Row row) {
+            if (!row.newOrder) return;
+            orders[row.hour]++;
+            cents[row.hour] += row.totalCents;
+        }
+
+        @Override
+        void merge(Aggregator other) {
+            HourlySales theirs = (HourlySales) other;
+            for (int h = 0; h < 24; h++) {
+                orders[h] += theirs.orders[h];
+                cents[h] += theirs.cents[h];
+            }
+        }
+    }
+
+    /** Orders and sales per day of the window. */
+    private static final class DailySales extends Aggregator {
+        final long[] orders;
+        final long[] cents;
+
+        DailySales(int days) {
+            orders = new long[days];
+            cents = new long[days];
+        }
+
+        @Override
+        void accept(Row row) {
+            if (!row.newOrder) return;
+            orders[row.dayIndex]++;
+            cents[row.dayIndex] += row.totalCents;
+        }
+
+        @Override
+        void merge(Aggregator other) {
+            DailySales theirs = (DailySales) other;
+            for (int d = 0; d < orders.length; d++) {
+                orders[d] += theirs.orders[d];
+                cents[d] += theirs.cents[d];
+            }
+        }
+    }
+
+    /** Quantity and revenue per menu ID; arrays grow to the highest menu ID seen. */
+    private static final class ItemTotals extends Aggregator {
+        double[] quantity = new double[64];
+        double[] revenue = new double[64];
+
+        private void ensure(int menuID) {
+            if (menuID < quantity.length) return;
+            int size = Math.max(menuID + 1, quantity.length * 2);
+            quantity = Arrays.copyOf(quantity, size);
+            revenue = Arrays.copyOf(revenue, size);
+        }
+
+        @Override
+        void accept(Row row) {
+            if (!row.hasLine || row.menuID < 0) return;
+            ensure(row.menuID);
+            quantity[row.menuID] += row.quantity;
+            revenue[row.menuID] += row.quantity * row.priceAtPurchase;
+        }
+
+        @Override
+        void merge(Aggregator other) {
+            ItemTotals theirs = (ItemTotals) other;
+            ensure(theirs.quantity.length - 1);
+            for (int m = 0; m < theirs.quantity.length; m++) {
+                quantity[m] += theirs.quantity[m];
+                revenue[m] += theirs.revenue[m];
+            }
+        }
+    }
+
+    /** Every aggregator of one slice, plus its row counts. */
+    private static final class Partial {
+        final WeeklyOrders weekly = new WeeklyOrders();
+        final HourlySales hourly = new HourlySales();
+        final DailySales daily;
+        final ItemTotals items = new ItemTotals();
+        final Aggregator[] all;
+        long orders;
+        long lines;
+
+        Partial(int days) {
+            daily = new DailySales(days);
+            all = new Aggregator[] {weekly, hourly, daily, items};
+        }
+
+        Partial merge(Partial other) {
+            for (int i = 0; i < all.length; i++) all[i].merge(other.all[i]);
+            orders += other.orders;
+            lines += other.lines;
+            return this;
+        }
+    }
+
+    // === ENGINE ===
+
+    /**
+     * Lets the slices of one pack run in parallel only while ordering is quiet. During peak
+     * ordering each slice waits until no other slice of its pack is scanning, so the pack
+     * slows down to one report connection instead of having its extra slices shed by the
+     * {@link WorkloadScheduler}.
+     */
+    private static final class PeakGate {
+        private int scanning = 0;
+
+        synchronized void enter() throws InterruptedException {
+            while (scanning > 0 && WorkloadScheduler.isPeak()) wait(PEAK_RECHECK_MILLIS);
+            scanning++;
+        }
+
+        synchronized void exit() {
+            scanning--;
+            notifyAll();
+        }
+    }
+
+    /** Scans one date slice of the window. */
+    private static final class Slice implements Callable<Partial> {
+        private final QueryMonitor monitor;
+        private final int locationID;
+        private final LocalDate windowStart;
+        private final int days;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final PeakGate gate;
+        private final AtomicInteger done;
+        private final int total;
+
+        Slice(QueryMonitor monitor, int locationID, LocalDate windowStart, int days,
+              LocalDate from, LocalDate to, PeakGate gate, AtomicInteger done, int total) {
+            this.monitor = monitor;
+            this.locationID = locationID;
+            this.windowStart = windowStart;
+            this.days = days;
+            this.from = from;
+            this.to = to;
+            this.gate = gate;
+            this.done = done;
+            this.total = total;
+        }
+
+        @Override
+        public Partial call() throws SQLException, InterruptedException {
+            gate.enter();
+            try {
+                Partial partial = scan(monitor, locationID, windowStart, days, from, to);
+                monitor.step(done.incrementAndGet(), total, "Scanned " + from + " to " + to.minusDays(1));
+                return partial;
+            } finally {
+                gate.exit();
+            }
+        }
+    }
+
+    /**
+     * Builds the management pack for a date window in one pass over the order lines.
+     *
+     * @param monitor    prepares statements and receives per-slice progress
+     * @param locationID the store to report on, or {@link StoreSession#ALL_LOCATIONS}
+     * @param start      the first day of the window
+     * @param end        the last day of the window (inclusive)
+     * @return the pack
+     * @throws SQLException if any slice fails
+     */
+    public static Pack build(QueryMonitor monitor, int locationID, LocalDate start, LocalDate end) throws SQLException {
+        long started = System.nanoTime();
+        LocalDate stop = end.plusDays(1);
+        int days = (int) ChronoUnit.DAYS.between(start, stop);
+        int slices = WorkloadScheduler.isPeak() ? 1 : Math.min(Math.min(MAX_SLICES, Runtime.getRuntime().availableProcessors()), days);
+        int sliceDays = (days + slices - 1) / slices;
+        int total = (days + sliceDays - 1) / sliceDays;
+
+        monitor.step(0, total, "Scanning " + total + (total == 1 ? " slice" : " slices"));
+        Partial merged = scanSlices(monitor, locationID, start, stop, days, sliceDays, total);
+
+        // Derived reports, from the merged arrays only
+        SortedMap<Integer, Long> weekly = new TreeMap<>();
+        for (int w = 0; w < merged.weekly.orders.length; w++) {
+            if (merged.weekly.orders[w] > 0) weekly.put(w, merged.weekly.orders[w]);
+        }
+
+        double[] hourlySales = new double[24];
+        for (int h = 0; h < 24; h++) hourlySales[h] = merged.hourly.cents[h] / 100.0;
+
+        Integer[] byDay = new Integer[days];
+        for (int d = 0; d < days; d++) byDay[d] = d;
+        Arrays.sort(byDay, Comparator.comparingLong((Integer d) -> merged.daily.cents[d]).reversed());
+        List<ColumnarStore.DaySales> peakDays = new ArrayList<>();
+        for (int i = 0; i < days && peakDays.size() < TOP_N && merged.daily.orders[byDay[i]] > 0; i++) {
+            int d = byDay[i];
+            peakDays.add(new ColumnarStore.DaySales(start.plusDays(d), merged.daily.orders[d], merged.daily.cents[d] / 100.0));
+        }
+
+        double[] quantity = merged.items.quantity;
+        List<ItemSales> topSellers = new ArrayList<>();
+        for (int m = 0; m < quantity.length; m++) {
+            if (quantity[m] > 0) topSellers.add(new ItemSales(SalesReports.menuName(m), quantity[m], merged.items.revenue[m]));
+        }
+        topSellers.sort(Comparator.comparingDouble(ItemSales::quantity).reversed());
+
+        return new Pack(Collections.unmodifiableSortedMap(weekly), merged.hourly.orders, hourlySales,
+                List.copyOf(peakDays), List.copyOf(topSellers.subList(0, Math.min(TOP_N, topSellers.size()))),
+                inventoryUsage(monitor, quantity), merged.orders, merged.lines, total,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Scans the window slice by slice on the pool and merges the partial aggregates in date order. */
+    private static Partial scanSlices(QueryMonitor monitor, int locationID, LocalDate start, LocalDate stop,
+                                      int days, int sliceDays, int total) throws SQLException {
+        PeakGate gate = new PeakGate();
+        AtomicInteger done = new AtomicInteger();
+        List<Future<Partial>> scans = new ArrayList<>();
+        for (LocalDate from = start; from.isBefore(stop); from = from.plusDays(sliceDays)) {
+            LocalDate to = from.plusDays(sliceDays).isBefore(stop) ? from.plusDays(sliceDays) : stop;
+            scans.add(pool.submit(new Slice(monitor, locationID, start, days, from, to, gate, done, total)));
+        }
+
+        Partial merged = null;
+        try {
+            for (Future<Partial> scan : scans) {
+                Partial partial = scan.get();
+                merged = merged == null ? partial : merged.merge(partial);
+            }
+            return merged;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException failure) throw failure;
+            throw new SQLException("Management pack scan failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Management pack cancelled.", e);
+        } finally {
+            // Stops the remaining slices after a failure or cancellation; finished ones are unaffected
+            for (Future<Partial> scan : scans) scan.cancel(true);
+        }
+    }
+
+    /** Streams one slice's orders and lines through a fresh set of aggregators. */
+    private static Partial scan(QueryMonitor monitor, int locationID, LocalDate windowStart, int days,
+                                LocalDate from, LocalDate to) throws SQLException {
+        Partial partial = new Partial(days);
+        Row row = new Row();
+        long windowStartDay = windowStart.toEpochDay();
+        long cachedDay = Long.MIN_VALUE;
+        int cachedWeek = 0;
+        int lastOrderID = 0;
+        long lastSecond = Long.MIN_VALUE;
+
+        try (Connection conn = DatabaseConnector.getReportingConnection()) {
+            // Streaming with a fetch size needs a transaction in pgjdbc
+            conn.setAutoCommit(false);
+            boolean all = locationID == StoreSession.ALL_LOCATIONS;
+            try (PreparedStatement ps = monitor.prepare(conn, all ? Queries.PACK_LINES_ALL : Queries.PACK_LINES)) {
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                ps.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+                if (!all) ps.setInt(3, locationID);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    int orderID = rs.getInt(1);
+                    LocalDateTime orderDate = rs.getTimestamp(2).toLocalDateTime();
+                    long second = orderDate.toEpochSecond(ZoneOffset.UTC);
+                    row.newOrder = orderID != lastOrderID || second != lastSecond;
+                    if (row.newOrder) {
+                        lastOrderID = orderID;
+                        lastSecond = second;
+                        long day = Math.floorDiv(second, 86_400);
+                        if (day != cachedDay) {
+                            cachedDay = day;
+                            cachedWeek = LocalDate.ofEpochDay(day).get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+                        }
+                        row.dayIndex = (int) (day - windowStartDay);
+                        row.week = cachedWeek;
+                        row.hour = orderDate.getHour();
+                        row.totalCents = Math.round(rs.getDouble(3) * 100);
+                        partial.orders++;
+                    }
+                    row.menuID = rs.getInt(4);
+                    row.hasLine = !rs.wasNull();
+                    if (row.hasLine) {
+                        row.quantity = rs.getDouble(5);
+                        row.priceAtPurchase = rs.getDouble(6);
+                        partial.lines++;
+                    }
+                    for (Aggregator aggregator : partial.all) aggregator.accept(row);
+                }
+            }
+        }
+        return partial;
+    }
+
+    /** Multiplies the quantity sold of every menu item into its recipe. */
+    private static List<SalesReports.UsageRow> inventoryUsage(QueryMonitor monitor, double[] quantity) throws SQLException {
+        Map<String, Double> used = new HashMap<>();
+        try (Connection conn = DatabaseConnector.getReportingConnection();
+             PreparedStatement ps = monitor.prepare(conn, Queries.RECIPES)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int menuID = rs.getInt("menuID");
+                if (menuID < 0 || menuID >= quantity.length || quantity[menuID] == 0) continue;
+                String label = rs.getString("inventoryName") + " (" + rs.getString("unit") + ")";
+                used.merge(label, quantity[menuID] * rs.getDouble("menuInfoQuantity"), Double::sum);
+            }
+        }
+        List<SalesReports.UsageRow> rows = new ArrayList<>();
+        used.forEach((label, amount) -> rows.add(new SalesReports.UsageRow(label, Math.round(amount * 100) / 100.0)));
+        rows.sort(Comparator.comparingDouble(SalesReports.UsageRow::used).reversed());
+        return List.copyOf(rows);
+    }
+}
@@ -0,0 +1,418 @@
+package app;
+
+import java.sql.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Query layer for the manager sales reports.
+ * <p>
+ * Each method runs the SQL behind one report section of {@link ManagerController}
+ * and returns a plain result object instead of writing into JavaFX controls, so
+ * the results can be cached in {@link ReportCache} and rendered more than once.
+ * </p>
+ * <p>
+ * Every report except {@link #storeRollup} covers a single store, filtered on
+ * {@code ordertest.locationID} so the {@code (locationID, orderDate)} index only
+ * reads that store's rows.
+ * </p>
+ * <p>
+ * Date filters are always written as half-open ranges on the raw {@code orderDate}
+ * column, never as {@code DATE(orderDate) = ?}, so Postgres can use the
+ * {@code orderDate} indexes and prune the monthly partitions of {@code ordertest}
+ * and {@code orderItem}. Joins between the two also match on {@code orderDate}, which
+ * lets the planner join partition by partition.
+ * </p>
+ * <p>
+ * Statements are prepared through a {@link QueryMonitor} so a running report can be
+ * timed out, cancelled and report its progress (see {@link ReportTask}). The SQL itself
+ * lives in {@link Queries}, so repeated reports reuse each pooled connection's
+ * server-side prepared statements.
+ * </p>
+ */
+public class SalesReports {
+
+    // === RESULT TYPES ===
+
+    /**
+     * Result of the X-Report (hourly sales for one day).
+     *
+     * @param hourlySales  sales totals keyed by hour of day, in ascending hour order
+     * @param totalSales   sum of all hourly sales
+     * @param totalReturns absolute value of all negative order totals
+     * @param voidCount    number of orders with a zero total
+     * @param discards     total of positive {@code restockOrdered} values in inventory
+     * @param orderIDs     IDs of the orders counted, ascending
+     */
+    public record XReport(SortedMap<Integer, Double> hourlySales, double totalSales,
+                          double totalReturns, int voidCount, double discards, int[] orderIDs) {
+
+        /** @return whether the order with this ID is already counted in the report */
+        public boolean covers(int orderID) {
+            return Arrays.binarySearch(orderIDs, orderID) >= 0;
+        }
+    }
+
+    /**
+     * Result of the Z-Report (end-of-day summary), either a stored snapshot of a closed day
+     * or a live preview of a day that has not been closed yet.
+     *
+     * @param totalSales          net sales: sum of all order totals for the day
+     * @param totalOrders         number of orders processed
+     * @param firstOrder          timestamp of the first order, or {@code null} if none
+     * @param lastOrder           timestamp of the last order, or {@code null} if none
+     * @param grossSales          sum of positive order totals
+     * @param returns             refunded amount (negative order totals)
+     * @param returnCount         number of refunds
+     * @param voidCount           number of voided (zero-total) orders
+     * @param voidValue           list value of the voided orders' lines
+     * @param discounts           list value charged below list price on paid orders
+     * @param modificationCharges charges for drink modifications on paid orders
+     * @param closedAt            when the day was closed, or {@code null} for a preview
+     */
+    public record ZReport(double totalSales, int totalOrders, Timestamp firstOrder, Timestamp lastOrder,
+                          double grossSales, double returns, int returnCount, int voidCount, double voidValue,
+                          double discounts, double modificationCharges, Timestamp closedAt) implements java.io.Serializable {
+
+        /** @return whether this is the immutable snapshot of a closed day */
+        public boolean closed() {
+            return closedAt != null;
+        }
+    }
+
+    /**
+     * Result of a date range sales report.
+     *
+     * @param totalRevenue sum of order totals in the range
+     * @param totalOrders  number of orders in the range
+     * @param topItems     the five highest grossing menu items
+     * @param hourlySales  sales per hour across the whole range
+     */
+    public record RangeReport(double totalRevenue, int totalOrders, List<ManagerController.TopItem> topItems,
+                              SalesSeries hourlySales) { }
+
+    /**
+     * A sales time series in column form, ready to be plotted by {@link DownsampledSeries}.
+     *
+     * @param hours hours since the epoch (local time) of each bucket, ascending
+     * @param sales sales total of each bucket
+     */
+    public record SalesSeries(double[] hours, double[] sales) { }
+
+    /**
+     * A single bar of the product usage chart.
+     *
+     * @param label ingredient name followed by its unit
+     * @param used  total quantity used in the selected window
+     */
+    public record UsageRow(String label, double used) implements java.io.Serializable { }
+
+    /**
+     * One store's line of the cross-store rollup.
+     *
+     * @param locationID   the store's location ID
+     * @param locationName the store's name
+     * @param orderCount   number of orders in the window
+     * @param totalSales   sum of order totals in the window
+     */
+    public record StoreSales(int locationID, String locationName, int orderCount, double totalSales) { }
+
+    // === QUERIES ===
+
+    /**
+     * Computes the X-Report for a single day.
+     * <p>
+     * All figures are read in one repeatable-read transaction, together with the IDs of
+     * the orders they count, so a live view can fold in later {@link OrderFeed} events
+     * without counting an order twice.
+     * </p>
+     *
+     * @param conn       an open database connection
+     * @param monitor    prepares statements and receives progress updates
+     * @param locationID the store to report on
+     * @param day        the day to report on
+     * @return the hourly sales, returns, voids and discards for {@code day}
+     * @throws SQLException if any of the report queries fail
+     */
+    public static XReport xReport(Connection conn, QueryMonitor monitor, int locationID, LocalDate day) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        int isolation = conn.getTransactionIsolation();
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try {
+            XReport report = xReportSnapshot(conn, monitor, locationID, day);
+            conn.commit();
+            return report;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setTransactionIsolation(isolation);
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static XReport xReportSnapshot(Connection conn, QueryMonitor monitor, int locationID, LocalDate day) throws SQLException {
+        SortedMap<Integer, Double> hourly = new TreeMap<>();
+        double totalSales = 0;
+        double returns = 0;
+        int voids = 0;
+        double discards = 0;
+        int[] orderIDs;
+
+        monitor.step(0, 5, "Hourly sales");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.X_HOURLY_SALES)) {
+            bindDay(ps, 1, day);
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                double sales = rs.getDouble("totalSales");
+                totalSales += sales;
+                hourly.put(rs.getInt("hour"), sales);
+            }
+        }
+
+        monitor.step(1, 5, "Returns");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.X_RETURNS)) {
+            bindDay(ps, 1, day);
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) returns = Math.abs(rs.getDouble("totalReturns"));
+        }
+
+        monitor.step(2, 5, "Voids");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.X_VOIDS)) {
+            bindDay(ps, 1, day);
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) voids = rs.getInt("voidCount");
+        }
+
+        monitor.step(3, 5, "Discards");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.X_DISCARDS);
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) discards = rs.getDouble("totalDiscards");
+        }
+
+        monitor.step(4, 5, "Orders");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.X_ORDER_IDS)) {
+            bindDay(ps, 1, day);
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            List<Integer> ids = new ArrayList<>();
+            while (rs.next()) ids.add(rs.getInt("orderID"));
+            orderIDs = ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        monitor.step(5, 5, "Done");
+        return new XReport(Collections.unmodifiableSortedMap(hourly), totalSales, returns, voids, discards, orderIDs);
+    }
+
+    /**
+     * Returns the Z-Report of a single day.
+     * <p>
+     * A closed day is answered from its stored snapshot with one primary-key lookup and
+     * is never recomputed. A day that has not been closed is computed as a preview by the
+     * same database function that {@link #closeDay} stores.
+     * </p>
+     *
+     * @param conn       an open database connection
+     * @param monitor    prepares statements and receives progress updates
+     * @param locationID the store to report on
+     * @param day        the day to summarize
+     * @return the snapshot, or a preview if the day is still open
+     * @throws SQLException if a query fails
+     */
+    public static ZReport zReport(Connection conn, QueryMonitor monitor, int locationID, LocalDate day) throws SQLException {
+        monitor.step(0, 2, "Closed-day snapshot");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.Z_SNAPSHOT)) {
+            ps.setInt(1, locationID);
+            ps.setDate(2, java.sql.Date.valueOf(day));
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) return readZReport(rs, rs.getTimestamp("closedAt"));
+        }
+
+        monitor.step(1, 2, "Daily totals");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.Z_PREVIEW)) {
+            ps.setInt(1, locationID);
+            bindDay(ps, 2, day);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            return readZReport(rs, null);
+        }
+    }
+
+    /**
+     * Closes a store's business day: computes its Z-Report once and stores it as an
+     * immutable snapshot. Closing a day that is already closed returns the original
+     * snapshot unchanged. Only days before the current business day can be closed, since
+     * the registers are still taking orders for it; once a day is closed, the database
+     * rejects further orders for it.
+     *
+     * @param conn        a connection to the primary database
+     * @param locationID  the store
+     * @param day         the day to close
+     * @param businessDay the current business day
+     * @return the stored snapshot
+     * @throws SQLException if the day is not over yet or cannot be closed
+     */
+    public static ZReport closeDay(Connection conn, int locationID, LocalDate day, LocalDate businessDay) throws SQLException {
+        if (!day.isBefore(businessDay)) {
+            throw new SQLException("Only days before " + businessDay + " can be closed; " + day + " is still open for orders.");
+        }
+        try (PreparedStatement ps = Queries.Z_CLOSE.prepare(conn)) {
+            ps.setInt(1, locationID);
+            ps.setDate(2, java.sql.Date.valueOf(day));
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) throw new SQLException("Closing " + day + " returned no snapshot.");
+            return readZReport(rs, rs.getTimestamp("closedAt"));
+        }
+    }
+
+    private static ZReport readZReport(ResultSet rs, Timestamp closedAt) throws SQLException {
+        return new ZReport(rs.getDouble("netSales"), rs.getInt("totalOrders"),
+                rs.getTimestamp("firstOrder"), rs.getTimestamp("lastOrder"),
+                rs.getDouble("grossSales"), rs.getDouble("returnTotal"), rs.getInt("returnCount"),
+                rs.getInt("voidCount"), rs.getDouble("voidValue"), rs.getDouble("discounts"),
+                rs.getDouble("modificationCharges"), closedAt);
+    }
+
+    /**
+     * Computes revenue, order count, the top 5 grossing items and hourly sales for a time window.
+     *
+     * @param conn       an open database connection
+     * @param monitor    prepares statements and receives progress updates
+     * @param locationID the store to report on
+     * @param start      the start of the window (inclusive)
+     * @param end        the end of the window (exclusive)
+     * @return the totals, top items and hourly sales series for the window
+     * @throws SQLException if any of the queries fail
+     */
+    public static RangeReport rangeReport(Connection conn, QueryMonitor monitor, int locationID, LocalDateTime start, LocalDateTime end) throws SQLException {
+        double totalRevenue = 0;
+        int totalOrders = 0;
+
+        monitor.step(0, 3, "Totals");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.RANGE_TOTALS)) {
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                totalRevenue = rs.getDouble("totalRevenue");
+                totalOrders = rs.getInt("totalOrders");
+            }
+        }
+
+        List<ManagerController.TopItem> top = new ArrayList<>();
+        monitor.step(1, 3, "Top items");
+        for (BestSellers.ItemTotal item : BestSellers.top(conn, monitor, locationID, start, end, 5)) {
+            top.add(new ManagerController.TopItem(menuName(item.menuID()), item.revenue()));
+        }
+
+        List<double[]> buckets = new ArrayList<>();
+        monitor.step(2, 3, "Hourly sales");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.RANGE_HOURLY_SALES)) {
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                long epochHour = rs.getTimestamp("bucket").toLocalDateTime().toEpochSecond(ZoneOffset.UTC) / 3600;
+                buckets.add(new double[] { epochHour, rs.getDouble("totalSales") });
+            }
+        }
+        double[] hours = new double[buckets.size()];
+        double[] sales = new double[buckets.size()];
+        for (int i = 0; i < buckets.size(); i++) {
+            hours[i] = buckets.get(i)[0];
+            sales[i] = buckets.get(i)[1];
+        }
+
+        monitor.step(3, 3, "Done");
+        return new RangeReport(totalRevenue, totalOrders, List.copyOf(top), new SalesSeries(hours, sales));
+    }
+
+    /**
+     * Computes ingredient usage for a time window from menu sales and recipe quantities.
+     *
+     * @param conn       an open database connection
+     * @param monitor    prepares statements and receives progress updates
+     * @param locationID the store to report on
+     * @param start      the start of the window (inclusive)
+     * @param end        the end of the window
+     * @return one row per ingredient, ordered by quantity used (descending)
+     * @throws SQLException if the query fails
+     */
+    public static List<UsageRow> productUsage(Connection conn, QueryMonitor monitor, int locationID, LocalDateTime start, LocalDateTime end) throws SQLException {
+        List<UsageRow> rows = new ArrayList<>();
+        monitor.step(0, 1, "Ingredient usage");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.PRODUCT_USAGE)) {
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            ps.setInt(3, locationID);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rows.add(new UsageRow(rs.getString("ingredient") + " (" + rs.getString("unit") + ")",
+                        rs.getDouble("totalUsed")));
+            }
+        }
+        return List.copyOf(rows);
+    }
+
+    /**
+     * Computes orders and sales per store for a time window, for every store at once.
+     *
+     * @param conn    an open database connection
+     * @param monitor prepares statements and receives progress updates
+     * @param start   the start of the window (inclusive)
+     * @param end     the end of the window (exclusive)
+     * @return one row per store, including stores without orders, ordered by location ID
+     * @throws SQLException if the query fails
+     */
+    public static List<StoreSales> storeRollup(Connection conn, QueryMonitor monitor, LocalDateTime start, LocalDateTime end) throws SQLException {
+        List<StoreSales> rows = new ArrayList<>();
+        monitor.step(0, 1, "Store totals");
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.STORE_ROLLUP)) {
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rows.add(new StoreSales(rs.getInt("locationID"), rs.getString("locationName"),
+                        rs.getInt("orderCount"), rs.getDouble("totalSales")));
+            }
+        }
+        return List.copyOf(rows);
+    }
+
+    // === HELPERS ===
+
+    /**
+     * Looks up a menu item's display name in the shared menu cache.
+     *
+     * @param menuID the menu item
+     * @return its name, or {@code "Menu #<id>"} if it cannot be found
+     */
+    static String menuName(int menuID) {
+        try {
+            TerminalCaches.MenuRow row = TerminalCaches.MENU.get(menuID);
+            if (row != null) return row.menuName();
+        } catch (SQLException e) {
+            // Fall back to the ID
+        }
+        return "Menu #" + menuID;
+    }
+
+    /**
+     * Binds one calendar day as a half-open {@code [day, day + 1)} timestamp range.
+     *
+     * @param ps    the statement
+     * @param index the parameter index of the range start; the end is bound at {@code index + 1}
+     * @param day   the day to bind
+     * @throws SQLException if binding fails
+     */
+    private static void bindDay(PreparedStatement ps, int index, LocalDate day) throws SQLException {
+        ps.setTimestamp(index, Timestamp.valueOf(day.atStartOfDay()));
+        ps.setTimestamp(index + 1, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+    }
+}
@@ -0,0 +1,271 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Answers dashboard questions over any date range approximately, by merging per-day
+ * {@link Sketches} instead of aggregating every order.
+ * <p>
+ * Each closed day gets one row of sketches per store in {@code daily_sketches}. Days in
+ * a requested range that have not been sketched yet are built from one streamed scan of
+ * their orders and lines and stored, so every later request over them only reads a few
+ * kilobytes per store and day. Days that are still open (on or after the dashboard's
+ * current date) are sketched on the fly and never stored, since more orders may arrive.
+ * </p>
+ * <p>
+ * Results carry their error bounds: the distinct-combination count has a relative
+ * standard error of about {@value Sketches.HyperLogLog#RELATIVE_ERROR}, item counts may
+ * overcount by the Count-Min bound, and quantiles have a rank error of about
+ * {@value Sketches.TDigest#RANK_ERROR}. The order count is exact.
+ * </p>
+ */
+public class SketchStore {
+
+    /** Quantiles reported for order totals and basket sizes. */
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    /** Number of items in the top-items estimate. */
+    private static final int TOP_ITEMS = 10;
+
+    /** Rows fetched per round trip while sketching days. */
+    private static final int FETCH_SIZE = 5_000;
+
+    // === RESULT TYPES ===
+
+    /**
+     * Estimated units sold of one menu item.
+     *
+     * @param menuName   the item name
+     * @param estimate   estimated units; never below the true number
+     * @param errorBound the estimate exceeds the true number by at most this much, with the stated confidence
+     */
+    public record ItemEstimate(String menuName, long estimate, long errorBound) { }
+
+    /**
+     * An approximate answer for a date range.
+     *
+     * @param orders               exact number of orders
+     * @param distinctCombinations estimated number of distinct drink combinations ordered
+     * @param combinationError     relative standard error of {@code distinctCombinations}
+     * @param topItems             the best-selling items by estimated units
+     * @param itemConfidence       probability that every item's error is within its bound
+     * @param totalQuantiles       order total at each of {@link #QUANTILES}
+     * @param basketQuantiles      units per order at each of {@link #QUANTILES}
+     * @param quantileRankError    typical rank error of the quantiles
+     * @param storedDays           days answered from stored sketches
+     * @param builtDays            days sketched and stored by this request
+     * @param liveDays             open days sketched on the fly
+     * @param millis               wall time of the request
+     */
+    public record Approximation(long orders, long distinctCombinations, double combinationError,
+                                List<ItemEstimate> topItems, double itemConfidence,
+                                double[] totalQuantiles, double[] basketQuantiles, double quantileRankError,
+                                int storedDays, int builtDays, int liveDays, long millis) { }
+
+    // === QUERY ===
+
+    /**
+     * Answers a date range from per-day sketches, building any missing closed days first.
+     *
+     * @param monitor    prepares statements and receives progress updates
+     * @param locationID the store to report on, or {@link StoreSession#ALL_LOCATIONS}
+     * @param start      the first day of the range
+     * @param end        the last day of the range (inclusive)
+     * @param openFrom   the first day that is still open; it and later days are never stored
+     * @return the approximate answer
+     * @throws SQLException if reading the sketches or orders fails
+     */
+    public static Approximation approximate(QueryMonitor monitor, int locationID, LocalDate start, LocalDate end,
+                                            LocalDate openFrom) throws SQLException {
+        long started = System.nanoTime();
+        LocalDate stop = end.plusDays(1);
+        LocalDate closedEnd = openFrom.isBefore(stop) ? (openFrom.isAfter(start) ? openFrom : start) : stop;
+
+        Sketches.DaySketch merged = new Sketches.DaySketch();
+        Map<LocalDate, Map<Integer, Sketches.DaySketch>> built = new TreeMap<>();
+        int storedDays = 0;
+        int liveDays = 0;
+
+        try (Connection conn = DatabaseConnector.getReportingConnection()) {
+            // Streaming with a fetch size needs a transaction in pgjdbc
+            conn.setAutoCommit(false);
+
+            monitor.step(0, 3, "Finding sketched days");
+            Set<LocalDate> sketched = new HashSet<>();
+            if (start.isBefore(closedEnd)) {
+                try (PreparedStatement ps = monitor.prepare(conn, Queries.SKETCH_DAYS)) {
+                    ps.setDate(1, Date.valueOf(start));
+                    ps.setDate(2, Date.valueOf(closedEnd));
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) sketched.add(rs.getDate("saleDay").toLocalDate());
+                }
+            }
+
+            monitor.step(1, 3, "Sketching missing days");
+            LocalDate runStart = null;
+            for (LocalDate day = start; !day.isAfter(closedEnd); day = day.plusDays(1)) {
+                boolean missing = day.isBefore(closedEnd) && !sketched.contains(day);
+                if (missing && runStart == null) runStart = day;
+                if (!missing && runStart != null) {
+                    Map<LocalDate, Map<Integer, Sketches.DaySketch>> run = scan(conn, monitor, runStart, day);
+                    // Every day of the run is recorded, including days without orders
+                    for (LocalDate d = runStart; d.isBefore(day); d = d.plusDays(1)) {
+                        built.put(d, run.getOrDefault(d, Map.of()));
+                    }
+                    runStart = null;
+                }
+            }
+
+            monitor.step(2, 3, "Merging sketches");
+            if (start.isBefore(closedEnd)) {
+                try (PreparedStatement ps = monitor.prepare(conn, Queries.SKETCH_LOAD)) {
+                    ps.setDate(1, Date.valueOf(start));
+                    ps.setDate(2, Date.valueOf(closedEnd));
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        LocalDate day = rs.getDate("saleDay").toLocalDate();
+                        // A replica may already see rows this request is about to store
+                        if (built.containsKey(day)) continue;
+                        if (!matches(rs.getInt("locationID"), locationID)) continue;
+                        merged.merge(Sketches.DaySketch.fromBytes(rs.getBytes("sketch")));
+                    }
+                }
+                storedDays = sketched.size();
+            }
+            for (Map<Integer, Sketches.DaySketch> stores : built.values()) {
+                stores.forEach((store, sketch) -> { if (matches(store, locationID)) merged.merge(sketch); });
+            }
+
+            if (closedEnd.isBefore(stop)) {
+                for (Map<Integer, Sketches.DaySketch> stores : scan(conn, monitor, closedEnd, stop).values()) {
+                    stores.forEach((store, sketch) -> { if (matches(store, locationID)) merged.merge(sketch); });
+                }
+                liveDays = (int) (stop.toEpochDay() - closedEnd.toEpochDay());
+            }
+        }
+
+        if (!built.isEmpty()) save(built);
+        monitor.step(3, 3, "Done");
+
+        List<ItemEstimate> top = new ArrayList<>();
+        long bound = (long) Math.ceil(Sketches.CountMin.epsilon() * merged.items.total());
+        try {
+            for (TerminalCaches.MenuRow row : TerminalCaches.MENU.values()) {
+                long estimate = merged.items.estimate(row.menuID());
+                if (estimate > 0) top.add(new ItemEstimate(row.menuName(), estimate, Math.min(bound, estimate)));
+            }
+        } catch (SQLException e) {
+            System.err.println("Menu unavailable for item estimates: " + e.getMessage());
+        }
+        top.sort(Comparator.comparingLong(ItemEstimate::estimate).reversed());
+
+        double[] totals = new double[QUANTILES.length];
+        double[] baskets = new double[QUANTILES.length];
+        for (int i = 0; i < QUANTILES.length; i++) {
+            totals[i] = merged.orderTotals.quantile(QUANTILES[i]);
+            baskets[i] = merged.basketSizes.quantile(QUANTILES[i]);
+        }
+
+        return new Approximation(merged.orders, merged.combinations.estimate(), Sketches.HyperLogLog.RELATIVE_ERROR,
+                List.copyOf(top.subList(0, Math.min(TOP_ITEMS, top.size()))), 1 - Sketches.CountMin.delta(),
+                totals, baskets, Sketches.TDigest.RANK_ERROR, storedDays, built.size(), liveDays,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static boolean matches(int store, int locationID) {
+        return locationID == StoreSession.ALL_LOCATIONS || store == locationID;
+    }
+
+    // === BUILD ===
+
+    /** Sketches every store's orders in {@code [from, to)}, one sketch per store and day. */
+    private static Map<LocalDate, Map<Integer, Sketches.DaySketch>> scan(Connection conn, QueryMonitor monitor,
+                                                                         LocalDate from, LocalDate to) throws SQLException {
+        Map<LocalDate, Map<Integer, Sketches.DaySketch>> days = new TreeMap<>();
+        int[] menuIDs = new int[16];
+        double[] quantities = new double[16];
+        int lines = 0;
+        int orderID = 0;
+        int store = 0;
+        LocalDateTime orderDate = null;
+        double total = 0;
+
+        try (PreparedStatement ps = monitor.prepare(conn, Queries.SKETCH_LINES)) {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int rowStore = rs.getInt(1);
+                int rowOrderID = rs.getInt(2);
+                LocalDateTime rowDate = rs.getTimestamp(3).toLocalDateTime();
+                if (orderDate == null || rowOrderID != orderID || rowStore != store || !rowDate.equals(orderDate)) {
+                    if (orderDate != null) add(days, store, orderDate, total, menuIDs, quantities, lines);
+                    orderID = rowOrderID;
+                    store = rowStore;
+                    orderDate = rowDate;
+                    total = rs.getDouble(4);
+                    lines = 0;
+                }
+                int menuID = rs.getInt(5);
+                if (rs.wasNull()) continue;
+                if (lines == menuIDs.length) {
+                    menuIDs = Arrays.copyOf(menuIDs, lines * 2);
+                    quantities = Arrays.copyOf(quantities, lines * 2);
+                }
+                menuIDs[lines] = menuID;
+                quantities[lines++] = rs.getDouble(6);
+            }
+            if (orderDate != null) add(days, store, orderDate, total, menuIDs, quantities, lines);
+        }
+        return days;
+    }
+
+    private static void add(Map<LocalDate, Map<Integer, Sketches.DaySketch>> days, int store, LocalDateTime orderDate,
+                            double total, int[] menuIDs, double[] quantities, int lines) {
+        // Sort the lines by menu ID so the combination hash ignores line order
+        for (int i = 1; i < lines; i++) {
+            for (int j = i; j > 0 && menuIDs[j - 1] > menuIDs[j]; j--) {
+                int m = menuIDs[j]; menuIDs[j] = menuIDs[j - 1]; menuIDs[j - 1] = m;
+                double q = quantities[j]; quantities[j] = quantities[j - 1]; quantities[j - 1] = q;
+            }
+        }
+        days.computeIfAbsent(orderDate.toLocalDate(), d -> new HashMap<>())
+            .computeIfAbsent(store, s -> new Sketches.DaySketch())
+            .addOrder(total, menuIDs, quantities, lines);
+    }
+
+    /** Stores newly built days on the primary; a failure only costs rebuilding them next time. */
+    private static void save(Map<LocalDate, Map<Integer, Sketches.DaySketch>> built) {
+        try (Connection conn = DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.REPORT)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement sketches = Queries.SKETCH_SAVE.prepare(conn);
+                 PreparedStatement marks = Queries.SKETCH_MARK_DAY.prepare(conn)) {
+                for (Map.Entry<LocalDate, Map<Integer, Sketches.DaySketch>> day : built.entrySet()) {
+                    for (Map.Entry<Integer, Sketches.DaySketch> store : day.getValue().entrySet()) {
+                        sketches.setInt(1, store.getKey());
+                        sketches.setDate(2, Date.valueOf(day.getKey()));
+                        sketches.setLong(3, store.getValue().orders);
+                        sketches.setBytes(4, store.getValue().toBytes());
+                        sketches.addBatch();
+                    }
+                    marks.setDate(1, Date.valueOf(day.getKey()));
+                    marks.addBatch();
+                }
+                sketches.executeBatch();
+                marks.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Failed to store daily sketches: " + e.getMessage());
+        }
+    }
+}
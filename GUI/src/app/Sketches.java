@@ -0,0 +1,366 @@
+package app;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Small, mergeable summaries of a day's orders, used by {@link SketchStore} to answer
+ * chain-wide, multi-year questions approximately without touching the order tables.
+ * <p>
+ * Each sketch has a fixed or bounded size no matter how many orders it summarizes, and
+ * two sketches of the same kind can be merged into one that summarizes both inputs, so
+ * any date range is answered by merging the sketches of its days (and stores).
+ * </p>
+ * <ul>
+ *     <li>{@link HyperLogLog} counts distinct values (here: distinct drink combinations)
+ *         with a relative standard error of {@value HyperLogLog#RELATIVE_ERROR}.</li>
+ *     <li>{@link CountMin} estimates how often each value occurred (here: units sold per
+ *         menu item); an estimate never undercounts and overcounts by at most
+ *         {@link CountMin#epsilon()} times the total with probability
+ *         {@code 1 - }{@link CountMin#delta()}.</li>
+ *     <li>{@link TDigest} estimates quantiles (here: order totals and basket sizes), most
+ *         accurately near the tails.</li>
+ * </ul>
+ */
+public class Sketches {
+
+    /** Mixes a 64-bit value into a well-distributed hash (SplitMix64 finalizer). */
+    static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // === HYPERLOGLOG ===
+
+    /** Distinct-count sketch with 2<sup>{@value #PRECISION}</sup> one-byte registers. */
+    public static final class HyperLogLog {
+        /** Index bits; 12 gives 4096 registers. */
+        static final int PRECISION = 12;
+        static final int REGISTERS = 1 << PRECISION;
+        /** Relative standard error, {@code 1.04 / sqrt(REGISTERS)}. */
+        public static final double RELATIVE_ERROR = 0.01625;
+
+        final byte[] registers = new byte[REGISTERS];
+
+        /** Adds a value, given as a 64-bit key that is hashed here. */
+        public void add(long key) {
+            long hash = mix(key);
+            int index = (int) (hash >>> (64 - PRECISION));
+            int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+            if (rank > registers[index]) registers[index] = (byte) rank;
+        }
+
+        /** Folds another sketch into this one. */
+        public void merge(HyperLogLog other) {
+            for (int i = 0; i < REGISTERS; i++) {
+                if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+            }
+        }
+
+        /** @return the estimated number of distinct values added */
+        public long estimate() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte r : registers) {
+                sum += 1.0 / (1L << r);
+                if (r == 0) zeros++;
+            }
+            double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+            double raw = alpha * REGISTERS * REGISTERS / sum;
+            // Small ranges: linear counting over the empty registers is more accurate
+            if (raw <= 2.5 * REGISTERS && zeros > 0) raw = REGISTERS * Math.log((double) REGISTERS / zeros);
+            return Math.round(raw);
+        }
+    }
+
+    // === COUNT-MIN ===
+
+    /** Frequency sketch of {@value #DEPTH} rows by {@value #WIDTH} counters. */
+    public static final class CountMin {
+        static final int DEPTH = 4;
+        static final int WIDTH = 512;
+
+        final long[] counts = new long[DEPTH * WIDTH];
+        long total = 0;
+
+        /** Adds {@code count} occurrences of a value. */
+        public void add(long key, long count) {
+            for (int row = 0; row < DEPTH; row++) counts[row * WIDTH + bucket(key, row)] += count;
+            total += count;
+        }
+
+        /** @return an estimate of how often the value occurred; never below the true count */
+        public long estimate(long key) {
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) min = Math.min(min, counts[row * WIDTH + bucket(key, row)]);
+            return min;
+        }
+
+        /** Folds another sketch into this one. */
+        public void merge(CountMin other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            total += other.total;
+        }
+
+        /** @return the sum of all counts added */
+        public long total() {
+            return total;
+        }
+
+        /** @return the overcount bound as a fraction of {@link #total()}, {@code e / WIDTH} */
+        public static double epsilon() {
+            return Math.E / WIDTH;
+        }
+
+        /** @return the probability that an estimate exceeds the bound, {@code e^-DEPTH} */
+        public static double delta() {
+            return Math.exp(-DEPTH);
+        }
+
+        private static int bucket(long key, int row) {
+            return (int) Math.floorMod(mix(key * 31 + row), (long) WIDTH);
+        }
+    }
+
+    // === T-DIGEST ===
+
+    /**
+     * Quantile sketch: a sorted list of weighted centroids, kept small by merging
+     * neighbours under the arcsine scale function so the tails stay precise.
+     */
+    public static final class TDigest {
+        /** Compression; the digest keeps on the order of this many centroids. */
+        static final double COMPRESSION = 100;
+        /** Typical rank error in the middle of the distribution; much smaller near the tails. */
+        public static final double RANK_ERROR = 0.01;
+
+        private double[] means = new double[0];
+        private double[] weights = new double[0];
+        private final double[] bufferMeans = new double[500];
+        private final double[] bufferWeights = new double[500];
+        private int buffered = 0;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        /** Adds one observation. */
+        public void add(double value) {
+            add(value, 1);
+        }
+
+        private void add(double mean, double weight) {
+            if (buffered == bufferMeans.length) compress();
+            bufferMeans[buffered] = mean;
+            bufferWeights[buffered] = weight;
+            buffered++;
+            min = Math.min(min, mean);
+            max = Math.max(max, mean);
+        }
+
+        /** Folds another digest into this one. */
+        public void merge(TDigest other) {
+            other.compress();
+            for (int i = 0; i < other.means.length; i++) add(other.means[i], other.weights[i]);
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        /** @return the number of observations */
+        public double count() {
+            compress();
+            double n = 0;
+            for (double w : weights) n += w;
+            return n;
+        }
+
+        /**
+         * Estimates a quantile.
+         *
+         * @param q the quantile, between 0 and 1
+         * @return the estimated value, or {@code NaN} if the digest is empty
+         */
+        public double quantile(double q) {
+            compress();
+            if (means.length == 0) return Double.NaN;
+            if (means.length == 1) return means[0];
+            double total = count();
+            double target = q * total;
+            double cumulative = 0;
+            double previousCenter = 0;
+            double previousMean = min;
+            for (int i = 0; i < means.length; i++) {
+                double center = cumulative + weights[i] / 2;
+                if (target < center) {
+                    double span = center - previousCenter;
+                    double t = span == 0 ? 1 : (target - previousCenter) / span;
+                    return previousMean + t * (means[i] - previousMean);
+                }
+                cumulative += weights[i];
+                previousCenter = center;
+                previousMean = means[i];
+            }
+            double span = total - previousCenter;
+            double t = span == 0 ? 1 : (target - previousCenter) / span;
+            return previousMean + t * (max - previousMean);
+        }
+
+        private void compress() {
+            if (buffered == 0) return;
+            int n = means.length + buffered;
+            double[] allMeans = Arrays.copyOf(means, n);
+            double[] allWeights = Arrays.copyOf(weights, n);
+            System.arraycopy(bufferMeans, 0, allMeans, means.length, buffered);
+            System.arraycopy(bufferWeights, 0, allWeights, means.length, buffered);
+            buffered = 0;
+
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+            double total = 0;
+            for (double w : allWeights) total += w;
+            double[] newMeans = new double[n];
+            double[] newWeights = new double[n];
+            int out = 0;
+            double soFar = 0;
+            double limit = total * kInverse(k(0) + 1);
+            double curMean = allMeans[order[0]];
+            double curWeight = allWeights[order[0]];
+            for (int j = 1; j < n; j++) {
+                int i = order[j];
+                if (soFar + curWeight + allWeights[i] <= limit) {
+                    curWeight += allWeights[i];
+                    curMean += (allMeans[i] - curMean) * allWeights[i] / curWeight;
+                } else {
+                    newMeans[out] = curMean;
+                    newWeights[out++] = curWeight;
+                    soFar += curWeight;
+                    limit = total * kInverse(k(soFar / total) + 1);
+                    curMean = allMeans[i];
+                    curWeight = allWeights[i];
+                }
+            }
+            newMeans[out] = curMean;
+            newWeights[out++] = curWeight;
+            means = Arrays.copyOf(newMeans, out);
+            weights = Arrays.copyOf(newWeights, out);
+        }
+
+        private static double k(double q) {
+            return COMPRESSION / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+        }
+
+        private static double kInverse(double k) {
+            double x = Math.min(Math.PI / 2, k * 2 * Math.PI / COMPRESSION);
+            return (Math.sin(x) + 1) / 2;
+        }
+
+        void write(ByteBuffer out) {
+            compress();
+            out.putDouble(min).putDouble(max).putInt(means.length);
+            for (int i = 0; i < means.length; i++) out.putDouble(means[i]).putDouble(weights[i]);
+        }
+
+        static TDigest read(ByteBuffer in) {
+            TDigest digest = new TDigest();
+            digest.min = in.getDouble();
+            digest.max = in.getDouble();
+            int n = in.getInt();
+            digest.means = new double[n];
+            digest.weights = new double[n];
+            for (int i = 0; i < n; i++) {
+                digest.means[i] = in.getDouble();
+                digest.weights[i] = in.getDouble();
+            }
+            return digest;
+        }
+
+        int serializedSize() {
+            compress();
+            return 20 + means.length * 16;
+        }
+    }
+
+    // === DAY BUNDLE ===
+
+    /** Every sketch of one store's day, plus its exact order count. */
+    public static final class DaySketch {
+        private static final byte FORMAT = 1;
+
+        long orders = 0;
+        final HyperLogLog combinations = new HyperLogLog();
+        final CountMin items = new CountMin();
+        final TDigest orderTotals = new TDigest();
+        final TDigest basketSizes = new TDigest();
+
+        /**
+         * Adds one order.
+         *
+         * @param total       the order total
+         * @param menuIDs     the menu ID of each line, sorted
+         * @param lineCount   number of lines in {@code menuIDs}
+         * @param quantities  units of each line
+         */
+        void addOrder(double total, int[] menuIDs, double[] quantities, int lineCount) {
+            orders++;
+            orderTotals.add(total);
+            double basket = 0;
+            long combination = 17;
+            int previous = Integer.MIN_VALUE;
+            for (int i = 0; i < lineCount; i++) {
+                basket += quantities[i];
+                items.add(menuIDs[i], Math.round(quantities[i]));
+                // Hash the set of distinct drinks, ignoring how many of each
+                if (menuIDs[i] != previous) combination = mix(combination * 31 + menuIDs[i]);
+                previous = menuIDs[i];
+            }
+            basketSizes.add(basket);
+            if (lineCount > 0) combinations.add(combination);
+        }
+
+        /** Folds another day's (or store's) sketches into this one. */
+        public void merge(DaySketch other) {
+            orders += other.orders;
+            combinations.merge(other.combinations);
+            items.merge(other.items);
+            orderTotals.merge(other.orderTotals);
+            basketSizes.merge(other.basketSizes);
+        }
+
+        /** @return the sketches encoded for storage */
+        byte[] toBytes() {
+            int size = 1 + 8 + HyperLogLog.REGISTERS + 8 + CountMin.DEPTH * CountMin.WIDTH * 4
+                    + orderTotals.serializedSize() + basketSizes.serializedSize();
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.put(FORMAT).putLong(orders).put(combinations.registers).putLong(items.total);
+            // One day's counts always fit in an int
+            for (long c : items.counts) out.putInt((int) c);
+            orderTotals.write(out);
+            basketSizes.write(out);
+            return out.array();
+        }
+
+        /**
+         * Decodes stored sketches.
+         *
+         * @param bytes bytes produced by {@link #toBytes()}
+         * @return the sketches
+         * @throws IllegalArgumentException if the bytes are in an unknown format
+         */
+        static DaySketch fromBytes(byte[] bytes) {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            if (in.get() != FORMAT) throw new IllegalArgumentException("Unknown sketch format.");
+            DaySketch day = new DaySketch();
+            day.orders = in.getLong();
+            in.get(day.combinations.registers);
+            day.items.total = in.getLong();
+            for (int i = 0; i < day.items.counts.length; i++) day.items.counts[i] = in.getInt();
+            TDigest totals = TDigest.read(in);
+            TDigest baskets = TDigest.read(in);
+            day.orderTotals.merge(totals);
+            day.basketSizes.merge(baskets);
+            return day;
+        }
+    }
+}
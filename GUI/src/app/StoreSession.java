@@ -0,0 +1,88 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The store this terminal is working for.
+ * <p>
+ * Orders are recorded against the session's location ID, and every manager report
+ * filters on it, so several stores can share one database without their registers
+ * or reports seeing each other's orders. The location is chosen at startup (see
+ * {@link LineReader}) and stays fixed for the life of the process; the manager's report
+ * screen picks the store its reports cover separately.
+ * {@link #ALL_LOCATIONS} is only used for cross-store rollups.
+ * </p>
+ */
+public class StoreSession {
+
+    /** Location ID used for reports that span every store. */
+    public static final int ALL_LOCATIONS = -1;
+
+    private static Integer locationID = null;
+    private static Map<Integer, String> locations = null;
+
+    /**
+     * Sets the store this terminal works for.
+     *
+     * @param id a {@code locationTable.locationID}
+     */
+    public static synchronized void setLocationID(int id) {
+        locationID = id;
+    }
+
+    /**
+     * Returns the store this terminal works for, defaulting to the lowest location ID.
+     *
+     * @return the session's location ID
+     * @throws SQLException if the default has to be looked up and the lookup fails
+     */
+    public static synchronized int getLocationID() throws SQLException {
+        if (locationID == null) {
+            locationID = locations().keySet().stream().findFirst()
+                .orElseThrow(() -> new SQLException("No store locations are defined."));
+        }
+        return locationID;
+    }
+
+    /**
+     * Returns every store, loading them once.
+     *
+     * @return location names keyed by location ID, in ID order
+     * @throws SQLException if the locations cannot be loaded
+     */
+    public static synchronized Map<Integer, String> locations() throws SQLException {
+        if (locations == null) {
+            Map<Integer, String> loaded = new LinkedHashMap<>();
+            try (Connection conn = DatabaseConnector.getConnection()) {
+                if (conn == null) throw new SQLException("Database connection failed.");
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT locationID, locationName FROM locationTable ORDER BY locationID");
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) loaded.put(rs.getInt("locationID"), rs.getString("locationName"));
+                }
+            }
+            locations = loaded;
+        }
+        return locations;
+    }
+
+    /**
+     * Returns the display name of a store.
+     *
+     * @param id a location ID, or {@link #ALL_LOCATIONS}
+     * @return the store name, "All Stores", or "Store #id" if unknown
+     */
+    public static String locationName(int id) {
+        if (id == ALL_LOCATIONS) return "All Stores";
+        try {
+            return locations().getOrDefault(id, "Store #" + id);
+        } catch (SQLException e) {
+            return "Store #" + id;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package app;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracks how far an incremental reader has got through a sequence-numbered table whose
+ * rows commit out of order.
+ * <p>
+ * Sequence values ({@code change_log.version}, order IDs) are handed out when a row is
+ * inserted, but rows become visible when their transaction commits, so a lower value can
+ * appear after a higher one has already been read. A plain "highest value seen" watermark
+ * would skip such a row for good. This watermark instead keeps a low-water mark
+ * {@link #low()}: every value at or below it has been read or given up on, and readers
+ * re-read everything above it. Values above the mark that have already been read are
+ * remembered, so {@link #offer} tells a reader which rows are new.
+ * </p>
+ * <p>
+ * A missing value is a transaction that has not committed yet or one that rolled back,
+ * and the two cannot be told apart. The mark moves past a gap once a value above it has
+ * been visible for {@link #GAP_TIMEOUT_MILLIS}: the transaction holding the missing value
+ * started before that one, and no transaction here stays open that long.
+ * </p>
+ * <p>
+ * Not thread-safe; each reader guards its own watermark.
+ * </p>
+ */
+public class SyncWatermark {
+
+    /** How long a gap below a visible value is waited for before it is treated as rolled back. */
+    public static final long GAP_TIMEOUT_MILLIS = 5 * 60_000;
+
+    private long low;
+
+    /** Values above {@link #low} already read, with when each was first read. */
+    private final TreeMap<Long, Long> seen = new TreeMap<>();
+
+    /**
+     * Creates a watermark below which everything counts as read.
+     *
+     * @param low the highest value known to be settled
+     */
+    public SyncWatermark(long low) {
+        this.low = low;
+    }
+
+    /** @return the low-water mark; readers fetch every value above it */
+    public long low() {
+        return low;
+    }
+
+    /**
+     * Starts over from a new mark, forgetting every value read so far.
+     *
+     * @param newLow the highest value known to be settled
+     */
+    public void reset(long newLow) {
+        low = newLow;
+        seen.clear();
+    }
+
+    /**
+     * Records a value a reader has fetched.
+     *
+     * @param value the row's sequence value
+     * @return {@code true} if the row is new and must be applied, {@code false} if it was already read
+     */
+    public boolean offer(long value) {
+        if (value <= low) return false;
+        return seen.putIfAbsent(value, System.currentTimeMillis()) == null;
+    }
+
+    /**
+     * Tells whether a value has been read, without recording it.
+     *
+     * @param value the row's sequence value
+     * @return {@code true} if the value is at or below the mark or has been offered
+     */
+    public boolean isRead(long value) {
+        return value <= low || seen.containsKey(value);
+    }
+
+    /**
+     * Moves the mark up to the highest value read, giving up on every gap below it. Used
+     * after a reader's first full read, whose gaps are rows that were deleted or rolled
+     * back long ago rather than transactions still committing.
+     */
+    public void settle() {
+        low = high();
+        seen.clear();
+    }
+
+    /**
+     * Moves the mark up over every value read without a gap below it, and over gaps that
+     * have been open longer than {@link #GAP_TIMEOUT_MILLIS}. Call after each read.
+     */
+    public void advance() {
+        long now = System.currentTimeMillis();
+        while (!seen.isEmpty()) {
+            Map.Entry<Long, Long> first = seen.firstEntry();
+            if (first.getKey() != low + 1 && now - first.getValue() < GAP_TIMEOUT_MILLIS) break;
+            low = first.getKey();
+            seen.pollFirstEntry();
+        }
+    }
+
+    /** @return the highest value read so far, or the mark if nothing above it has been read */
+    public long high() {
+        return seen.isEmpty() ? low : seen.lastKey();
+    }
+}
@@ -0,0 +1,148 @@
+package app;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The per-terminal caches of menu, employee credential and inventory data.
+ * <p>
+ * Each cache is a {@link VersionedCache}, so a menu edit, employee change or restock
+ * made from any manager terminal reaches every running cashier terminal as soon as
+ * it is committed, without those terminals polling the database.
+ * </p>
+ */
+public class TerminalCaches {
+
+    // === ROW TYPES ===
+
+    /**
+     * One row of the {@code menu} table.
+     *
+     * @param menuID        the menu item ID
+     * @param menuName      the display name
+     * @param category      the menu category
+     * @param price         the base price
+     * @param menuImage     the image ID
+     * @param seasonalStart start of availability, or {@code null} if always available
+     * @param seasonalEnd   end of availability, or {@code null} if always available
+     */
+    public record MenuRow(int menuID, String menuName, String category, double price, int menuImage,
+                         Timestamp seasonalStart, Timestamp seasonalEnd) { }
+
+    /**
+     * The login-relevant columns of one {@code employee} row.
+     *
+     * @param employeeID       the employee ID
+     * @param employeePosition the role, e.g. "Manager" or "Cashier"
+     * @param employeePasscode the login passcode
+     */
+    public record EmployeeRow(int employeeID, String employeePosition, String employeePasscode) { }
+
+    /**
+     * One row of the {@code inventory} table.
+     *
+     * @param inventoryID       the ingredient ID
+     * @param inventoryName     the ingredient name
+     * @param quantityAvailable the quantity on hand
+     * @param restockMin        the restock threshold
+     * @param unit              the unit of measurement
+     */
+    public record InventoryRow(int inventoryID, String inventoryName, double quantityAvailable,
+                               int restockMin, String unit) { }
+
+    // === CACHES ===
+
+    /** Menu items, used by the cashier's drink cards. */
+    public static final VersionedCache<Integer, MenuRow> MENU = new VersionedCache<>("menu") {
+
+        @Override
+        protected Map<Integer, MenuRow> loadAll(Connection conn) throws SQLException {
+            Map<Integer, MenuRow> rows = new HashMap<>();
+            try (PreparedStatement stmt = Queries.MENU_ALL.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) rows.put(rs.getInt("menuID"), read(rs));
+            }
+            return rows;
+        }
+
+        @Override
+        protected MenuRow loadOne(Connection conn, Integer key) throws SQLException {
+            try (PreparedStatement stmt = Queries.MENU_ONE.prepare(conn)) {
+                stmt.setInt(1, key);
+                ResultSet rs = stmt.executeQuery();
+                return rs.next() ? read(rs) : null;
+            }
+        }
+
+        @Override
+        protected Integer parseKey(String key) { return Integer.valueOf(key); }
+
+        private MenuRow read(ResultSet rs) throws SQLException {
+            return new MenuRow(rs.getInt("menuID"), rs.getString("menuName"), rs.getString("category"),
+                    rs.getDouble("price"), rs.getInt("menuImage"),
+                    rs.getTimestamp("seasonalStart"), rs.getTimestamp("seasonalEnd"));
+        }
+    };
+
+    /** Employee credentials, used by the login screen. */
+    public static final VersionedCache<Integer, EmployeeRow> EMPLOYEES = new VersionedCache<>("employee") {
+
+        @Override
+        protected Map<Integer, EmployeeRow> loadAll(Connection conn) throws SQLException {
+            Map<Integer, EmployeeRow> rows = new HashMap<>();
+            try (PreparedStatement stmt = Queries.EMPLOYEE_ALL.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) rows.put(rs.getInt("employeeID"), read(rs));
+            }
+            return rows;
+        }
+
+        @Override
+        protected EmployeeRow loadOne(Connection conn, Integer key) throws SQLException {
+            try (PreparedStatement stmt = Queries.EMPLOYEE_ONE.prepare(conn)) {
+                stmt.setInt(1, key);
+                ResultSet rs = stmt.executeQuery();
+                return rs.next() ? read(rs) : null;
+            }
+        }
+
+        @Override
+        protected Integer parseKey(String key) { return Integer.valueOf(key); }
+
+        private EmployeeRow read(ResultSet rs) throws SQLException {
+            return new EmployeeRow(rs.getInt("employeeID"), rs.getString("employeePosition"),
+                    rs.getString("employeePasscode"));
+        }
+    };
+
+    /** Ingredient stock levels, used by the restock view. */
+    public static final VersionedCache<Integer, InventoryRow> INVENTORY = new VersionedCache<>("inventory") {
+
+        @Override
+        protected Map<Integer, InventoryRow> loadAll(Connection conn) throws SQLException {
+            Map<Integer, InventoryRow> rows = new HashMap<>();
+            try (PreparedStatement stmt = Queries.INVENTORY_ALL.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) rows.put(rs.getInt("inventoryID"), read(rs));
+            }
+            return rows;
+        }
+
+        @Override
+        protected InventoryRow loadOne(Connection conn, Integer key) throws SQLException {
+            try (PreparedStatement stmt = Queries.INVENTORY_ONE.prepare(conn)) {
+                stmt.setInt(1, key);
+                ResultSet rs = stmt.executeQuery();
+                return rs.next() ? read(rs) : null;
+            }
+        }
+
+        @Override
+        protected Integer parseKey(String key) { return Integer.valueOf(key); }
+
+        private InventoryRow read(ResultSet rs) throws SQLException {
+            return new InventoryRow(rs.getInt("inventoryID"), rs.getString("inventoryName"),
+                    rs.getDouble("quantityAvailable"), rs.getInt("restockMin"), rs.getString("unit"));
+        }
+    };
+}
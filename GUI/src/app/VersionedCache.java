@@ -0,0 +1,250 @@
+package app;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A per-terminal copy of one database table that stays in sync across terminals.
+ * <p>
+ * Every change to a cached table is recorded in {@code change_log} with a global,
+ * increasing version number and announced on the {@value #CHANNEL} notification
+ * channel as {@code <entity>:<key>:<version>} (see the triggers in
+ * {@code databaseUpload.sql}). A cache only reloads the row named in a notification.
+ * Whenever the {@code LISTEN} connection is re-established, each cache replays the
+ * {@code change_log} rows it has not applied yet, so changes made while a terminal
+ * was disconnected are never missed. Versions are handed out before their change
+ * commits, so a lower version can commit after a higher one; the replay therefore
+ * starts from a {@link SyncWatermark} low-water mark rather than from the highest
+ * version applied. {@code change_log} keeps {@value #RETAIN_DAYS} days of changes
+ * (see {@link PartitionMaintenance}); a cache that fell further behind reloads in full.
+ * </p>
+ * <p>
+ * While the {@code LISTEN} connection is down the cache cannot know whether it is
+ * stale, so reads fall through to a full reload instead of serving cached rows.
+ * </p>
+ *
+ * @param <K> the primary key type
+ * @param <V> the cached row type
+ */
+public abstract class VersionedCache<K, V> {
+
+    /** The notification channel carrying change-log entries. */
+    public static final String CHANNEL = "entity_changed";
+
+    /** Days of {@code change_log} history kept for catching up. */
+    public static final int RETAIN_DAYS = 7;
+
+    /** A cache not synced for this long may have missed pruned changes and reloads in full. */
+    private static final long MAX_CATCH_UP_MILLIS = (RETAIN_DAYS - 1) * 24L * 60 * 60 * 1000;
+
+    private static final Map<String, VersionedCache<?, ?>> registry = new ConcurrentHashMap<>();
+
+    static {
+        NotificationHub.subscribe(CHANNEL, VersionedCache::dispatch);
+    }
+
+    private final String entity;
+    private final Map<K, V> rows = new ConcurrentHashMap<>();
+    private final SyncWatermark applied = new SyncWatermark(0);
+    private boolean loaded = false;
+    private boolean registered = false;
+    private long syncedAt = 0;
+
+    /**
+     * Creates a cache for one table. It starts receiving changes on its first read.
+     *
+     * @param entity the table name as written to {@code change_log.entity}
+     */
+    protected VersionedCache(String entity) {
+        this.entity = entity;
+    }
+
+    // === SUBCLASS HOOKS ===
+
+    /** Loads every row of the table. */
+    protected abstract Map<K, V> loadAll(Connection conn) throws SQLException;
+
+    /** Loads one row, or returns {@code null} if it no longer exists. */
+    protected abstract V loadOne(Connection conn, K key) throws SQLException;
+
+    /** Parses a key as written to {@code change_log.entityKey}. */
+    protected abstract K parseKey(String key);
+
+    // === READS ===
+
+    /**
+     * Returns all cached rows.
+     *
+     * @return an unmodifiable snapshot of the cached rows
+     * @throws SQLException if the cache has to be (re)loaded and the load fails
+     */
+    public Collection<V> values() throws SQLException {
+        ensureFresh();
+        return List.copyOf(rows.values());
+    }
+
+    /**
+     * Returns one cached row.
+     *
+     * @param key the primary key
+     * @return the row, or {@code null} if it does not exist
+     * @throws SQLException if the cache has to be (re)loaded and the load fails
+     */
+    public V get(K key) throws SQLException {
+        ensureFresh();
+        return rows.get(key);
+    }
+
+    /** @return the {@code change_log} version up to which every change has been applied, or -1 if never loaded */
+    public synchronized long getVersion() {
+        return loaded ? applied.low() : -1;
+    }
+
+    // === SYNCHRONIZATION ===
+
+    private synchronized void ensureFresh() throws SQLException {
+        if (loaded && NotificationHub.isListening()) return;
+        if (!registered) {
+            // Until the first load there is nothing to keep in sync
+            registry.put(entity, this);
+            NotificationHub.onReconnect(this::catchUpQuietly);
+            registered = true;
+        }
+        try (Connection conn = openConnection()) {
+            // Versions of changes that may still be committing are left above the mark,
+            // and the ones already visible are read before the rows so the load includes them
+            applied.reset(settledVersion(conn, entity));
+            for (ChangeEntry change : changesAbove(conn, entity, applied.low())) applied.offer(change.version());
+            Map<K, V> loadedRows = loadAll(conn);
+            rows.clear();
+            rows.putAll(loadedRows);
+            loaded = true;
+            syncedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Applies one change notification.
+     * <p>
+     * The row is always re-read rather than skipped by version: versions are handed out
+     * when a change is made but notifications arrive in commit order, so a lower version
+     * can legitimately arrive after a higher one.
+     * </p>
+     *
+     * @param key           the changed row's key
+     * @param changeVersion the change-log version of the change
+     */
+    private synchronized void apply(String key, long changeVersion) throws SQLException {
+        if (!loaded) return;
+        try (Connection conn = openConnection()) {
+            reload(conn, parseKey(key));
+        }
+        applied.offer(changeVersion);
+        applied.advance();
+        syncedAt = System.currentTimeMillis();
+    }
+
+    /** Replays every change above the low-water mark that has not been applied yet. */
+    private synchronized void catchUp() throws SQLException {
+        if (!loaded) return;
+        if (System.currentTimeMillis() - syncedAt > MAX_CATCH_UP_MILLIS) {
+            // Changes this cache has not seen may have been pruned
+            invalidate();
+            return;
+        }
+        try (Connection conn = openConnection()) {
+            Set<K> changed = new LinkedHashSet<>();
+            for (ChangeEntry change : changesAbove(conn, entity, applied.low())) {
+                if (applied.offer(change.version())) changed.add(parseKey(change.entityKey()));
+            }
+            for (K key : changed) reload(conn, key);
+            applied.advance();
+            syncedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void reload(Connection conn, K key) throws SQLException {
+        V row = loadOne(conn, key);
+        if (row == null) rows.remove(key);
+        else rows.put(key, row);
+    }
+
+    private void catchUpQuietly() {
+        try {
+            catchUp();
+        } catch (SQLException e) {
+            System.err.println("Failed to catch up " + entity + " cache: " + e.getMessage());
+            invalidate();
+        }
+    }
+
+    /** Forces a full reload on the next read. */
+    public synchronized void invalidate() {
+        loaded = false;
+    }
+
+    private static void dispatch(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3) return;
+        VersionedCache<?, ?> cache = registry.get(parts[0]);
+        if (cache == null) return;
+        try {
+            cache.apply(parts[1], Long.parseLong(parts[2]));
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to apply change " + payload + ": " + e.getMessage());
+            cache.invalidate();
+        }
+    }
+
+    /** One {@code change_log} row of an entity. */
+    record ChangeEntry(long version, String entityKey) { }
+
+    /**
+     * Returns an entity's {@code change_log} rows above a version, oldest first.
+     *
+     * @param conn   an open connection
+     * @param entity the table name as written to {@code change_log.entity}
+     * @param after  the version to read above
+     * @return the changes
+     * @throws SQLException if the query fails
+     */
+    static List<ChangeEntry> changesAbove(Connection conn, String entity, long after) throws SQLException {
+        List<ChangeEntry> changes = new ArrayList<>();
+        try (PreparedStatement stmt = Queries.CHANGE_LOG_SINCE.prepare(conn)) {
+            stmt.setString(1, entity);
+            stmt.setLong(2, after);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) changes.add(new ChangeEntry(rs.getLong("version"), rs.getString("entityKey")));
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the newest {@code change_log} version of an entity logged longer than
+     * {@link SyncWatermark#GAP_TIMEOUT_MILLIS} ago, the starting mark of a full load: no
+     * change below it can still be committing.
+     *
+     * @param conn   an open connection
+     * @param entity the table name as written to {@code change_log.entity}
+     * @return the version, or 0 if there is none
+     * @throws SQLException if the query fails
+     */
+    static long settledVersion(Connection conn, String entity) throws SQLException {
+        try (PreparedStatement stmt = Queries.CHANGE_LOG_SETTLED.prepare(conn)) {
+            stmt.setString(1, entity);
+            stmt.setDouble(2, SyncWatermark.GAP_TIMEOUT_MILLIS / 1000.0);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        // Cache reads serve the register, so they queue ahead of manager reports
+        return DatabaseConnector.getConnection(WorkloadScheduler.WorkClass.MENU_READ);
+    }
+}
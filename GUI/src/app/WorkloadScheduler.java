@@ -0,0 +1,288 @@
+package app;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits database work by priority so manager reports never starve the register.
+ * <p>
+ * Every scheduled connection is borrowed through {@link #admit(WorkClass)}, which blocks
+ * until its class may run and returns a {@link Permit} that is released when the
+ * connection is closed. Order submits run on the connector's own order pool, so they
+ * only wait for one another, never for menu reads, reports or the unscheduled work
+ * (notifications, cache loads, manager edits) sharing the primary pool. At most
+ * {@value #CAPACITY} menu reads and reports hold primary connections at once, and a
+ * report only starts while no menu read is waiting, so a freed slot always goes to the
+ * most important waiter.
+ * </p>
+ * <p>
+ * Each class has a queue-depth limit beyond which new work is rejected instead of
+ * queued. During peak ordering, when at least {@value #PEAK_ORDERS_PER_MINUTE} orders
+ * were committed across all terminals in the last minute (counted from
+ * {@link OrderFeed}), reports are limited to one at a time and at most one more may
+ * wait; further report requests are shed with an error telling the manager to retry.
+ * Per-class queue wait times are available from {@link #stats()} and logged every
+ * minute while work is flowing.
+ * </p>
+ */
+public class WorkloadScheduler {
+
+    /** Priority classes of database work, highest priority first. */
+    public enum WorkClass {
+        /** Cashier order inserts. */
+        ORDER_SUBMIT("Order submit", 50, 10_000),
+        /** Cashier menu, credential and inventory cache reads. */
+        MENU_READ("Menu read", 20, 10_000),
+        /** Manager reports and history tables. */
+        REPORT("Report", 4, 60_000);
+
+        private final String label;
+        private final int maxQueued;
+        private final long maxWaitMillis;
+
+        WorkClass(String label, int maxQueued, long maxWaitMillis) {
+            this.label = label;
+            this.maxQueued = maxQueued;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        /** @return the display name of the class */
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * Queue statistics of one work class since startup.
+     *
+     * @param workClass     the work class
+     * @param admitted      work items that got to run
+     * @param rejected      work items shed or timed out while queued
+     * @param running       work items running now
+     * @param queued        work items waiting now
+     * @param avgWaitMillis average queue wait of admitted work
+     * @param maxWaitMillis longest queue wait of admitted work
+     */
+    public record ClassStats(WorkClass workClass, long admitted, long rejected, int running, int queued,
+                             double avgWaitMillis, double maxWaitMillis) { }
+
+    /**
+     * Held while admitted work runs; closing it frees the slot. Closing twice has no effect.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final WorkClass workClass;
+        private boolean released = false;
+
+        private Permit(WorkClass workClass) {
+            this.workClass = workClass;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released) return;
+                released = true;
+            }
+            release(workClass);
+        }
+    }
+
+    /** Scheduled primary-pool connections in use at once, kept below the pool size for unscheduled work. */
+    private static final int CAPACITY = 8;
+
+    /** Reports running at once outside peak ordering. */
+    private static final int MAX_REPORTS = 3;
+
+    /** Committed orders per minute from which ordering counts as peak. */
+    private static final int PEAK_ORDERS_PER_MINUTE = 8;
+
+    /** Reports running at once during peak ordering. */
+    private static final int PEAK_MAX_REPORTS = 1;
+
+    /** Reports allowed to wait during peak ordering; more are shed. */
+    private static final int PEAK_MAX_QUEUED_REPORTS = 1;
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final Map<WorkClass, Condition> turns = new EnumMap<>(WorkClass.class);
+    private static final Map<WorkClass, int[]> running = new EnumMap<>(WorkClass.class);
+    private static final Map<WorkClass, int[]> waiting = new EnumMap<>(WorkClass.class);
+    private static final Map<WorkClass, LongAdder> admitted = new EnumMap<>(WorkClass.class);
+    private static final Map<WorkClass, LongAdder> rejected = new EnumMap<>(WorkClass.class);
+    private static final Map<WorkClass, LongAdder> waitNanos = new EnumMap<>(WorkClass.class);
+    private static final Map<WorkClass, LongAccumulator> maxWaitNanos = new EnumMap<>(WorkClass.class);
+    private static final Deque<Long> recentOrders = new ArrayDeque<>();
+    /** Running menu reads and reports, which share the primary pool. */
+    private static int runningTotal = 0;
+    private static ScheduledExecutorService metricsLogger = null;
+
+    static {
+        for (WorkClass c : WorkClass.values()) {
+            turns.put(c, lock.newCondition());
+            running.put(c, new int[1]);
+            waiting.put(c, new int[1]);
+            admitted.put(c, new LongAdder());
+            rejected.put(c, new LongAdder());
+            waitNanos.put(c, new LongAdder());
+            maxWaitNanos.put(c, new LongAccumulator(Math::max, 0));
+        }
+        OrderFeed.subscribe(event -> {
+            synchronized (recentOrders) {
+                recentOrders.addLast(System.currentTimeMillis());
+            }
+        });
+    }
+
+    // === ADMISSION ===
+
+    /**
+     * Waits until work of the given class may run.
+     *
+     * @param workClass the priority class of the work
+     * @return the permit to close when the work is done
+     * @throws SQLException if the class's queue is full, the work is shed during peak
+     *                      ordering, the wait times out, or the thread is interrupted
+     */
+    public static Permit admit(WorkClass workClass) throws SQLException {
+        startMetricsLog();
+        boolean peak = isPeak();
+        long queuedAt = System.nanoTime();
+        long deadline = queuedAt + TimeUnit.MILLISECONDS.toNanos(workClass.maxWaitMillis);
+
+        lock.lock();
+        try {
+            if (!canRun(workClass, peak)) {
+                int queueLimit = workClass == WorkClass.REPORT && peak ? PEAK_MAX_QUEUED_REPORTS : workClass.maxQueued;
+                if (waiting.get(workClass)[0] >= queueLimit) {
+                    rejected.get(workClass).increment();
+                    throw new SQLException(workClass == WorkClass.REPORT && peak
+                        ? "Reports are paused while the registers are busy. Please try again in a few minutes."
+                        : "Too much " + workClass.label().toLowerCase() + " work is queued. Please try again.");
+                }
+
+                waiting.get(workClass)[0]++;
+                try {
+                    while (!canRun(workClass, peak = isPeak())) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            rejected.get(workClass).increment();
+                            throw new SQLException("Timed out waiting for database capacity ("
+                                    + workClass.label().toLowerCase() + ").");
+                        }
+                        turns.get(workClass).awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.get(workClass).increment();
+                    throw new SQLException("Interrupted while waiting for database capacity.", e);
+                } finally {
+                    waiting.get(workClass)[0]--;
+                    // Lower classes may have been held back only by this waiter
+                    signalAll();
+                }
+            }
+
+            running.get(workClass)[0]++;
+            if (workClass != WorkClass.ORDER_SUBMIT) runningTotal++;
+        } finally {
+            lock.unlock();
+        }
+
+        long waited = System.nanoTime() - queuedAt;
+        admitted.get(workClass).increment();
+        waitNanos.get(workClass).add(waited);
+        maxWaitNanos.get(workClass).accumulate(waited);
+        return new Permit(workClass);
+    }
+
+    private static void release(WorkClass workClass) {
+        lock.lock();
+        try {
+            running.get(workClass)[0]--;
+            if (workClass != WorkClass.ORDER_SUBMIT) runningTotal--;
+            signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Must hold {@link #lock}. */
+    private static boolean canRun(WorkClass workClass, boolean peak) {
+        int free = CAPACITY - runningTotal;
+        return switch (workClass) {
+            case ORDER_SUBMIT -> running.get(WorkClass.ORDER_SUBMIT)[0] < DatabaseConnector.ORDER_POOL_SIZE;
+            case MENU_READ -> free > 0;
+            case REPORT -> free > 0
+                    && waiting.get(WorkClass.MENU_READ)[0] == 0
+                    && running.get(WorkClass.REPORT)[0] < (peak ? PEAK_MAX_REPORTS : MAX_REPORTS);
+        };
+    }
+
+    /** Wakes every waiter, highest class first; each re-checks whether it may run. Must hold {@link #lock}. */
+    private static void signalAll() {
+        for (WorkClass c : WorkClass.values()) turns.get(c).signalAll();
+    }
+
+    /** @return whether orders are currently arriving at peak rate */
+    public static boolean isPeak() {
+        long cutoff = System.currentTimeMillis() - 60_000;
+        synchronized (recentOrders) {
+            while (!recentOrders.isEmpty() && recentOrders.peekFirst() < cutoff) recentOrders.pollFirst();
+            return recentOrders.size() >= PEAK_ORDERS_PER_MINUTE;
+        }
+    }
+
+    // === METRICS ===
+
+    /** @return queue statistics of every work class, highest priority first */
+    public static List<ClassStats> stats() {
+        lock.lock();
+        try {
+            return Arrays.stream(WorkClass.values()).map(c -> {
+                long count = admitted.get(c).sum();
+                return new ClassStats(c, count, rejected.get(c).sum(), running.get(c)[0], waiting.get(c)[0],
+                        count == 0 ? 0 : waitNanos.get(c).sum() / 1e6 / count,
+                        maxWaitNanos.get(c).get() / 1e6);
+            }).toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return a one-line summary of queue waits per class, for logs and status labels */
+    public static String describe() {
+        StringJoiner line = new StringJoiner(" · ", "Queue wait avg/max: ", isPeak() ? " (peak)" : "");
+        for (ClassStats s : stats()) {
+            line.add(String.format("%s %.0f/%.0f ms%s", s.workClass().label(), s.avgWaitMillis(), s.maxWaitMillis(),
+                    s.rejected() > 0 ? " (" + s.rejected() + " shed)" : ""));
+        }
+        return line.toString();
+    }
+
+    private static synchronized void startMetricsLog() {
+        if (metricsLogger != null) return;
+        metricsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "workload-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        long[] lastAdmitted = {0};
+        metricsLogger.scheduleAtFixedRate(() -> {
+            long total = admitted.values().stream().mapToLong(LongAdder::sum).sum();
+            if (total != lastAdmitted[0]) System.out.println(describe());
+            lastAdmitted[0] = total;
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+}